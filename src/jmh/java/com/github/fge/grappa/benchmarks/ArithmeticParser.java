@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.benchmarks;
+
+import com.github.fge.grappa.parsers.BaseParser;
+import com.github.fge.grappa.rules.Rule;
+
+/**
+ * A parser of integer arithmetic expressions, computing their value
+ */
+public class ArithmeticParser
+    extends BaseParser<Integer>
+{
+    public Rule root()
+    {
+        return sequence(expression(), EOI);
+    }
+
+    public Rule expression()
+    {
+        return sequence(term(), zeroOrMore(firstOf(
+            sequence('+', term(), push(pop() + pop())),
+            sequence('-', term(), push(-pop() + pop()))
+        )));
+    }
+
+    public Rule term()
+    {
+        return sequence(factor(), zeroOrMore(
+            sequence('*', factor(), push(pop() * pop()))
+        ));
+    }
+
+    public Rule factor()
+    {
+        return firstOf(number(), sequence('(', expression(), ')'));
+    }
+
+    public Rule number()
+    {
+        return sequence(oneOrMore(digit()), push(Integer.parseInt(match())));
+    }
+}
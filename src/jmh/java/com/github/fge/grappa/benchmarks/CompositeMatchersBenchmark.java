@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.benchmarks;
+
+import com.github.fge.grappa.buffers.CharSequenceInputBuffer;
+import com.github.fge.grappa.buffers.InputBuffer;
+import com.github.fge.grappa.matchers.CharMatcher;
+import com.github.fge.grappa.matchers.CharRangeMatcher;
+import com.github.fge.grappa.matchers.StringMatcher;
+import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.matchers.delegate.FirstOfMatcher;
+import com.github.fge.grappa.matchers.delegate.OneOrMoreMatcher;
+import com.github.fge.grappa.matchers.delegate.OptionalMatcher;
+import com.github.fge.grappa.matchers.delegate.SequenceMatcher;
+import com.github.fge.grappa.matchers.delegate.ZeroOrMoreMatcher;
+import com.github.fge.grappa.rules.Rule;
+import com.google.common.base.Strings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of composite matchers over simple terminals
+ *
+ * <p>These mostly measure the cost of creating and running sub contexts.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class CompositeMatchersBenchmark
+{
+    private MatcherRunner runner;
+
+    private Matcher sequence;
+    private Matcher firstOfFirst;
+    private Matcher firstOfLast;
+    private Matcher oneOrMore;
+    private Matcher zeroOrMore;
+    private Matcher optional;
+
+    @Setup
+    public void setup()
+    {
+        final InputBuffer buffer = new CharSequenceInputBuffer("key=value;"
+            + Strings.repeat("a", 1000));
+        runner = new MatcherRunner(buffer);
+
+        final Matcher letter = new CharRangeMatcher('a', 'z');
+        final Matcher word = new OneOrMoreMatcher(letter);
+
+        sequence = new SequenceMatcher(new Rule[] {
+            word, new CharMatcher('='), word, new CharMatcher(';')
+        });
+        firstOfFirst = new FirstOfMatcher(new Rule[] {
+            new StringMatcher("key"), new StringMatcher("kez"),
+            new StringMatcher("kex"), new StringMatcher("kew")
+        });
+        firstOfLast = new FirstOfMatcher(new Rule[] {
+            new StringMatcher("kez"), new StringMatcher("kex"),
+            new StringMatcher("kew"), new StringMatcher("key")
+        });
+        oneOrMore = word;
+        zeroOrMore = new ZeroOrMoreMatcher(letter);
+        optional = new OptionalMatcher(new CharMatcher('='));
+    }
+
+    @Benchmark
+    public boolean sequence()
+    {
+        return runner.run(sequence, 0);
+    }
+
+    @Benchmark
+    public boolean firstOfFirstAlternative()
+    {
+        return runner.run(firstOfFirst, 0);
+    }
+
+    @Benchmark
+    public boolean firstOfLastAlternative()
+    {
+        return runner.run(firstOfLast, 0);
+    }
+
+    @Benchmark
+    public boolean oneOrMore1000()
+    {
+        return runner.run(oneOrMore, 10);
+    }
+
+    @Benchmark
+    public boolean zeroOrMoreEmpty()
+    {
+        return runner.run(zeroOrMore, 3);
+    }
+
+    @Benchmark
+    public boolean optionalMatch()
+    {
+        return runner.run(optional, 3);
+    }
+
+    @Benchmark
+    public boolean optionalMismatch()
+    {
+        return runner.run(optional, 0);
+    }
+}
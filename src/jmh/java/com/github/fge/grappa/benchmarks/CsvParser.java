@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.benchmarks;
+
+import com.github.fge.grappa.parsers.BaseParser;
+import com.github.fge.grappa.rules.Rule;
+
+/**
+ * A recognizer of CSV files (RFC 4180, with LF line terminators)
+ */
+public class CsvParser
+    extends BaseParser<Object>
+{
+    public Rule file()
+    {
+        return sequence(zeroOrMore(record()), EOI);
+    }
+
+    public Rule record()
+    {
+        return sequence(field(), zeroOrMore(',', field()), '\n');
+    }
+
+    public Rule field()
+    {
+        return firstOf(quoted(), zeroOrMore(noneOf(",\"\n")));
+    }
+
+    public Rule quoted()
+    {
+        return sequence('"', zeroOrMore(firstOf("\"\"", noneOf("\""))), '"');
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.benchmarks;
+
+import com.github.fge.grappa.Grappa;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.run.ListeningParseRunner;
+import com.github.fge.grappa.run.ParseRunner;
+import com.github.fge.grappa.run.ParsingResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End to end parsing benchmarks of a few grammars, with inputs of several
+ * sizes
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class GrammarBenchmark
+{
+    @Param({ "arithmetic", "csv" })
+    public String grammar;
+
+    @Param({ "1000", "100000" })
+    public int size;
+
+    private ParseRunner<?> runner;
+    private String input;
+
+    @Setup
+    public void setup()
+    {
+        final Rule rule;
+        final String chunk;
+
+        switch (grammar) {
+            case "arithmetic":
+                rule = Grappa.createParser(ArithmeticParser.class).root();
+                chunk = "12*(3+4*(5-6))-7*8+";
+                break;
+            case "csv":
+                rule = Grappa.createParser(CsvParser.class).file();
+                chunk = "1234,\"quoted, with \"\"quotes\"\"\",plain text,\n";
+                break;
+            default:
+                throw new IllegalStateException("unknown grammar " + grammar);
+        }
+
+        final StringBuilder sb = new StringBuilder(size + chunk.length());
+        while (sb.length() < size)
+            sb.append(chunk);
+        if ("arithmetic".equals(grammar))
+            sb.append('0');
+
+        input = sb.toString();
+        runner = new ListeningParseRunner<>(rule);
+
+        if (!runner.run(input).isSuccess())
+            throw new IllegalStateException("benchmark input does not match");
+    }
+
+    @Benchmark
+    public ParsingResult<?> parse()
+    {
+        return runner.run(input);
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.benchmarks;
+
+import com.github.fge.grappa.buffers.LineCounter;
+import com.github.fge.grappa.support.Position;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of {@link LineCounter} creation and lookups
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class LineCounterBenchmark
+{
+    @Param({ "1000", "100000" })
+    public int nrLines;
+
+    private String input;
+    private LineCounter lineCounter;
+    private int index;
+
+    @Setup
+    public void setup()
+    {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < nrLines; i++)
+            sb.append("line number ").append(i).append(i % 2 == 0 ? "\n"
+                : "\r\n");
+        input = sb.toString();
+        lineCounter = new LineCounter(input);
+        index = input.length() * 2 / 3;
+    }
+
+    @Benchmark
+    public LineCounter create()
+    {
+        return new LineCounter(input);
+    }
+
+    @Benchmark
+    public Position toPosition()
+    {
+        return lineCounter.toPosition(index);
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.benchmarks;
+
+import com.github.fge.grappa.buffers.InputBuffer;
+import com.github.fge.grappa.matchers.EmptyMatcher;
+import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.run.MatchHandler;
+import com.github.fge.grappa.run.context.DefaultMatcherContext;
+import com.github.fge.grappa.run.context.MatcherContext;
+import com.github.fge.grappa.stack.DefaultValueStack;
+
+/**
+ * Run a single matcher at a given index of an input, outside of a parser
+ *
+ * <p>The root context is created once, along with this runner (create it in a
+ * {@code @Setup} method), and reused for all runs: only its matcher and index
+ * are reset before each run, so that a run does not allocate.</p>
+ */
+final class MatcherRunner
+    implements MatchHandler
+{
+    private final DefaultMatcherContext<Object> context;
+
+    MatcherRunner(final InputBuffer buffer)
+    {
+        context = new DefaultMatcherContext<>(buffer,
+            new DefaultValueStack<>(), this, new EmptyMatcher());
+    }
+
+    @Override
+    public <V> boolean match(final MatcherContext<V> context)
+    {
+        //noinspection ConstantConditions
+        return context.getMatcher().match(context);
+    }
+
+    boolean run(final Matcher matcher, final int index)
+    {
+        context.setMatcher(matcher);
+        context.setStartIndex(index);
+        context.setCurrentIndex(index);
+        return context.runMatcher();
+    }
+}
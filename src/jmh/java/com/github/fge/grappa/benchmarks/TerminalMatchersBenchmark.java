@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.benchmarks;
+
+import com.github.fge.grappa.buffers.CharSequenceInputBuffer;
+import com.github.fge.grappa.buffers.InputBuffer;
+import com.github.fge.grappa.matchers.AnyOfMatcher;
+import com.github.fge.grappa.matchers.StringMatcher;
+import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.matchers.trie.Trie;
+import com.github.fge.grappa.matchers.trie.TrieMatcher;
+import com.github.fge.grappa.matchers.unicode.CodePointRangeMatcher;
+import com.github.fge.grappa.support.Characters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of terminal matchers, for both a match and a mismatch
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class TerminalMatchersBenchmark
+{
+    private static final String INPUT = "synchronized \uD83D\uDE00 ";
+
+    private MatcherRunner runner;
+
+    private Matcher string;
+    private Matcher trie;
+    private Matcher anyOf;
+    private Matcher codePointRange;
+
+    @Setup
+    public void setup()
+    {
+        final InputBuffer buffer = new CharSequenceInputBuffer(INPUT);
+        runner = new MatcherRunner(buffer);
+        string = new StringMatcher("synchronized");
+
+        final Trie keywords = Trie.newBuilder()
+            .addWord("static").addWord("super").addWord("switch")
+            .addWord("synchronized").addWord("short").addWord("strictfp")
+            .build();
+        trie = new TrieMatcher(keywords);
+
+        anyOf = new AnyOfMatcher(Characters.of("abcdefghijklmnopqrstuvwxyz"));
+        codePointRange = new CodePointRangeMatcher(0x1F600, 0x1F64F);
+    }
+
+    @Benchmark
+    public boolean stringMatch()
+    {
+        return runner.run(string, 0);
+    }
+
+    @Benchmark
+    public boolean stringMismatch()
+    {
+        return runner.run(string, 1);
+    }
+
+    @Benchmark
+    public boolean trieMatch()
+    {
+        return runner.run(trie, 0);
+    }
+
+    @Benchmark
+    public boolean trieMismatch()
+    {
+        return runner.run(trie, 1);
+    }
+
+    @Benchmark
+    public boolean anyOfMatch()
+    {
+        return runner.run(anyOf, 0);
+    }
+
+    @Benchmark
+    public boolean anyOfMismatch()
+    {
+        return runner.run(anyOf, 12);
+    }
+
+    @Benchmark
+    public boolean codePointRangeMatch()
+    {
+        return runner.run(codePointRange, 13);
+    }
+
+    @Benchmark
+    public boolean codePointRangeMismatch()
+    {
+        return runner.run(codePointRange, 0);
+    }
+}
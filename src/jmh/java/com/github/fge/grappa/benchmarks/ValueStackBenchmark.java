@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.benchmarks;
+
+import com.github.fge.grappa.stack.DefaultValueStack;
+import com.github.fge.grappa.stack.ValueStack;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of {@link DefaultValueStack} operations, with stacks of several
+ * depths
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class ValueStackBenchmark
+{
+    private static final Object VALUE = new Object();
+
+    @Param({ "0", "16", "256" })
+    public int depth;
+
+    private ValueStack<Object> stack;
+    private Object snapshot;
+
+    @Setup
+    public void setup()
+    {
+        stack = new DefaultValueStack<>();
+        for (int i = 0; i < depth; i++)
+            stack.push(VALUE);
+        snapshot = stack.takeSnapshot();
+    }
+
+    @Benchmark
+    public Object pushPop()
+    {
+        stack.push(VALUE);
+        return stack.pop();
+    }
+
+    @Benchmark
+    public Object pushDownPopDown()
+    {
+        stack.push(stack.size(), VALUE);
+        return stack.pop(stack.size() - 1);
+    }
+
+    @Benchmark
+    public Object pushDownPopDownAfterSnapshot()
+    {
+        stack.takeSnapshot();
+        stack.push(stack.size(), VALUE);
+        return stack.pop(stack.size() - 1);
+    }
+
+    /*
+     * The snapshot covers the poked value, which forces a copy
+     */
+    @Benchmark
+    public Object pokeMiddleAfterSnapshot()
+    {
+        stack.push(VALUE);
+        stack.takeSnapshot();
+        stack.poke(stack.size() / 2, VALUE);
+        return stack.pop();
+    }
+
+    @Benchmark
+    public Object peek()
+    {
+        stack.push(VALUE);
+        final Object ret = stack.peek();
+        stack.pop();
+        return ret;
+    }
+
+    @Benchmark
+    public void dupSwap()
+    {
+        stack.push(VALUE);
+        stack.dup();
+        stack.swap();
+        stack.pop();
+        stack.pop();
+    }
+
+    @Benchmark
+    public Object takeSnapshot()
+    {
+        return stack.takeSnapshot();
+    }
+
+    @Benchmark
+    public void takeAndRestoreSnapshot()
+    {
+        stack.push(VALUE);
+        stack.restoreSnapshot(snapshot);
+    }
+}
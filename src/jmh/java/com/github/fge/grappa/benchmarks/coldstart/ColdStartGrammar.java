@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.benchmarks.coldstart;
+
+import com.github.fge.grappa.benchmarks.ArithmeticParser;
+import com.github.fge.grappa.benchmarks.CsvParser;
+import com.github.fge.grappa.parsers.BaseParser;
+
+/**
+ * The grammars measured by the cold start benchmarks, by increasing size
+ */
+public enum ColdStartGrammar
+{
+    CSV(CsvParser.class, "file", "1,\"two, \"\"quoted\"\"\",three\n"),
+    ARITHMETIC(ArithmeticParser.class, "root", "12*(3+4*(5-6))-7*8"),
+    CONFIG(ConfigParser.class, "file", "# a comment\n"
+        + "name = grappa\n"
+        + "[server]\n"
+        + "port = 8080\n"
+        + "hosts = [ \"a\\\\.example\", \"b.example\" ] ; inline\n"
+        + "debug = false\n"),
+    ;
+
+    private final Class<? extends BaseParser<?>> parserClass;
+    private final String ruleName;
+    private final String input;
+
+    ColdStartGrammar(final Class<? extends BaseParser<?>> parserClass,
+        final String ruleName, final String input)
+    {
+        this.parserClass = parserClass;
+        this.ruleName = ruleName;
+        this.input = input;
+    }
+
+    /**
+     * Return the (untransformed) parser class of this grammar
+     *
+     * @return see description
+     */
+    public Class<? extends BaseParser<?>> getParserClass()
+    {
+        return parserClass;
+    }
+
+    /**
+     * Return the name of the rule method of the root rule of this grammar
+     *
+     * @return see description
+     */
+    public String getRuleName()
+    {
+        return ruleName;
+    }
+
+    /**
+     * Return an input which this grammar matches
+     *
+     * @return see description
+     */
+    public String getInput()
+    {
+        return input;
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.benchmarks.coldstart;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.MultimapBuilder;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Cold start and grammar construction benchmarks
+ *
+ * <p>JMH forks measure steady state performance; what this measures instead
+ * is what a short lived program pays before its first parse. Each
+ * measurement is therefore done in a fresh JVM, running {@link
+ * ColdStartProbe}, for each {@link ColdStartGrammar} and each probe mode. The
+ * medians of all runs are then reported.</p>
+ *
+ * <p>Arguments are the number of runs (10 by default) followed by the names
+ * of the grammars to measure (all of them by default). Options for the forked
+ * JVMs can be given using the {@code coldstart.jvmArgs} system property; run
+ * it with "gradle coldStart" (arguments can be given using
+ * -PcoldStartArgs="...").</p>
+ */
+public final class ColdStartHarness
+{
+    private static final int DEFAULT_RUNS = 10;
+    private static final String[] MODES = {
+        ColdStartProbe.FIRST_PARSE, ColdStartProbe.TRANSFORM
+    };
+
+    private ColdStartHarness()
+    {
+        throw new Error("nice try!");
+    }
+
+    public static void main(final String... args)
+        throws IOException, InterruptedException
+    {
+        final int runs = args.length == 0 ? DEFAULT_RUNS
+            : Integer.parseInt(args[0]);
+
+        final List<ColdStartGrammar> grammars = new ArrayList<>();
+        if (args.length < 2)
+            Collections.addAll(grammars, ColdStartGrammar.values());
+        else
+            for (int i = 1; i < args.length; i++)
+                grammars.add(ColdStartGrammar.valueOf(args[i].toUpperCase()));
+
+        ListMultimap<String, Long> results;
+
+        for (final ColdStartGrammar grammar: grammars)
+            for (final String mode: MODES) {
+                results = MultimapBuilder.linkedHashKeys().arrayListValues()
+                    .build();
+                for (int i = 0; i < runs; i++)
+                    fork(mode, grammar, results);
+                report(mode, grammar, runs, results);
+            }
+    }
+
+    private static void fork(final String mode, final ColdStartGrammar grammar,
+        final ListMultimap<String, Long> results)
+        throws IOException, InterruptedException
+    {
+        final List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin"
+            + File.separator + "java");
+        for (final String arg: Splitter.on(' ').omitEmptyStrings()
+            .split(System.getProperty("coldstart.jvmArgs", "")))
+            command.add(arg);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(ColdStartProbe.class.getName());
+        command.add(mode);
+        command.add(grammar.name());
+
+        final Process process = new ProcessBuilder(command)
+            .redirectError(ProcessBuilder.Redirect.INHERIT)
+            .start();
+
+        try (
+            final BufferedReader reader = new BufferedReader(
+                new InputStreamReader(process.getInputStream(),
+                    Charset.defaultCharset()));
+        ) {
+            String line;
+            int index;
+            while ((line = reader.readLine()) != null) {
+                index = line.indexOf('=');
+                if (index == -1)
+                    continue;
+                results.put(line.substring(0, index),
+                    Long.valueOf(line.substring(index + 1)));
+            }
+        }
+
+        if (process.waitFor() != 0)
+            throw new IllegalStateException("probe failed (mode " + mode
+                + ", grammar " + grammar + ')');
+    }
+
+    private static void report(final String mode,
+        final ColdStartGrammar grammar, final int runs,
+        final ListMultimap<String, Long> results)
+    {
+        System.out.printf("%s, %s (%d runs, median [min, max]):%n", grammar,
+            mode, runs);
+
+        List<Long> values;
+
+        for (final String key: results.keySet()) {
+            values = new ArrayList<>(results.get(key));
+            Collections.sort(values);
+            System.out.printf("    %-36s %12d [%d, %d]%n", key,
+                values.get(values.size() / 2), values.get(0),
+                values.get(values.size() - 1));
+        }
+    }
+}
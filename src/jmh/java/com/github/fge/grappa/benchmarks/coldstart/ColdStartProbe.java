@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.benchmarks.coldstart;
+
+import com.github.fge.grappa.Grappa;
+import com.github.fge.grappa.parsers.BaseParser;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.run.ListeningParseRunner;
+import com.github.fge.grappa.transform.ParserTransformer;
+import com.github.fge.grappa.transform.base.InstructionGroup;
+import com.github.fge.grappa.transform.base.ParserClassNode;
+import com.github.fge.grappa.transform.base.RuleMethod;
+
+import java.lang.management.ClassLoadingMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The program run in a fresh JVM by {@link ColdStartHarness}
+ *
+ * <p>Its arguments are a mode and the name of a {@link ColdStartGrammar}. It
+ * prints its measurements on the standard output, one {@code key=value} per
+ * line; times are in microseconds, sizes in bytes. The modes are:</p>
+ *
+ * <ul>
+ *     <li>{@code first-parse}: create the parser, its root rule and parse the
+ *     input of the grammar once;</li>
+ *     <li>{@code transform}: only transform the parser class, timing each
+ *     rule method processor and measuring generated classes.</li>
+ * </ul>
+ *
+ * <p>Both modes also report the number of classes loaded, and the growth of
+ * the metaspace (or permanent generation, before Java 8).</p>
+ */
+public final class ColdStartProbe
+{
+    public static final String FIRST_PARSE = "first-parse";
+    public static final String TRANSFORM = "transform";
+
+    private ColdStartProbe()
+    {
+        throw new Error("nice try!");
+    }
+
+    public static void main(final String... args)
+        throws Exception
+    {
+        if (args.length != 2) {
+            System.err.println("usage: ColdStartProbe " + FIRST_PARSE + '|'
+                + TRANSFORM + " grammar");
+            System.exit(2);
+        }
+
+        final ColdStartGrammar grammar
+            = ColdStartGrammar.valueOf(args[1].toUpperCase());
+
+        final ClassLoadingMXBean classLoading
+            = ManagementFactory.getClassLoadingMXBean();
+        final long classesBefore = classLoading.getTotalLoadedClassCount();
+        final long metaspaceBefore = metaspaceUsed();
+
+        switch (args[0]) {
+            case FIRST_PARSE:
+                firstParse(grammar);
+                break;
+            case TRANSFORM:
+                transform(grammar);
+                break;
+            default:
+                throw new IllegalArgumentException("unknown mode " + args[0]);
+        }
+
+        print("loadedClasses",
+            classLoading.getTotalLoadedClassCount() - classesBefore);
+        print("metaspaceBytes", metaspaceUsed() - metaspaceBefore);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void firstParse(final ColdStartGrammar grammar)
+        throws Exception
+    {
+        final Class<BaseParser<Object>> parserClass
+            = (Class<BaseParser<Object>>) grammar.getParserClass();
+
+        final long start = System.nanoTime();
+        final BaseParser<Object> parser = Grappa.createParser(parserClass);
+        final long created = System.nanoTime();
+        final Rule rule = (Rule) parser.getClass()
+            .getMethod(grammar.getRuleName()).invoke(parser);
+        final long ruleBuilt = System.nanoTime();
+        final boolean success = new ListeningParseRunner<>(rule)
+            .run(grammar.getInput()).isSuccess();
+        final long parsed = System.nanoTime();
+
+        if (!success)
+            throw new IllegalStateException("input of grammar " + grammar
+                + " does not match");
+
+        printTime("createParser", created - start);
+        printTime("buildRule", ruleBuilt - created);
+        printTime("firstParse", parsed - ruleBuilt);
+        printTime("timeToFirstParse", parsed - start);
+        print("jvmUptimeAtFirstParse",
+            ManagementFactory.getRuntimeMXBean().getUptime() * 1000L);
+    }
+
+    private static void transform(final ColdStartGrammar grammar)
+        throws Exception
+    {
+        final Map<String, Long> timings = new LinkedHashMap<>();
+
+        final long start = System.nanoTime();
+        final ParserClassNode node = ParserTransformer
+            .extendParserClass(grammar.getParserClass(), timings);
+        final long end = System.nanoTime();
+
+        long processorsTotal = 0L;
+        for (final Map.Entry<String, Long> entry: timings.entrySet()) {
+            printTime("processor." + entry.getKey(), entry.getValue());
+            processorsTotal += entry.getValue();
+        }
+
+        int groupClasses = 0;
+        long groupClassBytes = 0L;
+        byte[] code;
+
+        for (final RuleMethod method: node.getRuleMethods().values())
+            for (final InstructionGroup group: method.getGroups()) {
+                code = group.getGroupClassCode();
+                if (code == null)
+                    continue;
+                groupClasses++;
+                groupClassBytes += code.length;
+            }
+
+        printTime("transform", end - start);
+        printTime("processors", processorsTotal);
+        print("parserClassBytes", node.getClassCode().length);
+        print("generatedClasses", groupClasses);
+        print("generatedClassBytes", groupClassBytes);
+    }
+
+    private static long metaspaceUsed()
+    {
+        long ret = 0L;
+        String name;
+
+        for (final MemoryPoolMXBean pool:
+            ManagementFactory.getMemoryPoolMXBeans()) {
+            name = pool.getName();
+            if (name.contains("Metaspace") || name.contains("Perm Gen"))
+                ret += pool.getUsage().getUsed();
+        }
+
+        return ret;
+    }
+
+    private static void printTime(final String key, final long nanos)
+    {
+        print(key, TimeUnit.NANOSECONDS.toMicros(nanos));
+    }
+
+    private static void print(final String key, final long value)
+    {
+        System.out.println(key + '=' + value);
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.benchmarks.coldstart;
+
+import com.github.fge.grappa.parsers.BaseParser;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.support.Var;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A parser of INI-like configuration files, building a map of their entries
+ *
+ * <p>This grammar is larger than the other benchmark grammars, and uses both
+ * actions and {@link Var}s; it therefore generates many more classes when
+ * transformed.</p>
+ */
+public class ConfigParser
+    extends BaseParser<Object>
+{
+    public Rule file()
+    {
+        final Var<String> section = new Var<>("");
+        return sequence(
+            push(new LinkedHashMap<String, Object>()),
+            zeroOrMore(line(section)),
+            EOI
+        );
+    }
+
+    public Rule line(final Var<String> section)
+    {
+        return sequence(
+            spacing(),
+            optional(firstOf(header(section), entry(section))),
+            spacing(),
+            optional(comment()),
+            eol()
+        );
+    }
+
+    public Rule header(final Var<String> section)
+    {
+        return sequence('[', spacing(), name(), section.set(match()),
+            spacing(), ']');
+    }
+
+    public Rule entry(final Var<String> section)
+    {
+        return sequence(
+            name(), push(qualify(section.get(), match())),
+            spacing(), '=', spacing(),
+            value(),
+            addEntry()
+        );
+    }
+
+    public Rule value()
+    {
+        return firstOf(list(), string(), number(), bool(), bare());
+    }
+
+    public Rule list()
+    {
+        return sequence(
+            '[', push(new ArrayList<Object>()), spacing(),
+            optional(listElement(),
+                zeroOrMore(spacing(), ',', spacing(), listElement())),
+            spacing(), ']'
+        );
+    }
+
+    public Rule listElement()
+    {
+        return sequence(firstOf(string(), number(), bool()), addElement());
+    }
+
+    public Rule string()
+    {
+        return sequence(
+            '"',
+            zeroOrMore(firstOf(escape(), noneOf("\"\\\n"))),
+            push(unescape(match())),
+            '"'
+        );
+    }
+
+    public Rule escape()
+    {
+        return sequence('\\', anyOf("\"\\nt"));
+    }
+
+    public Rule number()
+    {
+        return sequence(
+            sequence(optional('-'), oneOrMore(digit()),
+                optional('.', oneOrMore(digit()))),
+            push(Double.valueOf(match()))
+        );
+    }
+
+    public Rule bool()
+    {
+        return sequence(
+            firstOf("true", "false"), testNot(nameChar()),
+            push(Boolean.valueOf(match()))
+        );
+    }
+
+    public Rule bare()
+    {
+        return sequence(oneOrMore(noneOf("#;\n")), push(match().trim()));
+    }
+
+    public Rule name()
+    {
+        return sequence(firstOf(alpha(), '_'), zeroOrMore(nameChar()));
+    }
+
+    public Rule nameChar()
+    {
+        return firstOf(alpha(), digit(), anyOf("_-."));
+    }
+
+    public Rule comment()
+    {
+        return sequence(anyOf("#;"), zeroOrMore(noneOf("\n")));
+    }
+
+    public Rule spacing()
+    {
+        return zeroOrMore(anyOf(" \t"));
+    }
+
+    public Rule eol()
+    {
+        return firstOf('\n', EOI);
+    }
+
+    boolean addEntry()
+    {
+        final Object value = pop();
+        final String key = (String) pop();
+        @SuppressWarnings("unchecked")
+        final Map<String, Object> map = (Map<String, Object>) peek();
+        map.put(key, value);
+        return true;
+    }
+
+    boolean addElement()
+    {
+        final Object element = pop();
+        @SuppressWarnings("unchecked")
+        final List<Object> list = (List<Object>) peek();
+        list.add(element);
+        return true;
+    }
+
+    static String qualify(final String section, final String name)
+    {
+        return section.isEmpty() ? name : section + '.' + name;
+    }
+
+    static String unescape(final String s)
+    {
+        final StringBuilder sb = new StringBuilder(s.length());
+        final int length = s.length();
+        char c;
+
+        for (int i = 0; i < length; i++) {
+            c = s.charAt(i);
+            if (c == '\\' && ++i < length) {
+                c = s.charAt(i);
+                if (c == 'n')
+                    c = '\n';
+                else if (c == 't')
+                    c = '\t';
+            }
+            sb.append(c);
+        }
+
+        return sb.toString();
+    }
+}
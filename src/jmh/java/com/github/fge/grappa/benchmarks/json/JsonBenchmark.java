@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.benchmarks.json;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.github.fge.grappa.Grappa;
+import com.github.fge.grappa.run.ListeningParseRunner;
+import com.github.fge.grappa.run.ParseRunner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare the throughput of {@link ReferenceJsonParser} with the one of
+ * Jackson's streaming parser on the same {@link JsonCorpus corpora}
+ *
+ * <p>Scores are in operations per second, one operation being the parsing of
+ * a whole corpus; see {@link JsonThroughputReport} for these scores in MB/s
+ * and allocation per byte.</p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class JsonBenchmark
+{
+    @Param({ "SMALL_MESSAGE", "LARGE_ARRAY", "DEEPLY_NESTED" })
+    public JsonCorpus corpus;
+
+    private String input;
+    private ParseRunner<Object> runner;
+    private JsonFactory factory;
+
+    @Setup
+    public void setup()
+        throws IOException
+    {
+        input = corpus.generate();
+        runner = new ListeningParseRunner<>(
+            Grappa.createParser(ReferenceJsonParser.class).text());
+        factory = new JsonFactory();
+
+        if (!grappa())
+            throw new IllegalStateException("grappa does not match corpus "
+                + corpus);
+        jackson();
+    }
+
+    @Benchmark
+    public boolean grappa()
+    {
+        return runner.run(input).isSuccess();
+    }
+
+    @Benchmark
+    public int jackson()
+        throws IOException
+    {
+        int tokens = 0;
+
+        try (
+            final JsonParser parser = factory.createParser(input);
+        ) {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null)
+                tokens += token.ordinal();
+        }
+
+        return tokens;
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.benchmarks.json;
+
+import java.util.Random;
+
+/**
+ * The JSON corpora used by {@link JsonBenchmark}
+ *
+ * <p>Corpora are generated using a fixed seed, so that they are the same from
+ * one run to the next. They only contain ASCII characters, so that their
+ * length in characters is also their length in bytes.</p>
+ */
+public enum JsonCorpus
+{
+    /**
+     * A single message of a few hundred bytes, as exchanged by web services
+     */
+    SMALL_MESSAGE
+    {
+        @Override
+        void generate(final StringBuilder sb, final Random random)
+        {
+            message(sb, random, 0);
+        }
+    },
+    /**
+     * A large array of numbers and small objects (about 1 MB)
+     */
+    LARGE_ARRAY
+    {
+        @Override
+        void generate(final StringBuilder sb, final Random random)
+        {
+            sb.append('[');
+            for (int i = 0; i < 10000; i++) {
+                if (i > 0)
+                    sb.append(",\n");
+                if (i % 2 == 0)
+                    sb.append(random.nextInt()).append(',')
+                        .append(random.nextDouble());
+                else
+                    message(sb, random, i);
+            }
+            sb.append(']');
+        }
+    },
+    /**
+     * An array of deeply nested objects and arrays
+     */
+    DEEPLY_NESTED
+    {
+        @Override
+        void generate(final StringBuilder sb, final Random random)
+        {
+            sb.append('[');
+            for (int i = 0; i < 16; i++) {
+                if (i > 0)
+                    sb.append(',');
+                for (int depth = 0; depth < 128; depth++)
+                    sb.append(depth % 2 == 0 ? "{\"n\":" : "[" + depth + ',');
+                message(sb, random, i);
+                for (int depth = 127; depth >= 0; depth--)
+                    sb.append(depth % 2 == 0 ? '}' : ']');
+            }
+            sb.append(']');
+        }
+    },
+    ;
+
+    private static final long SEED = 42L;
+
+    /**
+     * Generate this corpus
+     *
+     * @return the JSON text
+     */
+    public final String generate()
+    {
+        final StringBuilder sb = new StringBuilder();
+        generate(sb, new Random(SEED));
+        return sb.toString();
+    }
+
+    abstract void generate(StringBuilder sb, Random random);
+
+    private static void message(final StringBuilder sb, final Random random,
+        final int id)
+    {
+        sb.append("{ \"id\": ").append(id)
+            .append(", \"name\": \"user ").append(random.nextInt(1000))
+            .append("\", \"active\": ").append(random.nextBoolean())
+            .append(", \"score\": ").append(random.nextDouble() * 100.0)
+            .append(", \"manager\": null")
+            .append(", \"tags\": [\"a\", \"b\\tc\", \"\\u00e9t\\u00e9\"]")
+            .append(", \"address\": { \"street\": \"")
+            .append(random.nextInt(100)).append(" Main St\\/Apt\"")
+            .append(", \"zip\": \"").append(10000 + random.nextInt(90000))
+            .append("\" } }");
+    }
+}
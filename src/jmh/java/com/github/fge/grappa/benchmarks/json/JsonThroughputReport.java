@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.benchmarks.json;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Run {@link JsonBenchmark} and report its results in MB/s and allocated bytes
+ * per input byte
+ *
+ * <p>Run it with "gradle jsonThroughput".</p>
+ */
+public final class JsonThroughputReport
+{
+    private static final double MEGABYTE = 1000000.0;
+    private static final String ALLOCATION_METRIC = "gc.alloc.rate.norm";
+
+    private JsonThroughputReport()
+    {
+        throw new Error("nice try!");
+    }
+
+    public static void main(final String... args)
+        throws RunnerException
+    {
+        final Options options = new OptionsBuilder()
+            .include(JsonBenchmark.class.getName())
+            .addProfiler(GCProfiler.class)
+            .build();
+
+        System.out.printf("%-16s %-8s %12s %16s%n", "corpus", "parser",
+            "MB/s", "alloc bytes/byte");
+
+        String corpus;
+        String benchmark;
+        double bytes;
+
+        for (final RunResult result: new Runner(options).run()) {
+            corpus = result.getParams().getParam("corpus");
+            benchmark = result.getParams().getBenchmark();
+            bytes = JsonCorpus.valueOf(corpus).generate()
+                .getBytes(StandardCharsets.UTF_8).length;
+            System.out.printf("%-16s %-8s %12.2f %16.3f%n", corpus,
+                benchmark.substring(benchmark.lastIndexOf('.') + 1),
+                result.getPrimaryResult().getScore() * bytes / MEGABYTE,
+                allocatedBytesPerOp(result) / bytes);
+        }
+    }
+
+    /*
+     * The name of the metric varies across JMH versions (some prefix it);
+     * hence the lookup by suffix.
+     */
+    private static double allocatedBytesPerOp(final RunResult result)
+    {
+        for (final String name: result.getSecondaryResults().keySet())
+            if (name.endsWith(ALLOCATION_METRIC)) {
+                final Result<?> metric = result.getSecondaryResults().get(name);
+                return metric.getScore();
+            }
+        return Double.NaN;
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.benchmarks.json;
+
+import com.github.fge.grappa.parsers.BaseParser;
+import com.github.fge.grappa.rules.Rule;
+
+/**
+ * A recognizer of JSON texts (RFC 7159)
+ *
+ * <p>This is the reference JSON grammar against which grappa is compared to a
+ * hand written parser. Like Jackson's streaming parser, it only validates its
+ * input and produces no values.</p>
+ *
+ * <p>Note that, for simplicity, control characters are accepted unescaped in
+ * strings.</p>
+ */
+public class ReferenceJsonParser
+    extends BaseParser<Object>
+{
+    public Rule text()
+    {
+        return sequence(whitespace(), value(), whitespace(), EOI);
+    }
+
+    public Rule value()
+    {
+        return firstOf(object(), array(), string(), number(),
+            "true", "false", "null");
+    }
+
+    public Rule object()
+    {
+        return sequence(
+            '{', whitespace(),
+            optional(member(),
+                zeroOrMore(whitespace(), ',', whitespace(), member())),
+            whitespace(), '}'
+        );
+    }
+
+    public Rule member()
+    {
+        return sequence(string(), whitespace(), ':', whitespace(), value());
+    }
+
+    public Rule array()
+    {
+        return sequence(
+            '[', whitespace(),
+            optional(value(),
+                zeroOrMore(whitespace(), ',', whitespace(), value())),
+            whitespace(), ']'
+        );
+    }
+
+    public Rule string()
+    {
+        return sequence(
+            '"',
+            zeroOrMore(firstOf(oneOrMore(noneOf("\"\\")), escape())),
+            '"'
+        );
+    }
+
+    public Rule escape()
+    {
+        return sequence('\\', firstOf(anyOf("\"\\/bfnrt"),
+            sequence('u', hexDigit(), hexDigit(), hexDigit(), hexDigit())));
+    }
+
+    public Rule number()
+    {
+        return sequence(
+            optional('-'),
+            firstOf('0', sequence(charRange('1', '9'), zeroOrMore(digit()))),
+            optional('.', oneOrMore(digit())),
+            optional(ignoreCase('e'), optional(anyOf("+-")),
+                oneOrMore(digit()))
+        );
+    }
+
+    public Rule whitespace()
+    {
+        return zeroOrMore(anyOf(" \t\r\n"));
+    }
+}
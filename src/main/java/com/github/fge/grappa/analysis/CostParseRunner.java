@@ -0,0 +1,229 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.analysis;
+
+import com.github.fge.grappa.buffers.CharSequenceInputBuffer;
+import com.github.fge.grappa.buffers.InputBuffer;
+import com.github.fge.grappa.exceptions.GrappaException;
+import com.github.fge.grappa.matchers.MatcherType;
+import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.run.AbstractParseRunner;
+import com.github.fge.grappa.run.MatchHandler;
+import com.github.fge.grappa.run.ParsingResult;
+import com.github.fge.grappa.run.context.MatcherContext;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A parse runner counting matcher invocations, with an optional budget
+ *
+ * <p>When asked to, invocations are also attributed to rules, in the same way
+ * as {@link com.github.fge.grappa.run.profile.HeatmapParseRunner} does: to
+ * the nearest enclosing non terminal matcher with a custom label.</p>
+ *
+ * @param <V> the type of values produced by the parser
+ */
+@NotThreadSafe
+@ParametersAreNonnullByDefault
+final class CostParseRunner<V>
+    extends AbstractParseRunner<V>
+    implements MatchHandler
+{
+    private static final int INITIAL_DEPTH = 64;
+
+    private long budget = Long.MAX_VALUE;
+    private long invocations;
+    private boolean matched;
+
+    private boolean attribute;
+    private final Map<Matcher, Integer> ruleIds = new IdentityHashMap<>();
+    private final List<String> ruleNames = new ArrayList<>();
+    private int[] enclosingRules = new int[INITIAL_DEPTH];
+    private long[] ruleInvocations = new long[16];
+
+    CostParseRunner(final Rule rule)
+    {
+        super(rule);
+    }
+
+    /**
+     * Parse an input and return the number of matcher invocations
+     *
+     * @param input the input
+     * @param budget the maximum number of invocations
+     * @param attribute whether to attribute invocations to rules
+     * @return the number of invocations, or -1 if the budget was exceeded
+     * @throws GrappaException the parser failed (an action threw an
+     * exception, for instance)
+     */
+    long measure(final String input, final long budget,
+        final boolean attribute)
+    {
+        this.budget = budget;
+        this.attribute = attribute;
+        Arrays.fill(ruleInvocations, 0L);
+        matched = false;
+
+        try {
+            run(new CharSequenceInputBuffer(input));
+            return invocations;
+        } catch (BudgetExceededException ignored) {
+            return -1L;
+        } finally {
+            this.budget = Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Tell whether the last run matched the whole of its input
+     *
+     * @return see description
+     */
+    boolean lastRunMatched()
+    {
+        return matched;
+    }
+
+    /**
+     * Return the invocations of the last run, per rule, if they were
+     * attributed
+     *
+     * @return a map, sorted by decreasing number of invocations
+     */
+    Map<String, Long> getRuleInvocations()
+    {
+        final List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < ruleNames.size(); i++)
+            if (ruleInvocations[i] != 0L)
+                ids.add(i);
+
+        Collections.sort(ids, new Comparator<Integer>()
+        {
+            @Override
+            public int compare(final Integer o1, final Integer o2)
+            {
+                return Long.compare(ruleInvocations[o2], ruleInvocations[o1]);
+            }
+        });
+
+        final Map<String, Long> ret = new LinkedHashMap<>();
+        String name;
+        Long count;
+
+        for (final Integer id: ids) {
+            name = ruleNames.get(id);
+            count = ret.get(name);
+            ret.put(name, ruleInvocations[id]
+                + (count == null ? 0L : count));
+        }
+
+        return ret;
+    }
+
+    @Override
+    public ParsingResult<V> run(final InputBuffer inputBuffer)
+    {
+        Objects.requireNonNull(inputBuffer, "inputBuffer");
+        resetValueStack();
+        invocations = 0L;
+
+        final MatcherContext<V> rootContext
+            = createRootContext(inputBuffer, this);
+        final boolean ret = rootContext.runMatcher();
+        matched = ret
+            && rootContext.getCurrentIndex() == inputBuffer.length();
+        return createParsingResult(ret, rootContext);
+    }
+
+    @Override
+    public <T> boolean match(final MatcherContext<T> context)
+    {
+        if (++invocations > budget)
+            throw new BudgetExceededException();
+
+        final Matcher matcher = context.getMatcher();
+
+        if (attribute)
+            attribute(matcher, context.getLevel());
+
+        return matcher.match(context);
+    }
+
+    private void attribute(final Matcher matcher, final int level)
+    {
+        final int rule;
+
+        //noinspection ConstantConditions
+        if (matcher.getType() == MatcherType.TERMINAL)
+            rule = level == 0 ? ruleIdOf(matcher) : enclosingRules[level - 1];
+        else {
+            if (level >= enclosingRules.length)
+                enclosingRules = Arrays.copyOf(enclosingRules,
+                    Math.max(level + 1, enclosingRules.length << 1));
+            rule = matcher.hasCustomLabel() || level == 0
+                ? ruleIdOf(matcher) : enclosingRules[level - 1];
+            enclosingRules[level] = rule;
+        }
+
+        ruleInvocations[rule]++;
+    }
+
+    private int ruleIdOf(final Matcher matcher)
+    {
+        final Integer id = ruleIds.get(matcher);
+        if (id != null)
+            return id;
+
+        final int ret = ruleNames.size();
+        ruleNames.add(matcher.getLabel());
+        ruleIds.put(matcher, ret);
+        if (ret == ruleInvocations.length)
+            ruleInvocations = Arrays.copyOf(ruleInvocations, ret << 1);
+        return ret;
+    }
+
+    /*
+     * Extends GrappaException so that contexts let it through unwrapped
+     */
+    private static final class BudgetExceededException
+        extends GrappaException
+    {
+        private static final long serialVersionUID = 5679400667529973798L;
+
+        private BudgetExceededException()
+        {
+            super("invocation budget exceeded");
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace()
+        {
+            return this;
+        }
+    }
+}
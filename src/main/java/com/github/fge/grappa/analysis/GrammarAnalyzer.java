@@ -0,0 +1,375 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.fge.grappa.analysis;
+
+import com.github.fge.grappa.analysis.GrammarIssue.Kind;
+import com.github.fge.grappa.exceptions.InvalidGrammarException;
+import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.matchers.delegate.FirstOfMatcher;
+import com.github.fge.grappa.matchers.delegate.OneOrMoreMatcher;
+import com.github.fge.grappa.matchers.delegate.SequenceMatcher;
+import com.github.fge.grappa.matchers.delegate.ZeroOrMoreMatcher;
+import com.github.fge.grappa.matchers.join.JoinMatcher;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.support.Chars;
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.Immutable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A static analysis of a grammar, looking for problems before any input is
+ * parsed
+ *
+ * <p>The analysis works on the {@link GrammarGraph} of a root rule and finds
+ * the following {@link GrammarIssue issues}:</p>
+ *
+ * <ul>
+ *     <li>loops ({@code zeroOrMore()}, {@code oneOrMore()}, joins) whose body
+ *     (or joining rule) can match an empty input; such loops fail at parse
+ *     time;</li>
+ *     <li>left recursions: rules which can invoke themselves without
+ *     consuming any input; such rules never terminate;</li>
+ *     <li>{@code firstOf()} alternatives which start with the same rule, or
+ *     whose FIRST sets overlap; they are likely backtracking hotspots, since
+ *     the input matched by one alternative may have to be matched again by
+ *     another.</li>
+ * </ul>
+ *
+ * <p>The first two kinds of issues are fatal. To have a grammar rejected as
+ * soon as it is built, use {@link #validate(Rule)}:</p>
+ *
+ * <pre>
+ *     final MyParser parser = Grappa.createParser(MyParser.class);
+ *     GrammarAnalyzer.validate(parser.rule());
+ * </pre>
+ *
+ * <p>As with {@link GrammarGraph}, the analysis considers that predicates
+ * and actions always succeed; it may therefore report a loop or a recursion
+ * which a predicate or an action guards against.</p>
+ */
+@Immutable
+@ParametersAreNonnullByDefault
+public final class GrammarAnalyzer
+{
+    private static final int MAX_CHARS = 5;
+
+    private final GrammarGraph graph;
+    private final List<GrammarIssue> issues;
+
+    /**
+     * Constructor
+     *
+     * @param rule the root rule of the grammar
+     */
+    public GrammarAnalyzer(final Rule rule)
+    {
+        graph = new GrammarGraph(rule);
+
+        final List<GrammarIssue> list = new ArrayList<>();
+        findNullableLoops(list);
+        new LeftRecursionFinder().find(list);
+        findOverlaps(list);
+        issues = ImmutableList.copyOf(list);
+    }
+
+    /**
+     * Analyze a grammar and fail if it has fatal issues
+     *
+     * @param rule the root rule of the grammar
+     * @return the analyzer
+     * @throws InvalidGrammarException the grammar has fatal issues
+     */
+    public static GrammarAnalyzer validate(final Rule rule)
+    {
+        final GrammarAnalyzer analyzer = new GrammarAnalyzer(rule);
+        analyzer.checkGrammar();
+        return analyzer;
+    }
+
+    /**
+     * Return the graph of the analyzed grammar
+     *
+     * @return see description
+     */
+    public GrammarGraph getGraph()
+    {
+        return graph;
+    }
+
+    /**
+     * Return all issues found in the grammar
+     *
+     * @return an immutable list
+     */
+    public List<GrammarIssue> getIssues()
+    {
+        return issues;
+    }
+
+    /**
+     * Return the fatal issues found in the grammar
+     *
+     * @return an immutable list
+     */
+    public List<GrammarIssue> getFatalIssues()
+    {
+        final ImmutableList.Builder<GrammarIssue> builder
+            = ImmutableList.builder();
+
+        for (final GrammarIssue issue: issues)
+            if (issue.isFatal())
+                builder.add(issue);
+
+        return builder.build();
+    }
+
+    /**
+     * Fail if the grammar has fatal issues
+     *
+     * @throws InvalidGrammarException the grammar has fatal issues
+     */
+    public void checkGrammar()
+    {
+        final List<GrammarIssue> fatal = getFatalIssues();
+
+        if (!fatal.isEmpty())
+            throw new InvalidGrammarException("grammar has fatal issues:\n"
+                + Joiner.on('\n').join(fatal));
+    }
+
+    private void findNullableLoops(final List<GrammarIssue> list)
+    {
+        Matcher body;
+
+        for (final Matcher matcher: graph.getMatchers()) {
+            if (matcher instanceof ZeroOrMoreMatcher
+                || matcher instanceof OneOrMoreMatcher) {
+                body = graph.getChildren(matcher).get(0);
+                if (graph.isNullable(body))
+                    list.add(new GrammarIssue(Kind.NULLABLE_LOOP, matcher,
+                        "body of loop '" + matcher + "' (" + body
+                        + ") can match an empty input"));
+                continue;
+            }
+            if (!(matcher instanceof JoinMatcher))
+                continue;
+            body = GrammarGraph.unwrap(((JoinMatcher) matcher).getJoining());
+            if (graph.isNullable(body))
+                list.add(new GrammarIssue(Kind.NULLABLE_LOOP, matcher,
+                    "joining rule of '" + matcher + "' (" + body
+                    + ") can match an empty input"));
+        }
+    }
+
+    /*
+     * The children of a matcher which may be invoked at the same input
+     * position as the matcher itself
+     */
+    private List<Matcher> leftChildren(final Matcher matcher)
+    {
+        final List<Matcher> children = graph.getChildren(matcher);
+
+        if (matcher instanceof SequenceMatcher) {
+            final List<Matcher> ret = new ArrayList<>();
+            for (final Matcher child: children) {
+                ret.add(child);
+                if (!graph.isNullable(child))
+                    break;
+            }
+            return ret;
+        }
+
+        if (matcher instanceof JoinMatcher) {
+            final JoinMatcher join = (JoinMatcher) matcher;
+            final Matcher joined = GrammarGraph.unwrap(join.getJoined());
+            return graph.isNullable(joined)
+                ? children
+                : Collections.singletonList(joined);
+        }
+
+        return children;
+    }
+
+    private void findOverlaps(final List<GrammarIssue> list)
+    {
+        List<Matcher> alternatives;
+        int size;
+        Matcher shared;
+        BitSet overlap;
+
+        for (final Matcher matcher: graph.getMatchers()) {
+            if (!(matcher instanceof FirstOfMatcher))
+                continue;
+
+            alternatives = graph.getChildren(matcher);
+            size = alternatives.size();
+
+            for (int i = 0; i < size; i++)
+                for (int j = i + 1; j < size; j++) {
+                    shared = sharedPrefix(alternatives.get(i),
+                        alternatives.get(j));
+                    if (shared != null) {
+                        list.add(new GrammarIssue(Kind.SHARED_PREFIX,
+                            matcher, "alternatives " + (i + 1) + " and "
+                            + (j + 1) + " of '" + matcher + "' both start"
+                            + " with '" + shared + '\''));
+                        continue;
+                    }
+                    overlap = graph.getFirstSet(alternatives.get(i));
+                    overlap.and(graph.getFirstSet(alternatives.get(j)));
+                    if (!overlap.isEmpty())
+                        list.add(new GrammarIssue(Kind.FIRST_SET_OVERLAP,
+                            matcher, "alternatives " + (i + 1) + " and "
+                            + (j + 1) + " of '" + matcher + "' can both"
+                            + " start with " + describe(overlap)));
+                }
+        }
+    }
+
+    /*
+     * Return the last matcher of the longest common prefix of two
+     * alternatives, or null if they do not start with the same matcher
+     */
+    private Matcher sharedPrefix(final Matcher first, final Matcher second)
+    {
+        final List<Matcher> l1 = first instanceof SequenceMatcher
+            ? graph.getChildren(first) : Collections.singletonList(first);
+        final List<Matcher> l2 = second instanceof SequenceMatcher
+            ? graph.getChildren(second) : Collections.singletonList(second);
+        final int len = Math.min(l1.size(), l2.size());
+
+        Matcher ret = null;
+
+        for (int i = 0; i < len; i++) {
+            if (l1.get(i) != l2.get(i))
+                break;
+            ret = l1.get(i);
+        }
+
+        return ret;
+    }
+
+    private static String describe(final BitSet set)
+    {
+        final StringBuilder sb = new StringBuilder();
+        final int cardinality = set.cardinality();
+        int nrChars = 0;
+
+        for (int c = set.nextSetBit(0); c >= 0 && nrChars < MAX_CHARS;
+            c = set.nextSetBit(c + 1), nrChars++) {
+            if (nrChars > 0)
+                sb.append(", ");
+            sb.append('\'').append(Chars.escape((char) c)).append('\'');
+        }
+
+        if (cardinality > MAX_CHARS)
+            sb.append(" (and ").append(cardinality - MAX_CHARS)
+                .append(" more)");
+
+        return sb.toString();
+    }
+
+    /*
+     * Tarjan's algorithm over the "invoked at the same position" edges; each
+     * strongly connected component with a cycle is a left recursion
+     */
+    private final class LeftRecursionFinder
+    {
+        private final Map<Matcher, Integer> indices = new IdentityHashMap<>();
+        private final Map<Matcher, Integer> lowLinks
+            = new IdentityHashMap<>();
+        private final Deque<Matcher> stack = new ArrayDeque<>();
+        private final Map<Matcher, Boolean> onStack = new IdentityHashMap<>();
+        private int index = 0;
+
+        private void find(final List<GrammarIssue> list)
+        {
+            for (final Matcher matcher: graph.getMatchers())
+                if (!indices.containsKey(matcher))
+                    visit(matcher, list);
+        }
+
+        private void visit(final Matcher matcher,
+            final List<GrammarIssue> list)
+        {
+            indices.put(matcher, index);
+            lowLinks.put(matcher, index);
+            index++;
+            stack.push(matcher);
+            onStack.put(matcher, Boolean.TRUE);
+
+            final List<Matcher> children = leftChildren(matcher);
+            boolean selfLoop = false;
+
+            for (final Matcher child: children) {
+                if (child == matcher)
+                    selfLoop = true;
+                if (!indices.containsKey(child)) {
+                    visit(child, list);
+                    lowLinks.put(matcher, Math.min(lowLinks.get(matcher),
+                        lowLinks.get(child)));
+                } else if (onStack.containsKey(child))
+                    lowLinks.put(matcher, Math.min(lowLinks.get(matcher),
+                        indices.get(child)));
+            }
+
+            if (!lowLinks.get(matcher).equals(indices.get(matcher)))
+                return;
+
+            final List<Matcher> component = new ArrayList<>();
+            Matcher member;
+
+            do {
+                member = stack.pop();
+                onStack.remove(member);
+                component.add(member);
+            } while (member != matcher);
+
+            if (component.size() > 1 || selfLoop)
+                list.add(leftRecursion(component));
+        }
+    }
+
+    private static GrammarIssue leftRecursion(final List<Matcher> component)
+    {
+        final List<Matcher> rules = new ArrayList<>();
+
+        for (final Matcher matcher: component)
+            if (matcher.hasCustomLabel())
+                rules.add(matcher);
+
+        if (rules.isEmpty())
+            rules.addAll(component);
+
+        Collections.reverse(rules);
+
+        return new GrammarIssue(Kind.LEFT_RECURSION, rules.get(0),
+            "rules can invoke themselves without consuming input: "
+            + Joiner.on(", ").join(rules));
+    }
+}
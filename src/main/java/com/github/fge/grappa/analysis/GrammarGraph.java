@@ -0,0 +1,550 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.analysis;
+
+import com.github.fge.grappa.matchers.ActionMatcher;
+import com.github.fge.grappa.matchers.AnyMatcher;
+import com.github.fge.grappa.matchers.AnyOfMatcher;
+import com.github.fge.grappa.matchers.CharIgnoreCaseMatcher;
+import com.github.fge.grappa.matchers.CharMatcher;
+import com.github.fge.grappa.matchers.CharRangeMatcher;
+import com.github.fge.grappa.matchers.EmptyMatcher;
+import com.github.fge.grappa.matchers.EndOfInputMatcher;
+import com.github.fge.grappa.matchers.MatcherType;
+import com.github.fge.grappa.matchers.NothingMatcher;
+import com.github.fge.grappa.matchers.StringIgnoreCaseMatcher;
+import com.github.fge.grappa.matchers.StringMatcher;
+import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.matchers.delegate.FirstOfMatcher;
+import com.github.fge.grappa.matchers.delegate.OneOrMoreMatcher;
+import com.github.fge.grappa.matchers.delegate.OptionalMatcher;
+import com.github.fge.grappa.matchers.delegate.SequenceMatcher;
+import com.github.fge.grappa.matchers.delegate.ZeroOrMoreMatcher;
+import com.github.fge.grappa.matchers.join.JoinMatcher;
+import com.github.fge.grappa.matchers.trie.CaseInsensitiveTrieMatcher;
+import com.github.fge.grappa.matchers.trie.TrieMatcher;
+import com.github.fge.grappa.matchers.unicode.CodePointMatcher;
+import com.github.fge.grappa.matchers.unicode.CodePointRangeMatcher;
+import com.github.fge.grappa.matchers.wrap.ProxyMatcher;
+import com.github.fge.grappa.matchers.wrap.VarFramingMatcher;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.support.Chars;
+import com.github.fge.grappa.support.Characters;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.Immutable;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The graph of matchers reachable from a root rule, with some of their static
+ * properties
+ *
+ * <p>Proxies (created for recursive rules) and var framing wrappers are
+ * unwrapped: each matcher of the graph is the matcher doing the actual work.
+ * </p>
+ *
+ * <p>The computed properties are:</p>
+ *
+ * <ul>
+ *     <li>nullability: whether a matcher can succeed without consuming any
+ *     input;</li>
+ *     <li>FIRST sets: the characters with which a non empty match of a
+ *     matcher can start;</li>
+ *     <li>minimal lengths: the length of the shortest input a matcher can
+ *     match.</li>
+ * </ul>
+ *
+ * <p>Predicates are ignored (they are considered to always succeed), and
+ * matchers unknown to this class are considered to be able to match any
+ * character; properties are therefore approximations, erring on the side of
+ * caution.</p>
+ */
+@Immutable
+@ParametersAreNonnullByDefault
+public final class GrammarGraph
+{
+    /**
+     * Minimal length of a matcher which can never succeed
+     */
+    public static final int INFINITE = Integer.MAX_VALUE;
+
+    private static final int NR_CHARS = Character.MAX_VALUE + 1;
+
+    private final Matcher root;
+    private final Map<Matcher, Integer> ids = new IdentityHashMap<>();
+    private final List<Matcher> matchers = new ArrayList<>();
+    private final List<List<Matcher>> children = new ArrayList<>();
+
+    private final boolean[] nullable;
+    private final BitSet[] firstSets;
+    private final int[] minLengths;
+
+    /**
+     * Constructor
+     *
+     * @param rule the root rule
+     */
+    public GrammarGraph(final Rule rule)
+    {
+        root = unwrap((Matcher) Objects.requireNonNull(rule, "rule"));
+        collect(root);
+
+        final int size = matchers.size();
+        nullable = new boolean[size];
+        firstSets = new BitSet[size];
+        minLengths = new int[size];
+
+        for (int i = 0; i < size; i++) {
+            firstSets[i] = new BitSet(NR_CHARS);
+            minLengths[i] = INFINITE;
+        }
+
+        computeNullable();
+        computeFirstSets();
+        computeMinLengths();
+    }
+
+    /**
+     * Unwrap a matcher
+     *
+     * @param matcher the matcher
+     * @return the matcher with proxies and var framing wrappers removed
+     */
+    public static Matcher unwrap(final Matcher matcher)
+    {
+        Matcher ret = matcher;
+
+        while (true) {
+            if (ret instanceof ProxyMatcher) {
+                final Matcher target = ProxyMatcher.unwrap(ret);
+                if (target == ret)
+                    return ret;
+                ret = target;
+            } else if (ret instanceof VarFramingMatcher)
+                ret = ((VarFramingMatcher) ret).getInner();
+            else
+                return ret;
+        }
+    }
+
+    /**
+     * Return the (unwrapped) root matcher
+     *
+     * @return see description
+     */
+    public Matcher getRoot()
+    {
+        return root;
+    }
+
+    /**
+     * Return all matchers of this graph, in depth first order
+     *
+     * @return an unmodifiable list
+     */
+    public List<Matcher> getMatchers()
+    {
+        return Collections.unmodifiableList(matchers);
+    }
+
+    /**
+     * Tell whether a matcher belongs to this graph
+     *
+     * @param matcher the matcher
+     * @return see description
+     */
+    public boolean contains(final Matcher matcher)
+    {
+        return ids.containsKey(unwrap(matcher));
+    }
+
+    /**
+     * Return the (unwrapped) children of a matcher
+     *
+     * @param matcher the matcher
+     * @return an unmodifiable list
+     * @throws IllegalArgumentException matcher is not part of this graph
+     */
+    public List<Matcher> getChildren(final Matcher matcher)
+    {
+        return Collections.unmodifiableList(children.get(idOf(matcher)));
+    }
+
+    /**
+     * Tell whether a matcher can succeed without consuming any input
+     *
+     * @param matcher the matcher
+     * @return see description
+     * @throws IllegalArgumentException matcher is not part of this graph
+     */
+    public boolean isNullable(final Matcher matcher)
+    {
+        return nullable[idOf(matcher)];
+    }
+
+    /**
+     * Return the FIRST set of a matcher
+     *
+     * @param matcher the matcher
+     * @return a copy of the set, as a bit set of characters
+     * @throws IllegalArgumentException matcher is not part of this graph
+     */
+    public BitSet getFirstSet(final Matcher matcher)
+    {
+        return (BitSet) firstSets[idOf(matcher)].clone();
+    }
+
+    /**
+     * Return the length of the shortest input a matcher can match
+     *
+     * @param matcher the matcher
+     * @return the length, or {@link #INFINITE} if the matcher never succeeds
+     * @throws IllegalArgumentException matcher is not part of this graph
+     */
+    public int getMinLength(final Matcher matcher)
+    {
+        return minLengths[idOf(matcher)];
+    }
+
+    private int idOf(final Matcher matcher)
+    {
+        final Integer id = ids.get(unwrap(matcher));
+        if (id == null)
+            throw new IllegalArgumentException("matcher " + matcher
+                + " is not part of this graph");
+        return id;
+    }
+
+    private void collect(final Matcher matcher)
+    {
+        ids.put(matcher, matchers.size());
+        matchers.add(matcher);
+
+        final List<Matcher> list = new ArrayList<>();
+        children.add(list);
+
+        Matcher child;
+
+        for (final Matcher m: matcher.getChildren()) {
+            child = unwrap(m);
+            list.add(child);
+            if (!ids.containsKey(child))
+                collect(child);
+        }
+    }
+
+    private void computeNullable()
+    {
+        boolean changed = true;
+        boolean value;
+
+        while (changed) {
+            changed = false;
+            for (int i = 0; i < nullable.length; i++) {
+                if (nullable[i])
+                    continue;
+                value = computeNullable(i);
+                if (value) {
+                    nullable[i] = true;
+                    changed = true;
+                }
+            }
+        }
+    }
+
+    private boolean computeNullable(final int id)
+    {
+        final Matcher matcher = matchers.get(id);
+        final List<Matcher> list = children.get(id);
+
+        if (matcher instanceof SequenceMatcher) {
+            for (final Matcher child: list)
+                if (!nullable[ids.get(child)])
+                    return false;
+            return true;
+        }
+
+        if (matcher instanceof FirstOfMatcher) {
+            for (final Matcher child: list)
+                if (nullable[ids.get(child)])
+                    return true;
+            return false;
+        }
+
+        if (matcher instanceof OneOrMoreMatcher)
+            return nullable[ids.get(list.get(0))];
+
+        if (matcher instanceof JoinMatcher) {
+            final JoinMatcher join = (JoinMatcher) matcher;
+            return join.allowsZeroCycles()
+                || nullable[ids.get(unwrap(join.getJoined()))];
+        }
+
+        if (matcher instanceof StringMatcher)
+            return ((StringMatcher) matcher).getString().isEmpty();
+
+        if (matcher instanceof StringIgnoreCaseMatcher)
+            return ((StringIgnoreCaseMatcher) matcher).getString().isEmpty();
+
+        return matcher instanceof OptionalMatcher
+            || matcher instanceof ZeroOrMoreMatcher
+            || matcher instanceof ActionMatcher
+            || matcher instanceof EmptyMatcher
+            || matcher instanceof EndOfInputMatcher
+            || matcher.getType() == MatcherType.PREDICATE;
+    }
+
+    private void computeFirstSets()
+    {
+        boolean changed = true;
+        BitSet set;
+        int cardinality;
+
+        while (changed) {
+            changed = false;
+            for (int i = 0; i < firstSets.length; i++) {
+                set = firstSets[i];
+                cardinality = set.cardinality();
+                computeFirstSet(i, set);
+                if (set.cardinality() != cardinality)
+                    changed = true;
+            }
+        }
+    }
+
+    private void computeFirstSet(final int id, final BitSet set)
+    {
+        final Matcher matcher = matchers.get(id);
+        final List<Matcher> list = children.get(id);
+
+        if (matcher instanceof SequenceMatcher) {
+            int childId;
+            for (final Matcher child: list) {
+                childId = ids.get(child);
+                set.or(firstSets[childId]);
+                if (!nullable[childId])
+                    break;
+            }
+            return;
+        }
+
+        if (matcher instanceof JoinMatcher) {
+            final JoinMatcher join = (JoinMatcher) matcher;
+            final int joined = ids.get(unwrap(join.getJoined()));
+            set.or(firstSets[joined]);
+            if (nullable[joined])
+                set.or(firstSets[ids.get(unwrap(join.getJoining()))]);
+            return;
+        }
+
+        switch (matcher.getType()) {
+            case PREDICATE:
+            case ACTION:
+                return;
+            case COMPOSITE:
+                // FirstOf, Optional, ZeroOrMore, OneOrMore...
+                for (final Matcher child: list)
+                    set.or(firstSets[ids.get(child)]);
+                return;
+            default:
+                if (set.isEmpty())
+                    terminalFirstSet(matcher, set);
+        }
+    }
+
+    @SuppressWarnings({ "OverlyComplexMethod", "OverlyLongMethod" })
+    private static void terminalFirstSet(final Matcher matcher,
+        final BitSet set)
+    {
+        if (matcher instanceof CharMatcher) {
+            set.set(((CharMatcher) matcher).getCharacter());
+            return;
+        }
+
+        if (matcher instanceof CharIgnoreCaseMatcher) {
+            final CharIgnoreCaseMatcher m = (CharIgnoreCaseMatcher) matcher;
+            set.set(m.getLowerCase());
+            set.set(m.getUpperCase());
+            return;
+        }
+
+        if (matcher instanceof CharRangeMatcher) {
+            final CharRangeMatcher m = (CharRangeMatcher) matcher;
+            set.set(m.getLowerBound(), m.getUpperBound() + 1);
+            return;
+        }
+
+        if (matcher instanceof AnyOfMatcher) {
+            final Characters characters
+                = ((AnyOfMatcher) matcher).getCharacters();
+            if (characters.isSubtractive())
+                set.set(0, NR_CHARS);
+            for (final char c: characters.getChars())
+                set.set(c, !characters.isSubtractive());
+            set.clear(Chars.EOI);
+            return;
+        }
+
+        if (matcher instanceof StringMatcher) {
+            addFirstChar(((StringMatcher) matcher).getString(), false, set);
+            return;
+        }
+
+        if (matcher instanceof StringIgnoreCaseMatcher) {
+            addFirstChar(((StringIgnoreCaseMatcher) matcher).getString(),
+                true, set);
+            return;
+        }
+
+        if (matcher instanceof TrieMatcher) {
+            for (final String word: ((TrieMatcher) matcher).getTrie()
+                .getWords())
+                addFirstChar(word, false, set);
+            return;
+        }
+
+        if (matcher instanceof CaseInsensitiveTrieMatcher) {
+            for (final String word: ((CaseInsensitiveTrieMatcher) matcher)
+                .getTrie().getWords())
+                addFirstChar(word, true, set);
+            return;
+        }
+
+        if (matcher instanceof CodePointMatcher) {
+            final int codePoint = ((CodePointMatcher) matcher).getCodePoint();
+            set.set(Character.toChars(codePoint)[0]);
+            return;
+        }
+
+        if (matcher instanceof CodePointRangeMatcher) {
+            final CodePointRangeMatcher m = (CodePointRangeMatcher) matcher;
+            final int low = m.getLow();
+            final int high = m.getHigh();
+            if (low <= Character.MAX_VALUE)
+                set.set(low, Math.min(high, Character.MAX_VALUE) + 1);
+            if (high > Character.MAX_VALUE)
+                set.set(Character.highSurrogate(
+                    Math.max(low, Character.MIN_SUPPLEMENTARY_CODE_POINT)),
+                    Character.highSurrogate(high) + 1);
+            return;
+        }
+
+        if (matcher instanceof EmptyMatcher
+            || matcher instanceof NothingMatcher
+            || matcher instanceof EndOfInputMatcher)
+            return;
+
+        // AnyMatcher, and matchers we know nothing about
+        set.set(0, NR_CHARS);
+        if (matcher instanceof AnyMatcher)
+            set.clear(Chars.EOI);
+    }
+
+    private static void addFirstChar(final String s, final boolean ignoreCase,
+        final BitSet set)
+    {
+        if (s.isEmpty())
+            return;
+        final char c = s.charAt(0);
+        set.set(c);
+        if (ignoreCase) {
+            set.set(Character.toLowerCase(c));
+            set.set(Character.toUpperCase(c));
+        }
+    }
+
+    private void computeMinLengths()
+    {
+        boolean changed = true;
+        int value;
+
+        while (changed) {
+            changed = false;
+            for (int i = 0; i < minLengths.length; i++) {
+                value = computeMinLength(i);
+                if (value < minLengths[i]) {
+                    minLengths[i] = value;
+                    changed = true;
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("OverlyComplexMethod")
+    private int computeMinLength(final int id)
+    {
+        final Matcher matcher = matchers.get(id);
+        final List<Matcher> list = children.get(id);
+
+        if (nullable[id])
+            return 0;
+
+        if (matcher instanceof SequenceMatcher) {
+            long sum = 0L;
+            for (final Matcher child: list)
+                sum += minLengths[ids.get(child)];
+            return (int) Math.min(sum, INFINITE);
+        }
+
+        if (matcher instanceof JoinMatcher)
+            return minLengths[ids.get(unwrap(((JoinMatcher) matcher)
+                .getJoined()))];
+
+        if (matcher.getType() == MatcherType.COMPOSITE) {
+            int min = INFINITE;
+            for (final Matcher child: list)
+                min = Math.min(min, minLengths[ids.get(child)]);
+            return min;
+        }
+
+        if (matcher instanceof NothingMatcher)
+            return INFINITE;
+
+        if (matcher instanceof StringMatcher)
+            return ((StringMatcher) matcher).getString().length();
+
+        if (matcher instanceof StringIgnoreCaseMatcher)
+            return ((StringIgnoreCaseMatcher) matcher).getString().length();
+
+        if (matcher instanceof TrieMatcher)
+            return shortestWord(((TrieMatcher) matcher).getTrie().getWords());
+
+        if (matcher instanceof CaseInsensitiveTrieMatcher)
+            return shortestWord(((CaseInsensitiveTrieMatcher) matcher)
+                .getTrie().getWords());
+
+        if (matcher instanceof CodePointMatcher)
+            return Character.charCount(
+                ((CodePointMatcher) matcher).getCodePoint());
+
+        return 1;
+    }
+
+    private static int shortestWord(final List<String> words)
+    {
+        int ret = INFINITE;
+        for (final String word: words)
+            ret = Math.min(ret, word.length());
+        return ret;
+    }
+}
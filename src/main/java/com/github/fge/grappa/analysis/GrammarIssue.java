@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.fge.grappa.analysis;
+
+import com.github.fge.grappa.matchers.base.Matcher;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.Immutable;
+import java.util.Objects;
+
+/**
+ * A problem found in a grammar by a {@link GrammarAnalyzer}
+ *
+ * <p>Some kinds of issues are fatal: the grammar will fail at parse time
+ * (nullable loop bodies) or never terminate (left recursion). The others
+ * point to likely backtracking hotspots.</p>
+ */
+@Immutable
+@ParametersAreNonnullByDefault
+public final class GrammarIssue
+{
+    public enum Kind
+    {
+        /**
+         * The body of a loop, or the joining rule of a join, can succeed
+         * without consuming any input
+         */
+        NULLABLE_LOOP(true),
+        /**
+         * A rule can invoke itself without consuming any input
+         */
+        LEFT_RECURSION(true),
+        /**
+         * Two alternatives of a {@code firstOf()} start with the same rule
+         */
+        SHARED_PREFIX(false),
+        /**
+         * Two alternatives of a {@code firstOf()} can start with the same
+         * character
+         */
+        FIRST_SET_OVERLAP(false),
+        ;
+
+        private final boolean fatal;
+
+        Kind(final boolean fatal)
+        {
+            this.fatal = fatal;
+        }
+
+        /**
+         * Tell whether an issue of this kind makes the grammar unusable
+         *
+         * @return see description
+         */
+        public boolean isFatal()
+        {
+            return fatal;
+        }
+    }
+
+    private final Kind kind;
+    private final Matcher matcher;
+    private final String message;
+
+    GrammarIssue(final Kind kind, final Matcher matcher, final String message)
+    {
+        this.kind = Objects.requireNonNull(kind);
+        this.matcher = Objects.requireNonNull(matcher);
+        this.message = Objects.requireNonNull(message);
+    }
+
+    /**
+     * Return the kind of this issue
+     *
+     * @return see description
+     */
+    public Kind getKind()
+    {
+        return kind;
+    }
+
+    /**
+     * Tell whether this issue makes the grammar unusable
+     *
+     * @return see description
+     */
+    public boolean isFatal()
+    {
+        return kind.isFatal();
+    }
+
+    /**
+     * Return the matcher where this issue was found
+     *
+     * <p>For a loop, this is the loop itself; for a left recursion, a matcher
+     * of the recursion; for an overlap, the {@code firstOf()}.</p>
+     *
+     * @return see description
+     */
+    public Matcher getMatcher()
+    {
+        return matcher;
+    }
+
+    /**
+     * Return a description of this issue
+     *
+     * @return see description
+     */
+    public String getMessage()
+    {
+        return message;
+    }
+
+    @Override
+    public String toString()
+    {
+        return kind + ": " + message;
+    }
+}
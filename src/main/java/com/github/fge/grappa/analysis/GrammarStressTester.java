@@ -0,0 +1,362 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.analysis;
+
+import com.github.fge.grappa.Grappa;
+import com.github.fge.grappa.exceptions.GrappaException;
+import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.parsers.BaseParser;
+import com.github.fge.grappa.rules.Rule;
+import com.google.common.base.Preconditions;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * A stress tester looking for inputs making a grammar backtrack
+ * exponentially (or, more generally, super linearly)
+ *
+ * <p>PEG grammars with nested choices can take exponential time on some
+ * inputs. This tester works as follows:</p>
+ *
+ * <ul>
+ *     <li>it generates inputs by walking the matcher graph of the grammar
+ *     (see {@link GrammarGraph}), and keeps those which the grammar matches;
+ *     </li>
+ *     <li>it adds near miss mutations of these samples (one character
+ *     deleted, inserted or replaced);</li>
+ *     <li>from each of these seeds, it builds input families by "pumping"
+ *     one substring, or two (for nested constructs), and measures the number
+ *     of matcher invocations for increasing numbers of repetitions, with and
+ *     without the last character of the input;</li>
+ *     <li>families whose cost grows faster than the configured exponent
+ *     (1.5 by default) are reported, along with the rules which were invoked
+ *     the most for the largest input.</li>
+ * </ul>
+ *
+ * <p>Each parse is given an invocation budget; families exceeding it are
+ * reported with an infinite growth exponent. Generation is random, but
+ * repeatable for a given random seed.</p>
+ *
+ * <p>This class can also be run from the command line, with the name of a
+ * parser class and of a rule method of this class as arguments.</p>
+ */
+@NotThreadSafe
+@ParametersAreNonnullByDefault
+public final class GrammarStressTester
+{
+    public static final int DEFAULT_MAX_SAMPLES = 10;
+    public static final long DEFAULT_BUDGET = 1000000L;
+    public static final double DEFAULT_GROWTH_THRESHOLD = 1.5;
+
+    private static final int MAX_DEPTH = 8;
+    private static final int GENERATION_ATTEMPTS = 50;
+    private static final int MUTATIONS = 2;
+    private static final int MAX_SEED_LENGTH = 40;
+    private static final int MAX_PUMP_LENGTH = 3;
+    private static final int MAX_PAIRED_PUMPS = 100;
+    private static final int[] REPEATS = { 1, 2, 4, 8, 16, 32 };
+    private static final int MAX_RESULTS = 20;
+
+    private final Rule rule;
+    private final GrammarGraph graph;
+
+    private long randomSeed = 0L;
+    private int maxSamples = DEFAULT_MAX_SAMPLES;
+    private long budget = DEFAULT_BUDGET;
+    private double growthThreshold = DEFAULT_GROWTH_THRESHOLD;
+
+    /**
+     * Constructor
+     *
+     * @param rule the root rule of the grammar
+     */
+    public GrammarStressTester(final Rule rule)
+    {
+        this.rule = Objects.requireNonNull(rule, "rule");
+        graph = new GrammarGraph(rule);
+    }
+
+    public void setRandomSeed(final long randomSeed)
+    {
+        this.randomSeed = randomSeed;
+    }
+
+    public void setMaxSamples(final int maxSamples)
+    {
+        Preconditions.checkArgument(maxSamples > 0,
+            "number of samples must be strictly positive");
+        this.maxSamples = maxSamples;
+    }
+
+    public void setInvocationBudget(final long budget)
+    {
+        Preconditions.checkArgument(budget > 0L,
+            "budget must be strictly positive");
+        this.budget = budget;
+    }
+
+    public void setGrowthThreshold(final double growthThreshold)
+    {
+        Preconditions.checkArgument(growthThreshold > 1.0,
+            "growth threshold must be greater than 1");
+        this.growthThreshold = growthThreshold;
+    }
+
+    /**
+     * Run the stress test
+     *
+     * @return a report
+     */
+    public StressReport run()
+    {
+        final Random random = new Random(randomSeed);
+        final InputGenerator generator = new InputGenerator(graph, random);
+        final CostParseRunner<Object> runner = new CostParseRunner<>(rule);
+
+        final Set<String> samples = new LinkedHashSet<>();
+        final int attempts = maxSamples * GENERATION_ATTEMPTS;
+        String input;
+
+        for (int i = 0; i < attempts && samples.size() < maxSamples; i++) {
+            input = generator.generate(1 + i % MAX_DEPTH);
+            if (input.isEmpty() || input.length() > MAX_SEED_LENGTH
+                || samples.contains(input))
+                continue;
+            if (matches(runner, input))
+                samples.add(input);
+        }
+
+        final BitSet alphabet = new BitSet();
+        for (final Matcher matcher: graph.getMatchers())
+            alphabet.or(graph.getFirstSet(matcher));
+
+        final Set<String> seeds = new LinkedHashSet<>(samples);
+        for (final String sample: samples)
+            for (int i = 0; i < MUTATIONS; i++)
+                seeds.add(mutate(sample, random, generator, alphabet));
+
+        final Map<String, PathologicalInput> found = new LinkedHashMap<>();
+        int nrFamilies = 0;
+        int nrExceeded = 0;
+        PathologicalInput result;
+
+        // Once enough families exceed the budget, no other family can make it
+        // to the report; stop there
+        outer:
+        for (final String seed: seeds)
+            for (final int[] pump: pumps(seed, random))
+                for (final boolean truncate: new boolean[] { false, true }) {
+                    if (nrExceeded == MAX_RESULTS)
+                        break outer;
+                    nrFamilies++;
+                    result = measure(runner, seed, pump, truncate);
+                    if (result == null || found.containsKey(result.getInput()))
+                        continue;
+                    found.put(result.getInput(), result);
+                    if (result.isBudgetExceeded())
+                        nrExceeded++;
+                }
+
+        final List<PathologicalInput> list = new ArrayList<>(found.values());
+        final StressReport report
+            = new StressReport(new ArrayList<>(samples), nrFamilies, list);
+
+        if (report.getPathologicalInputs().size() <= MAX_RESULTS)
+            return report;
+
+        return new StressReport(report.getSamples(), nrFamilies,
+            new ArrayList<>(report.getPathologicalInputs()
+                .subList(0, MAX_RESULTS)));
+    }
+
+    public static void main(final String... args)
+        throws Exception
+    {
+        if (args.length != 2) {
+            System.err.println("usage: GrammarStressTester parserClass"
+                + " ruleMethod");
+            System.exit(2);
+        }
+
+        @SuppressWarnings("unchecked")
+        final Class<BaseParser<Object>> parserClass
+            = (Class<BaseParser<Object>>) Class.forName(args[0]);
+        final BaseParser<Object> parser = Grappa.createParser(parserClass);
+        final Rule rule = (Rule) parser.getClass().getMethod(args[1])
+            .invoke(parser);
+
+        System.out.print(new GrammarStressTester(rule).run());
+    }
+
+    private boolean matches(final CostParseRunner<Object> runner,
+        final String input)
+    {
+        try {
+            return runner.measure(input, budget, false) != -1L
+                && runner.lastRunMatched();
+        } catch (GrappaException ignored) {
+            return false;
+        }
+    }
+
+    private static String mutate(final String sample, final Random random,
+        final InputGenerator generator, final BitSet alphabet)
+    {
+        final StringBuilder sb = new StringBuilder(sample);
+        final int index = random.nextInt(sample.length());
+        final int c = generator.pick(alphabet);
+
+        switch (c == -1 ? 0 : random.nextInt(3)) {
+            case 0:
+                sb.deleteCharAt(index);
+                break;
+            case 1:
+                sb.insert(index, (char) c);
+                break;
+            default:
+                sb.setCharAt(index, (char) c);
+        }
+
+        return sb.toString();
+    }
+
+    /*
+     * A pump is an array of four indices {i, j, k, l}: s[i, j) and s[k, l)
+     * are repeated; k and l are equal for a single pump.
+     */
+    private static List<int[]> pumps(final String seed, final Random random)
+    {
+        final int length = seed.length();
+        final List<int[]> ret = new ArrayList<>();
+
+        for (int i = 0; i < length; i++)
+            for (int j = i + 1; j <= Math.min(i + MAX_PUMP_LENGTH, length);
+                j++)
+                ret.add(new int[] { i, j, length, length });
+
+        final List<int[]> paired = new ArrayList<>();
+
+        for (int i = 0; i < length; i++)
+            for (int k = i + 1; k < length; k++)
+                if (seed.charAt(i) != seed.charAt(k))
+                    paired.add(new int[] { i, i + 1, k, k + 1 });
+
+        Collections.shuffle(paired, random);
+        ret.addAll(paired.subList(0,
+            Math.min(paired.size(), MAX_PAIRED_PUMPS)));
+        return ret;
+    }
+
+    private static String pumped(final String seed, final int[] pump,
+        final int repeats, final boolean truncate)
+    {
+        final StringBuilder sb = new StringBuilder();
+        final String first = seed.substring(pump[0], pump[1]);
+        final String second = seed.substring(pump[2], pump[3]);
+
+        sb.append(seed, 0, pump[0]);
+        for (int i = 0; i < repeats; i++)
+            sb.append(first);
+        sb.append(seed, pump[1], pump[2]);
+        for (int i = 0; i < repeats; i++)
+            sb.append(second);
+        sb.append(seed, pump[3], seed.length());
+
+        if (truncate && sb.length() > 0)
+            sb.setLength(sb.length() - 1);
+
+        return sb.toString();
+    }
+
+    private PathologicalInput measure(final CostParseRunner<Object> runner,
+        final String seed, final int[] pump, final boolean truncate)
+    {
+        final int nrSizes = REPEATS.length;
+        final int[] lengths = new int[nrSizes];
+        final long[] invocations = new long[nrSizes];
+        String input = null;
+        int size = 0;
+
+        try {
+            // Screen the family using the three first sizes, then measure the
+            // other sizes only if the cost looks super linear
+            while (size < nrSizes) {
+                input = pumped(seed, pump, REPEATS[size], truncate);
+                lengths[size] = input.length();
+                invocations[size] = runner.measure(input, budget, false);
+                size++;
+                if (invocations[size - 1] == -1L)
+                    break;
+                if (size == 3 && exponent(lengths, invocations, size)
+                    <= growthThreshold)
+                    return null;
+            }
+
+            final double exponent = exponent(lengths, invocations, size);
+            if (exponent <= growthThreshold)
+                return null;
+
+            runner.measure(input, budget, true);
+
+            return new PathologicalInput(seed, input,
+                Arrays.copyOf(lengths, size),
+                Arrays.copyOf(invocations, size), exponent,
+                runner.getRuleInvocations());
+        } catch (GrappaException ignored) {
+            // An action failed, or the stack overflowed
+            return null;
+        }
+    }
+
+    /*
+     * Since the number of repetitions doubles from one size to the next, if
+     * the cost is proportional to n^p, then the marginal cost per character
+     * is multiplied by 2^(p - 1) from one interval to the next. Using marginal
+     * costs rather than total costs makes the estimate insensitive to the
+     * cost of the non pumped part of the input.
+     */
+    private static double exponent(final int[] lengths,
+        final long[] invocations, final int size)
+    {
+        if (invocations[size - 1] == -1L)
+            return Double.POSITIVE_INFINITY;
+        if (size < 3)
+            return 0.0;
+
+        final double before = (double) (invocations[size - 2]
+            - invocations[size - 3]) / (lengths[size - 2] - lengths[size - 3]);
+        final double after = (double) (invocations[size - 1]
+            - invocations[size - 2]) / (lengths[size - 1] - lengths[size - 2]);
+
+        if (before <= 0.0 || after <= 0.0)
+            return 0.0;
+
+        return 1.0 + Math.log(after / before) / Math.log(2.0);
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.analysis;
+
+import com.github.fge.grappa.matchers.CharIgnoreCaseMatcher;
+import com.github.fge.grappa.matchers.CharMatcher;
+import com.github.fge.grappa.matchers.CharRangeMatcher;
+import com.github.fge.grappa.matchers.MatcherType;
+import com.github.fge.grappa.matchers.StringIgnoreCaseMatcher;
+import com.github.fge.grappa.matchers.StringMatcher;
+import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.matchers.delegate.FirstOfMatcher;
+import com.github.fge.grappa.matchers.delegate.OneOrMoreMatcher;
+import com.github.fge.grappa.matchers.delegate.OptionalMatcher;
+import com.github.fge.grappa.matchers.delegate.SequenceMatcher;
+import com.github.fge.grappa.matchers.delegate.ZeroOrMoreMatcher;
+import com.github.fge.grappa.matchers.join.JoinMatcher;
+import com.github.fge.grappa.matchers.trie.CaseInsensitiveTrieMatcher;
+import com.github.fge.grappa.matchers.trie.TrieMatcher;
+import com.github.fge.grappa.matchers.unicode.CodePointMatcher;
+import com.github.fge.grappa.matchers.unicode.CodePointRangeMatcher;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generate candidate inputs for a grammar by walking its matcher graph
+ *
+ * <p>Choices, repetitions and character classes are resolved randomly. Past
+ * a given depth, the generator only follows the alternatives leading to the
+ * shortest inputs, so that generation terminates for recursive grammars.
+ * Predicates are ignored, and PEG choices are ordered; generated inputs are
+ * therefore not guaranteed to match.</p>
+ */
+@NotThreadSafe
+@ParametersAreNonnullByDefault
+final class InputGenerator
+{
+    private static final int MAX_REPEATS = 3;
+    private static final char FIRST_PRINTABLE = ' ';
+    private static final char LAST_PRINTABLE = '~';
+
+    private final GrammarGraph graph;
+    private final Random random;
+
+    InputGenerator(final GrammarGraph graph, final Random random)
+    {
+        this.graph = graph;
+        this.random = random;
+    }
+
+    /**
+     * Generate an input for the root matcher of the graph
+     *
+     * @param maxDepth the depth past which only the shortest inputs are
+     * generated
+     * @return an input
+     */
+    String generate(final int maxDepth)
+    {
+        final StringBuilder sb = new StringBuilder();
+        generate(graph.getRoot(), sb, 0, maxDepth);
+        return sb.toString();
+    }
+
+    /**
+     * Pick a random character from a set
+     *
+     * <p>Printable ASCII characters are preferred, if the set has any.</p>
+     *
+     * @param set the set
+     * @return a character, or -1 if the set is empty
+     */
+    int pick(final BitSet set)
+    {
+        final int printable = set.get(FIRST_PRINTABLE, LAST_PRINTABLE + 1)
+            .cardinality();
+        final int total = printable > 0 ? printable : set.cardinality();
+
+        if (total == 0)
+            return -1;
+
+        int n = random.nextInt(total);
+        int c = set.nextSetBit(printable > 0 ? FIRST_PRINTABLE : 0);
+
+        while (n-- > 0)
+            c = set.nextSetBit(c + 1);
+
+        return c;
+    }
+
+    @SuppressWarnings({ "OverlyComplexMethod", "OverlyLongMethod" })
+    private void generate(final Matcher matcher, final StringBuilder sb,
+        final int depth, final int maxDepth)
+    {
+        final List<Matcher> children = graph.getChildren(matcher);
+        final boolean deep = depth >= maxDepth;
+        final int next = depth + 1;
+
+        if (matcher instanceof SequenceMatcher) {
+            for (final Matcher child: children)
+                generate(child, sb, next, maxDepth);
+            return;
+        }
+
+        if (matcher instanceof FirstOfMatcher) {
+            generate(deep ? shortest(children)
+                : children.get(random.nextInt(children.size())), sb, next,
+                maxDepth);
+            return;
+        }
+
+        if (matcher instanceof OptionalMatcher) {
+            if (!deep && random.nextBoolean())
+                generate(children.get(0), sb, next, maxDepth);
+            return;
+        }
+
+        if (matcher instanceof ZeroOrMoreMatcher
+            || matcher instanceof OneOrMoreMatcher) {
+            int count = deep ? 0 : random.nextInt(MAX_REPEATS);
+            if (matcher instanceof OneOrMoreMatcher)
+                count++;
+            for (int i = 0; i < count; i++)
+                generate(children.get(0), sb, next, maxDepth);
+            return;
+        }
+
+        if (matcher instanceof JoinMatcher) {
+            final JoinMatcher join = (JoinMatcher) matcher;
+            if (deep && join.allowsZeroCycles())
+                return;
+            final Matcher joined = GrammarGraph.unwrap(join.getJoined());
+            final Matcher joining = GrammarGraph.unwrap(join.getJoining());
+            generate(joined, sb, next, maxDepth);
+            final int count = deep ? 0 : random.nextInt(MAX_REPEATS);
+            for (int i = 0; i < count; i++) {
+                generate(joining, sb, next, maxDepth);
+                generate(joined, sb, next, maxDepth);
+            }
+            return;
+        }
+
+        final MatcherType type = matcher.getType();
+
+        if (type == MatcherType.PREDICATE || type == MatcherType.ACTION)
+            return;
+
+        if (type == MatcherType.COMPOSITE) {
+            // A composite matcher we know nothing about
+            for (final Matcher child: children)
+                generate(child, sb, next, maxDepth);
+            return;
+        }
+
+        terminal(matcher, sb);
+    }
+
+    @SuppressWarnings("OverlyComplexMethod")
+    private void terminal(final Matcher matcher, final StringBuilder sb)
+    {
+        if (matcher instanceof CharMatcher) {
+            sb.append(((CharMatcher) matcher).getCharacter());
+            return;
+        }
+
+        if (matcher instanceof CharIgnoreCaseMatcher) {
+            final CharIgnoreCaseMatcher m = (CharIgnoreCaseMatcher) matcher;
+            sb.append(random.nextBoolean() ? m.getLowerCase()
+                : m.getUpperCase());
+            return;
+        }
+
+        if (matcher instanceof CharRangeMatcher) {
+            final CharRangeMatcher m = (CharRangeMatcher) matcher;
+            sb.append((char) (m.getLowerBound()
+                + random.nextInt(m.getUpperBound() - m.getLowerBound() + 1)));
+            return;
+        }
+
+        if (matcher instanceof StringMatcher) {
+            sb.append(((StringMatcher) matcher).getString());
+            return;
+        }
+
+        if (matcher instanceof StringIgnoreCaseMatcher) {
+            sb.append(((StringIgnoreCaseMatcher) matcher).getString());
+            return;
+        }
+
+        if (matcher instanceof TrieMatcher) {
+            sb.append(pick(((TrieMatcher) matcher).getTrie().getWords()));
+            return;
+        }
+
+        if (matcher instanceof CaseInsensitiveTrieMatcher) {
+            sb.append(pick(((CaseInsensitiveTrieMatcher) matcher).getTrie()
+                .getWords()));
+            return;
+        }
+
+        if (matcher instanceof CodePointMatcher) {
+            sb.appendCodePoint(((CodePointMatcher) matcher).getCodePoint());
+            return;
+        }
+
+        if (matcher instanceof CodePointRangeMatcher) {
+            final CodePointRangeMatcher m = (CodePointRangeMatcher) matcher;
+            sb.appendCodePoint(m.getLow()
+                + random.nextInt(m.getHigh() - m.getLow() + 1));
+            return;
+        }
+
+        // AnyOfMatcher, AnyMatcher, and any other terminal consuming input
+        if (graph.getMinLength(matcher) == 0)
+            return;
+
+        final int c = pick(graph.getFirstSet(matcher));
+        if (c != -1)
+            sb.append((char) c);
+    }
+
+    private String pick(final List<String> words)
+    {
+        return words.isEmpty() ? "" : words.get(random.nextInt(words.size()));
+    }
+
+    private Matcher shortest(final List<Matcher> matchers)
+    {
+        Matcher ret = matchers.get(0);
+        int min = graph.getMinLength(ret);
+        int length;
+
+        for (final Matcher matcher: matchers) {
+            length = graph.getMinLength(matcher);
+            if (length < min) {
+                ret = matcher;
+                min = length;
+            }
+        }
+
+        return ret;
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.analysis;
+
+import com.google.common.collect.ImmutableMap;
+
+import javax.annotation.concurrent.Immutable;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * An input family whose parsing cost grows super linearly with its size
+ *
+ * <p>A family is obtained by pumping parts of a seed input (a generated
+ * input, or a near miss mutation of one): the same input, with one or two of
+ * its substrings repeated a given number of times.</p>
+ *
+ * @see GrammarStressTester
+ */
+@Immutable
+public final class PathologicalInput
+{
+    private final String seed;
+    private final String input;
+    private final int[] lengths;
+    private final long[] invocations;
+    private final double growthExponent;
+    private final Map<String, Long> rules;
+
+    PathologicalInput(final String seed, final String input,
+        final int[] lengths, final long[] invocations,
+        final double growthExponent, final Map<String, Long> rules)
+    {
+        this.seed = seed;
+        this.input = input;
+        this.lengths = lengths.clone();
+        this.invocations = invocations.clone();
+        this.growthExponent = growthExponent;
+        this.rules = ImmutableMap.copyOf(rules);
+    }
+
+    /**
+     * Return the seed input of this family
+     *
+     * @return see description
+     */
+    public String getSeed()
+    {
+        return seed;
+    }
+
+    /**
+     * Return the largest input of this family which was tried
+     *
+     * @return see description
+     */
+    public String getInput()
+    {
+        return input;
+    }
+
+    /**
+     * Return the lengths of the inputs of this family which were tried
+     *
+     * @return an array, in increasing order
+     */
+    public int[] getLengths()
+    {
+        return lengths.clone();
+    }
+
+    /**
+     * Return the number of matcher invocations for each length
+     *
+     * @return an array; -1 means that the invocation budget was exceeded
+     * @see #getLengths()
+     */
+    public long[] getInvocations()
+    {
+        return invocations.clone();
+    }
+
+    /**
+     * Tell whether the invocation budget was exceeded for the largest input
+     *
+     * @return see description
+     */
+    public boolean isBudgetExceeded()
+    {
+        return invocations[invocations.length - 1] == -1L;
+    }
+
+    /**
+     * Return the estimated exponent of the cost of this family
+     *
+     * <p>This is estimated from the growth of the cost per pumped character
+     * between the largest inputs: 1 for a linear cost, 2 for a quadratic cost,
+     * etc. Exponential costs have an exponent which grows with the input
+     * size. If the invocation budget was exceeded, this is {@link
+     * Double#POSITIVE_INFINITY}.</p>
+     *
+     * @return see description
+     */
+    public double getGrowthExponent()
+    {
+        return growthExponent;
+    }
+
+    /**
+     * Return the number of matcher invocations per rule, for the largest
+     * input
+     *
+     * @return an immutable map, most invoked rules first
+     */
+    public Map<String, Long> getRules()
+    {
+        return rules;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("exponent %.2f, lengths %s, invocations %s: %s",
+            growthExponent, Arrays.toString(lengths),
+            Arrays.toString(invocations), input);
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.analysis;
+
+import com.github.fge.grappa.support.Chars;
+import com.google.common.collect.ImmutableList;
+
+import javax.annotation.concurrent.Immutable;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The result of a {@link GrammarStressTester} run
+ *
+ * <p>Pathological inputs are sorted by decreasing growth exponent.</p>
+ */
+@Immutable
+public final class StressReport
+{
+    private static final int MAX_RULES = 5;
+
+    private static final Comparator<PathologicalInput> BY_GROWTH
+        = new Comparator<PathologicalInput>()
+    {
+        @Override
+        public int compare(final PathologicalInput o1,
+            final PathologicalInput o2)
+        {
+            return Double.compare(o2.getGrowthExponent(),
+                o1.getGrowthExponent());
+        }
+    };
+
+    private final List<String> samples;
+    private final int nrFamilies;
+    private final List<PathologicalInput> pathologicalInputs;
+
+    StressReport(final List<String> samples, final int nrFamilies,
+        final List<PathologicalInput> pathologicalInputs)
+    {
+        this.samples = ImmutableList.copyOf(samples);
+        this.nrFamilies = nrFamilies;
+        Collections.sort(pathologicalInputs, BY_GROWTH);
+        this.pathologicalInputs = ImmutableList.copyOf(pathologicalInputs);
+    }
+
+    /**
+     * Return the generated inputs which the grammar matched
+     *
+     * @return an immutable list
+     */
+    public List<String> getSamples()
+    {
+        return samples;
+    }
+
+    /**
+     * Return the number of input families which were measured
+     *
+     * @return see description
+     */
+    public int getNrFamilies()
+    {
+        return nrFamilies;
+    }
+
+    /**
+     * Return the pathological inputs found, worst first
+     *
+     * @return an immutable list
+     */
+    public List<PathologicalInput> getPathologicalInputs()
+    {
+        return pathologicalInputs;
+    }
+
+    /**
+     * Tell whether no pathological input was found
+     *
+     * @return see description
+     */
+    public boolean isClean()
+    {
+        return pathologicalInputs.isEmpty();
+    }
+
+    @Override
+    public String toString()
+    {
+        final StringBuilder sb = new StringBuilder(String.format(
+            "%d samples, %d input families, %d pathological%n",
+            samples.size(), nrFamilies, pathologicalInputs.size()));
+
+        int nrRules;
+
+        for (final PathologicalInput input: pathologicalInputs) {
+            sb.append(String.format("%nexponent %s, input (%d chars): ",
+                input.isBudgetExceeded() ? "inf (budget exceeded)"
+                    : String.format("%.2f", input.getGrowthExponent()),
+                input.getInput().length()));
+            for (final char c: input.getInput().toCharArray())
+                sb.append(Chars.escape(c));
+            sb.append(String.format("%n"));
+
+            nrRules = 0;
+            for (final Map.Entry<String, Long> entry:
+                input.getRules().entrySet()) {
+                if (nrRules++ == MAX_RULES)
+                    break;
+                sb.append(String.format("%14d  %s%n", entry.getValue(),
+                    entry.getKey()));
+            }
+        }
+
+        return sb.toString();
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.annotations;
+
+import com.github.fge.grappa.rules.Rule;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Mark the {@link Rule} matching the elements of the top level container of a
+ * document
+ *
+ * <p>This annotation is used by {@link
+ * com.github.fge.grappa.run.parallel.StructuralParallelParser}: the elements
+ * of the top level container (for instance, the values of a JSON array) are
+ * parsed in parallel using this rule.</p>
+ *
+ * <p>The annotated method must be public and have no arguments; only one
+ * method of a parser class may carry this annotation. The rule must not depend
+ * on its surroundings: it must only push values onto the stack, and must not
+ * use {@link com.github.fge.grappa.support.Var}s of enclosing rules.</p>
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface ParallelElement
+{
+}
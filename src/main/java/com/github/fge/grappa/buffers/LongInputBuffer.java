@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.buffers;
+
+import com.github.fge.grappa.support.Chars;
+
+/**
+ * An input whose length may exceed {@link Integer#MAX_VALUE} characters
+ *
+ * <p>Matchers and contexts only deal with {@code int} indices, and therefore
+ * with {@link InputBuffer}s. A long input buffer is parsed through {@link
+ * #window(long, int) windows}, which are regular input buffers over a part of
+ * the input.</p>
+ *
+ * @see com.github.fge.grappa.run.LongRecordParseRunner
+ */
+public interface LongInputBuffer
+{
+    /**
+     * Return the length of this input
+     *
+     * @return see description
+     */
+    long length();
+
+    /**
+     * Return the character at the given offset
+     *
+     * @param offset the offset
+     * @return the character, or {@link Chars#EOI} if the offset is greater
+     * than, or equal to, the length of this input
+     *
+     * @throws IllegalArgumentException offset is negative
+     */
+    char charAt(long offset);
+
+    /**
+     * Extract a range of characters
+     *
+     * <p>Invalid offsets are automatically adjusted to their respective
+     * boundary.</p>
+     *
+     * @param start the start offset (inclusive)
+     * @param end the end offset (exclusive)
+     * @return a new String
+     */
+    String extract(long start, long end);
+
+    /**
+     * Return an input buffer over a part of this input
+     *
+     * <p>Index 0 of the returned buffer is offset {@code start} of this input;
+     * note that line and column information of the returned buffer is
+     * relative to the start of the window.</p>
+     *
+     * @param start the start offset of the window
+     * @param length the length of the window
+     * @return an input buffer
+     * @throws IndexOutOfBoundsException the window is not within this input
+     */
+    InputBuffer window(long start, int length);
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.buffers;
+
+import com.github.fge.grappa.support.Chars;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+/**
+ * A {@link LongInputBuffer} over a memory mapped, ISO-8859-1 encoded file
+ *
+ * <p>Since a single mapping cannot exceed 2 GiB, the file is mapped in chunks
+ * of 1 GiB. One byte is one character; this is therefore also suitable for
+ * ASCII files.</p>
+ */
+@ThreadSafe
+@ParametersAreNonnullByDefault
+public final class MappedLatin1FileBuffer
+    implements LongInputBuffer
+{
+    private static final int DEFAULT_CHUNK_SHIFT = 30;
+
+    private final MappedByteBuffer[] chunks;
+    private final int chunkShift;
+    private final long chunkMask;
+    private final long length;
+
+    /**
+     * Constructor
+     *
+     * @param path the path to the file
+     * @throws IOException failed to open or map the file
+     */
+    public MappedLatin1FileBuffer(final Path path)
+        throws IOException
+    {
+        this(path, DEFAULT_CHUNK_SHIFT);
+    }
+
+    @VisibleForTesting
+    MappedLatin1FileBuffer(final Path path, final int chunkShift)
+        throws IOException
+    {
+        Objects.requireNonNull(path, "path");
+        Preconditions.checkArgument(chunkShift > 0 && chunkShift <= 30);
+
+        this.chunkShift = chunkShift;
+        chunkMask = (1L << chunkShift) - 1L;
+
+        try (
+            final FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.READ);
+        ) {
+            length = channel.size();
+
+            final long chunkSize = 1L << chunkShift;
+            final int nrChunks = (int) ((length + chunkSize - 1L) >>> chunkShift);
+
+            chunks = new MappedByteBuffer[nrChunks];
+
+            long offset;
+            for (int i = 0; i < nrChunks; i++) {
+                offset = (long) i << chunkShift;
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset,
+                    Math.min(chunkSize, length - offset));
+            }
+        }
+    }
+
+    @Override
+    public long length()
+    {
+        return length;
+    }
+
+    @Override
+    public char charAt(final long offset)
+    {
+        if (offset < 0L)
+            throw new IllegalArgumentException("offset is negative");
+        if (offset >= length)
+            return Chars.EOI;
+
+        return (char) (chunks[(int) (offset >>> chunkShift)]
+            .get((int) (offset & chunkMask)) & 0xff);
+    }
+
+    @Override
+    public String extract(final long start, final long end)
+    {
+        final long realStart = Math.max(start, 0L);
+        final long realEnd = Math.min(end, length);
+
+        if (realStart >= realEnd)
+            return "";
+
+        final long size = realEnd - realStart;
+        Preconditions.checkArgument(size <= Integer.MAX_VALUE,
+            "range too large");
+
+        final char[] chars = new char[(int) size];
+        long offset = realStart;
+
+        for (int i = 0; i < chars.length; i++, offset++)
+            chars[i] = (char) (chunks[(int) (offset >>> chunkShift)]
+                .get((int) (offset & chunkMask)) & 0xff);
+
+        return new String(chars);
+    }
+
+    @Override
+    public InputBuffer window(final long start, final int length)
+    {
+        return new WindowInputBuffer(this, start, length);
+    }
+}
@@ -0,0 +1,367 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.buffers;
+
+import com.github.fge.grappa.support.Chars;
+import com.github.fge.grappa.support.IndexRange;
+import com.github.fge.grappa.support.Position;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.Range;
+
+import javax.annotation.Nonnull;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.ThreadSafe;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * An {@link InputBuffer} over a list of {@link CharSequence} segments
+ *
+ * <p>The segments are presented as one logical input, without copying them.
+ * The start offsets of all segments are stored in an array; the segment of a
+ * given index is found by a binary search in this array, after checking the
+ * segment of the previous lookup (parsers mostly read input sequentially).</p>
+ *
+ * <p>Use {@link #latin1(List)} to build a buffer over a list of {@link
+ * ByteBuffer}s whose contents are ISO-8859-1 (or ASCII) encoded.</p>
+ *
+ * <p>Segments must not be modified after this buffer is built.</p>
+ */
+@ThreadSafe
+@ParametersAreNonnullByDefault
+public final class SegmentedInputBuffer
+    implements InputBuffer
+{
+    private final CharSequence[] segments;
+    /*
+     * starts[i] is the start offset of segment i; starts[segments.length] is
+     * the total length
+     */
+    private final int[] starts;
+    private final int length;
+
+    /*
+     * Segment of the last lookup. This is a benign race: int writes are
+     * atomic, and any value is a valid segment number, checked before use.
+     */
+    private int lastSegment = 0;
+
+    private final Supplier<LineCounter> lineCounter
+        = Suppliers.memoize(new Supplier<LineCounter>()
+    {
+        @Override
+        public LineCounter get()
+        {
+            return new LineCounter(new View());
+        }
+    });
+
+    public SegmentedInputBuffer(final List<? extends CharSequence> segments)
+    {
+        Objects.requireNonNull(segments, "segments");
+
+        final int size = segments.size();
+
+        this.segments = new CharSequence[Math.max(size, 1)];
+        starts = new int[this.segments.length + 1];
+
+        int offset = 0;
+        CharSequence segment;
+
+        for (int i = 0; i < size; i++) {
+            segment = Objects.requireNonNull(segments.get(i),
+                "null segment");
+            this.segments[i] = segment;
+            starts[i] = offset;
+            offset += segment.length();
+            Preconditions.checkArgument(offset >= 0, "input is too large");
+        }
+
+        if (size == 0) {
+            this.segments[0] = "";
+            starts[0] = 0;
+        }
+
+        starts[this.segments.length] = offset;
+        length = offset;
+    }
+
+    /**
+     * Build a buffer over a list of ISO-8859-1 encoded byte buffers
+     *
+     * <p>The contents of the byte buffers (between their positions and limits
+     * at the time of this call) are read directly; the buffers themselves are
+     * not modified.</p>
+     *
+     * @param buffers the byte buffers
+     * @return a new input buffer
+     */
+    @Nonnull
+    public static SegmentedInputBuffer latin1(final List<ByteBuffer> buffers)
+    {
+        Objects.requireNonNull(buffers, "buffers");
+
+        final List<CharSequence> list = new ArrayList<>(buffers.size());
+        for (final ByteBuffer buffer: buffers)
+            list.add(new Latin1Segment(buffer.duplicate()));
+
+        return new SegmentedInputBuffer(list);
+    }
+
+    /**
+     * Return the number of segments
+     *
+     * @return see description
+     */
+    public int getNrSegments()
+    {
+        return segments.length;
+    }
+
+    @Override
+    public char charAt(final int index)
+    {
+        if (index < 0)
+            throw new IllegalArgumentException("index is negative");
+
+        if (index >= length)
+            return Chars.EOI;
+
+        final int segment = findSegment(index);
+        return segments[segment].charAt(index - starts[segment]);
+    }
+
+    @SuppressWarnings("ImplicitNumericConversion")
+    @Override
+    public int codePointAt(final int index)
+    {
+        if (index >= length)
+            return -1;
+
+        final char c = charAt(index);
+        if (!Character.isHighSurrogate(c))
+            return c;
+        if (index == length - 1)
+            return c;
+        final char c2 = charAt(index + 1);
+        return Character.isLowSurrogate(c2) ? Character.toCodePoint(c, c2) : c;
+    }
+
+    @Override
+    public String extract(final int start, final int end)
+    {
+        final int realStart = Math.max(start, 0);
+        final int realEnd = Math.min(end, length);
+
+        if (realStart >= realEnd)
+            return "";
+
+        int segment = findSegment(realStart);
+        int segmentStart = starts[segment];
+        int segmentEnd = starts[segment + 1];
+
+        if (realEnd <= segmentEnd)
+            return segments[segment].subSequence(realStart - segmentStart,
+                realEnd - segmentStart).toString();
+
+        final StringBuilder sb = new StringBuilder(realEnd - realStart);
+        int from = realStart;
+
+        while (from < realEnd) {
+            segmentStart = starts[segment];
+            segmentEnd = Math.min(starts[segment + 1], realEnd);
+            sb.append(segments[segment], from - segmentStart,
+                segmentEnd - segmentStart);
+            from = segmentEnd;
+            segment++;
+        }
+
+        return sb.toString();
+    }
+
+    @Override
+    public String extract(final IndexRange range)
+    {
+        return extract(range.start, range.end);
+    }
+
+    @Override
+    public Position getPosition(final int index)
+    {
+        return lineCounter.get().toPosition(index);
+    }
+
+    @Override
+    public String extractLine(final int lineNumber)
+    {
+        Preconditions.checkArgument(lineNumber > 0, "line number is negative");
+        final Range<Integer> range = lineCounter.get().getLineRange(lineNumber);
+        final int start = range.lowerEndpoint();
+        int end = range.upperEndpoint();
+        if (charAt(end - 1) == '\n')
+            end--;
+        if (charAt(end - 1) == '\r')
+            end--;
+        return extract(start, end);
+    }
+
+    @SuppressWarnings("AutoUnboxing")
+    @Override
+    public IndexRange getLineRange(final int lineNumber)
+    {
+        final Range<Integer> range = lineCounter.get().getLineRange(lineNumber);
+        return new IndexRange(range.lowerEndpoint(), range.upperEndpoint());
+    }
+
+    @Override
+    public int getLineCount()
+    {
+        return lineCounter.get().getNrLines();
+    }
+
+    @Override
+    public int length()
+    {
+        return length;
+    }
+
+    /*
+     * Index must be in range [0, length)
+     */
+    private int findSegment(final int index)
+    {
+        final int last = lastSegment;
+
+        if (index >= starts[last] && index < starts[last + 1])
+            return last;
+
+        /*
+         * Sequential reads: try the next segment before searching
+         */
+        if (last + 2 < starts.length && index >= starts[last + 1]
+            && index < starts[last + 2]) {
+            lastSegment = last + 1;
+            return last + 1;
+        }
+
+        int ret = Arrays.binarySearch(starts, 0, segments.length, index);
+
+        /*
+         * If not found, binarySearch returns (-(insertion point) - 1); the
+         * segment is the one before the insertion point. If found, skip empty
+         * segments which start at the same offset.
+         */
+        if (ret < 0)
+            ret = -ret - 2;
+        else
+            while (starts[ret + 1] == index)
+                ret++;
+
+        lastSegment = ret;
+        return ret;
+    }
+
+    /*
+     * A CharSequence view of the whole buffer, used to count lines
+     */
+    private final class View
+        implements CharSequence
+    {
+        @Override
+        public int length()
+        {
+            return length;
+        }
+
+        @Override
+        public char charAt(final int index)
+        {
+            return SegmentedInputBuffer.this.charAt(index);
+        }
+
+        @Override
+        public CharSequence subSequence(final int start, final int end)
+        {
+            return extract(start, end);
+        }
+
+        @Nonnull
+        @Override
+        public String toString()
+        {
+            return extract(0, length);
+        }
+    }
+
+    private static final class Latin1Segment
+        implements CharSequence
+    {
+        private final ByteBuffer buffer;
+        private final int offset;
+        private final int length;
+
+        private Latin1Segment(final ByteBuffer buffer)
+        {
+            this(buffer, buffer.position(), buffer.remaining());
+        }
+
+        private Latin1Segment(final ByteBuffer buffer, final int offset,
+            final int length)
+        {
+            this.buffer = buffer;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public int length()
+        {
+            return length;
+        }
+
+        @Override
+        public char charAt(final int index)
+        {
+            if (index < 0 || index >= length)
+                throw new IndexOutOfBoundsException();
+            return (char) (buffer.get(offset + index) & 0xff);
+        }
+
+        @Override
+        public CharSequence subSequence(final int start, final int end)
+        {
+            if (start < 0 || end > length || start > end)
+                throw new IndexOutOfBoundsException();
+            return new Latin1Segment(buffer, offset + start, end - start);
+        }
+
+        @Nonnull
+        @Override
+        public String toString()
+        {
+            final char[] chars = new char[length];
+            for (int i = 0; i < length; i++)
+                chars[i] = (char) (buffer.get(offset + i) & 0xff);
+            return new String(chars);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.buffers;
+
+import com.github.fge.grappa.support.Chars;
+import com.github.fge.grappa.support.IndexRange;
+import com.github.fge.grappa.support.Position;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.Range;
+
+import javax.annotation.Nonnull;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * An {@link InputBuffer} over a window of a {@link LongInputBuffer}
+ *
+ * <p>Unlike {@link CharSequenceInputBuffer}, line information is only
+ * computed when first needed; windows are short lived, and line information
+ * is usually only needed to report errors.</p>
+ */
+@ThreadSafe
+@ParametersAreNonnullByDefault
+final class WindowInputBuffer
+    implements InputBuffer
+{
+    private final LongInputBuffer input;
+    private final long start;
+    private final int length;
+
+    private final Supplier<LineCounter> lineCounter
+        = Suppliers.memoize(new Supplier<LineCounter>()
+    {
+        @Override
+        public LineCounter get()
+        {
+            return new LineCounter(new View());
+        }
+    });
+
+    WindowInputBuffer(final LongInputBuffer input, final long start,
+        final int length)
+    {
+        if (start < 0L || length < 0 || start + length > input.length())
+            throw new IndexOutOfBoundsException("window is out of bounds");
+        this.input = input;
+        this.start = start;
+        this.length = length;
+    }
+
+    @Override
+    public char charAt(final int index)
+    {
+        if (index < 0)
+            throw new IllegalArgumentException("index is negative");
+
+        return index < length ? input.charAt(start + index) : Chars.EOI;
+    }
+
+    @SuppressWarnings("ImplicitNumericConversion")
+    @Override
+    public int codePointAt(final int index)
+    {
+        if (index >= length)
+            return -1;
+
+        final char c = charAt(index);
+        if (!Character.isHighSurrogate(c))
+            return c;
+        if (index == length - 1)
+            return c;
+        final char c2 = charAt(index + 1);
+        return Character.isLowSurrogate(c2) ? Character.toCodePoint(c, c2) : c;
+    }
+
+    @Override
+    public String extract(final int start, final int end)
+    {
+        final int realStart = Math.max(start, 0);
+        final int realEnd = Math.min(end, length);
+
+        if (realStart >= realEnd)
+            return "";
+
+        return input.extract(this.start + realStart, this.start + realEnd);
+    }
+
+    @Override
+    public String extract(final IndexRange range)
+    {
+        return extract(range.start, range.end);
+    }
+
+    @Override
+    public Position getPosition(final int index)
+    {
+        return lineCounter.get().toPosition(index);
+    }
+
+    @Override
+    public String extractLine(final int lineNumber)
+    {
+        Preconditions.checkArgument(lineNumber > 0, "line number is negative");
+        final Range<Integer> range = lineCounter.get().getLineRange(lineNumber);
+        final int start = range.lowerEndpoint();
+        int end = range.upperEndpoint();
+        if (charAt(end - 1) == '\n')
+            end--;
+        if (charAt(end - 1) == '\r')
+            end--;
+        return extract(start, end);
+    }
+
+    @SuppressWarnings("AutoUnboxing")
+    @Override
+    public IndexRange getLineRange(final int lineNumber)
+    {
+        final Range<Integer> range = lineCounter.get().getLineRange(lineNumber);
+        return new IndexRange(range.lowerEndpoint(), range.upperEndpoint());
+    }
+
+    @Override
+    public int getLineCount()
+    {
+        return lineCounter.get().getNrLines();
+    }
+
+    @Override
+    public int length()
+    {
+        return length;
+    }
+
+    private final class View
+        implements CharSequence
+    {
+        @Override
+        public int length()
+        {
+            return length;
+        }
+
+        @Override
+        public char charAt(final int index)
+        {
+            return WindowInputBuffer.this.charAt(index);
+        }
+
+        @Override
+        public CharSequence subSequence(final int start, final int end)
+        {
+            return extract(start, end);
+        }
+
+        @Nonnull
+        @Override
+        public String toString()
+        {
+            return extract(0, length);
+        }
+    }
+}
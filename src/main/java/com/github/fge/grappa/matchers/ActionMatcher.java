@@ -21,6 +21,7 @@ import com.github.fge.grappa.matchers.base.Matcher;
 import com.github.fge.grappa.rules.Action;
 import com.github.fge.grappa.rules.SkippableAction;
 import com.google.common.collect.Lists;
+import com.github.fge.grappa.run.context.Context;
 import com.github.fge.grappa.run.context.ContextAware;
 import com.github.fge.grappa.run.context.MatcherContext;
 
@@ -105,7 +106,6 @@ public final class ActionMatcher
     }
 
     @Override
-    @SuppressWarnings("unchecked")
     public <V> boolean match(final MatcherContext<V> context)
     {
         if (skipInPredicates && context.inPredicate())
@@ -113,12 +113,10 @@ public final class ActionMatcher
 
         // actions need to run in the parent context
         final MatcherContext<V> parentContext = context.getParent();
-        for (final ContextAware<?> contextAware: contextAwares)
-            ((ContextAware<V>) contextAware).setContext(parentContext);
 
         final Object valueStackSnapshot
             = context.getValueStack().takeSnapshot();
-        if (!((Action<V>) action).run(parentContext)) {
+        if (!runAction(parentContext)) {
             // failing actions are not allowed to change the ValueStack
             context.getValueStack().restoreSnapshot(valueStackSnapshot);
             return false;
@@ -133,4 +131,27 @@ public final class ActionMatcher
         context.setCurrentIndex(parentContext.getCurrentIndex());
         return true;
     }
+
+    /**
+     * Run the action of this matcher against a given context
+     *
+     * <p>Unlike {@link #match(MatcherContext)}, this method does not take care
+     * of the value stack or of the indices of the context; it only informs
+     * all context aware objects of the context, then runs the action.</p>
+     *
+     * <p>This is used by parse runners which do not run actions while matching
+     * but at a later time.</p>
+     *
+     * @param context the context to run the action in
+     * @param <V> type parameter of the context
+     * @return the result of the action
+     */
+    @SuppressWarnings("unchecked")
+    public <V> boolean runAction(final Context<V> context)
+    {
+        for (final ContextAware<?> contextAware: contextAwares)
+            ((ContextAware<V>) contextAware).setContext(context);
+
+        return ((Action<V>) action).run(context);
+    }
 }
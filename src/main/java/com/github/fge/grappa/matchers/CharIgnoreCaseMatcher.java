@@ -46,6 +46,26 @@ public final class CharIgnoreCaseMatcher
         return MatcherType.TERMINAL;
     }
 
+    /**
+     * Return the lower case version of the matched character
+     *
+     * @return see description
+     */
+    public char getLowerCase()
+    {
+        return lowerBound;
+    }
+
+    /**
+     * Return the upper case version of the matched character
+     *
+     * @return see description
+     */
+    public char getUpperCase()
+    {
+        return upperBound;
+    }
+
     @Override
     public <V> boolean match(final MatcherContext<V> context)
     {
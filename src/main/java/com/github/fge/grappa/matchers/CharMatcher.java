@@ -43,6 +43,16 @@ public final class CharMatcher
         return MatcherType.TERMINAL;
     }
 
+    /**
+     * Return the character matched by this matcher
+     *
+     * @return see description
+     */
+    public char getCharacter()
+    {
+        return character;
+    }
+
     // TODO: remove...
     private static String getLabel(final char c)
     {
@@ -47,6 +47,26 @@ public final class CharRangeMatcher
         return MatcherType.TERMINAL;
     }
 
+    /**
+     * Return the lower bound of the range (inclusive)
+     *
+     * @return see description
+     */
+    public char getLowerBound()
+    {
+        return lowerBound;
+    }
+
+    /**
+     * Return the upper bound of the range (inclusive)
+     *
+     * @return see description
+     */
+    public char getUpperBound()
+    {
+        return upperBound;
+    }
+
     @Override
     public <V> boolean match(final MatcherContext<V> context)
     {
@@ -16,6 +16,7 @@
 
 package com.github.fge.grappa.matchers;
 
+import com.github.fge.grappa.buffers.InputBuffer;
 import com.github.fge.grappa.matchers.base.AbstractMatcher;
 import com.github.fge.grappa.matchers.delegate.SequenceMatcher;
 import com.github.fge.grappa.run.context.MatcherContext;
@@ -43,17 +44,47 @@ public final class StringIgnoreCaseMatcher
         return MatcherType.TERMINAL;
     }
 
+    /**
+     * Return the string matched (ignoring case) by this matcher
+     *
+     * @return see description
+     */
+    public String getString()
+    {
+        return input;
+    }
+
     @Override
     public <V> boolean match(final MatcherContext<V> context)
     {
         final int len = input.length();
         final int index = context.getCurrentIndex();
-        final String s = context.getInputBuffer().extract(index, index + len);
+        final InputBuffer buffer = context.getInputBuffer();
+
+        /*
+         * Compare in place rather than extract() the input: this matcher is
+         * on the hot path of most grammars and must not allocate. Past the end
+         * of input, charAt() returns EOI, which fails the comparison.
+         */
+        char c1, c2;
 
-        if (!s.equalsIgnoreCase(input))
-            return false;
+        for (int i = 0; i < len; i++) {
+            c1 = buffer.charAt(index + i);
+            c2 = input.charAt(i);
+            if (c1 != c2 && !sameIgnoringCase(c1, c2))
+                return false;
+        }
 
         context.advanceIndex(len);
         return true;
     }
+
+    // Same as what String.equalsIgnoreCase() does for a single character
+    private static boolean sameIgnoringCase(final char c1, final char c2)
+    {
+        final char u1 = Character.toUpperCase(c1);
+        final char u2 = Character.toUpperCase(c2);
+        return u1 == u2
+            || Character.toLowerCase(u1) == Character.toLowerCase(u2);
+    }
 }
@@ -16,6 +16,7 @@
 
 package com.github.fge.grappa.matchers;
 
+import com.github.fge.grappa.buffers.InputBuffer;
 import com.github.fge.grappa.matchers.base.AbstractMatcher;
 import com.github.fge.grappa.matchers.delegate.SequenceMatcher;
 import com.github.fge.grappa.run.context.MatcherContext;
@@ -43,15 +44,31 @@ public final class StringMatcher
         return MatcherType.TERMINAL;
     }
 
+    /**
+     * Return the string matched by this matcher
+     *
+     * @return see description
+     */
+    public String getString()
+    {
+        return input;
+    }
+
     @Override
     public <V> boolean match(final MatcherContext<V> context)
     {
         final int len = input.length();
         final int index = context.getCurrentIndex();
-        final String s = context.getInputBuffer().extract(index, index + len);
+        final InputBuffer buffer = context.getInputBuffer();
 
-        if (!s.equals(input))
-            return false;
+        /*
+         * Compare in place rather than extract() the input: this matcher is
+         * on the hot path of most grammars and must not allocate. Past the end
+         * of input, charAt() returns EOI, which fails the comparison.
+         */
+        for (int i = 0; i < len; i++)
+            if (buffer.charAt(index + i) != input.charAt(i))
+                return false;
 
         context.advanceIndex(len);
         return true;
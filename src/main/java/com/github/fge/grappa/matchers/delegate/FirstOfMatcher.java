@@ -30,9 +30,13 @@ import java.util.Objects;
 public class FirstOfMatcher
     extends CustomDefaultLabelMatcher<FirstOfMatcher>
 {
+    // Iterating over getChildren() would allocate an iterator on each match
+    private final Matcher[] subMatchers;
+
     public FirstOfMatcher(final Rule[] subRules)
     {
         super(Objects.requireNonNull(subRules, "subRules"), "firstOf");
+        subMatchers = getChildren().toArray(new Matcher[subRules.length]);
     }
 
     @Override
@@ -44,7 +48,7 @@ public class FirstOfMatcher
     @Override
     public <V> boolean match(final MatcherContext<V> context)
     {
-        for (final Matcher matcher: getChildren())
+        for (final Matcher matcher: subMatchers)
             if (matcher.getSubContext(context).runMatcher())
                 return true;
         return false;
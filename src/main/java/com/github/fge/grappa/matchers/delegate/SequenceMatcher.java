@@ -38,10 +38,13 @@ import java.util.Objects;
 public class SequenceMatcher
     extends CustomDefaultLabelMatcher<SequenceMatcher>
 {
+    // Iterating over getChildren() would allocate an iterator on each match
+    private final Matcher[] subMatchers;
 
     public SequenceMatcher(final Rule[] subRules)
     {
         super(Objects.requireNonNull(subRules, "subRules"), "sequence");
+        subMatchers = getChildren().toArray(new Matcher[subRules.length]);
     }
 
     @Override
@@ -56,7 +59,7 @@ public class SequenceMatcher
         final ValueStack<V> stack = context.getValueStack();
         final Object snapshot = stack.takeSnapshot();
 
-        for (final Matcher matcher: getChildren()) {
+        for (final Matcher matcher: subMatchers) {
             if (matcher.getSubContext(context).runMatcher())
                 continue;
 
@@ -84,6 +84,37 @@ public abstract class JoinMatcher
         return MatcherType.COMPOSITE;
     }
 
+    /**
+     * Return the joined matcher
+     *
+     * @return see description
+     */
+    public final Matcher getJoined()
+    {
+        return joined;
+    }
+
+    /**
+     * Return the joining matcher
+     *
+     * @return see description
+     */
+    public final Matcher getJoining()
+    {
+        return joining;
+    }
+
+    /**
+     * Tell whether this matcher succeeds when the joined matcher does not
+     * match at all
+     *
+     * @return see description
+     */
+    public final boolean allowsZeroCycles()
+    {
+        return enoughCycles(0);
+    }
+
     /**
      * Tries a match on the given MatcherContext.
      *
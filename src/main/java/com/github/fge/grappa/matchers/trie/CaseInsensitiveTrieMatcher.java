@@ -45,6 +45,16 @@ public final class CaseInsensitiveTrieMatcher
         return MatcherType.TERMINAL;
     }
 
+    /**
+     * Return the trie used by this matcher
+     *
+     * @return see description
+     */
+    public Trie getTrie()
+    {
+        return trie;
+    }
+
     /**
      * Tries a match on the given MatcherContext.
      *
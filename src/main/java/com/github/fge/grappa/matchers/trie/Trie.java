@@ -19,6 +19,9 @@ package com.github.fge.grappa.matchers.trie;
 import com.google.common.annotations.Beta;
 
 import javax.annotation.concurrent.Immutable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * "User-facing" class of a {@link TrieMatcher}
@@ -75,6 +78,18 @@ public final class Trie
         return maxLength;
     }
 
+    /**
+     * Return the words of this trie, in lexicographical order
+     *
+     * @return an immutable list
+     */
+    public List<String> getWords()
+    {
+        final List<String> words = new ArrayList<>(nrWords);
+        node.collectWords(new StringBuilder(maxLength), words);
+        return Collections.unmodifiableList(words);
+    }
+
     /**
      * Search for a string into this trie
      *
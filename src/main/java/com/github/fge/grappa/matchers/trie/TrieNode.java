@@ -21,6 +21,7 @@ import com.google.common.annotations.Beta;
 import javax.annotation.concurrent.Immutable;
 import java.nio.CharBuffer;
 import java.util.Arrays;
+import java.util.List;
 
 /**
  * The core of the trie
@@ -62,6 +63,20 @@ public final class TrieNode
             ignoreCase);
     }
 
+    void collectWords(final StringBuilder prefix, final List<String> words)
+    {
+        if (fullWord)
+            words.add(prefix.toString());
+
+        final int length = prefix.length();
+
+        for (int i = 0; i < nextChars.length; i++) {
+            prefix.append(nextChars[i]);
+            nextNodes[i].collectWords(prefix, words);
+            prefix.setLength(length);
+        }
+    }
+
     /**
      * Core search method
      *
@@ -46,6 +46,16 @@ public final class CodePointMatcher
         return MatcherType.TERMINAL;
     }
 
+    /**
+     * Return the code point matched by this matcher
+     *
+     * @return see description
+     */
+    public int getCodePoint()
+    {
+        return codePoint;
+    }
+
     @Override
     public <V> boolean match(final MatcherContext<V> context)
     {
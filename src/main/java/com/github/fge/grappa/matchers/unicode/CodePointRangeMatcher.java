@@ -45,6 +45,26 @@ public final class CodePointRangeMatcher
         return MatcherType.TERMINAL;
     }
 
+    /**
+     * Return the lowest code point of the range (inclusive)
+     *
+     * @return see description
+     */
+    public int getLow()
+    {
+        return low;
+    }
+
+    /**
+     * Return the highest code point of the range (inclusive)
+     *
+     * @return see description
+     */
+    public int getHigh()
+    {
+        return high;
+    }
+
     @Override
     public <V> boolean match(final MatcherContext<V> context)
     {
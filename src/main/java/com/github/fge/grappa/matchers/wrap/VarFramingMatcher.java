@@ -22,19 +22,30 @@ import com.github.fge.grappa.rules.Rule;
 import com.github.fge.grappa.run.context.MatcherContext;
 import com.github.fge.grappa.support.Var;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 
 /**
  * Special wrapping matcher that manages the creation and destruction of execution frames for a number of action vars.
+ *
+ * <p>On each invocation, the values of the variables in the enclosing frame are
+ * saved into a slot block (an {@code Object[]} with one slot per variable) and
+ * restored when the invocation ends. There is one slot block per recursion
+ * depth; blocks are allocated on first use and reused afterwards.</p>
  */
 // TODO: use delegation pattern
 public final class VarFramingMatcher
     implements Matcher
 {
+    private static final int INITIAL_DEPTH = 8;
+
     private final Matcher inner;
     private final Var<?>[] variables;
 
+    private Object[][] frames = new Object[INITIAL_DEPTH][];
+    private int depth = 0;
+
     public VarFramingMatcher(final Rule inner, final Var<?>[] variables)
     {
         this.inner = Objects.requireNonNull((Matcher) inner, "inner");
@@ -47,18 +58,51 @@ public final class VarFramingMatcher
         return inner.getType();
     }
 
+    /**
+     * Return the matcher wrapped by this matcher
+     *
+     * @return see description
+     */
+    public Matcher getInner()
+    {
+        return inner;
+    }
+
     @Override
     public <V> boolean match(final MatcherContext<V> context)
     {
-        for (final Var<?> var: variables)
-            var.enterFrame();
+        final Object[] frame = frameAt(depth);
+        final int nrVariables = variables.length;
+        int entered = 0;
+
+        depth++;
+        try {
+            // an initializer may throw; only exit the frames actually entered
+            for (; entered < nrVariables; entered++)
+                frame[entered] = variables[entered].enterFrameAndGet();
+            return inner.match(context);
+        } finally {
+            for (int i = 0; i < entered; i++) {
+                variables[i].exitFrame(frame[i]);
+                frame[i] = null;
+            }
+            depth--;
+        }
+    }
+
+    private Object[] frameAt(final int index)
+    {
+        if (index == frames.length)
+            frames = Arrays.copyOf(frames, index * 2);
 
-        final boolean matched = inner.match(context);
+        Object[] frame = frames[index];
 
-        for (final Var<?> var : variables)
-            var.exitFrame();
+        if (frame == null) {
+            frame = new Object[variables.length];
+            frames[index] = frame;
+        }
 
-        return matched;
+        return frame;
     }
 
     // GraphNode
@@ -0,0 +1,375 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.parsers;
+
+import com.google.common.base.Preconditions;
+import com.google.common.eventbus.EventBus;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.Closeable;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * An asynchronous delivery pipeline for the events of a {@link
+ * ListeningParser}
+ *
+ * <p>Events posted to this pipeline are stored in a pre-allocated ring buffer;
+ * a dedicated consumer thread takes them from the buffer in batches and posts
+ * them, in order, to the {@link EventBus} of the parser. Subscribers are
+ * therefore invoked on the consumer thread, and a slow subscriber no longer
+ * stalls the parsing thread.</p>
+ *
+ * <p>When the buffer is full, the behaviour of {@link #post(Object)} depends
+ * on the {@link Backpressure} policy of this pipeline.</p>
+ *
+ * <p>The ring buffer has a single producer: {@link #post(Object)} must always
+ * be called from the same thread (this is the case when it is called from the
+ * rules of a parser). The metrics of this pipeline can be read from any
+ * thread.</p>
+ *
+ * @see ListeningParser#enableAsyncEvents(int, Backpressure)
+ */
+@ThreadSafe
+@ParametersAreNonnullByDefault
+public final class AsyncEventPipeline
+    implements Closeable
+{
+    /**
+     * What to do when an event is posted and the ring buffer is full
+     */
+    public enum Backpressure
+    {
+        /**
+         * Wait until the consumer thread has freed a slot
+         */
+        BLOCK,
+        /**
+         * Drop the event
+         */
+        DROP,
+        /**
+         * Drop the event; in addition, when the buffer is at least half full,
+         * only accept one event out of every {@code sampleRate} events
+         */
+        SAMPLE,
+        ;
+    }
+
+    public static final int DEFAULT_BATCH_SIZE = 64;
+    public static final int DEFAULT_SAMPLE_RATE = 8;
+
+    private static final long IDLE_PARK_NANOS
+        = TimeUnit.MILLISECONDS.toNanos(1L);
+    private static final long FULL_PARK_NANOS
+        = TimeUnit.MICROSECONDS.toNanos(10L);
+
+    private final EventBus bus;
+    private final Object[] ring;
+    private final int mask;
+    private final int batchSize;
+    private final Backpressure backpressure;
+    private final int sampleRate;
+    private final Thread consumer;
+    @Nullable
+    private final Runnable onClose;
+
+    /*
+     * Sequence of the next event to publish (written by the producer only),
+     * and of the next event to deliver (written by the consumer only)
+     */
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong consumed = new AtomicLong();
+
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private volatile long maxQueueDepth = 0L;
+
+    // Only accessed by the producer
+    private long sampleCounter = 0L;
+
+    private volatile boolean closed = false;
+    private volatile boolean consumerParked = false;
+
+    /**
+     * Constructor
+     *
+     * @param bus the bus to deliver events to
+     * @param capacity the capacity of the ring buffer (rounded up to the next
+     * power of two)
+     * @param batchSize the maximum number of events delivered before the
+     * consumer thread frees slots in the buffer
+     * @param backpressure the policy to use when the buffer is full
+     * @param sampleRate the sample rate, only used by {@link
+     * Backpressure#SAMPLE}
+     */
+    public AsyncEventPipeline(final EventBus bus, final int capacity,
+        final int batchSize, final Backpressure backpressure,
+        final int sampleRate)
+    {
+        this(bus, capacity, batchSize, backpressure, sampleRate, null);
+    }
+
+    /*
+     * Used by ListeningParser, which needs to know when its pipeline is closed
+     */
+    AsyncEventPipeline(final EventBus bus, final int capacity,
+        final int batchSize, final Backpressure backpressure,
+        final int sampleRate, @Nullable final Runnable onClose)
+    {
+        this.bus = Objects.requireNonNull(bus, "bus");
+        this.backpressure = Objects.requireNonNull(backpressure,
+            "backpressure");
+        Preconditions.checkArgument(capacity > 0 && capacity <= 1 << 30,
+            "illegal capacity " + capacity);
+        Preconditions.checkArgument(batchSize > 0,
+            "batch size must be strictly positive");
+        Preconditions.checkArgument(sampleRate > 0,
+            "sample rate must be strictly positive");
+
+        final int size = Integer.highestOneBit(capacity) == capacity
+            ? capacity : Integer.highestOneBit(capacity) << 1;
+
+        ring = new Object[size];
+        mask = size - 1;
+        this.batchSize = batchSize;
+        this.sampleRate = sampleRate;
+        this.onClose = onClose;
+
+        consumer = new Thread(new Consumer(), "grappa-events");
+        consumer.setDaemon(true);
+        consumer.start();
+    }
+
+    /**
+     * Constructor with the default batch size and sample rate
+     *
+     * @param bus the bus to deliver events to
+     * @param capacity the capacity of the ring buffer
+     * @param backpressure the policy to use when the buffer is full
+     */
+    public AsyncEventPipeline(final EventBus bus, final int capacity,
+        final Backpressure backpressure)
+    {
+        this(bus, capacity, DEFAULT_BATCH_SIZE, backpressure,
+            DEFAULT_SAMPLE_RATE);
+    }
+
+    /**
+     * Post an event
+     *
+     * <p>This method must always be called from the same thread.</p>
+     *
+     * @param event the event
+     * @return true if the event was queued, false if it was dropped
+     * @throws IllegalStateException this pipeline is closed
+     */
+    public boolean post(final Object event)
+    {
+        Objects.requireNonNull(event, "event");
+        if (closed)
+            throw new IllegalStateException("event pipeline is closed");
+
+        final long seq = published.get();
+        final int capacity = ring.length;
+        long depth = seq - consumed.get();
+
+        if (depth >= capacity) {
+            if (backpressure != Backpressure.BLOCK) {
+                dropped.incrementAndGet();
+                return false;
+            }
+            while (depth >= capacity) {
+                if (closed)
+                    throw new IllegalStateException("event pipeline is closed");
+                LockSupport.unpark(consumer);
+                LockSupport.parkNanos(this, FULL_PARK_NANOS);
+                depth = seq - consumed.get();
+            }
+        } else if (backpressure == Backpressure.SAMPLE
+            && depth >= capacity >> 1 && sampleCounter++ % sampleRate != 0L) {
+            dropped.incrementAndGet();
+            return false;
+        }
+
+        ring[(int) (seq & mask)] = event;
+        published.set(seq + 1L);
+
+        if (depth + 1L > maxQueueDepth)
+            maxQueueDepth = depth + 1L;
+
+        if (consumerParked)
+            LockSupport.unpark(consumer);
+
+        return true;
+    }
+
+    /**
+     * Deliver all pending events, then stop the consumer thread
+     *
+     * <p>This method waits for the consumer thread to terminate. If the
+     * calling thread is interrupted while waiting, this method returns
+     * immediately and the interrupt status of the thread is restored.</p>
+     *
+     * <p>If this pipeline was obtained from {@link
+     * ListeningParser#enableAsyncEvents(int, Backpressure)}, the parser goes
+     * back to synchronous delivery. Closing a pipeline which is already
+     * closed does nothing.</p>
+     */
+    @Override
+    public void close()
+    {
+        synchronized (this) {
+            if (closed)
+                return;
+            closed = true;
+        }
+
+        LockSupport.unpark(consumer);
+        try {
+            consumer.join();
+        } catch (InterruptedException ignored) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (onClose != null)
+            onClose.run();
+    }
+
+    /**
+     * Return the capacity of the ring buffer
+     *
+     * @return see description
+     */
+    public int getCapacity()
+    {
+        return ring.length;
+    }
+
+    /**
+     * Return the number of events currently waiting for delivery
+     *
+     * @return see description
+     */
+    public long getQueueDepth()
+    {
+        return published.get() - consumed.get();
+    }
+
+    /**
+     * Return the highest number of events ever waiting for delivery
+     *
+     * @return see description
+     */
+    public long getMaxQueueDepth()
+    {
+        return maxQueueDepth;
+    }
+
+    /**
+     * Return the number of events queued so far
+     *
+     * @return see description
+     */
+    public long getPublishedCount()
+    {
+        return published.get();
+    }
+
+    /**
+     * Return the number of events delivered so far
+     *
+     * @return see description
+     */
+    public long getDeliveredCount()
+    {
+        return consumed.get();
+    }
+
+    /**
+     * Return the number of events dropped so far
+     *
+     * @return see description
+     */
+    public long getDroppedCount()
+    {
+        return dropped.get();
+    }
+
+    /**
+     * Return the number of batches delivered so far
+     *
+     * @return see description
+     */
+    public long getBatchCount()
+    {
+        return batches.get();
+    }
+
+    @Nonnull
+    @Override
+    public String toString()
+    {
+        return "depth: " + getQueueDepth() + " (max " + maxQueueDepth
+            + "), published: " + published.get() + ", delivered: "
+            + consumed.get() + ", dropped: " + dropped.get();
+    }
+
+    private final class Consumer
+        implements Runnable
+    {
+        @Override
+        public void run()
+        {
+            long next = consumed.get();
+            long available;
+            long end;
+            int index;
+
+            while (true) {
+                available = published.get();
+
+                if (available == next) {
+                    if (closed && published.get() == next)
+                        return;
+                    consumerParked = true;
+                    if (published.get() == next && !closed)
+                        LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                    consumerParked = false;
+                    continue;
+                }
+
+                end = Math.min(available, next + batchSize);
+
+                for (long seq = next; seq < end; seq++) {
+                    index = (int) (seq & mask);
+                    bus.post(ring[index]);
+                    ring[index] = null;
+                }
+
+                batches.incrementAndGet();
+                next = end;
+                consumed.set(next);
+            }
+        }
+    }
+}
@@ -21,6 +21,7 @@ import com.google.common.eventbus.EventBus;
 import com.github.fge.grappa.support.Var;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.util.Objects;
 
 /**
@@ -82,6 +83,12 @@ import java.util.Objects;
  * href="https://code.google.com/p/guava-libraries/wiki/EventBusExplained"
  * target="_blank">Guava's user guide article</a>.</p>
  *
+ * <p>By default, events are delivered synchronously, on the parsing thread.
+ * If you call {@link #enableAsyncEvents(int, AsyncEventPipeline.Backpressure)},
+ * events are instead queued into an {@link AsyncEventPipeline} and delivered
+ * to the bus by a separate thread; registering listeners and posting events
+ * is done in the same way.</p>
+ *
  * @param <V> the result type of the parser
  *
  * @see ValueBuilder
@@ -91,6 +98,9 @@ public abstract class ListeningParser<V>
 {
     protected final EventBus bus = new EventBus();
 
+    @Nullable
+    private AsyncEventPipeline pipeline = null;
+
     /**
      * Register a listener to the event bus
      *
@@ -138,6 +148,74 @@ public abstract class ListeningParser<V>
         return true;
     }
 
+    /**
+     * Deliver events asynchronously from now on
+     *
+     * @param capacity the capacity of the event queue
+     * @param backpressure what to do when the queue is full
+     * @return the pipeline; close it, or call {@link #disableAsyncEvents()},
+     * when parsing is done (both go back to synchronous delivery)
+     * @throws IllegalStateException asynchronous delivery is already enabled
+     *
+     * @see AsyncEventPipeline#AsyncEventPipeline(EventBus, int,
+     * AsyncEventPipeline.Backpressure)
+     */
+    public final AsyncEventPipeline enableAsyncEvents(final int capacity,
+        @Nonnull final AsyncEventPipeline.Backpressure backpressure)
+    {
+        return enableAsyncEvents(capacity,
+            AsyncEventPipeline.DEFAULT_BATCH_SIZE, backpressure,
+            AsyncEventPipeline.DEFAULT_SAMPLE_RATE);
+    }
+
+    /**
+     * Deliver events asynchronously from now on
+     *
+     * @param capacity the capacity of the event queue
+     * @param batchSize the maximum size of a delivery batch
+     * @param backpressure what to do when the queue is full
+     * @param sampleRate the sample rate for {@link
+     * AsyncEventPipeline.Backpressure#SAMPLE}
+     * @return the pipeline; close it, or call {@link #disableAsyncEvents()},
+     * when parsing is done (both go back to synchronous delivery)
+     * @throws IllegalStateException asynchronous delivery is already enabled
+     *
+     * @see AsyncEventPipeline#AsyncEventPipeline(EventBus, int, int,
+     * AsyncEventPipeline.Backpressure, int)
+     */
+    public final AsyncEventPipeline enableAsyncEvents(final int capacity,
+        final int batchSize,
+        @Nonnull final AsyncEventPipeline.Backpressure backpressure,
+        final int sampleRate)
+    {
+        if (pipeline != null)
+            throw new IllegalStateException("asynchronous events are already"
+                + " enabled");
+        pipeline = new AsyncEventPipeline(bus, capacity, batchSize,
+            backpressure, sampleRate, new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                pipeline = null;
+            }
+        });
+        return pipeline;
+    }
+
+    /**
+     * Deliver pending events and go back to synchronous delivery
+     *
+     * <p>This method does nothing if asynchronous delivery is not enabled.</p>
+     *
+     * @see AsyncEventPipeline#close()
+     */
+    public final void disableAsyncEvents()
+    {
+        if (pipeline != null)
+            pipeline.close();
+    }
+
     /**
      * Post a value on the bus from a {@link ValueBuilder}
      *
@@ -154,7 +232,7 @@ public abstract class ListeningParser<V>
         Objects.requireNonNull(builder);
 
         final T event = builder.build();
-        bus.post(event);
+        dispatch(event);
         builder.reset();
         return true;
     }
@@ -182,7 +260,7 @@ public abstract class ListeningParser<V>
         Objects.requireNonNull(var);
         @SuppressWarnings("ConstantConditions")
         final T value = Objects.requireNonNull(var.get());
-        bus.post(value);
+        dispatch(value);
         return true;
     }
 
@@ -198,7 +276,15 @@ public abstract class ListeningParser<V>
     public final boolean postRaw(@Nonnull final Object object)
     {
         Objects.requireNonNull(object);
-        bus.post(object);
+        dispatch(object);
         return true;
     }
+
+    private void dispatch(final Object event)
+    {
+        if (pipeline == null)
+            bus.post(event);
+        else
+            pipeline.post(event);
+    }
 }
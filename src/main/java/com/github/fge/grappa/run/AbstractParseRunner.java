@@ -19,23 +19,45 @@ package com.github.fge.grappa.run;
 import com.github.fge.grappa.buffers.CharSequenceInputBuffer;
 import com.github.fge.grappa.buffers.InputBuffer;
 import com.github.fge.grappa.internal.NonFinalForTesting;
+import com.github.fge.grappa.matchers.MatcherType;
 import com.github.fge.grappa.matchers.base.Matcher;
 import com.github.fge.grappa.rules.Rule;
 import com.github.fge.grappa.run.context.DefaultMatcherContext;
 import com.github.fge.grappa.run.context.MatcherContext;
 import com.github.fge.grappa.stack.DefaultValueStack;
 import com.github.fge.grappa.stack.ValueStack;
+import com.google.common.collect.ImmutableList;
 
 import javax.annotation.Nonnull;
+import java.util.Arrays;
 import java.util.Objects;
 
 public abstract class AbstractParseRunner<V>
     implements ParseRunner<V>
 {
+    /**
+     * Maximum number of matchers recorded as expected at the farthest failure
+     */
+    public static final int MAX_EXPECTED = 8;
+
     protected final Matcher rootMatcher;
     protected ValueStack<V> valueStack;
     protected Object stackSnapshot;
 
+    /*
+     * Farthest failure tracking; this is on the matching path of every parse,
+     * and only uses preallocated storage
+     */
+    private final Matcher[] expected = new Matcher[MAX_EXPECTED];
+    private int nrExpected = 0;
+    private int farthestFailure = -1;
+
+    /*
+     * Number of predicates (test(), testNot()) being matched; what fails in
+     * there is not what the input was expected to contain
+     */
+    private int predicateDepth = 0;
+
     protected AbstractParseRunner(@Nonnull final Rule rule)
     {
         rootMatcher = Objects.requireNonNull((Matcher) rule, "rule");
@@ -60,6 +82,78 @@ public abstract class AbstractParseRunner<V>
         stackSnapshot = null;
     }
 
+    /**
+     * Forget about the farthest failure of a previous parsing run
+     *
+     * <p>Runners tracking failures with {@link #trackedMatch(Matcher,
+     * MatcherContext)} must call this method before each run.</p>
+     */
+    protected final void resetFarthestFailure()
+    {
+        Arrays.fill(expected, 0, nrExpected, null);
+        nrExpected = 0;
+        farthestFailure = -1;
+        predicateDepth = 0;
+    }
+
+    /**
+     * Run a matcher, recording the failure of terminals
+     *
+     * <p>Only the failures at the farthest index are retained, with at most
+     * {@link #MAX_EXPECTED} distinct matchers; this is what the resulting
+     * {@link ParsingResult} reports.</p>
+     *
+     * <p>Failures inside predicates are not recorded: the terminals of a
+     * {@code testNot()} are failing when the input is correct, and those of a
+     * {@code test()} only look ahead of what is really matched.</p>
+     *
+     * @param matcher the matcher
+     * @param context the context
+     * @param <T> type parameter of the context
+     * @return the result of the match
+     */
+    protected final <T> boolean trackedMatch(final Matcher matcher,
+        final MatcherContext<T> context)
+    {
+        final MatcherType type = matcher.getType();
+
+        if (type == MatcherType.PREDICATE) {
+            predicateDepth++;
+            try {
+                return matcher.match(context);
+            } finally {
+                predicateDepth--;
+            }
+        }
+
+        if (matcher.match(context))
+            return true;
+
+        if (type == MatcherType.TERMINAL && predicateDepth == 0)
+            recordFailure(matcher, context.getCurrentIndex());
+
+        return false;
+    }
+
+    private void recordFailure(final Matcher matcher, final int index)
+    {
+        if (index < farthestFailure)
+            return;
+
+        if (index > farthestFailure) {
+            Arrays.fill(expected, 0, nrExpected, null);
+            nrExpected = 0;
+            farthestFailure = index;
+        }
+
+        for (int i = 0; i < nrExpected; i++)
+            if (expected[i] == matcher)
+                return;
+
+        if (nrExpected < MAX_EXPECTED)
+            expected[nrExpected++] = matcher;
+    }
+
     @NonFinalForTesting
     protected MatcherContext<V> createRootContext(
         final InputBuffer inputBuffer, final MatchHandler matchHandler)
@@ -72,7 +166,23 @@ public abstract class AbstractParseRunner<V>
     protected ParsingResult<V> createParsingResult(final boolean matched,
         final MatcherContext<V> rootContext)
     {
-        return new ParsingResult<>(matched, valueStack,
+        return createParsingResult(matched, valueStack,
             rootContext.getInputBuffer());
     }
+
+    /**
+     * Create a parsing result with the farthest failure of the current run
+     *
+     * @param matched whether the input was matched
+     * @param stack the value stack to report
+     * @param inputBuffer the input buffer
+     * @return a parsing result
+     */
+    protected final ParsingResult<V> createParsingResult(final boolean matched,
+        final ValueStack<V> stack, final InputBuffer inputBuffer)
+    {
+        return new ParsingResult<>(matched, stack, inputBuffer,
+            farthestFailure, ImmutableList.copyOf(
+                Arrays.asList(expected).subList(0, nrExpected)));
+    }
 }
@@ -0,0 +1,445 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.run;
+
+import com.github.fge.grappa.buffers.InputBuffer;
+import com.github.fge.grappa.exceptions.GrappaException;
+import com.github.fge.grappa.exceptions.InvalidGrammarException;
+import com.github.fge.grappa.matchers.ActionMatcher;
+import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.run.context.Context;
+import com.github.fge.grappa.run.context.MatcherContext;
+import com.github.fge.grappa.stack.ValueStack;
+import com.github.fge.grappa.support.IndexRange;
+import com.github.fge.grappa.support.Position;
+import com.google.common.base.Preconditions;
+
+import javax.annotation.Nonnull;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Objects;
+
+/**
+ * A log of actions recorded during a parsing run, for later replay
+ *
+ * <p>For each action, this log records the action matcher, the matcher of the
+ * parent context, and the indices of this parent context and of the match
+ * immediately preceding the action. All of this is stored in flat arrays.</p>
+ *
+ * <p>The log is used as the value stack of the parsing run while matching. The
+ * "snapshot" of this stack is the size of the log; restoring a snapshot
+ * truncates the log. This means that any matcher which would have reverted the
+ * value stack changes made by actions (for instance, a failing sequence) will
+ * drop the recorded actions instead.</p>
+ *
+ * <p>All other value stack operations are illegal; there are no values to
+ * operate on until the log is replayed.</p>
+ *
+ * @param <V> type parameter of the value stack
+ *
+ * @see DeferredActionsParseRunner
+ */
+@ParametersAreNonnullByDefault
+final class ActionLog<V>
+    implements ValueStack<V>
+{
+    private static final int INITIAL_CAPACITY = 64;
+
+    /*
+     * Stride of the int array: parent start index, parent current index,
+     * match start index, match end index, parent level
+     */
+    private static final int INT_STRIDE = 5;
+    /*
+     * Stride of the reference array: action matcher, parent matcher
+     */
+    private static final int REF_STRIDE = 2;
+
+    private int[] indices = new int[INITIAL_CAPACITY * INT_STRIDE];
+    private Matcher[] matchers = new Matcher[INITIAL_CAPACITY * REF_STRIDE];
+    private int size = 0;
+
+    /**
+     * Record an action
+     *
+     * <p>The context is the context of the action matcher itself; the action
+     * would normally run in the parent of this context.</p>
+     *
+     * @param matcher the action matcher
+     * @param context the context of the action matcher
+     */
+    void record(final ActionMatcher matcher, final MatcherContext<?> context)
+    {
+        final MatcherContext<?> parent = context.getParent();
+
+        if (size * INT_STRIDE == indices.length) {
+            indices = Arrays.copyOf(indices, indices.length * 2);
+            matchers = Arrays.copyOf(matchers, matchers.length * 2);
+        }
+
+        int i = size * INT_STRIDE;
+        indices[i++] = parent.getStartIndex();
+        indices[i++] = parent.getCurrentIndex();
+        indices[i++] = context.getStartIndex();
+        indices[i++] = context.getCurrentIndex();
+        indices[i] = parent.getLevel();
+
+        i = size * REF_STRIDE;
+        matchers[i++] = matcher;
+        matchers[i] = parent.getMatcher();
+
+        size++;
+    }
+
+    /**
+     * Return the number of recorded actions
+     *
+     * @return see description
+     */
+    int getNrActions()
+    {
+        return size;
+    }
+
+    /**
+     * Replay all recorded actions, in order
+     *
+     * @param inputBuffer the input buffer of the parsing run
+     * @param valueStack the value stack to run the actions against
+     * @throws GrappaException an action failed or threw an exception
+     */
+    void replay(final InputBuffer inputBuffer, final ValueStack<V> valueStack)
+    {
+        final ReplayContext<V> context
+            = new ReplayContext<>(inputBuffer, valueStack);
+
+        ActionMatcher matcher;
+        int i;
+        boolean success;
+
+        for (int entry = 0; entry < size; entry++) {
+            i = entry * INT_STRIDE;
+            context.startIndex = indices[i++];
+            context.currentIndex = indices[i++];
+            context.matchStart = indices[i++];
+            context.matchEnd = indices[i++];
+            context.level = indices[i];
+
+            i = entry * REF_STRIDE;
+            matcher = (ActionMatcher) matchers[i++];
+            context.matcher = matchers[i];
+
+            try {
+                success = matcher.runAction(context);
+            } catch (GrappaException e) {
+                throw e;
+            } catch (Throwable e) {
+                final String msg = String.format(
+                    "exception thrown when replaying action '%s' at input"
+                    + " position %s", matcher,
+                    inputBuffer.getPosition(context.currentIndex));
+                throw new GrappaException(msg, e);
+            }
+
+            if (!success)
+                throw new GrappaException("deferred action '" + matcher
+                    + "' failed; actions which can fail cannot be deferred");
+        }
+    }
+
+    @Override
+    public void clear()
+    {
+        size = 0;
+    }
+
+    @Nonnull
+    @Override
+    public Object takeSnapshot()
+    {
+        return size;
+    }
+
+    @Override
+    public void restoreSnapshot(final Object snapshot)
+    {
+        Objects.requireNonNull(snapshot);
+        Preconditions.checkState(snapshot.getClass() == Integer.class);
+        final int newSize = (Integer) snapshot;
+        Preconditions.checkState(newSize <= size);
+        size = newSize;
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        throw noStack();
+    }
+
+    @Override
+    public int size()
+    {
+        throw noStack();
+    }
+
+    @Override
+    public void push(final V value)
+    {
+        throw noStack();
+    }
+
+    @Override
+    public void push(final int down, final V value)
+    {
+        throw noStack();
+    }
+
+    @Nonnull
+    @Override
+    public V pop()
+    {
+        throw noStack();
+    }
+
+    @Nonnull
+    @Override
+    public V pop(final int down)
+    {
+        throw noStack();
+    }
+
+    @Nonnull
+    @Override
+    public <T extends V> T popAs(final Class<T> type)
+    {
+        throw noStack();
+    }
+
+    @Nonnull
+    @Override
+    public <T extends V> T popAs(final Class<T> type, final int down)
+    {
+        throw noStack();
+    }
+
+    @Nonnull
+    @Override
+    public V peek()
+    {
+        throw noStack();
+    }
+
+    @Nonnull
+    @Override
+    public V peek(final int down)
+    {
+        throw noStack();
+    }
+
+    @Nonnull
+    @Override
+    public <T extends V> T peekAs(final Class<T> type)
+    {
+        throw noStack();
+    }
+
+    @Nonnull
+    @Override
+    public <T extends V> T peekAs(final Class<T> type, final int down)
+    {
+        throw noStack();
+    }
+
+    @Override
+    public void poke(@Nonnull final V value)
+    {
+        throw noStack();
+    }
+
+    @Override
+    public void poke(final int down, final V value)
+    {
+        throw noStack();
+    }
+
+    @Override
+    public void dup()
+    {
+        throw noStack();
+    }
+
+    @Override
+    public void swap(final int n)
+    {
+        throw noStack();
+    }
+
+    @Override
+    public void swap()
+    {
+        throw noStack();
+    }
+
+    @Override
+    public Iterator<V> iterator()
+    {
+        throw noStack();
+    }
+
+    private static IllegalStateException noStack()
+    {
+        return new IllegalStateException("value stack is not available while"
+            + " actions are deferred");
+    }
+
+    /*
+     * The context passed to actions on replay; a single instance is reused for
+     * all actions
+     */
+    private static final class ReplayContext<V>
+        implements Context<V>
+    {
+        private final InputBuffer inputBuffer;
+        private final ValueStack<V> valueStack;
+
+        private Matcher matcher;
+        private int startIndex;
+        private int currentIndex;
+        private int matchStart;
+        private int matchEnd;
+        private int level;
+
+        private ReplayContext(final InputBuffer inputBuffer,
+            final ValueStack<V> valueStack)
+        {
+            this.inputBuffer = inputBuffer;
+            this.valueStack = valueStack;
+        }
+
+        @Nonnull
+        @Override
+        public InputBuffer getInputBuffer()
+        {
+            return inputBuffer;
+        }
+
+        @Override
+        public Matcher getMatcher()
+        {
+            return matcher;
+        }
+
+        @Override
+        public int getStartIndex()
+        {
+            return startIndex;
+        }
+
+        @Override
+        public int getCurrentIndex()
+        {
+            return currentIndex;
+        }
+
+        @Override
+        public char getCurrentChar()
+        {
+            return inputBuffer.charAt(currentIndex);
+        }
+
+        @Override
+        public int getCurrentCodePoint()
+        {
+            return inputBuffer.codePointAt(currentIndex);
+        }
+
+        @Override
+        public int getLevel()
+        {
+            return level;
+        }
+
+        /*
+         * Actions recorded under a predicate are always dropped from the log
+         * (predicates restore the value stack), so this is always false
+         */
+        @Override
+        public boolean inPredicate()
+        {
+            return false;
+        }
+
+        @Override
+        public boolean hasError()
+        {
+            return false;
+        }
+
+        @Override
+        public String getMatch()
+        {
+            return inputBuffer.extract(matchStart, matchEnd);
+        }
+
+        @Override
+        public char getFirstMatchChar()
+        {
+            if (matchEnd > matchStart)
+                return inputBuffer.charAt(matchStart);
+
+            throw new InvalidGrammarException("getFirstMatchChar called "
+                + "but previous rule did not match anything");
+        }
+
+        @Override
+        public int getMatchStartIndex()
+        {
+            return matchStart;
+        }
+
+        @Override
+        public int getMatchEndIndex()
+        {
+            return matchEnd;
+        }
+
+        @Override
+        public int getMatchLength()
+        {
+            return matchEnd - matchStart;
+        }
+
+        @Override
+        public Position getPosition()
+        {
+            return inputBuffer.getPosition(currentIndex);
+        }
+
+        @Override
+        public IndexRange getMatchRange()
+        {
+            return new IndexRange(matchStart, matchEnd);
+        }
+
+        @Override
+        public ValueStack<V> getValueStack()
+        {
+            return valueStack;
+        }
+    }
+}
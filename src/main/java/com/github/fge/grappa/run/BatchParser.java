@@ -0,0 +1,235 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.run;
+
+import com.github.fge.grappa.exceptions.GrappaException;
+import com.google.common.base.Function;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import javax.annotation.Nonnull;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Parse many independent inputs in parallel
+ *
+ * <p>This class uses a {@link PerThreadGrammar} and an executor service which
+ * you supply; each worker thread of this executor uses its own {@link
+ * RunState}, which is reused for all the inputs this worker parses.</p>
+ *
+ * <p>Since submitting one task per input can be costly when inputs are small,
+ * {@link #parseAll(Iterable)} groups inputs into slices (of {@link
+ * #DEFAULT_SLICE_SIZE} inputs by default); each slice is parsed by one task.
+ * </p>
+ *
+ * <p>Results are always returned in the order of the inputs. Cancelling a
+ * future returned by this class cancels the tasks which have not run yet, and
+ * interrupts (if requested) the tasks being run; a task stops parsing at the
+ * next input boundary when interrupted.</p>
+ *
+ * @param <V> the type of values produced by the parser
+ */
+@ThreadSafe
+@ParametersAreNonnullByDefault
+public final class BatchParser<V>
+{
+    public static final int DEFAULT_SLICE_SIZE = 64;
+
+    private final PerThreadGrammar<?, V> grammar;
+    private final ListeningExecutorService executor;
+    private final int sliceSize;
+
+    /**
+     * Constructor
+     *
+     * @param grammar the grammar to use
+     * @param executor the executor service to run parsing tasks on
+     * @param sliceSize the number of inputs parsed by one task
+     * @throws IllegalArgumentException slice size is not strictly positive
+     */
+    public BatchParser(final PerThreadGrammar<?, V> grammar,
+        final ExecutorService executor, final int sliceSize)
+    {
+        Preconditions.checkArgument(sliceSize > 0,
+            "slice size must be strictly positive");
+        this.grammar = Objects.requireNonNull(grammar, "grammar");
+        this.executor = MoreExecutors.listeningDecorator(
+            Objects.requireNonNull(executor, "executor"));
+        this.sliceSize = sliceSize;
+    }
+
+    /**
+     * Constructor using the default slice size
+     *
+     * @param grammar the grammar to use
+     * @param executor the executor service to run parsing tasks on
+     */
+    public BatchParser(final PerThreadGrammar<?, V> grammar,
+        final ExecutorService executor)
+    {
+        this(grammar, executor, DEFAULT_SLICE_SIZE);
+    }
+
+    /**
+     * Parse one input asynchronously
+     *
+     * @param input the input
+     * @return a future holding the parsing result
+     */
+    @Nonnull
+    public ListenableFuture<ParsingResult<V>> submit(final CharSequence input)
+    {
+        Objects.requireNonNull(input, "input");
+        return executor.submit(new Callable<ParsingResult<V>>()
+        {
+            @Override
+            public ParsingResult<V> call()
+            {
+                return grammar.run(input);
+            }
+        });
+    }
+
+    /**
+     * Parse a series of inputs asynchronously
+     *
+     * <p>The returned future holds the results in the order of the inputs.
+     * If parsing any of the inputs throws an exception, the future fails with
+     * this exception and the remaining slices are cancelled; cancelling the
+     * future also cancels all slices.</p>
+     *
+     * @param inputs the inputs
+     * @return a future holding the list of parsing results
+     */
+    @Nonnull
+    public ListenableFuture<List<ParsingResult<V>>> parseAll(
+        final Iterable<? extends CharSequence> inputs)
+    {
+        final List<CharSequence> list = ImmutableList.copyOf(inputs);
+        final List<ListenableFuture<List<ParsingResult<V>>>> slices
+            = new ArrayList<>(list.size() / sliceSize + 1);
+
+        for (final List<CharSequence> slice: Lists.partition(list, sliceSize))
+            slices.add(executor.submit(new SliceTask(slice)));
+
+        final ListenableFuture<List<List<ParsingResult<V>>>> all
+            = Futures.allAsList(slices);
+
+        /*
+         * Propagate cancellation (including the implicit cancellation when
+         * one slice fails) to all slices
+         */
+        Futures.addCallback(all, new FutureCallback<Object>()
+        {
+            @Override
+            public void onSuccess(final Object result)
+            {
+            }
+
+            @Override
+            public void onFailure(final Throwable t)
+            {
+                for (final ListenableFuture<?> slice: slices)
+                    slice.cancel(true);
+            }
+        }, MoreExecutors.directExecutor());
+
+        return Futures.transform(all,
+            new Function<List<List<ParsingResult<V>>>, List<ParsingResult<V>>>()
+            {
+                @Override
+                public List<ParsingResult<V>> apply(
+                    final List<List<ParsingResult<V>>> input)
+                {
+                    final List<ParsingResult<V>> ret
+                        = new ArrayList<>(list.size());
+                    for (final List<ParsingResult<V>> results: input)
+                        ret.addAll(results);
+                    return ret;
+                }
+            }, MoreExecutors.directExecutor());
+    }
+
+    /**
+     * Parse a series of inputs in parallel and wait for the results
+     *
+     * @param inputs the inputs
+     * @return the list of parsing results, in the order of the inputs
+     * @throws InterruptedException interrupted while waiting for the results
+     * @throws GrappaException parsing one of the inputs threw an exception
+     */
+    @Nonnull
+    public List<ParsingResult<V>> runAll(
+        final Iterable<? extends CharSequence> inputs)
+        throws InterruptedException
+    {
+        final ListenableFuture<List<ParsingResult<V>>> future
+            = parseAll(inputs);
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof GrappaException)
+                throw (GrappaException) cause;
+            throw new UncheckedExecutionException(cause);
+        }
+    }
+
+    private final class SliceTask
+        implements Callable<List<ParsingResult<V>>>
+    {
+        private final List<CharSequence> inputs;
+
+        private SliceTask(final List<CharSequence> inputs)
+        {
+            this.inputs = inputs;
+        }
+
+        @Override
+        public List<ParsingResult<V>> call()
+        {
+            final RunState<?, V> state = grammar.getRunState();
+            final List<ParsingResult<V>> ret = new ArrayList<>(inputs.size());
+
+            for (final CharSequence input: inputs) {
+                if (Thread.currentThread().isInterrupted())
+                    throw new CancellationException("batch was cancelled");
+                ret.add(state.run(input));
+            }
+
+            return ret;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.run;
+
+import com.github.fge.grappa.buffers.InputBuffer;
+import com.github.fge.grappa.matchers.ActionMatcher;
+import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.run.context.MatcherContext;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.Objects;
+
+/**
+ * A parse runner which runs actions only once the whole input has matched
+ *
+ * <p>With other parse runners, actions are run as soon as they are
+ * encountered; if the alternative in which they run later fails, their effect
+ * on the value stack is reverted, and the work done by the action is wasted.
+ * </p>
+ *
+ * <p>This parse runner instead records actions in a log while matching. Where
+ * other runners would revert value stack changes, this runner truncates the
+ * log instead. When the root rule succeeds, the remaining actions are then run
+ * in order, exactly once.</p>
+ *
+ * <p>Only grammars whose actions satisfy all of the following conditions
+ * can be run with this parse runner:</p>
+ *
+ * <ul>
+ *     <li>actions always succeed (ie, no action is used as a semantic
+ *     predicate);</li>
+ *     <li>actions only depend on match data (the match, match indices,
+ *     position etc) and the value stack;</li>
+ *     <li>actions do not use {@link com.github.fge.grappa.support.Var}s, since
+ *     var frames are gone by the time actions run.</li>
+ * </ul>
+ *
+ * <p>Also note that actions located in predicates ({@code test()} and {@code
+ * testNot()}) never run, since their value stack changes would be reverted
+ * anyway.</p>
+ *
+ * <p>If an action fails when it is run, a {@link
+ * com.github.fge.grappa.exceptions.GrappaException} is thrown.</p>
+ *
+ * @param <V> the type of values produced by the parser
+ */
+@ParametersAreNonnullByDefault
+public final class DeferredActionsParseRunner<V>
+    extends AbstractParseRunner<V>
+    implements MatchHandler
+{
+    private ActionLog<V> actionLog;
+    private int nrActionsRun = 0;
+
+    public DeferredActionsParseRunner(final Rule rule)
+    {
+        super(rule);
+    }
+
+    @Override
+    public ParsingResult<V> run(final InputBuffer inputBuffer)
+    {
+        Objects.requireNonNull(inputBuffer, "inputBuffer");
+        resetFarthestFailure();
+
+        actionLog = new ActionLog<>();
+        valueStack = actionLog;
+
+        final MatcherContext<V> rootContext
+            = createRootContext(inputBuffer, this);
+        final boolean matched = rootContext.runMatcher();
+
+        resetValueStack();
+        nrActionsRun = 0;
+        if (matched) {
+            actionLog.replay(inputBuffer, valueStack);
+            nrActionsRun = actionLog.getNrActions();
+        }
+
+        return createParsingResult(matched, rootContext);
+    }
+
+    /**
+     * Return the number of actions run by the last parsing run
+     *
+     * @return see description
+     */
+    public int getNrActionsRun()
+    {
+        return nrActionsRun;
+    }
+
+    @Override
+    public <T> boolean match(final MatcherContext<T> context)
+    {
+        final Matcher matcher = context.getMatcher();
+
+        if (!(matcher instanceof ActionMatcher))
+            return trackedMatch(matcher, context);
+
+        actionLog.record((ActionMatcher) matcher, context);
+
+        // See ActionMatcher
+        context.setCurrentIndex(context.getParent().getCurrentIndex());
+        return true;
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.run;
+
+import com.github.fge.grappa.run.context.MatcherContext;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+
+/**
+ * A parse runner listener invoked directly by a {@link ListeningParseRunner}
+ *
+ * <p>Unlike a {@link ParseRunnerListener}, which is registered on an event bus
+ * and receives a new event object for each notification, this listener is
+ * called directly with the context (or the parsing result); no object is
+ * allocated on its behalf.</p>
+ *
+ * <p>All callbacks do nothing by default. Note that contexts are reused by
+ * the parsing process: a listener must not retain a reference to a context
+ * after the callback returns.</p>
+ *
+ * <p>An exception thrown by a callback aborts the parsing run; it is wrapped
+ * into a {@link com.github.fge.grappa.exceptions.GrappaException}.</p>
+ *
+ * @param <V> the type of values produced by the parser
+ *
+ * @see ParseRunnerCallback
+ */
+@ParametersAreNonnullByDefault
+public abstract class DirectParseRunnerListener<V>
+{
+    public void beforeParse(final MatcherContext<V> context)
+    {
+    }
+
+    public void beforeMatch(final MatcherContext<V> context)
+    {
+    }
+
+    public void matchSuccess(final MatcherContext<V> context)
+    {
+    }
+
+    public void matchFailure(final MatcherContext<V> context)
+    {
+    }
+
+    public void afterParse(final ParsingResult<V> result)
+    {
+    }
+}
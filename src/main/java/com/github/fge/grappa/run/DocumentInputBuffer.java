@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.run;
+
+import com.github.fge.grappa.buffers.InputBuffer;
+import com.github.fge.grappa.buffers.LineCounter;
+import com.github.fge.grappa.support.Chars;
+import com.github.fge.grappa.support.IndexRange;
+import com.github.fge.grappa.support.Position;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.Range;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.Objects;
+
+/**
+ * An input buffer over the document edited by an {@link
+ * IncrementalParseRunner}
+ *
+ * <p>This buffer does not copy the document; line information is only
+ * computed if it is requested. Once the document is edited, the buffer is
+ * {@link #invalidate() invalidated} and any further use of it throws an
+ * {@link IllegalStateException}.</p>
+ */
+@NotThreadSafe
+@ParametersAreNonnullByDefault
+final class DocumentInputBuffer
+    implements InputBuffer
+{
+    private final StringBuilder document;
+    private final Supplier<LineCounter> lineCounter
+        = Suppliers.memoize(new Supplier<LineCounter>()
+    {
+        @Override
+        public LineCounter get()
+        {
+            return new LineCounter(document);
+        }
+    });
+
+    private boolean valid = true;
+
+    DocumentInputBuffer(final StringBuilder document)
+    {
+        this.document = Objects.requireNonNull(document, "document");
+    }
+
+    /**
+     * Invalidate this buffer
+     *
+     * <p>This method must be called before the document is edited.</p>
+     */
+    void invalidate()
+    {
+        valid = false;
+    }
+
+    @Override
+    public char charAt(final int index)
+    {
+        checkValid();
+        if (index < 0)
+            throw new IllegalArgumentException("index is negative");
+
+        return index < document.length() ? document.charAt(index) : Chars.EOI;
+    }
+
+    @SuppressWarnings("ImplicitNumericConversion")
+    @Override
+    public int codePointAt(final int index)
+    {
+        checkValid();
+        final int length = document.length();
+        if (index >= length)
+            return -1;
+        if (index < 0)
+            throw new IllegalArgumentException("index is negative");
+
+        return document.codePointAt(index);
+    }
+
+    @Override
+    public String extract(final int start, final int end)
+    {
+        checkValid();
+        final int realStart = Math.max(start, 0);
+        final int realEnd = Math.min(end, document.length());
+        return document.substring(realStart, realEnd);
+    }
+
+    @Override
+    public String extract(final IndexRange range)
+    {
+        return extract(range.start, range.end);
+    }
+
+    @Override
+    public Position getPosition(final int index)
+    {
+        checkValid();
+        return lineCounter.get().toPosition(index);
+    }
+
+    @Override
+    public String extractLine(final int lineNumber)
+    {
+        checkValid();
+        Preconditions.checkArgument(lineNumber > 0, "line number is negative");
+        final Range<Integer> range = lineCounter.get().getLineRange(lineNumber);
+        final int start = range.lowerEndpoint();
+        int end = range.upperEndpoint();
+        if (charAt(end - 1) == '\n')
+            end--;
+        if (charAt(end - 1) == '\r')
+            end--;
+        return extract(start, end);
+    }
+
+    @SuppressWarnings("AutoUnboxing")
+    @Override
+    public IndexRange getLineRange(final int lineNumber)
+    {
+        checkValid();
+        final Range<Integer> range = lineCounter.get().getLineRange(lineNumber);
+        return new IndexRange(range.lowerEndpoint(), range.upperEndpoint());
+    }
+
+    @Override
+    public int getLineCount()
+    {
+        checkValid();
+        return lineCounter.get().getNrLines();
+    }
+
+    @Override
+    public int length()
+    {
+        checkValid();
+        return document.length();
+    }
+
+    private void checkValid()
+    {
+        Preconditions.checkState(valid, "document was edited since this"
+            + " buffer was created");
+    }
+}
@@ -0,0 +1,292 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.run;
+
+import com.github.fge.grappa.buffers.InputBuffer;
+import com.github.fge.grappa.matchers.ActionMatcher;
+import com.github.fge.grappa.matchers.MatcherType;
+import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.matchers.wrap.ProxyMatcher;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.run.context.MatcherContext;
+import com.google.common.base.Preconditions;
+
+import javax.annotation.Nonnull;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A parse runner reusing the results of previous runs after an edit of the
+ * input
+ *
+ * <p>This runner memoizes the results of composite and predicate matchers
+ * whose subtree contains no action, by (matcher, start index); since such
+ * matchers do not touch the value stack, their result only depends on the
+ * input. Along with each result, the runner records the extent of the input
+ * examined by the matcher (including lookahead).</p>
+ *
+ * <p>After a first run, you can submit edits to the input using {@link
+ * #applyEdit(int, int, CharSequence)}: results which examined the input
+ * before the edit only are retained, results located after the edit are
+ * shifted, all others are dropped, and the input is parsed again.</p>
+ *
+ * <p>The edited input is not copied: the input buffer of the results of such
+ * runs is a view over the document held by this runner, and can no longer be
+ * used once the document is edited again. Line information is only computed
+ * for this view if it is requested.</p>
+ *
+ * <p>Note that memoized results are also reused within a single run; a
+ * grammar which backtracks a lot over action-free rules will therefore also
+ * benefit from this runner.</p>
+ *
+ * @param <V> the type of values produced by the parser
+ */
+@NotThreadSafe
+@ParametersAreNonnullByDefault
+public final class IncrementalParseRunner<V>
+    extends AbstractParseRunner<V>
+    implements MatchHandler
+{
+    private final Map<Matcher, MemoTable> tables = new IdentityHashMap<>();
+
+    private StringBuilder document;
+    private DocumentInputBuffer view;
+    private WindowInputBuffer window;
+    private TrackingInputBuffer buffer;
+    private int memoHits;
+
+    public IncrementalParseRunner(final Rule rule)
+    {
+        super(rule);
+        for (final Matcher matcher: findMemoizableMatchers(rootMatcher))
+            tables.put(matcher, new MemoTable());
+    }
+
+    /**
+     * Parse an input, discarding all previously memoized results
+     *
+     * @param inputBuffer the inputBuffer to use
+     * @return the result
+     */
+    @Override
+    public ParsingResult<V> run(final InputBuffer inputBuffer)
+    {
+        Objects.requireNonNull(inputBuffer, "inputBuffer");
+
+        for (final MemoTable table: tables.values())
+            table.clear();
+
+        if (view != null)
+            view.invalidate();
+        view = null;
+        document = new StringBuilder(
+            inputBuffer.extract(0, inputBuffer.length()));
+
+        return parse(inputBuffer);
+    }
+
+    /**
+     * Edit the input of the previous run, and parse it again
+     *
+     * @param offset the start index of the edit
+     * @param removed the number of characters removed at this index
+     * @param inserted the text inserted at this index
+     * @return the result of the new run
+     * @throws IllegalStateException no input was parsed yet
+     * @throws IndexOutOfBoundsException invalid offset or removed length
+     */
+    @Nonnull
+    public ParsingResult<V> applyEdit(final int offset, final int removed,
+        final CharSequence inserted)
+    {
+        Objects.requireNonNull(inserted, "inserted");
+        Preconditions.checkState(document != null, "no input parsed yet");
+        Preconditions.checkPositionIndexes(offset, offset + removed,
+            document.length());
+
+        if (view != null)
+            view.invalidate();
+
+        if (removed == 0 && offset == document.length())
+            document.append(inserted);
+        else
+            document.replace(offset, offset + removed, inserted.toString());
+
+        final int delta = inserted.length() - removed;
+        for (final MemoTable table: tables.values())
+            table.applyEdit(offset, removed, delta);
+
+        view = new DocumentInputBuffer(document);
+        return parse(view);
+    }
+
+    /**
+     * Return the number of times a memoized result was used during the last
+     * run
+     *
+     * @return see description
+     */
+    public int getMemoHits()
+    {
+        return memoHits;
+    }
+
+    /**
+     * Tell whether the last run read characters past the end of its input
+     *
+     * <p>If it did, a longer input may produce a different result. Line
+     * information and the length of the input, as used by actions, do not
+     * count.</p>
+     *
+     * @return see description
+     */
+    boolean reachedEndOfInput()
+    {
+        return window.readPastEnd();
+    }
+
+    /**
+     * Return the total number of memoized results
+     *
+     * @return see description
+     */
+    public int getMemoSize()
+    {
+        int ret = 0;
+        for (final MemoTable table: tables.values())
+            ret += table.size();
+        return ret;
+    }
+
+    @Override
+    public <T> boolean match(final MatcherContext<T> context)
+    {
+        final Matcher matcher = context.getMatcher();
+        final MemoTable table = tables.get(matcher);
+
+        if (table == null)
+            return matcher.match(context);
+
+        final int start = context.getCurrentIndex();
+        final int slot = table.find(start);
+
+        if (slot != -1) {
+            memoHits++;
+            buffer.raiseHighWater(table.getExtent(slot));
+            final int end = table.getEnd(slot);
+            if (end == MemoTable.FAILURE)
+                return false;
+            context.setCurrentIndex(end);
+            return true;
+        }
+
+        final int saved = buffer.setHighWater(start);
+        final boolean ret = matcher.match(context);
+        final int extent = buffer.getHighWater();
+
+        table.put(start, ret ? context.getCurrentIndex() : MemoTable.FAILURE,
+            extent);
+        buffer.setHighWater(Math.max(saved, extent));
+
+        return ret;
+    }
+
+    private ParsingResult<V> parse(final InputBuffer inputBuffer)
+    {
+        resetValueStack();
+        memoHits = 0;
+        window = new WindowInputBuffer(inputBuffer);
+        buffer = new TrackingInputBuffer(window);
+
+        final MatcherContext<V> rootContext = createRootContext(buffer, this);
+        final boolean matched = rootContext.runMatcher();
+
+        return new ParsingResult<>(matched, valueStack, inputBuffer);
+    }
+
+    /*
+     * Find all composite and predicate matchers reachable from the root whose
+     * subtree contains no action
+     */
+    private static List<Matcher> findMemoizableMatchers(final Matcher root)
+    {
+        final Map<Matcher, List<Matcher>> children = new IdentityHashMap<>();
+        final Deque<Matcher> toVisit = new ArrayDeque<>();
+
+        toVisit.push(ProxyMatcher.unwrap(root));
+
+        Matcher matcher;
+        List<Matcher> list;
+
+        while (!toVisit.isEmpty()) {
+            matcher = toVisit.pop();
+            if (children.containsKey(matcher))
+                continue;
+            list = new ArrayList<>();
+            for (final Matcher child: matcher.getChildren())
+                list.add(ProxyMatcher.unwrap(child));
+            children.put(matcher, list);
+            toVisit.addAll(list);
+        }
+
+        /*
+         * Propagate "has an action" upwards until a fixed point is reached;
+         * this works with recursive grammars as well
+         */
+        final Map<Matcher, Boolean> hasAction = new IdentityHashMap<>();
+        for (final Matcher m: children.keySet())
+            hasAction.put(m, m instanceof ActionMatcher);
+
+        boolean changed;
+
+        do {
+            changed = false;
+            for (final Map.Entry<Matcher, List<Matcher>> entry:
+                children.entrySet()) {
+                matcher = entry.getKey();
+                if (hasAction.get(matcher))
+                    continue;
+                for (final Matcher child: entry.getValue())
+                    if (hasAction.get(child)) {
+                        hasAction.put(matcher, true);
+                        changed = true;
+                        break;
+                    }
+            }
+        } while (changed);
+
+        final List<Matcher> ret = new ArrayList<>();
+        MatcherType type;
+
+        for (final Matcher m: children.keySet()) {
+            if (hasAction.get(m))
+                continue;
+            type = m.getType();
+            if (type == MatcherType.COMPOSITE || type == MatcherType.PREDICATE)
+                ret.add(m);
+        }
+
+        return ret;
+    }
+}
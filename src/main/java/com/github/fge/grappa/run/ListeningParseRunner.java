@@ -33,7 +33,10 @@ import com.google.common.eventbus.SubscriberExceptionContext;
 import com.google.common.eventbus.SubscriberExceptionHandler;
 
 import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.Objects;
+import java.util.Set;
 
 /**
  * The most basic of all {@link ParseRunner} implementations. It runs a rule
@@ -43,6 +46,13 @@ import java.util.Objects;
  * valid with regard to the rule grammar.It never causes the parser to perform
  * more than one parsing run and is the fastest way to determine whether a given
  * input conforms to the rule grammar.
+ *
+ * <p>Two kinds of listeners can be registered: {@link ParseRunnerListener}s,
+ * which are registered on an {@link EventBus} and receive event objects, and
+ * {@link DirectParseRunnerListener}s, which are invoked directly, in order of
+ * registration, and only for the callbacks they registered for. The event bus
+ * is only used (and events only created) if at least one listener of the first
+ * kind has been registered.</p>
  */
 @SuppressWarnings("DesignForExtension")
 @ParametersAreNonnullByDefault
@@ -67,6 +77,14 @@ public class ListeningParseRunner<V>
         }
     });
 
+    private boolean hasBusListeners = false;
+
+    private DirectParseRunnerListener<V>[] beforeParse = newListenerArray();
+    private DirectParseRunnerListener<V>[] beforeMatch = newListenerArray();
+    private DirectParseRunnerListener<V>[] matchSuccess = newListenerArray();
+    private DirectParseRunnerListener<V>[] matchFailure = newListenerArray();
+    private DirectParseRunnerListener<V>[] afterParse = newListenerArray();
+
     /**
      * Creates a new BasicParseRunner instance for the given rule.
      *
@@ -81,6 +99,50 @@ public class ListeningParseRunner<V>
     public final void registerListener(final ParseRunnerListener<V> listener)
     {
         bus.register(listener);
+        hasBusListeners = true;
+    }
+
+    /**
+     * Register a direct listener for all callbacks
+     *
+     * @param listener the listener
+     */
+    public final void registerListener(
+        final DirectParseRunnerListener<V> listener)
+    {
+        registerListener(listener, EnumSet.allOf(ParseRunnerCallback.class));
+    }
+
+    /**
+     * Register a direct listener for a set of callbacks
+     *
+     * @param listener the listener
+     * @param callbacks the callbacks this listener should be invoked for
+     */
+    public final void registerListener(
+        final DirectParseRunnerListener<V> listener,
+        final Set<ParseRunnerCallback> callbacks)
+    {
+        Objects.requireNonNull(listener, "listener");
+        Objects.requireNonNull(callbacks, "callbacks");
+
+        for (final ParseRunnerCallback callback: callbacks)
+            switch (callback) {
+                case BEFORE_PARSE:
+                    beforeParse = append(beforeParse, listener);
+                    break;
+                case BEFORE_MATCH:
+                    beforeMatch = append(beforeMatch, listener);
+                    break;
+                case MATCH_SUCCESS:
+                    matchSuccess = append(matchSuccess, listener);
+                    break;
+                case MATCH_FAILURE:
+                    matchFailure = append(matchFailure, listener);
+                    break;
+                case AFTER_PARSE:
+                    afterParse = append(afterParse, listener);
+            }
     }
 
     @Override
@@ -88,10 +150,21 @@ public class ListeningParseRunner<V>
     {
         Objects.requireNonNull(inputBuffer, "inputBuffer");
         resetValueStack();
+        resetFarthestFailure();
 
         final MatcherContext<V> rootContext
             = createRootContext(inputBuffer, this);
-        bus.post(new PreParseEvent<>(rootContext));
+
+        try {
+            for (final DirectParseRunnerListener<V> listener: beforeParse)
+                listener.beforeParse(rootContext);
+        } catch (RuntimeException e) {
+            throw new GrappaException("parsing listener error (before parse)",
+                e);
+        }
+
+        if (hasBusListeners)
+            bus.post(new PreParseEvent<>(rootContext));
 
         if (throwable != null)
             throw new GrappaException("parsing listener error (before parse)",
@@ -101,7 +174,16 @@ public class ListeningParseRunner<V>
         final ParsingResult<V> result
             = createParsingResult(matched, rootContext);
 
-        bus.post(new PostParseEvent<>(result));
+        try {
+            for (final DirectParseRunnerListener<V> listener: afterParse)
+                listener.afterParse(result);
+        } catch (RuntimeException e) {
+            throw new GrappaException("parsing listener error (after parse)",
+                e);
+        }
+
+        if (hasBusListeners)
+            bus.post(new PostParseEvent<>(result));
 
         if (throwable != null)
             throw new GrappaException("parsing listener error (after parse)",
@@ -110,13 +192,24 @@ public class ListeningParseRunner<V>
         return result;
     }
 
+    // Contexts created by this runner all have the value type of this runner
+    @SuppressWarnings("unchecked")
     @Override
     public <T> boolean match(final MatcherContext<T> context)
     {
         final Matcher matcher = context.getMatcher();
+        final MatcherContext<V> ctx = (MatcherContext<V>) context;
 
-        final PreMatchEvent<T> preMatchEvent = new PreMatchEvent<>(context);
-        bus.post(preMatchEvent);
+        try {
+            for (final DirectParseRunnerListener<V> listener: beforeMatch)
+                listener.beforeMatch(ctx);
+        } catch (RuntimeException e) {
+            throw new GrappaException("parsing listener error (before match)",
+                e);
+        }
+
+        if (hasBusListeners)
+            bus.post(new PreMatchEvent<>(context));
 
         if (throwable != null)
             throw new GrappaException("parsing listener error (before match)",
@@ -124,13 +217,26 @@ public class ListeningParseRunner<V>
 
         // FIXME: is there any case at all where context.getMatcher() is null?
         @SuppressWarnings("ConstantConditions")
-        final boolean match = matcher.match(context);
+        final boolean match = trackedMatch(matcher, context);
 
-        final MatchContextEvent<T> postMatchEvent = match
-            ? new MatchSuccessEvent<>(context)
-            : new MatchFailureEvent<>(context);
+        try {
+            if (match)
+                for (final DirectParseRunnerListener<V> listener: matchSuccess)
+                    listener.matchSuccess(ctx);
+            else
+                for (final DirectParseRunnerListener<V> listener: matchFailure)
+                    listener.matchFailure(ctx);
+        } catch (RuntimeException e) {
+            throw new GrappaException("parsing listener error (after match)",
+                e);
+        }
 
-        bus.post(postMatchEvent);
+        if (hasBusListeners) {
+            final MatchContextEvent<T> postMatchEvent = match
+                ? new MatchSuccessEvent<>(context)
+                : new MatchFailureEvent<>(context);
+            bus.post(postMatchEvent);
+        }
 
         if (throwable != null)
             throw new GrappaException("parsing listener error (after match)",
@@ -138,4 +244,21 @@ public class ListeningParseRunner<V>
 
         return match;
     }
+
+    @SuppressWarnings("unchecked")
+    private static <V> DirectParseRunnerListener<V>[] newListenerArray()
+    {
+        return (DirectParseRunnerListener<V>[])
+            new DirectParseRunnerListener<?>[0];
+    }
+
+    private static <V> DirectParseRunnerListener<V>[] append(
+        final DirectParseRunnerListener<V>[] listeners,
+        final DirectParseRunnerListener<V> listener)
+    {
+        final DirectParseRunnerListener<V>[] ret
+            = Arrays.copyOf(listeners, listeners.length + 1);
+        ret[listeners.length] = listener;
+        return ret;
+    }
 }
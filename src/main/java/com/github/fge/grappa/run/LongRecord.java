@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.run;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * A record matched by a {@link LongRecordParseRunner}
+ *
+ * @param <V> the type of values produced by the parser
+ */
+@Immutable
+public final class LongRecord<V>
+{
+    private final V value;
+    private final long start;
+    private final long end;
+
+    LongRecord(@Nullable final V value, final long start, final long end)
+    {
+        this.value = value;
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * Return the value at the top of the stack after this record matched
+     *
+     * @return the value, or null if the record left the stack empty
+     */
+    @Nullable
+    public V getValue()
+    {
+        return value;
+    }
+
+    /**
+     * Return the offset of the start of this record in the input
+     *
+     * @return see description
+     */
+    public long getStart()
+    {
+        return start;
+    }
+
+    /**
+     * Return the offset of the end of this record (exclusive) in the input
+     *
+     * @return see description
+     */
+    public long getEnd()
+    {
+        return end;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "[" + start + ", " + end + "): " + value;
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.run;
+
+import com.github.fge.grappa.buffers.InputBuffer;
+import com.github.fge.grappa.buffers.LongInputBuffer;
+import com.github.fge.grappa.exceptions.GrappaException;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.run.context.MatcherContext;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.AbstractIterator;
+
+import javax.annotation.Nonnull;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.Iterator;
+import java.util.Objects;
+
+/**
+ * A parse runner matching a record rule repeatedly over a {@link
+ * LongInputBuffer}
+ *
+ * <p>Matchers and contexts use {@code int} indices; this runner therefore
+ * matches records through windows of the input, of at most {@code windowSize}
+ * characters, and converts indices within windows into {@code long} offsets.
+ * When a record reads characters past the end of the current window (and this
+ * window is not the end of the input), the window is moved to the start of
+ * this record and the record is matched again. A single record can therefore
+ * not be larger than a window. Line information available to actions is
+ * relative to the current window.</p>
+ *
+ * <p>As with {@link RecordParseRunner}, the value stack is cleared before each
+ * record. A record failing to match, matching an empty input, or larger than
+ * a window makes the iterator throw a {@link GrappaException}.</p>
+ *
+ * <p>For inputs of less than 2^31 characters, use {@link RecordParseRunner}
+ * instead.</p>
+ *
+ * @param <V> the type of values produced by the parser
+ */
+@NotThreadSafe
+@ParametersAreNonnullByDefault
+public final class LongRecordParseRunner<V>
+    extends AbstractParseRunner<V>
+    implements MatchHandler
+{
+    public static final int DEFAULT_WINDOW_SIZE = 1 << 28;
+
+    private final int windowSize;
+
+    /**
+     * Constructor
+     *
+     * @param rule the record rule
+     * @param windowSize the maximum size of a window
+     */
+    public LongRecordParseRunner(final Rule rule, final int windowSize)
+    {
+        super(rule);
+        Preconditions.checkArgument(windowSize > 0,
+            "window size must be strictly positive");
+        this.windowSize = windowSize;
+    }
+
+    public LongRecordParseRunner(final Rule rule)
+    {
+        this(rule, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Return a lazy iterator over the records of an input
+     *
+     * <p>The iterator reuses the value stack of this runner; you must not use
+     * this runner for anything else until the iteration is over.</p>
+     *
+     * @param input the input
+     * @return an iterator
+     */
+    @Nonnull
+    public Iterator<LongRecord<V>> iterate(final LongInputBuffer input)
+    {
+        Objects.requireNonNull(input, "input");
+        resetValueStack();
+        return new RecordIterator(input);
+    }
+
+    /**
+     * Parse an input which fits in a single window
+     *
+     * @param inputBuffer the input buffer
+     * @return the result of {@link RecordParseRunner#run(InputBuffer)}
+     */
+    @Override
+    public ParsingResult<V> run(final InputBuffer inputBuffer)
+    {
+        return new RecordParseRunner<V>(rootMatcher).run(inputBuffer);
+    }
+
+    @Override
+    public <T> boolean match(final MatcherContext<T> context)
+    {
+        return context.getMatcher().match(context);
+    }
+
+    private final class RecordIterator
+        extends AbstractIterator<LongRecord<V>>
+    {
+        private final LongInputBuffer input;
+        private final long length;
+
+        private long offset = 0L;
+        private long windowStart = -1L;
+        private WindowInputBuffer window;
+        private boolean lastWindow;
+
+        private RecordIterator(final LongInputBuffer input)
+        {
+            this.input = input;
+            length = input.length();
+        }
+
+        @Override
+        protected LongRecord<V> computeNext()
+        {
+            if (offset >= length)
+                return endOfData();
+
+            if (window == null || offset - windowStart >= window.length())
+                moveWindow();
+
+            while (true) {
+                final int index = (int) (offset - windowStart);
+
+                valueStack.clear();
+                window.reset();
+
+                final MatcherContext<V> context
+                    = createRootContext(window, LongRecordParseRunner.this);
+                context.setStartIndex(index);
+                context.setCurrentIndex(index);
+
+                final boolean matched = context.runMatcher();
+                final int end = context.getCurrentIndex();
+
+                if (!lastWindow && window.readPastEnd()) {
+                    if (index == 0)
+                        throw new GrappaException("record at offset "
+                            + offset + " is larger than the window size ("
+                            + windowSize + ')');
+                    moveWindow();
+                    continue;
+                }
+
+                if (!matched)
+                    throw new GrappaException("record rule failed at offset "
+                        + offset);
+
+                if (end == index)
+                    throw new GrappaException("record rule matched an empty"
+                        + " input at offset " + offset);
+
+                final V value = valueStack.isEmpty() ? null : valueStack.pop();
+                final LongRecord<V> ret
+                    = new LongRecord<>(value, offset, windowStart + end);
+                offset = windowStart + end;
+                return ret;
+            }
+        }
+
+        private void moveWindow()
+        {
+            final int size = (int) Math.min(windowSize, length - offset);
+            windowStart = offset;
+            window = new WindowInputBuffer(input.window(offset, size));
+            lastWindow = offset + size == length;
+        }
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.run;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.Arrays;
+
+/**
+ * The memoized results of one matcher, keyed by start index
+ *
+ * <p>For each start index, this table records the end index of the match (or
+ * {@link #FAILURE}) and the extent of the input examined by the matcher (the
+ * index following the rightmost character read).</p>
+ *
+ * <p>This is an open addressing hash table with linear probing, using plain
+ * int arrays, which are only allocated when a first entry is added. Edits of
+ * the input are applied in place: the arrays of the table are reused, and
+ * tables whose entries all precede the edit are not modified at all.</p>
+ *
+ * @see IncrementalParseRunner
+ */
+@NotThreadSafe
+final class MemoTable
+{
+    static final int FAILURE = -1;
+
+    private static final int NO_KEY = -1;
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int[] NO_ENTRIES = new int[0];
+
+    private int[] keys = NO_ENTRIES;
+    private int[] ends = NO_ENTRIES;
+    private int[] extents = NO_ENTRIES;
+    private int size;
+    private int maxExtent;
+
+    /*
+     * Entries surviving an edit, as (start, end, extent) triplets; reused
+     * across edits
+     */
+    private int[] survivors = NO_ENTRIES;
+
+    /**
+     * Remove all entries from this table
+     *
+     * <p>The arrays of the table are kept for reuse.</p>
+     */
+    void clear()
+    {
+        if (size == 0)
+            return;
+
+        Arrays.fill(keys, NO_KEY);
+        size = 0;
+        maxExtent = 0;
+    }
+
+    int size()
+    {
+        return size;
+    }
+
+    /**
+     * Find the slot for a start index
+     *
+     * @param start the start index
+     * @return the slot, or -1 if there is no entry for this index
+     */
+    int find(final int start)
+    {
+        if (size == 0)
+            return -1;
+
+        final int mask = keys.length - 1;
+        int slot = hash(start) & mask;
+        int key;
+
+        while ((key = keys[slot]) != NO_KEY) {
+            if (key == start)
+                return slot;
+            slot = (slot + 1) & mask;
+        }
+
+        return -1;
+    }
+
+    int getEnd(final int slot)
+    {
+        return ends[slot];
+    }
+
+    int getExtent(final int slot)
+    {
+        return extents[slot];
+    }
+
+    void put(final int start, final int end, final int extent)
+    {
+        if ((size + 1) * 2 > keys.length)
+            resize(Math.max(INITIAL_CAPACITY, keys.length * 2));
+
+        if (extent > maxExtent)
+            maxExtent = extent;
+
+        final int mask = keys.length - 1;
+        int slot = hash(start) & mask;
+        int key;
+
+        while ((key = keys[slot]) != NO_KEY) {
+            if (key == start) {
+                ends[slot] = end;
+                extents[slot] = extent;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        keys[slot] = start;
+        ends[slot] = end;
+        extents[slot] = extent;
+        size++;
+    }
+
+    /**
+     * Update this table after an edit of the input
+     *
+     * <p>Entries which did not examine the input past the start of the edit
+     * are retained as is; entries starting after the removed range are
+     * shifted; all others are dropped.</p>
+     *
+     * @param offset the start of the edit
+     * @param removed the number of characters removed
+     * @param delta the difference in length of the input after the edit
+     */
+    void applyEdit(final int offset, final int removed, final int delta)
+    {
+        if (maxExtent <= offset)
+            return;
+
+        final int editEnd = offset + removed;
+
+        if (survivors.length < size * 3)
+            survivors = new int[keys.length * 3];
+
+        int nrSurvivors = 0;
+        int start;
+        int end;
+        int extent;
+
+        for (int slot = 0; slot < keys.length; slot++) {
+            start = keys[slot];
+            if (start == NO_KEY)
+                continue;
+            end = ends[slot];
+            extent = extents[slot];
+            if (extent > offset) {
+                if (start < editEnd)
+                    continue;
+                start += delta;
+                if (end != FAILURE)
+                    end += delta;
+                extent += delta;
+            }
+            survivors[nrSurvivors++] = start;
+            survivors[nrSurvivors++] = end;
+            survivors[nrSurvivors++] = extent;
+        }
+
+        Arrays.fill(keys, NO_KEY);
+        size = 0;
+        maxExtent = 0;
+
+        for (int i = 0; i < nrSurvivors; i += 3)
+            put(survivors[i], survivors[i + 1], survivors[i + 2]);
+    }
+
+    private void resize(final int capacity)
+    {
+        final int[] oldKeys = keys;
+        final int[] oldEnds = ends;
+        final int[] oldExtents = extents;
+
+        keys = new int[capacity];
+        Arrays.fill(keys, NO_KEY);
+        ends = new int[capacity];
+        extents = new int[capacity];
+        size = 0;
+
+        for (int slot = 0; slot < oldKeys.length; slot++)
+            if (oldKeys[slot] != NO_KEY)
+                put(oldKeys[slot], oldEnds[slot], oldExtents[slot]);
+    }
+
+    private static int hash(final int start)
+    {
+        final int h = start * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.run;
+
+/**
+ * The callbacks of a {@link DirectParseRunnerListener}
+ *
+ * <p>A direct listener may be registered for only some of these callbacks
+ * (see {@link ListeningParseRunner#registerListener(DirectParseRunnerListener,
+ * java.util.Set)}); the parse runner then never invokes the other ones.</p>
+ */
+public enum ParseRunnerCallback
+{
+    /**
+     * {@link DirectParseRunnerListener#beforeParse}
+     */
+    BEFORE_PARSE,
+    /**
+     * {@link DirectParseRunnerListener#beforeMatch}
+     */
+    BEFORE_MATCH,
+    /**
+     * {@link DirectParseRunnerListener#matchSuccess}
+     */
+    MATCH_SUCCESS,
+    /**
+     * {@link DirectParseRunnerListener#matchFailure}
+     */
+    MATCH_FAILURE,
+    /**
+     * {@link DirectParseRunnerListener#afterParse}
+     */
+    AFTER_PARSE,
+    ;
+}
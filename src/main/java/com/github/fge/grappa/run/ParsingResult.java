@@ -18,9 +18,12 @@ package com.github.fge.grappa.run;
 
 import com.github.fge.grappa.buffers.InputBuffer;
 import com.github.fge.grappa.internal.NonFinalForTesting;
+import com.github.fge.grappa.matchers.base.Matcher;
 import com.github.fge.grappa.stack.ValueStack;
+import com.google.common.collect.ImmutableList;
 
 import javax.annotation.Nonnull;
+import java.util.List;
 import java.util.Objects;
 
 /**
@@ -32,6 +35,8 @@ public class ParsingResult<V>
     private final boolean matched;
     private final ValueStack<V> valueStack;
     private final InputBuffer inputBuffer;
+    private final int farthestFailure;
+    private final List<Matcher> expected;
 
     /**
      * Creates a new ParsingResult.
@@ -43,10 +48,31 @@ public class ParsingResult<V>
     public ParsingResult(final boolean matched,
         @Nonnull final ValueStack<V> valueStack,
         @Nonnull final InputBuffer inputBuffer)
+    {
+        this(matched, valueStack, inputBuffer, -1,
+            ImmutableList.<Matcher>of());
+    }
+
+    /**
+     * Creates a new ParsingResult, with the farthest failure of the run
+     *
+     * @param matched true if the rule matched the input
+     * @param valueStack the value stack of the parsing run
+     * @param inputBuffer the input buffer
+     * @param farthestFailure the farthest index at which a terminal failed,
+     * or -1
+     * @param expected the terminals which failed at this index
+     */
+    public ParsingResult(final boolean matched,
+        @Nonnull final ValueStack<V> valueStack,
+        @Nonnull final InputBuffer inputBuffer, final int farthestFailure,
+        @Nonnull final List<Matcher> expected)
     {
         this.matched = matched;
         this.valueStack = Objects.requireNonNull(valueStack);
         this.inputBuffer = Objects.requireNonNull(inputBuffer);
+        this.farthestFailure = farthestFailure;
+        this.expected = ImmutableList.copyOf(expected);
     }
 
 
@@ -95,4 +121,34 @@ public class ParsingResult<V>
     {
         return inputBuffer;
     }
+
+    /**
+     * Return the farthest index at which a terminal failed to match
+     *
+     * <p>When the input is not matched, this is usually where the error is.
+     * </p>
+     *
+     * @return the index, or -1 if no terminal failed or if the parse runner
+     * does not track failures
+     */
+    public int getFarthestFailureIndex()
+    {
+        return farthestFailure;
+    }
+
+    /**
+     * Return the terminals which failed at the farthest failure index
+     *
+     * <p>At most {@link AbstractParseRunner#MAX_EXPECTED} terminals are
+     * recorded, in the order in which they failed. Their labels are
+     * what was expected at this index.</p>
+     *
+     * @return an immutable list; empty if {@link #getFarthestFailureIndex()}
+     * is -1
+     */
+    @Nonnull
+    public List<Matcher> getExpected()
+    {
+        return expected;
+    }
 }
@@ -0,0 +1,264 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.run;
+
+import com.github.fge.grappa.Grappa;
+import com.github.fge.grappa.buffers.InputBuffer;
+import com.github.fge.grappa.exceptions.InvalidGrammarException;
+import com.github.fge.grappa.matchers.ActionMatcher;
+import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.matchers.wrap.ProxyMatcher;
+import com.github.fge.grappa.matchers.wrap.VarFramingMatcher;
+import com.github.fge.grappa.parsers.BaseParser;
+import com.github.fge.grappa.rules.Rule;
+import com.google.common.base.Function;
+import com.google.common.collect.Sets;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A grammar usable from several threads, with one parser instance per thread
+ *
+ * <p>Parser instances, and the rules they create, are not thread safe: the
+ * action classes generated for a parser hold the context of the running
+ * action, and rules hold the values of {@link com.github.fge.grappa.support.Var
+ * Var}s. This class gives each thread its own {@link RunState}: a parser
+ * instance, its root rule, and a parse runner.</p>
+ *
+ * <p><strong>Grammars with actions or {@code Var}s are not shared</strong>:
+ * each thread using such a grammar creates its own parser instance and builds
+ * the whole rule graph again. Since most grammars have actions, expect this
+ * cost once per thread; use a thread pool, and reuse run states.</p>
+ *
+ * <p>Only grammars without any action or {@code Var}, using only matchers
+ * provided by grappa, are shared: when it is built, this class walks the graph
+ * of matchers of the root rule, and if it has no mutable state at all, the
+ * parser instance and its root rule are shared by all threads; only the parse
+ * runner (which holds the value stack) is created for each thread. See {@link
+ * #isShared()}.</p>
+ *
+ * <p>Sample usage:</p>
+ *
+ * <pre>
+ *     final PerThreadGrammar&lt;MyParser, Object&gt; grammar
+ *         = new PerThreadGrammar&lt;&gt;(MyParser.class,
+ *             new Function&lt;MyParser, Rule&gt;()
+ *             {
+ *                 &#64;Override
+ *                 public Rule apply(final MyParser input)
+ *                 {
+ *                     return input.rule();
+ *                 }
+ *             });
+ *
+ *     // In any thread
+ *     final ParsingResult&lt;Object&gt; result = grammar.run(input);
+ * </pre>
+ *
+ * <p>Note that run states are bound to the threads which use them; if you use
+ * a thread pool whose threads outlive the grammar, call {@link
+ * #removeRunState()} when you are done with it.</p>
+ *
+ * @param <P> the type of the parser
+ * @param <V> the type of values produced by the parser
+ */
+@ThreadSafe
+@ParametersAreNonnullByDefault
+public final class PerThreadGrammar<P extends BaseParser<V>, V>
+    implements ParseRunner<V>
+{
+    private final Class<P> parserClass;
+    private final Function<? super P, Rule> rootRule;
+    private final Object[] constructorArgs;
+
+    @Nullable
+    private final P sharedParser;
+    @Nullable
+    private final Rule sharedRule;
+
+    private final ThreadLocal<RunState<P, V>> runStates
+        = new ThreadLocal<RunState<P, V>>()
+    {
+        @Override
+        protected RunState<P, V> initialValue()
+        {
+            return newRunState();
+        }
+    };
+
+    /**
+     * Constructor
+     *
+     * <p>This constructor creates a first parser instance and its root rule,
+     * and determines whether they can be shared by all threads; the run state
+     * for the calling thread is then created.</p>
+     *
+     * @param parserClass the parser class
+     * @param rootRule the function returning the root rule from a parser
+     * instance
+     * @param constructorArgs arguments to the parser class constructor
+     *
+     * @see Grappa#createParser(Class, Object...)
+     */
+    public PerThreadGrammar(final Class<P> parserClass,
+        final Function<? super P, Rule> rootRule,
+        final Object... constructorArgs)
+    {
+        this.parserClass = Objects.requireNonNull(parserClass, "parserClass");
+        this.rootRule = Objects.requireNonNull(rootRule, "rootRule");
+        this.constructorArgs = constructorArgs.clone();
+
+        final P parser = Grappa.createParser(parserClass, constructorArgs);
+        final Rule rule = rootRuleOf(parser);
+        final boolean shareable = isStateless(rule);
+
+        sharedParser = shareable ? parser : null;
+        sharedRule = shareable ? rule : null;
+        runStates.set(new RunState<>(parser, rule));
+    }
+
+    /**
+     * Tell whether the matcher graph of this grammar is shared by all threads
+     *
+     * <p>This is only the case for grammars without actions nor {@code
+     * Var}s.</p>
+     *
+     * @return see description
+     */
+    public boolean isShared()
+    {
+        return sharedRule != null;
+    }
+
+    /**
+     * Return the run state for the current thread
+     *
+     * <p>This run state is created if the current thread does not have one
+     * yet.</p>
+     *
+     * @return see description
+     */
+    @Nonnull
+    public RunState<P, V> getRunState()
+    {
+        return runStates.get();
+    }
+
+    /**
+     * Remove the run state of the current thread, if any
+     */
+    public void removeRunState()
+    {
+        runStates.remove();
+    }
+
+    /**
+     * Create a new run state, not bound to any thread
+     *
+     * <p>The caller must ensure that this run state is not used by more than
+     * one thread at a time.</p>
+     *
+     * <p>If the matcher graph is {@link #isShared() shared}, the returned run
+     * state uses the shared parser and root rule; otherwise, a new parser
+     * instance is created.</p>
+     *
+     * @return a new run state
+     */
+    @Nonnull
+    public RunState<P, V> newRunState()
+    {
+        if (sharedRule != null)
+            return new RunState<>(sharedParser, sharedRule);
+
+        final P parser = Grappa.createParser(parserClass, constructorArgs);
+        return new RunState<>(parser, rootRuleOf(parser));
+    }
+
+    @Override
+    public ParsingResult<V> run(final CharSequence input)
+    {
+        return runStates.get().run(input);
+    }
+
+    @Override
+    public ParsingResult<V> run(final InputBuffer inputBuffer)
+    {
+        return runStates.get().run(inputBuffer);
+    }
+
+    private Rule rootRuleOf(final P parser)
+    {
+        final Rule rule = rootRule.apply(parser);
+
+        if (rule == null)
+            throw new InvalidGrammarException("root rule function returned"
+                + " null");
+
+        return rule;
+    }
+
+    /*
+     * Walk the matcher graph and tell whether it holds any mutable state.
+     *
+     * Walking the graph also applies pending labels to proxies, which are the
+     * only matchers with lazily modified fields; the graph is then safely
+     * published to other threads through the final fields of this class.
+     *
+     * Matchers not provided by grappa are considered to be stateful.
+     */
+    private static boolean isStateless(final Rule rule)
+    {
+        final String pkg = ActionMatcher.class.getPackage().getName() + '.';
+        final Set<Matcher> seen
+            = Sets.newSetFromMap(new IdentityHashMap<Matcher, Boolean>());
+        final Deque<Matcher> todo = new ArrayDeque<>();
+
+        todo.push((Matcher) rule);
+
+        Matcher matcher;
+
+        while (!todo.isEmpty()) {
+            matcher = todo.pop();
+            if (matcher instanceof ProxyMatcher) {
+                final Matcher target = ProxyMatcher.unwrap(matcher);
+                if (target == matcher)
+                    return false;
+                todo.push(target);
+                continue;
+            }
+            if (!seen.add(matcher))
+                continue;
+            if (matcher instanceof ActionMatcher
+                || matcher instanceof VarFramingMatcher)
+                return false;
+            if (!matcher.getClass().getName().startsWith(pkg))
+                return false;
+            for (final Matcher child: matcher.getChildren())
+                todo.push(child);
+        }
+
+        return true;
+    }
+}
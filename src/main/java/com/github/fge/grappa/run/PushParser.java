@@ -0,0 +1,304 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.run;
+
+import com.github.fge.grappa.rules.Rule;
+import com.google.common.base.Preconditions;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.Objects;
+
+/**
+ * A parser fed with chunks of input, never blocking for more
+ *
+ * <p>The caller feeds chunks of input as they arrive, either as characters or
+ * as bytes (in which case a character set must have been given to the
+ * constructor). After each chunk, the parser tells whether the input is
+ * {@link Status#COMPLETE complete}, has {@link Status#FAILED failed}, or
+ * whether it {@link Status#NEED_MORE_INPUT needs more input}.</p>
+ *
+ * <p>More input is needed when the last run read characters past the end of
+ * the input received so far: if the run failed, more input may make it
+ * succeed; if it succeeded, more input may make it match further. Line
+ * information and the length of the input, which actions may query, do not
+ * count. Call {@link #endOfInput()} when no more input will come; this forces
+ * a final status.</p>
+ *
+ * <p>Matchers use the Java stack, therefore a run cannot be suspended in the
+ * middle; instead, each chunk triggers a new run over the accumulated input,
+ * using an {@link IncrementalParseRunner}. The results of action-free rules
+ * which did not examine the end of the previous input are reused, but each run
+ * still starts from the root rule and goes through the memoized results up to
+ * the end of the previous input. The cost of a run is therefore proportional
+ * to the size of the input received so far, and feeding an input in many
+ * small chunks costs time quadratic in the number of chunks; feed chunks as
+ * large as possible.</p>
+ *
+ * <p><strong>Actions run again on every chunk</strong>, over all the input
+ * received so far: an action matching the first chunk runs once per chunk
+ * fed. The value stack is rebuilt from scratch by each run, but side effects
+ * of actions are not reverted; in particular, events posted from actions of a
+ * {@link com.github.fge.grappa.parsers.ListeningParser} are posted again on
+ * each chunk. Grammars used with this class should only have actions working
+ * on the value stack, and act on the {@link #getResult() result} once the
+ * status is final.</p>
+ *
+ * <p>An instance of this class holds a memo table for each action-free rule
+ * of the grammar; these tables are only allocated when used, but you should
+ * still avoid creating a push parser per (small) message when a {@link
+ * ListeningParseRunner} over the whole message will do.</p>
+ *
+ * <p>Many instances can be created for the same rule and used alternately,
+ * provided they are all used by the same thread; see {@link PerThreadGrammar}
+ * to obtain a rule for the current thread.</p>
+ *
+ * @param <V> the type of values produced by the parser
+ */
+@NotThreadSafe
+@ParametersAreNonnullByDefault
+public final class PushParser<V>
+{
+    /**
+     * The status of a push parser
+     */
+    public enum Status
+    {
+        /**
+         * The input matched; no more input is expected
+         */
+        COMPLETE,
+        /**
+         * The input did not match, and more input would not change that
+         */
+        FAILED,
+        /**
+         * The status cannot be determined until more input arrives
+         */
+        NEED_MORE_INPUT,
+        ;
+    }
+
+    /*
+     * Room left in the output buffer for characters written by the decoder
+     * when it is flushed
+     */
+    private static final int FLUSH_ROOM = 16;
+
+    private final IncrementalParseRunner<V> runner;
+    private final CharsetDecoder decoder;
+
+    private ByteBuffer pendingBytes = null;
+    private boolean started = false;
+    private int length = 0;
+    private Status status = Status.NEED_MORE_INPUT;
+    private ParsingResult<V> result = null;
+
+    /**
+     * Constructor for a parser fed with characters only
+     *
+     * @param rule the rule to match
+     */
+    public PushParser(final Rule rule)
+    {
+        runner = new IncrementalParseRunner<>(rule);
+        decoder = null;
+    }
+
+    /**
+     * Constructor for a parser which can also be fed with bytes
+     *
+     * <p>Malformed or unmappable input causes an exception to be thrown.</p>
+     *
+     * @param rule the rule to match
+     * @param charset the character set of the input
+     */
+    public PushParser(final Rule rule, final Charset charset)
+    {
+        runner = new IncrementalParseRunner<>(rule);
+        decoder = Objects.requireNonNull(charset, "charset").newDecoder()
+            .onMalformedInput(CodingErrorAction.REPORT)
+            .onUnmappableCharacter(CodingErrorAction.REPORT);
+    }
+
+    /**
+     * Feed a chunk of characters
+     *
+     * <p>This runs the grammar, including all of its actions, over all the
+     * input received so far.</p>
+     *
+     * @param chunk the chunk
+     * @return the status after this chunk
+     * @throws IllegalStateException the status is already final
+     */
+    @Nonnull
+    public Status feed(final CharSequence chunk)
+    {
+        Objects.requireNonNull(chunk, "chunk");
+        checkNotFinal();
+        return update(chunk, false);
+    }
+
+    /**
+     * Feed a chunk of bytes
+     *
+     * <p>Bytes at the end of the chunk which do not form a complete character
+     * are kept until the next chunk. The buffer is entirely consumed. As with
+     * {@link #feed(CharSequence)}, the grammar runs over all the input received
+     * so far.</p>
+     *
+     * @param chunk the chunk
+     * @return the status after this chunk
+     * @throws IllegalStateException no character set was given, or the status
+     * is already final
+     * @throws CharacterCodingException malformed or unmappable input
+     */
+    @Nonnull
+    public Status feed(final ByteBuffer chunk)
+        throws CharacterCodingException
+    {
+        Objects.requireNonNull(chunk, "chunk");
+        Preconditions.checkState(decoder != null,
+            "no character set given to constructor");
+        checkNotFinal();
+
+        final ByteBuffer in;
+
+        if (pendingBytes == null) {
+            in = chunk;
+        } else {
+            in = ByteBuffer.allocate(pendingBytes.remaining()
+                + chunk.remaining());
+            in.put(pendingBytes).put(chunk).flip();
+        }
+
+        final CharBuffer out = CharBuffer.allocate(
+            (int) (in.remaining() * decoder.maxCharsPerByte()) + 1);
+        final CoderResult coderResult = decoder.decode(in, out, false);
+
+        if (coderResult.isError())
+            coderResult.throwException();
+
+        if (in.hasRemaining()) {
+            pendingBytes = ByteBuffer.allocate(in.remaining());
+            pendingBytes.put(in).flip();
+        } else {
+            pendingBytes = null;
+        }
+
+        out.flip();
+        return update(out, false);
+    }
+
+    /**
+     * Signal the end of input, and compute the final status
+     *
+     * @return the final status (either {@link Status#COMPLETE} or {@link
+     * Status#FAILED})
+     * @throws IllegalStateException the status is already final
+     * @throws CharacterCodingException bytes fed to this parser end with an
+     * incomplete character
+     */
+    @Nonnull
+    public Status endOfInput()
+        throws CharacterCodingException
+    {
+        checkNotFinal();
+
+        if (decoder == null)
+            return update("", true);
+
+        final ByteBuffer in = pendingBytes != null ? pendingBytes
+            : ByteBuffer.allocate(0);
+        final CharBuffer out = CharBuffer.allocate(
+            (int) (in.remaining() * decoder.maxCharsPerByte()) + FLUSH_ROOM);
+
+        CoderResult coderResult = decoder.decode(in, out, true);
+        if (coderResult.isError())
+            coderResult.throwException();
+
+        coderResult = decoder.flush(out);
+        if (!coderResult.isUnderflow())
+            coderResult.throwException();
+
+        pendingBytes = null;
+        out.flip();
+        return update(out, true);
+    }
+
+    /**
+     * Return the current status
+     *
+     * @return see description
+     */
+    @Nonnull
+    public Status getStatus()
+    {
+        return status;
+    }
+
+    /**
+     * Return the result of the last run
+     *
+     * @return the result, or null if no input has been fed yet
+     */
+    @Nullable
+    public ParsingResult<V> getResult()
+    {
+        return result;
+    }
+
+    private Status update(final CharSequence chunk, final boolean last)
+    {
+        /*
+         * Nothing new to parse, unless this is the end of input
+         */
+        if (started && chunk.length() == 0 && !last)
+            return status;
+
+        if (started) {
+            result = runner.applyEdit(length, 0, chunk);
+        } else {
+            result = runner.run(chunk);
+            started = true;
+        }
+
+        length += chunk.length();
+
+        if (!last && runner.reachedEndOfInput())
+            status = Status.NEED_MORE_INPUT;
+        else
+            status = result.isSuccess() ? Status.COMPLETE : Status.FAILED;
+
+        return status;
+    }
+
+    private void checkNotFinal()
+    {
+        Preconditions.checkState(status == Status.NEED_MORE_INPUT,
+            "parser is already in final state " + status);
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.run;
+
+import com.github.fge.grappa.buffers.CharSequenceInputBuffer;
+import com.github.fge.grappa.buffers.InputBuffer;
+import com.github.fge.grappa.exceptions.GrappaException;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.run.context.MatcherContext;
+import com.google.common.collect.AbstractIterator;
+
+import javax.annotation.Nonnull;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.Iterator;
+import java.util.Objects;
+
+/**
+ * A parse runner matching a record rule repeatedly over its input
+ *
+ * <p>The main use of this runner is {@link #iterate(InputBuffer)}, which
+ * returns a lazy iterator over the values produced by each record: the value
+ * stack is cleared before each record, and the value at the top of the stack
+ * after the record has matched is returned; records leaving the stack empty
+ * produce no value. This avoids accumulating the values of all records on the
+ * value stack.</p>
+ *
+ * <p>Matching stops at the end of input. If the record rule fails before the
+ * end of input, or matches an empty input, a {@link GrappaException} is
+ * thrown.</p>
+ *
+ * <p>{@link #run(InputBuffer)} is equivalent to running {@code
+ * sequence(zeroOrMore(record), EOI)}: the value stack is not cleared between
+ * records, and all values pushed by all records are on the resulting value
+ * stack (the last value pushed by the last record on top). It does not throw
+ * an exception on failure.</p>
+ *
+ * @param <V> the type of values produced by the parser
+ */
+@NotThreadSafe
+@ParametersAreNonnullByDefault
+public final class RecordParseRunner<V>
+    extends AbstractParseRunner<V>
+    implements MatchHandler
+{
+    public RecordParseRunner(final Rule rule)
+    {
+        super(rule);
+    }
+
+    /**
+     * Return a lazy iterator over the values of all records of an input
+     *
+     * @param input the input
+     * @return an iterator
+     */
+    @Nonnull
+    public Iterator<V> iterate(final CharSequence input)
+    {
+        Objects.requireNonNull(input, "input");
+        return iterate(new CharSequenceInputBuffer(input));
+    }
+
+    /**
+     * Return a lazy iterator over the values of all records of an input
+     *
+     * <p>Note that the iterator reuses the value stack of this runner; you
+     * must not use this runner for anything else until the iteration is
+     * over.</p>
+     *
+     * @param inputBuffer the input buffer
+     * @return an iterator
+     */
+    @Nonnull
+    public Iterator<V> iterate(final InputBuffer inputBuffer)
+    {
+        Objects.requireNonNull(inputBuffer, "inputBuffer");
+        resetValueStack();
+
+        return new AbstractIterator<V>()
+        {
+            private final int length = inputBuffer.length();
+            private int index = 0;
+
+            @Override
+            protected V computeNext()
+            {
+                while (index < length) {
+                    valueStack.clear();
+                    index = matchRecord(inputBuffer, index, true);
+                    if (!valueStack.isEmpty())
+                        return valueStack.pop();
+                }
+                return endOfData();
+            }
+        };
+    }
+
+    @Override
+    public ParsingResult<V> run(final InputBuffer inputBuffer)
+    {
+        Objects.requireNonNull(inputBuffer, "inputBuffer");
+        resetValueStack();
+        resetFarthestFailure();
+
+        final int length = inputBuffer.length();
+
+        int index = 0;
+        int end;
+        boolean matched = true;
+
+        while (index < length) {
+            end = matchRecord(inputBuffer, index, false);
+            if (end == -1) {
+                matched = false;
+                break;
+            }
+            index = end;
+        }
+
+        return createParsingResult(matched, valueStack, inputBuffer);
+    }
+
+    @Override
+    public <T> boolean match(final MatcherContext<T> context)
+    {
+        return trackedMatch(context.getMatcher(), context);
+    }
+
+    /*
+     * Match one record at the given index; return the end index of the match,
+     * or -1 if the match failed or was empty and failures are not errors
+     */
+    private int matchRecord(final InputBuffer inputBuffer, final int index,
+        final boolean failuresAreErrors)
+    {
+        final MatcherContext<V> context = createRootContext(inputBuffer, this);
+        context.setStartIndex(index);
+        context.setCurrentIndex(index);
+
+        final boolean matched = context.runMatcher();
+        final int end = context.getCurrentIndex();
+
+        if (matched && end > index)
+            return end;
+
+        if (!failuresAreErrors)
+            return -1;
+
+        final String msg = matched
+            ? "record rule matched an empty input at position %s"
+            : "record rule failed at position %s";
+        throw new GrappaException(String.format(msg,
+            inputBuffer.getPosition(index)));
+    }
+}
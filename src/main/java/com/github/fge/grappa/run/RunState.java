@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.run;
+
+import com.github.fge.grappa.buffers.InputBuffer;
+import com.github.fge.grappa.parsers.BaseParser;
+import com.github.fge.grappa.rules.Rule;
+
+import javax.annotation.Nonnull;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.Objects;
+
+/**
+ * The mutable state needed to run a {@link PerThreadGrammar}
+ *
+ * <p>A run state holds a parser instance, the root rule obtained from this
+ * parser, and a parse runner for this rule. The parser instance holds the
+ * action context, and the rule holds the values of the {@link
+ * com.github.fge.grappa.support.Var}s; this is why a run state must not be
+ * used by more than one thread at a time.</p>
+ *
+ * <p>A run state can be reused for as many parsing runs as you wish, however.
+ * </p>
+ *
+ * @param <P> the type of the parser
+ * @param <V> the type of values produced by the parser
+ *
+ * @see PerThreadGrammar#getRunState()
+ * @see PerThreadGrammar#newRunState()
+ */
+@NotThreadSafe
+@ParametersAreNonnullByDefault
+public final class RunState<P extends BaseParser<V>, V>
+    implements ParseRunner<V>
+{
+    private final P parser;
+    private final Rule rule;
+    private final ParseRunner<V> runner;
+
+    RunState(final P parser, final Rule rule)
+    {
+        this.parser = Objects.requireNonNull(parser, "parser");
+        this.rule = Objects.requireNonNull(rule, "rule");
+        runner = new ListeningParseRunner<>(rule);
+    }
+
+    /**
+     * Get the parser instance of this run state
+     *
+     * @return see description
+     */
+    @Nonnull
+    public P getParser()
+    {
+        return parser;
+    }
+
+    /**
+     * Get the root rule of this run state
+     *
+     * @return see description
+     */
+    @Nonnull
+    public Rule getRule()
+    {
+        return rule;
+    }
+
+    @Override
+    public ParsingResult<V> run(final CharSequence input)
+    {
+        return runner.run(input);
+    }
+
+    @Override
+    public ParsingResult<V> run(final InputBuffer inputBuffer)
+    {
+        return runner.run(inputBuffer);
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.run;
+
+import com.github.fge.grappa.buffers.InputBuffer;
+import com.github.fge.grappa.support.IndexRange;
+import com.github.fge.grappa.support.Position;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.Objects;
+
+/**
+ * An input buffer recording how far into the input it has been examined
+ *
+ * <p>The "high water mark" of this buffer is the index following the
+ * rightmost character read since the mark was last reset. Operations which
+ * depend on the whole input (line information, the length of the buffer) set
+ * the mark past the end of input.</p>
+ *
+ * @see IncrementalParseRunner
+ * @see com.github.fge.grappa.run.profile.HeatmapParseRunner
+ */
+@NotThreadSafe
+@ParametersAreNonnullByDefault
+public final class TrackingInputBuffer
+    implements InputBuffer
+{
+    private final InputBuffer delegate;
+    private final int endOfInput;
+
+    private int highWater = 0;
+
+    public TrackingInputBuffer(final InputBuffer delegate)
+    {
+        this.delegate = Objects.requireNonNull(delegate, "delegate");
+        endOfInput = delegate.length() + 1;
+    }
+
+    /**
+     * Return the current high water mark
+     *
+     * @return see description
+     */
+    public int getHighWater()
+    {
+        return highWater;
+    }
+
+    /**
+     * Set the high water mark
+     *
+     * @param highWater the new value
+     * @return the previous value
+     */
+    public int setHighWater(final int highWater)
+    {
+        final int ret = this.highWater;
+        this.highWater = highWater;
+        return ret;
+    }
+
+    /**
+     * Raise the high water mark, if lower than the given index
+     *
+     * @param index the index
+     */
+    void raiseHighWater(final int index)
+    {
+        if (index > highWater)
+            highWater = index;
+    }
+
+    @Override
+    public char charAt(final int index)
+    {
+        raiseHighWater(index + 1);
+        return delegate.charAt(index);
+    }
+
+    @Override
+    public int codePointAt(final int index)
+    {
+        final int ret = delegate.codePointAt(index);
+        raiseHighWater(index + (ret == -1 ? 1 : Character.charCount(ret)));
+        return ret;
+    }
+
+    @Override
+    public String extract(final int start, final int end)
+    {
+        raiseHighWater(end);
+        return delegate.extract(start, end);
+    }
+
+    @Override
+    public String extract(final IndexRange range)
+    {
+        raiseHighWater(range.end);
+        return delegate.extract(range);
+    }
+
+    @Override
+    public Position getPosition(final int index)
+    {
+        raiseHighWater(endOfInput);
+        return delegate.getPosition(index);
+    }
+
+    @Override
+    public String extractLine(final int lineNumber)
+    {
+        raiseHighWater(endOfInput);
+        return delegate.extractLine(lineNumber);
+    }
+
+    @Override
+    public IndexRange getLineRange(final int lineNumber)
+    {
+        raiseHighWater(endOfInput);
+        return delegate.getLineRange(lineNumber);
+    }
+
+    @Override
+    public int getLineCount()
+    {
+        raiseHighWater(endOfInput);
+        return delegate.getLineCount();
+    }
+
+    @Override
+    public int length()
+    {
+        raiseHighWater(endOfInput);
+        return delegate.length();
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.run;
+
+import com.github.fge.grappa.buffers.InputBuffer;
+import com.github.fge.grappa.support.IndexRange;
+import com.github.fge.grappa.support.Position;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.Objects;
+
+/**
+ * An input buffer over a window of a larger input, telling whether matchers
+ * read past its end
+ *
+ * <p>Only reading characters ({@link #charAt(int)}, {@link
+ * #codePointAt(int)}, the {@code extract()} methods) at or past the end of
+ * the window counts; line information and the length of the buffer are those
+ * of the window, and querying them (for instance, from an action calling
+ * {@code position()}) does not count as reading past the end.</p>
+ *
+ * @see LongRecordParseRunner
+ * @see PushParser
+ */
+@NotThreadSafe
+@ParametersAreNonnullByDefault
+final class WindowInputBuffer
+    implements InputBuffer
+{
+    private final InputBuffer delegate;
+    private final int length;
+
+    private boolean readPastEnd = false;
+
+    WindowInputBuffer(final InputBuffer delegate)
+    {
+        this.delegate = Objects.requireNonNull(delegate, "delegate");
+        length = delegate.length();
+    }
+
+    /**
+     * Tell whether characters past the end of the window were read since the
+     * last call to {@link #reset()}
+     *
+     * @return see description
+     */
+    boolean readPastEnd()
+    {
+        return readPastEnd;
+    }
+
+    /**
+     * Forget about reads past the end of the window
+     */
+    void reset()
+    {
+        readPastEnd = false;
+    }
+
+    @Override
+    public char charAt(final int index)
+    {
+        if (index >= length)
+            readPastEnd = true;
+        return delegate.charAt(index);
+    }
+
+    @Override
+    public int codePointAt(final int index)
+    {
+        if (index >= length)
+            readPastEnd = true;
+        return delegate.codePointAt(index);
+    }
+
+    @Override
+    public String extract(final int start, final int end)
+    {
+        if (end > length)
+            readPastEnd = true;
+        return delegate.extract(start, end);
+    }
+
+    @Override
+    public String extract(final IndexRange range)
+    {
+        if (range.end > length)
+            readPastEnd = true;
+        return delegate.extract(range);
+    }
+
+    @Override
+    public Position getPosition(final int index)
+    {
+        return delegate.getPosition(index);
+    }
+
+    @Override
+    public String extractLine(final int lineNumber)
+    {
+        return delegate.extractLine(lineNumber);
+    }
+
+    @Override
+    public IndexRange getLineRange(final int lineNumber)
+    {
+        return delegate.getLineRange(lineNumber);
+    }
+
+    @Override
+    public int getLineCount()
+    {
+        return delegate.getLineCount();
+    }
+
+    @Override
+    public int length()
+    {
+        return length;
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.run.parallel;
+
+import com.github.fge.grappa.buffers.InputBuffer;
+import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.matchers.wrap.ProxyMatcher;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.run.AbstractParseRunner;
+import com.github.fge.grappa.run.MatchHandler;
+import com.github.fge.grappa.run.ParsingResult;
+import com.github.fge.grappa.run.context.MatcherContext;
+import com.github.fge.grappa.stack.ValueStack;
+
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.Objects;
+
+/**
+ * The per-thread state of a {@link StructuralParallelParser}
+ *
+ * <p>It holds two runners, built from the same parser instance: one for the
+ * element rule, and one for the root rule, which substitutes the results of
+ * element runs to the element rule when possible.</p>
+ *
+ * @param <V> the type of values produced by the parser
+ */
+@NotThreadSafe
+@ParametersAreNonnullByDefault
+final class ParserState<V>
+{
+    private final StitchingRunner<V> rootRunner;
+    private final StitchingRunner<V> elementRunner;
+
+    ParserState(final Rule rootRule, final Rule elementRule)
+    {
+        Objects.requireNonNull(rootRule, "rootRule");
+        Objects.requireNonNull(elementRule, "elementRule");
+        rootRunner = new StitchingRunner<>(rootRule,
+            ProxyMatcher.unwrap((Matcher) elementRule));
+        elementRunner = new StitchingRunner<>(elementRule, null);
+    }
+
+    /**
+     * Run the element rule at a given index
+     *
+     * @param buffer the input buffer
+     * @param start the start index of the element
+     * @param ends the array of element end indices
+     * @param element the element number
+     * @return the values produced by the element, bottom first, or null if
+     * the element rule failed
+     */
+    @Nullable
+    Object[] runElement(final InputBuffer buffer, final int start,
+        final int[] ends, final int element)
+    {
+        return elementRunner.runAt(buffer, start, ends, element);
+    }
+
+    /**
+     * Run the root rule, reusing element results
+     *
+     * @param buffer the input buffer
+     * @param index the structure index
+     * @param ends the end indices of elements
+     * @param values the values of elements (null for failed elements)
+     * @return the parsing result
+     */
+    ParsingResult<V> runRoot(final InputBuffer buffer,
+        final StructureIndex index, final int[] ends, final Object[][] values)
+    {
+        rootRunner.index = index;
+        rootRunner.ends = ends;
+        rootRunner.values = values;
+        try {
+            return rootRunner.run(buffer);
+        } finally {
+            rootRunner.index = null;
+            rootRunner.ends = null;
+            rootRunner.values = null;
+        }
+    }
+
+    private static final class StitchingRunner<V>
+        extends AbstractParseRunner<V>
+        implements MatchHandler
+    {
+        private final Matcher elementMatcher;
+
+        private StructureIndex index;
+        private int[] ends;
+        private Object[][] values;
+
+        private StitchingRunner(final Rule rule,
+            @Nullable final Matcher elementMatcher)
+        {
+            super(rule);
+            this.elementMatcher = elementMatcher;
+        }
+
+        @Override
+        public ParsingResult<V> run(final InputBuffer inputBuffer)
+        {
+            resetValueStack();
+
+            final MatcherContext<V> rootContext
+                = createRootContext(inputBuffer, this);
+            final boolean matched = rootContext.runMatcher();
+
+            return createParsingResult(matched, rootContext);
+        }
+
+        private Object[] runAt(final InputBuffer inputBuffer, final int start,
+            final int[] elementEnds, final int element)
+        {
+            resetValueStack();
+
+            final MatcherContext<V> rootContext
+                = createRootContext(inputBuffer, this);
+            rootContext.setStartIndex(start);
+            rootContext.setCurrentIndex(start);
+
+            if (!rootContext.runMatcher())
+                return null;
+
+            elementEnds[element] = rootContext.getCurrentIndex();
+
+            final int size = valueStack.size();
+            final Object[] ret = new Object[size];
+            int i = size;
+            for (final V value: valueStack)
+                ret[--i] = value;
+            return ret;
+        }
+
+        @Override
+        public <T> boolean match(final MatcherContext<T> context)
+        {
+            final Matcher matcher = context.getMatcher();
+
+            if (matcher != elementMatcher || values == null)
+                return matcher.match(context);
+
+            final int element = index.findElement(context.getCurrentIndex());
+
+            if (element == -1 || values[element] == null)
+                return matcher.match(context);
+
+            @SuppressWarnings("unchecked")
+            final ValueStack<Object> stack
+                = (ValueStack<Object>) context.getValueStack();
+            for (final Object value: values[element])
+                stack.push(value);
+
+            context.setCurrentIndex(ends[element]);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.run.parallel;
+
+import com.github.fge.grappa.buffers.CharSequenceInputBuffer;
+import com.github.fge.grappa.run.BatchParser;
+import com.github.fge.grappa.run.ParsingResult;
+import com.github.fge.grappa.run.PerThreadGrammar;
+import com.github.fge.grappa.stack.DefaultValueStack;
+import com.github.fge.grappa.stack.ValueStack;
+import com.google.common.base.CharMatcher;
+import com.google.common.base.Preconditions;
+
+import javax.annotation.Nonnull;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Parse large inputs made of independent records in parallel
+ *
+ * <p>The input is split into chunks of roughly {@code targetChunkSize}
+ * characters: a chunk ends with the first record boundary (as matched by a
+ * {@link CharMatcher}, for instance {@code CharMatcher.is('\n')}) found at or
+ * after this size. The boundary character is part of the chunk it ends.</p>
+ *
+ * <p>Each chunk is then parsed, in parallel, by the root rule of a {@link
+ * PerThreadGrammar}; this rule must therefore match a sequence of complete
+ * records, for instance {@code sequence(zeroOrMore(record()), EOI)}.</p>
+ *
+ * <p>The value stacks of all chunks are merged in order; see {@link
+ * RecordParallelResult}.</p>
+ *
+ * <p>Smaller chunks mean better load balancing but more overhead; chunks of
+ * at least a few tens of kilobytes are recommended.</p>
+ *
+ * @param <V> the type of values produced by the parser
+ */
+@ThreadSafe
+@ParametersAreNonnullByDefault
+public final class RecordParallelParser<V>
+{
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+    private final BatchParser<V> batchParser;
+    private final CharMatcher boundary;
+    private final int targetChunkSize;
+
+    /**
+     * Constructor
+     *
+     * @param grammar the grammar to parse chunks with
+     * @param boundary the matcher for record boundaries
+     * @param executor the executor service to parse chunks on
+     * @param targetChunkSize the target chunk size
+     * @throws IllegalArgumentException chunk size is not strictly positive
+     */
+    public RecordParallelParser(final PerThreadGrammar<?, V> grammar,
+        final CharMatcher boundary, final ExecutorService executor,
+        final int targetChunkSize)
+    {
+        Preconditions.checkArgument(targetChunkSize > 0,
+            "chunk size must be strictly positive");
+        this.boundary = Objects.requireNonNull(boundary, "boundary");
+        this.targetChunkSize = targetChunkSize;
+        batchParser = new BatchParser<>(grammar, executor, 1);
+    }
+
+    /**
+     * Constructor using the default chunk size
+     *
+     * @param grammar the grammar to parse chunks with
+     * @param boundary the matcher for record boundaries
+     * @param executor the executor service to parse chunks on
+     */
+    public RecordParallelParser(final PerThreadGrammar<?, V> grammar,
+        final CharMatcher boundary, final ExecutorService executor)
+    {
+        this(grammar, boundary, executor, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Parse an input
+     *
+     * @param input the input
+     * @return the result
+     * @throws InterruptedException interrupted while waiting for chunks to be
+     * parsed
+     */
+    @Nonnull
+    public RecordParallelResult<V> run(final CharSequence input)
+        throws InterruptedException
+    {
+        Objects.requireNonNull(input, "input");
+
+        final long start = System.nanoTime();
+
+        final int[] chunkStarts = split(input);
+        final int nrChunks = chunkStarts.length;
+        final List<CharSequence> chunks = new ArrayList<>(nrChunks);
+
+        int end;
+        for (int i = 0; i < nrChunks; i++) {
+            end = i == nrChunks - 1 ? input.length() : chunkStarts[i + 1];
+            chunks.add(input.subSequence(chunkStarts[i], end));
+        }
+
+        final List<ParsingResult<V>> results = batchParser.runAll(chunks);
+
+        boolean matched = true;
+        for (final ParsingResult<V> result: results)
+            matched &= result.isSuccess();
+
+        final ValueStack<V> valueStack = merge(results);
+
+        return new RecordParallelResult<>(matched, valueStack,
+            new CharSequenceInputBuffer(input), results, chunkStarts,
+            System.nanoTime() - start);
+    }
+
+    /**
+     * Parse the contents of a file
+     *
+     * <p>The file is memory mapped, then decoded as a whole into memory.</p>
+     *
+     * @param path the path to the file
+     * @param charset the character set of the file
+     * @return the result
+     * @throws IOException failed to read the file
+     * @throws InterruptedException interrupted while waiting for chunks to be
+     * parsed
+     */
+    @Nonnull
+    public RecordParallelResult<V> run(final Path path, final Charset charset)
+        throws IOException, InterruptedException
+    {
+        Objects.requireNonNull(path, "path");
+        Objects.requireNonNull(charset, "charset");
+
+        final CharBuffer buffer;
+
+        try (
+            final FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.READ);
+        ) {
+            final MappedByteBuffer mapped
+                = channel.map(FileChannel.MapMode.READ_ONLY, 0L,
+                channel.size());
+            buffer = charset.decode(mapped);
+        }
+
+        return run(buffer);
+    }
+
+    private int[] split(final CharSequence input)
+    {
+        final int length = input.length();
+
+        int[] starts = new int[length / targetChunkSize + 1];
+        int nrChunks = 0;
+        int start = 0;
+        int index;
+
+        do {
+            if (nrChunks == starts.length)
+                starts = Arrays.copyOf(starts, nrChunks * 2);
+            starts[nrChunks++] = start;
+            if (length - start <= targetChunkSize)
+                break;
+            index = boundary.indexIn(input, start + targetChunkSize - 1);
+            start = index == -1 ? length : index + 1;
+        } while (start < length);
+
+        return Arrays.copyOf(starts, nrChunks);
+    }
+
+    private static <V> ValueStack<V> merge(final List<ParsingResult<V>> results)
+    {
+        final List<V> values = new ArrayList<>();
+
+        /*
+         * Collect values from the top of the stack of the last chunk down to
+         * the bottom of the stack of the first one, then push them in reverse
+         */
+        for (int i = results.size() - 1; i >= 0; i--)
+            for (final V value: results.get(i).getValueStack())
+                values.add(value);
+
+        final ValueStack<V> ret = new DefaultValueStack<>();
+
+        for (int i = values.size() - 1; i >= 0; i--)
+            ret.push(values.get(i));
+
+        return ret;
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.run.parallel;
+
+import com.github.fge.grappa.buffers.InputBuffer;
+import com.github.fge.grappa.run.ParsingResult;
+import com.github.fge.grappa.stack.ValueStack;
+import com.google.common.collect.ImmutableList;
+
+import javax.annotation.Nonnull;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The result of a {@link RecordParallelParser} run
+ *
+ * <p>The value stack of this result is the merge of the value stacks of all
+ * chunks, in order: values of the first chunk are at the bottom of the stack,
+ * values of the last chunk are at the top, as if the input had been parsed
+ * sequentially.</p>
+ *
+ * <p>The run is successful if all chunks were successfully parsed.</p>
+ *
+ * @param <V> the type of values produced by the parser
+ */
+@ParametersAreNonnullByDefault
+public final class RecordParallelResult<V>
+    extends ParsingResult<V>
+{
+    private final List<ParsingResult<V>> chunkResults;
+    private final int[] chunkStarts;
+    private final long nanos;
+
+    RecordParallelResult(final boolean matched,
+        final ValueStack<V> valueStack, final InputBuffer inputBuffer,
+        final List<ParsingResult<V>> chunkResults, final int[] chunkStarts,
+        final long nanos)
+    {
+        super(matched, valueStack, inputBuffer);
+        this.chunkResults = ImmutableList.copyOf(chunkResults);
+        this.chunkStarts = chunkStarts;
+        this.nanos = nanos;
+    }
+
+    /**
+     * Return the number of chunks the input was split into
+     *
+     * @return see description
+     */
+    public int getNrChunks()
+    {
+        return chunkStarts.length;
+    }
+
+    /**
+     * Return the parsing results of all chunks, in order
+     *
+     * <p>Note that indices in these results are relative to the start of
+     * their chunk; see {@link #getChunkStart(int)}.</p>
+     *
+     * @return an immutable list
+     */
+    @Nonnull
+    public List<ParsingResult<V>> getChunkResults()
+    {
+        return chunkResults;
+    }
+
+    /**
+     * Return the index of the start of a chunk in the original input
+     *
+     * @param chunk the chunk number
+     * @return see description
+     * @throws IndexOutOfBoundsException no such chunk
+     */
+    public int getChunkStart(final int chunk)
+    {
+        return chunkStarts[chunk];
+    }
+
+    /**
+     * Return the number of the first chunk which failed to parse
+     *
+     * @return the chunk number, or -1 if all chunks were parsed successfully
+     */
+    public int getFirstFailedChunk()
+    {
+        final int size = chunkResults.size();
+        for (int i = 0; i < size; i++)
+            if (!chunkResults.get(i).isSuccess())
+                return i;
+        return -1;
+    }
+
+    /**
+     * Return the total number of characters parsed
+     *
+     * @return see description
+     */
+    public int getNrChars()
+    {
+        return getInputBuffer().length();
+    }
+
+    /**
+     * Return the elapsed time of the run, in the given unit
+     *
+     * <p>This includes splitting, parsing and merging value stacks.</p>
+     *
+     * @param unit the time unit
+     * @return see description
+     */
+    public long getElapsedTime(final TimeUnit unit)
+    {
+        return unit.convert(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Return the throughput of the run, in characters per second
+     *
+     * @return see description
+     */
+    public double getCharsPerSecond()
+    {
+        return nanos == 0L ? 0.0
+            : (double) getNrChars() * TimeUnit.SECONDS.toNanos(1L) / nanos;
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.run.parallel;
+
+import com.github.fge.grappa.Grappa;
+import com.github.fge.grappa.annotations.ParallelElement;
+import com.github.fge.grappa.buffers.CharSequenceInputBuffer;
+import com.github.fge.grappa.buffers.InputBuffer;
+import com.github.fge.grappa.exceptions.GrappaException;
+import com.github.fge.grappa.exceptions.InvalidGrammarException;
+import com.github.fge.grappa.parsers.BaseParser;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.run.ParsingResult;
+import com.google.common.base.Function;
+
+import javax.annotation.Nonnull;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.ThreadSafe;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Parse single large documents by parsing the elements of their top level
+ * container in parallel
+ *
+ * <p>Parsing is done in three phases:</p>
+ *
+ * <ul>
+ *     <li>a {@link StructureScanner} builds the index of the top level
+ *     elements;</li>
+ *     <li>each element is parsed, in parallel on a {@link ForkJoinPool},
+ *     using the rule annotated with {@link ParallelElement};</li>
+ *     <li>the root rule is run; each time the element rule is about to match
+ *     at the start of an element which was successfully parsed in the
+ *     previous phase, the values produced by this element are pushed onto the
+ *     value stack and the element is skipped.</li>
+ * </ul>
+ *
+ * <p>Since elements are parsed against the whole input, the result is the same
+ * as the one of a sequential run, provided that the element rule obeys the
+ * constraints described in {@link ParallelElement}. Elements which failed to
+ * parse in the second phase, or which the prescan misidentified, are parsed
+ * normally in the third phase; if the structure of the document is broken,
+ * the whole document is parsed normally.</p>
+ *
+ * @param <P> the type of the parser
+ * @param <V> the type of values produced by the parser
+ */
+@ThreadSafe
+@ParametersAreNonnullByDefault
+public final class StructuralParallelParser<P extends BaseParser<V>, V>
+{
+    private static final int TASKS_PER_THREAD = 4;
+
+    private final StructureScanner scanner;
+    private final ForkJoinPool pool;
+
+    private final ThreadLocal<ParserState<V>> states;
+
+    /**
+     * Constructor
+     *
+     * @param parserClass the parser class
+     * @param rootRule the function returning the root rule from a parser
+     * instance
+     * @param tokens the tokens used for the structural prescan
+     * @param pool the fork/join pool to parse elements on
+     * @param constructorArgs arguments to the parser class constructor
+     * @throws InvalidGrammarException no valid rule annotated with {@link
+     * ParallelElement}
+     */
+    public StructuralParallelParser(final Class<P> parserClass,
+        final Function<? super P, Rule> rootRule,
+        final StructureTokens tokens, final ForkJoinPool pool,
+        final Object... constructorArgs)
+    {
+        Objects.requireNonNull(parserClass, "parserClass");
+        Objects.requireNonNull(rootRule, "rootRule");
+        scanner = new StructureScanner(tokens);
+        this.pool = Objects.requireNonNull(pool, "pool");
+
+        final Method elementMethod = findElementMethod(parserClass);
+        final Object[] args = constructorArgs.clone();
+
+        states = new ThreadLocal<ParserState<V>>()
+        {
+            @Override
+            protected ParserState<V> initialValue()
+            {
+                final P parser = Grappa.createParser(parserClass, args);
+                return new ParserState<>(rootRule.apply(parser),
+                    invokeElementMethod(elementMethod, parser));
+            }
+        };
+
+        states.get();
+    }
+
+    /**
+     * Parse a document
+     *
+     * @param input the document
+     * @return the parsing result
+     */
+    @Nonnull
+    public ParsingResult<V> run(final CharSequence input)
+    {
+        Objects.requireNonNull(input, "input");
+
+        final StructureIndex index = scanner.scan(input);
+        final InputBuffer buffer = new CharSequenceInputBuffer(input);
+        final int nrElements = index.getNrElements();
+
+        final int[] ends = new int[nrElements];
+        final Object[][] values = new Object[nrElements][];
+
+        if (nrElements > 0) {
+            final int threshold = Math.max(1,
+                nrElements / (pool.getParallelism() * TASKS_PER_THREAD));
+            pool.invoke(new ElementsTask(buffer, index, ends, values, 0,
+                nrElements, threshold));
+        }
+
+        return states.get().runRoot(buffer, index, ends, values);
+    }
+
+    private static Method findElementMethod(final Class<?> parserClass)
+    {
+        Method ret = null;
+
+        for (final Method method: parserClass.getMethods()) {
+            if (!method.isAnnotationPresent(ParallelElement.class))
+                continue;
+            if (ret != null)
+                throw new InvalidGrammarException("only one method may be"
+                    + " annotated with @ParallelElement");
+            if (method.getParameterTypes().length != 0
+                || !Rule.class.isAssignableFrom(method.getReturnType()))
+                throw new InvalidGrammarException("method annotated with"
+                    + " @ParallelElement must return a Rule and take no"
+                    + " arguments");
+            ret = method;
+        }
+
+        if (ret == null)
+            throw new InvalidGrammarException("no public method annotated with"
+                + " @ParallelElement in " + parserClass.getName());
+
+        return ret;
+    }
+
+    private static Rule invokeElementMethod(final Method method,
+        final Object parser)
+    {
+        try {
+            return (Rule) method.invoke(parser);
+        } catch (IllegalAccessException e) {
+            throw new GrappaException("cannot invoke element rule method", e);
+        } catch (InvocationTargetException e) {
+            throw new GrappaException("element rule method threw an exception",
+                e.getCause());
+        }
+    }
+
+    private final class ElementsTask
+        extends RecursiveAction
+    {
+        private static final long serialVersionUID = 4829532064768593163L;
+
+        private final InputBuffer buffer;
+        private final StructureIndex index;
+        private final int[] ends;
+        private final Object[][] values;
+        private final int from;
+        private final int to;
+        private final int threshold;
+
+        private ElementsTask(final InputBuffer buffer,
+            final StructureIndex index, final int[] ends,
+            final Object[][] values, final int from, final int to,
+            final int threshold)
+        {
+            this.buffer = buffer;
+            this.index = index;
+            this.ends = ends;
+            this.values = values;
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (to - from > threshold) {
+                final int middle = (from + to) >>> 1;
+                invokeAll(
+                    new ElementsTask(buffer, index, ends, values, from, middle,
+                        threshold),
+                    new ElementsTask(buffer, index, ends, values, middle, to,
+                        threshold)
+                );
+                return;
+            }
+
+            final ParserState<V> state = states.get();
+
+            for (int element = from; element < to; element++)
+                values[element] = state.runElement(buffer,
+                    index.getElementStart(element), ends, element);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.run.parallel;
+
+import javax.annotation.concurrent.Immutable;
+import java.util.Arrays;
+
+/**
+ * The index of nested regions built by a {@link StructureScanner}
+ *
+ * <p>A region spans from an opening character to its matching closing
+ * character, both included; regions are numbered in the order of their
+ * opening characters.</p>
+ *
+ * <p>This index also records the spans of the elements of the top level
+ * container (that is, the first region of depth 0), trimmed.</p>
+ *
+ * <p>If the structure of the document is broken (unbalanced or mismatched
+ * opening/closing characters, or an unterminated quote), the index is marked
+ * as such and has no elements.</p>
+ */
+@Immutable
+public final class StructureIndex
+{
+    private final boolean balanced;
+    private final int[] regionStarts;
+    private final int[] regionEnds;
+    private final int[] regionDepths;
+    private final int[] elementStarts;
+    private final int[] elementEnds;
+
+    StructureIndex(final boolean balanced, final int[] regionStarts,
+        final int[] regionEnds, final int[] regionDepths,
+        final int[] elementStarts, final int[] elementEnds)
+    {
+        this.balanced = balanced;
+        this.regionStarts = regionStarts;
+        this.regionEnds = regionEnds;
+        this.regionDepths = regionDepths;
+        this.elementStarts = balanced ? elementStarts : new int[0];
+        this.elementEnds = balanced ? elementEnds : new int[0];
+    }
+
+    /**
+     * Tell whether the document structure is balanced
+     *
+     * @return see description
+     */
+    public boolean isBalanced()
+    {
+        return balanced;
+    }
+
+    /**
+     * Return the number of regions
+     *
+     * @return see description
+     */
+    public int getNrRegions()
+    {
+        return regionStarts.length;
+    }
+
+    /**
+     * Return the index of the opening character of a region
+     *
+     * @param region the region number
+     * @return see description
+     */
+    public int getRegionStart(final int region)
+    {
+        return regionStarts[region];
+    }
+
+    /**
+     * Return the index following the closing character of a region
+     *
+     * @param region the region number
+     * @return see description; -1 if the region is not closed
+     */
+    public int getRegionEnd(final int region)
+    {
+        return regionEnds[region];
+    }
+
+    /**
+     * Return the nesting depth of a region (0 for top level regions)
+     *
+     * @param region the region number
+     * @return see description
+     */
+    public int getRegionDepth(final int region)
+    {
+        return regionDepths[region];
+    }
+
+    /**
+     * Return the number of elements of the top level container
+     *
+     * @return see description
+     */
+    public int getNrElements()
+    {
+        return elementStarts.length;
+    }
+
+    /**
+     * Return the start index of an element of the top level container
+     *
+     * @param element the element number
+     * @return see description
+     */
+    public int getElementStart(final int element)
+    {
+        return elementStarts[element];
+    }
+
+    /**
+     * Return the end index (exclusive) of an element of the top level
+     * container
+     *
+     * @param element the element number
+     * @return see description
+     */
+    public int getElementEnd(final int element)
+    {
+        return elementEnds[element];
+    }
+
+    /**
+     * Find the element starting at a given index
+     *
+     * @param index the index
+     * @return the element number, or -1 if no element starts at this index
+     */
+    int findElement(final int index)
+    {
+        final int ret = Arrays.binarySearch(elementStarts, index);
+        return ret < 0 ? -1 : ret;
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.run.parallel;
+
+import com.google.common.base.CharMatcher;
+
+import javax.annotation.Nonnull;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A fast structural prescan of a document
+ *
+ * <p>This scanner makes a single pass over its input, balancing opening and
+ * closing characters outside of quotes, as defined by a {@link
+ * StructureTokens}; it does not validate the document in any other way.</p>
+ *
+ * @see StructureIndex
+ */
+@ThreadSafe
+@ParametersAreNonnullByDefault
+public final class StructureScanner
+{
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final StructureTokens tokens;
+
+    public StructureScanner(final StructureTokens tokens)
+    {
+        this.tokens = Objects.requireNonNull(tokens, "tokens");
+    }
+
+    /**
+     * Scan a document
+     *
+     * @param input the document
+     * @return the index of regions
+     */
+    @Nonnull
+    public StructureIndex scan(final CharSequence input)
+    {
+        return new Scan(input).run();
+    }
+
+    /*
+     * The state of one scan
+     */
+    private final class Scan
+    {
+        private final CharSequence input;
+
+        // Regions
+        private int[] starts = new int[INITIAL_CAPACITY];
+        private int[] ends = new int[INITIAL_CAPACITY];
+        private int[] depths = new int[INITIAL_CAPACITY];
+        private int nrRegions = 0;
+
+        // Open regions: region number and opener type
+        private int[] openRegions = new int[INITIAL_CAPACITY];
+        private int[] openTypes = new int[INITIAL_CAPACITY];
+        private int depth = 0;
+
+        // Elements of the top level container
+        private int[] elementStarts = new int[INITIAL_CAPACITY];
+        private int[] elementEnds = new int[INITIAL_CAPACITY];
+        private int nrElements = 0;
+        private int elementStart = -1;
+        private boolean topLevelDone = false;
+
+        private Scan(final CharSequence input)
+        {
+            this.input = input;
+        }
+
+        private StructureIndex run()
+        {
+            final int length = input.length();
+            final char quote = tokens.getQuote();
+            final char escape = tokens.getEscape();
+            final char separator = tokens.getSeparator();
+
+            boolean balanced = true;
+            boolean inQuote = false;
+            char c;
+            int type;
+
+            for (int index = 0; index < length; index++) {
+                c = input.charAt(index);
+
+                if (inQuote) {
+                    if (c == escape)
+                        index++;
+                    else if (c == quote)
+                        inQuote = false;
+                    continue;
+                }
+
+                if (c == quote) {
+                    inQuote = true;
+                    continue;
+                }
+
+                if (c == separator) {
+                    if (depth == 1 && isTopLevel()) {
+                        addElement(index);
+                        elementStart = index + 1;
+                    }
+                    continue;
+                }
+
+                type = tokens.openerType(c);
+                if (type != -1) {
+                    open(index, type);
+                    continue;
+                }
+
+                type = tokens.closerType(c);
+                if (type == -1)
+                    continue;
+
+                if (depth == 0 || openTypes[depth - 1] != type) {
+                    balanced = false;
+                    break;
+                }
+
+                close(index);
+            }
+
+            if (inQuote || depth != 0)
+                balanced = false;
+
+            return new StructureIndex(balanced,
+                Arrays.copyOf(starts, nrRegions),
+                Arrays.copyOf(ends, nrRegions),
+                Arrays.copyOf(depths, nrRegions),
+                Arrays.copyOf(elementStarts, nrElements),
+                Arrays.copyOf(elementEnds, nrElements));
+        }
+
+        private boolean isTopLevel()
+        {
+            return !topLevelDone && openRegions[0] == 0;
+        }
+
+        private void open(final int index, final int type)
+        {
+            if (nrRegions == starts.length) {
+                final int newLength = nrRegions * 2;
+                starts = Arrays.copyOf(starts, newLength);
+                ends = Arrays.copyOf(ends, newLength);
+                depths = Arrays.copyOf(depths, newLength);
+            }
+            if (depth == openRegions.length) {
+                openRegions = Arrays.copyOf(openRegions, depth * 2);
+                openTypes = Arrays.copyOf(openTypes, depth * 2);
+            }
+
+            starts[nrRegions] = index;
+            ends[nrRegions] = -1;
+            depths[nrRegions] = depth;
+
+            openRegions[depth] = nrRegions;
+            openTypes[depth] = type;
+
+            nrRegions++;
+            depth++;
+
+            if (depth == 1 && isTopLevel())
+                elementStart = index + 1;
+        }
+
+        private void close(final int index)
+        {
+            if (depth == 1 && isTopLevel()) {
+                addElement(index);
+                topLevelDone = true;
+            }
+
+            depth--;
+            ends[openRegions[depth]] = index + 1;
+        }
+
+        private void addElement(final int end)
+        {
+            final CharMatcher trimmed = tokens.getTrimmed();
+
+            int start = elementStart;
+            int realEnd = end;
+
+            while (start < realEnd && trimmed.matches(input.charAt(start)))
+                start++;
+            while (realEnd > start && trimmed.matches(input.charAt(realEnd - 1)))
+                realEnd--;
+
+            if (start == realEnd)
+                return;
+
+            if (nrElements == elementStarts.length) {
+                elementStarts = Arrays.copyOf(elementStarts, nrElements * 2);
+                elementEnds = Arrays.copyOf(elementEnds, nrElements * 2);
+            }
+
+            elementStarts[nrElements] = start;
+            elementEnds[nrElements] = realEnd;
+            nrElements++;
+        }
+    }
+}
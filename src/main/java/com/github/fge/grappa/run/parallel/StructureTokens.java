@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.run.parallel;
+
+import com.google.common.base.CharMatcher;
+import com.google.common.base.Preconditions;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.Immutable;
+import java.util.Objects;
+
+/**
+ * The set of tokens used by a structural prescan
+ *
+ * <p>A document is described by:</p>
+ *
+ * <ul>
+ *     <li>pairs of opening and closing characters (for instance {@code [}
+ *     and {@code ]});</li>
+ *     <li>a quote character, inside of which structural characters have no
+ *     meaning, and an escape character for use inside quotes;</li>
+ *     <li>a separator character between elements of a container;</li>
+ *     <li>the set of characters to trim around elements.</li>
+ * </ul>
+ *
+ * @see StructureScanner
+ */
+@Immutable
+@ParametersAreNonnullByDefault
+public final class StructureTokens
+{
+    /**
+     * Tokens for JSON documents
+     */
+    public static final StructureTokens JSON
+        = new StructureTokens("[{", "]}", '"', '\\', ',',
+        CharMatcher.anyOf(" \t\r\n"));
+
+    private final String openers;
+    private final String closers;
+    private final char quote;
+    private final char escape;
+    private final char separator;
+    private final CharMatcher trimmed;
+
+    /**
+     * Constructor
+     *
+     * @param openers the opening characters
+     * @param closers the closing characters, in the same order as openers
+     * @param quote the quote character
+     * @param escape the escape character
+     * @param separator the element separator
+     * @param trimmed the characters to trim around elements
+     * @throws IllegalArgumentException openers and closers lengths differ, or
+     * are empty
+     */
+    public StructureTokens(final String openers, final String closers,
+        final char quote, final char escape, final char separator,
+        final CharMatcher trimmed)
+    {
+        Objects.requireNonNull(openers, "openers");
+        Objects.requireNonNull(closers, "closers");
+        Preconditions.checkArgument(!openers.isEmpty(),
+            "there must be at least one pair of opening/closing characters");
+        Preconditions.checkArgument(openers.length() == closers.length(),
+            "there must be as many closing characters as opening characters");
+        this.openers = openers;
+        this.closers = closers;
+        this.quote = quote;
+        this.escape = escape;
+        this.separator = separator;
+        this.trimmed = Objects.requireNonNull(trimmed, "trimmed");
+    }
+
+    /**
+     * Return the type of an opening character
+     *
+     * @param c the character
+     * @return the index of the character in the openers, or -1
+     */
+    int openerType(final char c)
+    {
+        return openers.indexOf(c);
+    }
+
+    /**
+     * Return the type of a closing character
+     *
+     * @param c the character
+     * @return the index of the character in the closers, or -1
+     */
+    int closerType(final char c)
+    {
+        return closers.indexOf(c);
+    }
+
+    char getQuote()
+    {
+        return quote;
+    }
+
+    char getEscape()
+    {
+        return escape;
+    }
+
+    char getSeparator()
+    {
+        return separator;
+    }
+
+    CharMatcher getTrimmed()
+    {
+        return trimmed;
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.run.profile;
+
+import com.google.common.collect.ImmutableList;
+
+import javax.annotation.concurrent.Immutable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The result of a {@link HeatmapParseRunner} run
+ */
+@Immutable
+public final class Heatmap
+{
+    private final int bucketSize;
+    private final long[] counts;
+    private final long[] ruleKeys;
+    private final long[] ruleValues;
+    private final List<String> ruleNames;
+
+    Heatmap(final int bucketSize, final long[] counts,
+        final long[] ruleCounts, final int nrRules,
+        final List<String> ruleNames)
+    {
+        this.bucketSize = bucketSize;
+        this.counts = counts.clone();
+        this.ruleNames = ImmutableList.copyOf(ruleNames);
+
+        // ruleCounts may be longer than needed; it is reused across runs
+        final int length = counts.length * nrRules;
+
+        int size = 0;
+        for (int index = 0; index < length; index++)
+            if (ruleCounts[index] != 0L)
+                size++;
+
+        // Key: bucket << 32 | rule id
+        ruleKeys = new long[size];
+        ruleValues = new long[size];
+
+        int i = 0;
+        for (int index = 0; index < length; index++) {
+            if (ruleCounts[index] == 0L)
+                continue;
+            ruleKeys[i] = (long) (index / nrRules) << 32 | index % nrRules;
+            ruleValues[i] = ruleCounts[index];
+            i++;
+        }
+    }
+
+    public int getBucketSize()
+    {
+        return bucketSize;
+    }
+
+    public int getNrBuckets()
+    {
+        return counts.length;
+    }
+
+    /**
+     * Return the number of examinations of a bucket
+     *
+     * @param bucket the bucket index
+     * @return see description
+     */
+    public long getCount(final int bucket)
+    {
+        return counts[bucket];
+    }
+
+    /**
+     * Return the total number of examinations
+     *
+     * @return see description
+     */
+    public long getTotalCount()
+    {
+        long ret = 0L;
+        for (final long count: counts)
+            ret += count;
+        return ret;
+    }
+
+    /**
+     * Return the most examined buckets, most examined first
+     *
+     * @param max the maximum number of hotspots to return
+     * @return an immutable list
+     */
+    public List<Hotspot> getHotspots(final int max)
+    {
+        final List<Integer> buckets = new ArrayList<>(counts.length);
+        for (int bucket = 0; bucket < counts.length; bucket++)
+            if (counts[bucket] != 0L)
+                buckets.add(bucket);
+
+        Collections.sort(buckets, new Comparator<Integer>()
+        {
+            @Override
+            public int compare(final Integer o1, final Integer o2)
+            {
+                return Long.compare(counts[o2], counts[o1]);
+            }
+        });
+
+        final List<Integer> top = buckets.size() > max
+            ? buckets.subList(0, max) : buckets;
+
+        final Map<Integer, Map<String, Long>> rules = new HashMap<>();
+        for (final Integer bucket: top)
+            rules.put(bucket, new HashMap<String, Long>());
+
+        Map<String, Long> map;
+        String name;
+        Long previous;
+
+        for (int i = 0; i < ruleKeys.length; i++) {
+            map = rules.get((int) (ruleKeys[i] >>> 32));
+            if (map == null)
+                continue;
+            name = ruleNames.get((int) ruleKeys[i]);
+            previous = map.get(name);
+            map.put(name, previous == null ? ruleValues[i]
+                : previous + ruleValues[i]);
+        }
+
+        final ImmutableList.Builder<Hotspot> builder = ImmutableList.builder();
+        for (final Integer bucket: top)
+            builder.add(new Hotspot(bucket * bucketSize, counts[bucket],
+                sortByCount(rules.get(bucket))));
+
+        return builder.build();
+    }
+
+    /**
+     * Write this heatmap as a compact histogram
+     *
+     * <p>One line is written per examined bucket, with the first index of the
+     * bucket and the number of examinations, separated by a semicolon.</p>
+     *
+     * @param appendable the output
+     * @throws IOException failed to write to the output
+     */
+    public void writeHistogram(final Appendable appendable)
+        throws IOException
+    {
+        for (int bucket = 0; bucket < counts.length; bucket++)
+            if (counts[bucket] != 0L)
+                appendable.append(Integer.toString(bucket * bucketSize))
+                    .append(';').append(Long.toString(counts[bucket]))
+                    .append('\n');
+    }
+
+    @Override
+    public String toString()
+    {
+        final StringBuilder sb = new StringBuilder();
+        sb.append(getTotalCount()).append(" examinations in ")
+            .append(counts.length).append(" buckets of ").append(bucketSize)
+            .append(" indices\n");
+        for (final Hotspot hotspot: getHotspots(10))
+            sb.append(hotspot).append('\n');
+        return sb.toString();
+    }
+
+    private static Map<String, Long> sortByCount(final Map<String, Long> map)
+    {
+        final List<Map.Entry<String, Long>> entries
+            = new ArrayList<>(map.entrySet());
+
+        Collections.sort(entries, new Comparator<Map.Entry<String, Long>>()
+        {
+            @Override
+            public int compare(final Map.Entry<String, Long> o1,
+                final Map.Entry<String, Long> o2)
+            {
+                return Long.compare(o2.getValue(), o1.getValue());
+            }
+        });
+
+        final Map<String, Long> ret = new LinkedHashMap<>();
+        for (final Map.Entry<String, Long> entry: entries)
+            ret.put(entry.getKey(), entry.getValue());
+        return Collections.unmodifiableMap(ret);
+    }
+}
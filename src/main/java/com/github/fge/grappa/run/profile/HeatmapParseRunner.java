@@ -0,0 +1,267 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.run.profile;
+
+import com.github.fge.grappa.buffers.InputBuffer;
+import com.github.fge.grappa.matchers.MatcherType;
+import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.run.AbstractParseRunner;
+import com.github.fge.grappa.run.MatchHandler;
+import com.github.fge.grappa.run.ParsingResult;
+import com.github.fge.grappa.run.TrackingInputBuffer;
+import com.github.fge.grappa.run.context.MatcherContext;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A parse runner counting how many times each part of the input is examined
+ *
+ * <p>The input is divided into buckets of {@code bucketSize} indices. Each
+ * time a terminal matcher is run, every index it examined (the characters it
+ * consumed on success, or the characters it read before failing) counts as
+ * one examination of the bucket of this index. An input which is parsed
+ * without any backtracking therefore has a count roughly equal to the bucket
+ * size in each bucket; higher counts reveal re-scanned parts of the input.</p>
+ *
+ * <p>Each examination is also attributed to a rule: the nearest non terminal
+ * matcher with a custom label (usually, a rule method) enclosing the
+ * terminal. Rules are given dense ids when this runner is built, and counts
+ * per rule are kept in a primitive array of {@code nrBuckets * nrRules}
+ * longs, reused from one run to the next. This array is limited to {@link
+ * #DEFAULT_MAX_RULE_COUNTS} longs: running over an input which would need
+ * more throws an {@link IllegalArgumentException}; use a larger bucket size
+ * for such inputs.</p>
+ *
+ * <p>The heatmap of the last run is available using {@link #getHeatmap()}.
+ * </p>
+ *
+ * @param <V> the type of values produced by the parser
+ */
+@NotThreadSafe
+@ParametersAreNonnullByDefault
+public final class HeatmapParseRunner<V>
+    extends AbstractParseRunner<V>
+    implements MatchHandler
+{
+    private static final int INITIAL_DEPTH = 64;
+    private static final int NOT_A_RULE = -1;
+
+    /**
+     * The maximum number of per rule counts (256 MiB worth of longs)
+     */
+    public static final int DEFAULT_MAX_RULE_COUNTS = 1 << 25;
+
+    private final int bucketSize;
+    private final int maxRuleCounts;
+
+    private final MatcherIds ids;
+    // Indexed by matcher id: the rule id of this matcher, or NOT_A_RULE
+    private int[] ruleIds;
+    private final List<String> ruleNames = new ArrayList<>();
+
+    // Indexed by context level: the id of the rule enclosing this level
+    private int[] enclosingRules = new int[INITIAL_DEPTH];
+
+    private TrackingInputBuffer buffer;
+    private long[] counts = new long[0];
+    // Indexed by bucket * ruleStride + rule id
+    private long[] ruleCounts = new long[0];
+    private int ruleStride;
+
+    /**
+     * Constructor
+     *
+     * @param rule the root rule
+     * @param bucketSize the number of input indices per bucket
+     */
+    public HeatmapParseRunner(final Rule rule, final int bucketSize)
+    {
+        this(rule, bucketSize, DEFAULT_MAX_RULE_COUNTS);
+    }
+
+    @VisibleForTesting
+    HeatmapParseRunner(final Rule rule, final int bucketSize,
+        final int maxRuleCounts)
+    {
+        super(rule);
+        Preconditions.checkArgument(bucketSize > 0,
+            "bucket size must be strictly positive");
+        Preconditions.checkArgument(maxRuleCounts > 0,
+            "maximum number of rule counts must be strictly positive");
+        this.bucketSize = bucketSize;
+        this.maxRuleCounts = maxRuleCounts;
+
+        ids = new MatcherIds(rootMatcher);
+
+        final int size = ids.size();
+        ruleIds = new int[size];
+
+        for (int id = 0; id < size; id++)
+            ruleIds[id] = isRule(ids.get(id), id == ids.idOf(rootMatcher))
+                ? addRule(ids.get(id)) : NOT_A_RULE;
+    }
+
+    @Override
+    public ParsingResult<V> run(final InputBuffer inputBuffer)
+    {
+        Objects.requireNonNull(inputBuffer, "inputBuffer");
+        resetValueStack();
+
+        // One more bucket for the end of input
+        final int nrBuckets = inputBuffer.length() / bucketSize + 1;
+        counts = new long[nrBuckets];
+        ruleStride = ruleNames.size();
+
+        final int size = ruleCountsSize(nrBuckets, ruleStride);
+        if (ruleCounts.length < size)
+            ruleCounts = new long[size];
+        else
+            Arrays.fill(ruleCounts, 0, size, 0L);
+
+        buffer = new TrackingInputBuffer(inputBuffer);
+
+        final MatcherContext<V> rootContext = createRootContext(buffer, this);
+        final boolean matched = rootContext.runMatcher();
+        return createParsingResult(matched, valueStack, inputBuffer);
+    }
+
+    @Override
+    public <T> boolean match(final MatcherContext<T> context)
+    {
+        final Matcher matcher = context.getMatcher();
+        final int level = context.getLevel();
+        final int start = context.getCurrentIndex();
+
+        //noinspection ConstantConditions
+        if (matcher.getType() != MatcherType.TERMINAL) {
+            if (level >= enclosingRules.length)
+                enclosingRules = Arrays.copyOf(enclosingRules,
+                    Math.max(level + 1, enclosingRules.length << 1));
+            final int rule = ruleIdOf(matcher, level == 0);
+            enclosingRules[level] = rule != NOT_A_RULE ? rule
+                : enclosingRules[level - 1];
+            return matcher.match(context);
+        }
+
+        buffer.setHighWater(start);
+
+        final boolean match = matcher.match(context);
+        final int end = Math.max(start + 1, match ? context.getCurrentIndex()
+            : buffer.getHighWater());
+        final int rule = level == 0 ? ruleIdOf(matcher, true)
+            : enclosingRules[level - 1];
+
+        record(start, end, rule);
+        return match;
+    }
+
+    /**
+     * Return the heatmap of the last parsing run
+     *
+     * @return a heatmap
+     */
+    public Heatmap getHeatmap()
+    {
+        return new Heatmap(bucketSize, counts, ruleCounts, ruleStride,
+            ruleNames);
+    }
+
+    private void record(final int start, final int end, final int rule)
+    {
+        final int lastBucket = Math.min((end - 1) / bucketSize,
+            counts.length - 1);
+
+        int bucket = Math.min(start / bucketSize, lastBucket);
+        int from = start;
+        int to;
+        long n;
+
+        while (bucket <= lastBucket) {
+            to = bucket == lastBucket ? end : (bucket + 1) * bucketSize;
+            n = Math.max(to - from, 1);
+            counts[bucket] += n;
+            ruleCounts[bucket * ruleStride + rule] += n;
+            from = to;
+            bucket++;
+        }
+    }
+
+    private int ruleIdOf(final Matcher matcher, final boolean root)
+    {
+        final int id = ids.idOf(matcher);
+
+        if (id < ruleIds.length)
+            return ruleIds[id];
+
+        // Should not happen, but a matcher may be reached in an unusual way
+        final int oldLength = ruleIds.length;
+        ruleIds = Arrays.copyOf(ruleIds, ids.size());
+        Arrays.fill(ruleIds, oldLength, ruleIds.length, NOT_A_RULE);
+
+        if (!isRule(matcher, root))
+            return NOT_A_RULE;
+
+        final int ret = addRule(matcher);
+        ruleIds[id] = ret;
+        growRuleCounts();
+        return ret;
+    }
+
+    private int addRule(final Matcher matcher)
+    {
+        ruleNames.add(matcher.getLabel());
+        return ruleNames.size() - 1;
+    }
+
+    private void growRuleCounts()
+    {
+        final int stride = ruleNames.size();
+        final long[] newCounts
+            = new long[ruleCountsSize(counts.length, stride)];
+
+        for (int bucket = 0; bucket < counts.length; bucket++)
+            System.arraycopy(ruleCounts, bucket * ruleStride, newCounts,
+                bucket * stride, ruleStride);
+
+        ruleCounts = newCounts;
+        ruleStride = stride;
+    }
+
+    private int ruleCountsSize(final int nrBuckets, final int nrRules)
+    {
+        final long size = (long) nrBuckets * nrRules;
+        Preconditions.checkArgument(size <= maxRuleCounts,
+            "%s buckets of %s rules need %s rule counts, more than the limit"
+            + " of %s; use a larger bucket size", nrBuckets, nrRules, size,
+            maxRuleCounts);
+        return (int) size;
+    }
+
+    private static boolean isRule(final Matcher matcher, final boolean root)
+    {
+        return root || (matcher.getType() != MatcherType.TERMINAL
+            && matcher.hasCustomLabel());
+    }
+}
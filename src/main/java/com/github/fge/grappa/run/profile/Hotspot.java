@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.run.profile;
+
+import javax.annotation.concurrent.Immutable;
+import java.util.Map;
+
+/**
+ * A bucket of a {@link Heatmap}, with the rules responsible for its
+ * examinations
+ */
+@Immutable
+public final class Hotspot
+{
+    private final int startIndex;
+    private final long count;
+    private final Map<String, Long> rules;
+
+    Hotspot(final int startIndex, final long count,
+        final Map<String, Long> rules)
+    {
+        this.startIndex = startIndex;
+        this.count = count;
+        this.rules = rules;
+    }
+
+    /**
+     * Return the first input index of this bucket
+     *
+     * @return see description
+     */
+    public int getStartIndex()
+    {
+        return startIndex;
+    }
+
+    public long getCount()
+    {
+        return count;
+    }
+
+    /**
+     * Return the number of examinations per rule, highest first
+     *
+     * <p>Note that two distinct rules with the same label are merged.</p>
+     *
+     * @return an unmodifiable map (with a predictable iteration order)
+     */
+    public Map<String, Long> getRules()
+    {
+        return rules;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "index " + startIndex + ": " + count + " examinations " + rules;
+    }
+}
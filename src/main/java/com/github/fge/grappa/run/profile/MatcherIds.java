@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.run.profile;
+
+import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.matchers.wrap.ProxyMatcher;
+import com.github.fge.grappa.matchers.wrap.VarFramingMatcher;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dense ids for the matchers of a rule graph
+ *
+ * <p>Ids are assigned once, by walking the graph reachable from the root
+ * matcher when an instance is built; proxies and var framing wrappers are
+ * unwrapped, and ids are numbered from 0 in the order matchers are found.
+ * Matchers which are not reachable from the root are given an id the first
+ * time they are looked up.</p>
+ *
+ * <p>Ids are found by identity; wrappers are recorded along with the matcher
+ * they wrap the first time they are looked up, so that looking up the id of a
+ * matcher costs a single lookup. Users of this class keep their per matcher
+ * data in their own arrays, indexed by these ids.</p>
+ */
+@NotThreadSafe
+@ParametersAreNonnullByDefault
+final class MatcherIds
+{
+    private final List<Matcher> matchers = new ArrayList<>();
+    private final Map<Matcher, Integer> ids = new IdentityHashMap<>();
+
+    MatcherIds(final Matcher root)
+    {
+        final Deque<Matcher> toVisit = new ArrayDeque<>();
+
+        toVisit.push(unwrap(root));
+
+        Matcher matcher;
+
+        while (!toVisit.isEmpty()) {
+            matcher = toVisit.pop();
+            if (ids.containsKey(matcher))
+                continue;
+            register(matcher);
+            for (final Matcher child: matcher.getChildren())
+                toVisit.push(unwrap(child));
+        }
+    }
+
+    /**
+     * Return the number of ids assigned so far
+     *
+     * @return see description
+     */
+    int size()
+    {
+        return matchers.size();
+    }
+
+    /**
+     * Return the (unwrapped) matcher with a given id
+     *
+     * @param id the id
+     * @return see description
+     */
+    Matcher get(final int id)
+    {
+        return matchers.get(id);
+    }
+
+    /**
+     * Return the id of a matcher, assigning one if needed
+     *
+     * @param matcher the matcher
+     * @return see description
+     */
+    int idOf(final Matcher matcher)
+    {
+        Integer id = ids.get(matcher);
+
+        if (id != null)
+            return id;
+
+        final Matcher target = unwrap(matcher);
+
+        id = ids.get(target);
+        if (id == null)
+            id = register(target);
+        if (target != matcher)
+            ids.put(matcher, id);
+
+        return id;
+    }
+
+    private int register(final Matcher matcher)
+    {
+        final int id = matchers.size();
+
+        matchers.add(matcher);
+        ids.put(matcher, id);
+        return id;
+    }
+
+    private static Matcher unwrap(final Matcher matcher)
+    {
+        Matcher ret = matcher;
+
+        while (true) {
+            if (ret instanceof ProxyMatcher) {
+                final Matcher target = ProxyMatcher.unwrap(ret);
+                if (target == ret)
+                    return ret;
+                ret = target;
+            } else if (ret instanceof VarFramingMatcher)
+                ret = ((VarFramingMatcher) ret).getInner();
+            else
+                return ret;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.run.profile;
+
+import com.google.common.collect.ImmutableList;
+
+import javax.annotation.concurrent.Immutable;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A snapshot of the counters of a {@link ProfilingParseRunner}
+ *
+ * <p>Entries are sorted by decreasing cost: by estimated time if the matcher
+ * was timed, then by number of invocations. Matchers which were never invoked
+ * are not part of the report.</p>
+ */
+@Immutable
+public final class ProfileReport
+{
+    private static final Comparator<RuleProfile> BY_COST
+        = new Comparator<RuleProfile>()
+    {
+        @Override
+        public int compare(final RuleProfile o1, final RuleProfile o2)
+        {
+            final int ret = Long.compare(o2.getEstimatedNanos(),
+                o1.getEstimatedNanos());
+            return ret != 0 ? ret
+                : Long.compare(o2.getInvocations(), o1.getInvocations());
+        }
+    };
+
+    private final List<RuleProfile> entries;
+
+    ProfileReport(final List<RuleProfile> profiles)
+    {
+        Collections.sort(profiles, BY_COST);
+        entries = ImmutableList.copyOf(profiles);
+    }
+
+    /**
+     * Return the entries of this report, most costly first
+     *
+     * @return an immutable list
+     */
+    public List<RuleProfile> getEntries()
+    {
+        return entries;
+    }
+
+    /**
+     * Return the total number of matcher invocations
+     *
+     * @return see description
+     */
+    public long getTotalInvocations()
+    {
+        long ret = 0L;
+        for (final RuleProfile entry: entries)
+            ret += entry.getInvocations();
+        return ret;
+    }
+
+    @Override
+    public String toString()
+    {
+        final StringBuilder sb = new StringBuilder(String.format(
+            "%14s %12s %12s %12s %12s  %s%n", "est. ns", "invocations",
+            "failures", "consumed", "backtracked", "rule"));
+
+        for (final RuleProfile entry: entries)
+            sb.append(String.format("%14s %12d %12d %12d %12d  %s%n",
+                entry.getEstimatedNanos() == -1L ? "-"
+                    : Long.toString(entry.getEstimatedNanos()),
+                entry.getInvocations(), entry.getFailures(),
+                entry.getConsumedChars(), entry.getBacktrackedChars(),
+                entry.getLabel()));
+
+        return sb.toString();
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.run.profile;
+
+import com.github.fge.grappa.buffers.InputBuffer;
+import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.run.AbstractParseRunner;
+import com.github.fge.grappa.run.MatchHandler;
+import com.github.fge.grappa.run.ParsingResult;
+import com.github.fge.grappa.run.context.MatcherContext;
+import com.google.common.base.Preconditions;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A parse runner collecting per matcher counters
+ *
+ * <p>Each matcher reachable from the root rule is given a dense id when this
+ * runner is built; counters are kept in primitive arrays indexed by this id,
+ * and the id of a matcher is found with a single identity lookup, so that
+ * collecting counters costs a lookup and a few array writes per match. For each
+ * matcher, this runner counts:</p>
+ *
+ * <ul>
+ *     <li>invocations, successes and failures;</li>
+ *     <li>the number of characters consumed by successful invocations;</li>
+ *     <li>the number of backtracked characters, that is, characters consumed
+ *     by the successful children of a failed invocation.</li>
+ * </ul>
+ *
+ * <p>Optionally, one invocation out of every {@code timingSampleRate} is
+ * timed (using {@link System#nanoTime()}); the total time spent in a matcher
+ * is then estimated from its timed invocations. Times are inclusive of the
+ * time spent in children.</p>
+ *
+ * <p>Counters accumulate across parsing runs, until {@link #reset()} is
+ * called. Use {@link #snapshot()} to obtain a report.</p>
+ *
+ * @param <V> the type of values produced by the parser
+ */
+@NotThreadSafe
+@ParametersAreNonnullByDefault
+public final class ProfilingParseRunner<V>
+    extends AbstractParseRunner<V>
+    implements MatchHandler
+{
+    private static final int INITIAL_DEPTH = 64;
+
+    private final MatcherIds ids;
+
+    private long[] invocations;
+    private long[] successes;
+    private long[] consumed;
+    private long[] backtracked;
+    private long[] timedInvocations;
+    private long[] timedNanos;
+
+    private final int timingSampleRate;
+    private int timingCountdown;
+
+    // Indexed by context level: the farthest index reached by a successful
+    // child of the invocation at this level
+    private int[] reach = new int[INITIAL_DEPTH];
+
+    /**
+     * Constructor
+     *
+     * @param rule the root rule
+     * @param timingSampleRate time one invocation out of this many; 0 disables
+     * timings
+     */
+    public ProfilingParseRunner(final Rule rule, final int timingSampleRate)
+    {
+        super(rule);
+        Preconditions.checkArgument(timingSampleRate >= 0,
+            "sample rate cannot be negative");
+        this.timingSampleRate = timingSampleRate;
+        timingCountdown = timingSampleRate;
+
+        ids = new MatcherIds(rootMatcher);
+
+        final int size = ids.size();
+        invocations = new long[size];
+        successes = new long[size];
+        consumed = new long[size];
+        backtracked = new long[size];
+        timedInvocations = new long[size];
+        timedNanos = new long[size];
+    }
+
+    /**
+     * Constructor without timings
+     *
+     * @param rule the root rule
+     */
+    public ProfilingParseRunner(final Rule rule)
+    {
+        this(rule, 0);
+    }
+
+    @Override
+    public ParsingResult<V> run(final InputBuffer inputBuffer)
+    {
+        Objects.requireNonNull(inputBuffer, "inputBuffer");
+        resetValueStack();
+
+        final MatcherContext<V> rootContext
+            = createRootContext(inputBuffer, this);
+        final boolean matched = rootContext.runMatcher();
+        return createParsingResult(matched, rootContext);
+    }
+
+    @Override
+    public <T> boolean match(final MatcherContext<T> context)
+    {
+        final Matcher matcher = context.getMatcher();
+        final int id = idOf(matcher);
+        final int level = context.getLevel();
+        final int start = context.getCurrentIndex();
+
+        if (level >= reach.length)
+            reach = Arrays.copyOf(reach, Math.max(level + 1,
+                reach.length << 1));
+        reach[level] = start;
+
+        invocations[id]++;
+
+        final boolean timed = timingSampleRate != 0
+            && --timingCountdown <= 0;
+        if (timed)
+            timingCountdown = timingSampleRate;
+        final long startTime = timed ? System.nanoTime() : 0L;
+
+        @SuppressWarnings("ConstantConditions")
+        final boolean match = matcher.match(context);
+
+        if (timed) {
+            timedNanos[id] += System.nanoTime() - startTime;
+            timedInvocations[id]++;
+        }
+
+        if (match) {
+            final int end = context.getCurrentIndex();
+            successes[id]++;
+            consumed[id] += end - start;
+            if (level > 0 && end > reach[level - 1])
+                reach[level - 1] = end;
+        } else {
+            backtracked[id] += reach[level] - start;
+        }
+
+        return match;
+    }
+
+    /**
+     * Return a report of the counters collected so far
+     *
+     * @return a report
+     */
+    public ProfileReport snapshot()
+    {
+        final int size = ids.size();
+        final List<RuleProfile> profiles = new ArrayList<>(size);
+
+        long estimatedNanos;
+
+        for (int id = 0; id < size; id++) {
+            if (invocations[id] == 0L)
+                continue;
+            estimatedNanos = timedInvocations[id] == 0L ? -1L
+                : timedNanos[id] * invocations[id] / timedInvocations[id];
+            profiles.add(new RuleProfile(ids.get(id), invocations[id],
+                successes[id], consumed[id], backtracked[id], estimatedNanos));
+        }
+
+        return new ProfileReport(profiles);
+    }
+
+    /**
+     * Reset all counters
+     */
+    public void reset()
+    {
+        Arrays.fill(invocations, 0L);
+        Arrays.fill(successes, 0L);
+        Arrays.fill(consumed, 0L);
+        Arrays.fill(backtracked, 0L);
+        Arrays.fill(timedInvocations, 0L);
+        Arrays.fill(timedNanos, 0L);
+        timingCountdown = timingSampleRate;
+    }
+
+    private int idOf(final Matcher matcher)
+    {
+        final int ret = ids.idOf(matcher);
+
+        // Should not happen, but a matcher may be reached in an unusual way
+        if (ret >= invocations.length) {
+            final int size = ids.size();
+            invocations = Arrays.copyOf(invocations, size);
+            successes = Arrays.copyOf(successes, size);
+            consumed = Arrays.copyOf(consumed, size);
+            backtracked = Arrays.copyOf(backtracked, size);
+            timedInvocations = Arrays.copyOf(timedInvocations, size);
+            timedNanos = Arrays.copyOf(timedNanos, size);
+        }
+
+        return ret;
+    }
+}
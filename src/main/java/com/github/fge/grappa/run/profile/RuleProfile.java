@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.run.profile;
+
+import com.github.fge.grappa.matchers.MatcherType;
+import com.github.fge.grappa.matchers.base.Matcher;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * The counters of a single matcher in a {@link ProfileReport}
+ */
+@Immutable
+public final class RuleProfile
+{
+    private final String label;
+    private final MatcherType type;
+    private final String className;
+    private final long invocations;
+    private final long successes;
+    private final long consumedChars;
+    private final long backtrackedChars;
+    private final long estimatedNanos;
+
+    RuleProfile(final Matcher matcher, final long invocations,
+        final long successes, final long consumedChars,
+        final long backtrackedChars, final long estimatedNanos)
+    {
+        label = matcher.getLabel();
+        type = matcher.getType();
+        className = matcher.getClass().getSimpleName();
+        this.invocations = invocations;
+        this.successes = successes;
+        this.consumedChars = consumedChars;
+        this.backtrackedChars = backtrackedChars;
+        this.estimatedNanos = estimatedNanos;
+    }
+
+    public String getLabel()
+    {
+        return label;
+    }
+
+    public MatcherType getType()
+    {
+        return type;
+    }
+
+    public String getClassName()
+    {
+        return className;
+    }
+
+    public long getInvocations()
+    {
+        return invocations;
+    }
+
+    public long getSuccesses()
+    {
+        return successes;
+    }
+
+    public long getFailures()
+    {
+        return invocations - successes;
+    }
+
+    public long getConsumedChars()
+    {
+        return consumedChars;
+    }
+
+    public long getBacktrackedChars()
+    {
+        return backtrackedChars;
+    }
+
+    /**
+     * Return the estimated total time spent in this matcher, in nanoseconds
+     *
+     * <p>This time includes the time spent in children of this matcher.</p>
+     *
+     * @return the estimated time, or -1 if no invocation of this matcher was
+     * timed
+     */
+    public long getEstimatedNanos()
+    {
+        return estimatedNanos;
+    }
+
+    @Override
+    public String toString()
+    {
+        return label + " (" + className + "): " + invocations
+            + " invocations, " + successes + " successes, " + consumedChars
+            + " chars consumed, " + backtrackedChars + " chars backtracked"
+            + (estimatedNanos == -1L ? "" : ", ~" + estimatedNanos + " ns");
+    }
+}
@@ -0,0 +1,139 @@
+package com.github.fge.grappa.run.trace;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/*
+ * Constants and encoding helpers for the binary trace format
+ *
+ * A binary trace file is laid out as follows:
+ *
+ * - a header: the MAGIC int, the VERSION byte;
+ * - node records; each node record is a tag byte (NODE_FAILURE or
+ *   NODE_SUCCESS) followed by varints: level, nodeId (zigzag, delta from the
+ *   node id of the previous record), nodeId - parentId, matcherId, start index
+ *   (zigzag, delta from the start index of the previous record),
+ *   end - start (zigzag), time in nanoseconds;
+ * - an END_OF_NODES tag byte;
+ * - the parse information: start time (long), then varints: number of levels,
+ *   number of matchers, number of lines, number of chars, number of nodes;
+ * - matchers: a varint count, then, for each, varint id, strings for class
+ *   name, type and name;
+ * - the input text, as a string.
+ *
+ * Strings are written as a varint length followed by UTF-8 bytes.
+ */
+final class BinaryTrace
+{
+    static final int MAGIC = 0x47525452; // "GRTR"
+    static final byte VERSION = 1;
+
+    static final byte NODE_FAILURE = 0;
+    static final byte NODE_SUCCESS = 1;
+    static final byte END_OF_NODES = 2;
+
+    // Tag byte, six varints of at most 5 bytes, one varint of at most 10
+    static final int MAX_RECORD_SIZE = 1 + 6 * 5 + 10;
+
+    private BinaryTrace()
+    {
+        throw new Error("nice try!");
+    }
+
+    static int zigzag(final int value)
+    {
+        return value << 1 ^ value >> 31;
+    }
+
+    static int unzigzag(final int value)
+    {
+        return value >>> 1 ^ -(value & 1);
+    }
+
+    static void putVarint(final ByteBuffer buffer, final int value)
+    {
+        int v = value;
+        while ((v & ~0x7f) != 0) {
+            buffer.put((byte) (v & 0x7f | 0x80));
+            v >>>= 7;
+        }
+        buffer.put((byte) v);
+    }
+
+    static void putVarlong(final ByteBuffer buffer, final long value)
+    {
+        long v = value;
+        while ((v & ~0x7fL) != 0L) {
+            buffer.put((byte) (v & 0x7fL | 0x80L));
+            v >>>= 7;
+        }
+        buffer.put((byte) v);
+    }
+
+    static void writeVarint(final DataOutput out, final int value)
+        throws IOException
+    {
+        int v = value;
+        while ((v & ~0x7f) != 0) {
+            out.writeByte(v & 0x7f | 0x80);
+            v >>>= 7;
+        }
+        out.writeByte(v);
+    }
+
+    static void writeString(final DataOutput out, final String s)
+        throws IOException
+    {
+        final byte[] bytes = s.getBytes(UTF_8);
+        writeVarint(out, bytes.length);
+        out.write(bytes);
+    }
+
+    static int readVarint(final DataInput in)
+        throws IOException
+    {
+        int ret = 0;
+        int shift = 0;
+        byte b;
+
+        do {
+            if (shift > 28)
+                throw new IOException("malformed varint");
+            b = in.readByte();
+            ret |= (b & 0x7f) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+
+        return ret;
+    }
+
+    static long readVarlong(final DataInput in)
+        throws IOException
+    {
+        long ret = 0L;
+        int shift = 0;
+        byte b;
+
+        do {
+            if (shift > 63)
+                throw new IOException("malformed varlong");
+            b = in.readByte();
+            ret |= (long) (b & 0x7f) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+
+        return ret;
+    }
+
+    static String readString(final DataInput in)
+        throws IOException
+    {
+        final byte[] bytes = new byte[readVarint(in)];
+        in.readFully(bytes);
+        return new String(bytes, UTF_8);
+    }
+}
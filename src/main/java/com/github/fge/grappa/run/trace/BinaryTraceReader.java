@@ -0,0 +1,179 @@
+package com.github.fge.grappa.run.trace;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Converter of binary traces into the zip file layout of {@link
+ * TracingListener}
+ *
+ * <p>The resulting zip file contains the same four entries ({@code
+ * nodes.csv}, {@code matchers.csv}, {@code input.txt} and {@code info.csv})
+ * with the same format as the one produced by {@link TracingListener}, and can
+ * therefore be used with the same tools.</p>
+ *
+ * @see BinaryTracingListener
+ */
+@ParametersAreNonnullByDefault
+public final class BinaryTraceReader
+{
+    private static final Map<String, ?> ENV
+        = Collections.singletonMap("create", "true");
+    private static final String NODE_PATH = "/nodes.csv";
+    private static final String MATCHERS_PATH = "/matchers.csv";
+    private static final String INPUT_TEXT_PATH = "/input.txt";
+    private static final String INFO_PATH = "/info.csv";
+
+    private BinaryTraceReader()
+    {
+        throw new Error("nice try!");
+    }
+
+    /**
+     * Convert a binary trace into a zip file
+     *
+     * @param tracePath the path to the binary trace
+     * @param zipPath the path to the zip file; it is replaced if it exists
+     * @throws IOException failed to read the trace, or to write the zip file
+     */
+    public static void toZip(final Path tracePath, final Path zipPath)
+        throws IOException
+    {
+        Files.deleteIfExists(zipPath);
+
+        final URI uri = URI.create("jar:" + zipPath.toUri());
+
+        try (
+            final DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(tracePath)));
+            final FileSystem zipfs = FileSystems.newFileSystem(uri, ENV);
+        ) {
+            if (in.readInt() != BinaryTrace.MAGIC)
+                throw new IOException("not a binary trace file");
+            final byte version = in.readByte();
+            if (version != BinaryTrace.VERSION)
+                throw new IOException("unsupported trace version " + version);
+
+            copyNodes(in, zipfs);
+
+            final long startTime = in.readLong();
+            final int nrLevels = BinaryTrace.readVarint(in);
+            final int nrMatchers = BinaryTrace.readVarint(in);
+            final int nrLines = BinaryTrace.readVarint(in);
+            final int nrChars = BinaryTrace.readVarint(in);
+            final int nrNodes = BinaryTrace.readVarint(in);
+
+            copyMatchers(in, zipfs);
+
+            final String input = BinaryTrace.readString(in);
+            try (
+                final BufferedWriter writer = Files.newBufferedWriter(
+                    zipfs.getPath(INPUT_TEXT_PATH), UTF_8);
+            ) {
+                writer.write(input);
+            }
+
+            final StringBuilder sb = new StringBuilder();
+            sb.append(startTime).append(';')
+                .append(nrLevels).append(';')
+                .append(nrMatchers).append(';')
+                .append(nrLines).append(';')
+                .append(nrChars).append(';')
+                .append(input.codePointCount(0, input.length())).append(';')
+                .append(nrNodes).append('\n');
+            try (
+                final BufferedWriter writer = Files.newBufferedWriter(
+                    zipfs.getPath(INFO_PATH), UTF_8);
+            ) {
+                writer.append(sb);
+            }
+        }
+    }
+
+    private static void copyNodes(final DataInputStream in,
+        final FileSystem zipfs)
+        throws IOException
+    {
+        final StringBuilder sb = new StringBuilder();
+
+        int nodeId = 0;
+        int startIndex = 0;
+
+        byte tag;
+        int level;
+        int parentId;
+        int matcherId;
+        int endIndex;
+        long time;
+
+        try (
+            final BufferedWriter writer = Files.newBufferedWriter(
+                zipfs.getPath(NODE_PATH), UTF_8);
+        ) {
+            while (true) {
+                tag = in.readByte();
+                if (tag == BinaryTrace.END_OF_NODES)
+                    break;
+                if (tag != BinaryTrace.NODE_SUCCESS
+                    && tag != BinaryTrace.NODE_FAILURE)
+                    throw new IOException("malformed trace (unknown tag "
+                        + tag + ')');
+
+                level = BinaryTrace.readVarint(in);
+                nodeId += BinaryTrace.unzigzag(BinaryTrace.readVarint(in));
+                parentId = nodeId - BinaryTrace.readVarint(in);
+                matcherId = BinaryTrace.readVarint(in);
+                startIndex += BinaryTrace.unzigzag(BinaryTrace.readVarint(in));
+                endIndex = startIndex
+                    + BinaryTrace.unzigzag(BinaryTrace.readVarint(in));
+                time = BinaryTrace.readVarlong(in);
+
+                // parent;id;level;success;matcherId;start;end;time
+                sb.setLength(0);
+                sb.append(parentId).append(';')
+                    .append(nodeId).append(';')
+                    .append(level).append(';')
+                    .append(tag).append(';')
+                    .append(matcherId).append(';')
+                    .append(startIndex).append(';')
+                    .append(endIndex).append(';')
+                    .append(time).append('\n');
+                writer.append(sb);
+            }
+        }
+    }
+
+    private static void copyMatchers(final DataInputStream in,
+        final FileSystem zipfs)
+        throws IOException
+    {
+        final StringBuilder sb = new StringBuilder();
+        final int count = BinaryTrace.readVarint(in);
+
+        try (
+            final BufferedWriter writer = Files.newBufferedWriter(
+                zipfs.getPath(MATCHERS_PATH), UTF_8);
+        ) {
+            for (int i = 0; i < count; i++) {
+                sb.setLength(0);
+                sb.append(BinaryTrace.readVarint(in)).append(';')
+                    .append(BinaryTrace.readString(in)).append(';')
+                    .append(BinaryTrace.readString(in)).append(';')
+                    .append(BinaryTrace.readString(in)).append('\n');
+                writer.append(sb);
+            }
+        }
+    }
+}
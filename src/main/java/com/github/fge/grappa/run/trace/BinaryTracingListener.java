@@ -0,0 +1,399 @@
+package com.github.fge.grappa.run.trace;
+
+import com.github.fge.grappa.buffers.InputBuffer;
+import com.github.fge.grappa.exceptions.GrappaException;
+import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.run.DirectParseRunnerListener;
+import com.github.fge.grappa.run.ParsingResult;
+import com.github.fge.grappa.run.context.MatcherContext;
+
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * A tracing listener writing a compact binary trace
+ *
+ * <p>This listener records the same information as {@link TracingListener},
+ * but node records are encoded as varints into pre-allocated buffers; full
+ * buffers are written to the trace file by a background thread. Per level
+ * state is kept in primitive arrays.</p>
+ *
+ * <p>Use {@link BinaryTraceReader} to convert a binary trace into the zip
+ * file layout produced by {@link TracingListener}.</p>
+ *
+ * <p>Optionally, only subtrees of matchers with given labels are recorded. The
+ * root of each recorded subtree then has no parent (its parent node id is
+ * -1, as for the root of a full trace).</p>
+ *
+ * <p>Like {@link TracingListener}, an instance of this listener can only be
+ * used for one parsing run.</p>
+ *
+ * <p>The trace is completed, the background thread stopped and the trace file
+ * closed at the end of the parsing run. If the run does not complete (for
+ * instance, because an action throws an exception), these resources are only
+ * released by {@link #close()}; you should therefore close this listener once
+ * the run is over, whatever its outcome:</p>
+ *
+ * <pre>
+ *     try (
+ *         final BinaryTracingListener&lt;Object&gt; listener
+ *             = new BinaryTracingListener&lt;&gt;(tracePath);
+ *     ) {
+ *         runner.registerListener(listener);
+ *         runner.run(input);
+ *     }
+ * </pre>
+ *
+ * @param <V> the type of values produced by the parser
+ */
+@NotThreadSafe
+@ParametersAreNonnullByDefault
+public final class BinaryTracingListener<V>
+    extends DirectParseRunnerListener<V>
+    implements Closeable
+{
+    static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+    private static final int NR_BUFFERS = 4;
+    private static final int INITIAL_DEPTH = 64;
+
+    private final BlockingQueue<ByteBuffer> freeBuffers;
+    private final BlockingQueue<ByteBuffer> fullBuffers;
+    private final ByteBuffer endMarker = ByteBuffer.allocate(0);
+
+    private final FileChannel channel;
+    private final Thread writerThread;
+    private volatile IOException writeError = null;
+    private boolean closed = false;
+
+    private ByteBuffer buffer;
+
+    private final Map<Matcher, MatcherDescriptor> matcherDescriptors
+        = new IdentityHashMap<>();
+    private final List<MatcherDescriptor> descriptors = new ArrayList<>();
+
+    private int[] nodeIds = new int[INITIAL_DEPTH];
+    private int[] matcherIds = new int[INITIAL_DEPTH];
+    private int[] startIndices = new int[INITIAL_DEPTH];
+    private long[] startTimes = new long[INITIAL_DEPTH];
+    private int nrLevels = 0;
+
+    private int nextNodeId = 0;
+    private int lastNodeId = 0;
+    private int lastStartIndex = 0;
+
+    private InputBuffer inputBuffer = null;
+    private int nrChars = 0;
+    private long startTime = 0L;
+
+    @Nullable
+    private final Set<String> labels;
+    // Level of the root of the subtree being recorded, or -1
+    private int subtreeLevel = -1;
+
+    /**
+     * Constructor
+     *
+     * @param tracePath the path of the trace file (overwritten if it exists)
+     * @param bufferSize the size of a single buffer
+     * @param labels only record subtrees of matchers with these labels; if
+     * null, record everything
+     * @throws IOException failed to open the trace file
+     */
+    public BinaryTracingListener(final Path tracePath, final int bufferSize,
+        @Nullable final Set<String> labels)
+        throws IOException
+    {
+        if (bufferSize < BinaryTrace.MAX_RECORD_SIZE)
+            throw new IllegalArgumentException("buffer size is too small");
+
+        this.labels = labels;
+
+        channel = FileChannel.open(tracePath, StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+
+        freeBuffers = new ArrayBlockingQueue<>(NR_BUFFERS);
+        fullBuffers = new ArrayBlockingQueue<>(NR_BUFFERS + 1);
+
+        for (int i = 1; i < NR_BUFFERS; i++)
+            freeBuffers.add(ByteBuffer.allocateDirect(bufferSize));
+
+        buffer = ByteBuffer.allocateDirect(bufferSize);
+        buffer.putInt(BinaryTrace.MAGIC).put(BinaryTrace.VERSION);
+
+        writerThread = new Thread(new Writer(), "grappa-trace-writer");
+        writerThread.setDaemon(true);
+    }
+
+    /**
+     * Constructor recording all nodes
+     *
+     * @param tracePath the path of the trace file (overwritten if it exists)
+     * @param bufferSize the size of a single buffer
+     * @throws IOException failed to open the trace file
+     */
+    public BinaryTracingListener(final Path tracePath, final int bufferSize)
+        throws IOException
+    {
+        this(tracePath, bufferSize, null);
+    }
+
+    /**
+     * Constructor with a default buffer size of 64 KiB
+     *
+     * @param tracePath the path of the trace file
+     * @throws IOException failed to open the trace file
+     */
+    public BinaryTracingListener(final Path tracePath)
+        throws IOException
+    {
+        this(tracePath, DEFAULT_BUFFER_SIZE, null);
+    }
+
+    @Override
+    public void beforeParse(final MatcherContext<V> context)
+    {
+        inputBuffer = context.getInputBuffer();
+        nrChars = inputBuffer.length();
+        startTime = System.currentTimeMillis();
+        writerThread.start();
+    }
+
+    @Override
+    public void beforeMatch(final MatcherContext<V> context)
+    {
+        final Matcher matcher = context.getMatcher();
+        final int level = context.getLevel();
+
+        if (labels != null && subtreeLevel == -1) {
+            //noinspection ConstantConditions
+            if (!labels.contains(matcher.getLabel()))
+                return;
+            subtreeLevel = level;
+        }
+
+        MatcherDescriptor descriptor = matcherDescriptors.get(matcher);
+        if (descriptor == null) {
+            //noinspection ConstantConditions
+            descriptor = new MatcherDescriptor(descriptors.size(), matcher);
+            matcherDescriptors.put(matcher, descriptor);
+            descriptors.add(descriptor);
+        }
+
+        if (level >= nodeIds.length) {
+            final int size = nodeIds.length << 1;
+            nodeIds = Arrays.copyOf(nodeIds, size);
+            matcherIds = Arrays.copyOf(matcherIds, size);
+            startIndices = Arrays.copyOf(startIndices, size);
+            startTimes = Arrays.copyOf(startTimes, size);
+        }
+
+        if (level >= nrLevels)
+            nrLevels = level + 1;
+
+        nodeIds[level] = nextNodeId++;
+        matcherIds[level] = descriptor.getId();
+        startIndices[level] = Math.min(nrChars, context.getCurrentIndex());
+        startTimes[level] = System.nanoTime();
+    }
+
+    @Override
+    public void matchSuccess(final MatcherContext<V> context)
+    {
+        writeNode(context, BinaryTrace.NODE_SUCCESS,
+            Math.min(nrChars, context.getCurrentIndex()));
+    }
+
+    @Override
+    public void matchFailure(final MatcherContext<V> context)
+    {
+        writeNode(context, BinaryTrace.NODE_FAILURE,
+            context.getCurrentIndex());
+    }
+
+    @Override
+    public void afterParse(final ParsingResult<V> result)
+    {
+        ensureRoom(1);
+        buffer.put(BinaryTrace.END_OF_NODES);
+        handOff();
+        fullBuffers.add(endMarker);
+
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw cleanup(new IOException("interrupted while writing trace",
+                e));
+        }
+
+        if (writeError != null)
+            throw cleanup(writeError);
+
+        try (
+            final DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Channels.newOutputStream(channel)));
+        ) {
+            out.writeLong(startTime);
+            BinaryTrace.writeVarint(out, nrLevels);
+            BinaryTrace.writeVarint(out, descriptors.size());
+            BinaryTrace.writeVarint(out, inputBuffer.getLineCount());
+            BinaryTrace.writeVarint(out, nrChars);
+            BinaryTrace.writeVarint(out, nextNodeId);
+
+            BinaryTrace.writeVarint(out, descriptors.size());
+            for (final MatcherDescriptor descriptor: descriptors) {
+                BinaryTrace.writeVarint(out, descriptor.getId());
+                BinaryTrace.writeString(out, descriptor.getClassName());
+                BinaryTrace.writeString(out, descriptor.getType().name());
+                BinaryTrace.writeString(out, descriptor.getName());
+            }
+
+            BinaryTrace.writeString(out, inputBuffer.extract(0, nrChars));
+            out.flush();
+        } catch (IOException e) {
+            throw cleanup(e);
+        }
+
+        closed = true;
+    }
+
+    /**
+     * Release the resources of this listener
+     *
+     * <p>If the parsing run did not complete, the background writer thread is
+     * stopped and the (incomplete) trace file is closed. This method has no
+     * effect if the run completed, or if this method was already called.</p>
+     *
+     * @throws IOException failed to close the trace file
+     */
+    @Override
+    public void close()
+        throws IOException
+    {
+        if (closed)
+            return;
+
+        closed = true;
+        writerThread.interrupt();
+        channel.close();
+    }
+
+    private void writeNode(final MatcherContext<V> context, final byte tag,
+        final int endIndex)
+    {
+        final long time = System.nanoTime();
+
+        if (labels != null && subtreeLevel == -1)
+            return;
+
+        final int level = context.getLevel();
+        final int nodeId = nodeIds[level];
+        final int parentId = level == 0 || level == subtreeLevel ? -1
+            : nodeIds[level - 1];
+
+        if (level == subtreeLevel)
+            subtreeLevel = -1;
+
+        final int startIndex = startIndices[level];
+
+        ensureRoom(BinaryTrace.MAX_RECORD_SIZE);
+
+        buffer.put(tag);
+        BinaryTrace.putVarint(buffer, level);
+        BinaryTrace.putVarint(buffer, BinaryTrace.zigzag(nodeId - lastNodeId));
+        BinaryTrace.putVarint(buffer, nodeId - parentId);
+        BinaryTrace.putVarint(buffer, matcherIds[level]);
+        BinaryTrace.putVarint(buffer,
+            BinaryTrace.zigzag(startIndex - lastStartIndex));
+        BinaryTrace.putVarint(buffer,
+            BinaryTrace.zigzag(endIndex - startIndex));
+        BinaryTrace.putVarlong(buffer, time - startTimes[level]);
+
+        lastNodeId = nodeId;
+        lastStartIndex = startIndex;
+    }
+
+    private void ensureRoom(final int size)
+    {
+        if (buffer.remaining() < size)
+            handOff();
+    }
+
+    private void handOff()
+    {
+        if (writeError != null)
+            throw cleanup(writeError);
+
+        buffer.flip();
+        fullBuffers.add(buffer);
+
+        try {
+            buffer = freeBuffers.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw cleanup(new IOException("interrupted while writing trace",
+                e));
+        }
+    }
+
+    private GrappaException cleanup(final IOException e)
+    {
+        final GrappaException ret
+            = new GrappaException("failed to write trace", e);
+
+        try {
+            close();
+        } catch (IOException e2) {
+            ret.addSuppressed(e2);
+        }
+
+        return ret;
+    }
+
+    private final class Writer
+        implements Runnable
+    {
+        @Override
+        public void run()
+        {
+            ByteBuffer toWrite;
+
+            try {
+                while (true) {
+                    toWrite = fullBuffers.take();
+                    if (toWrite == endMarker)
+                        return;
+                    while (toWrite.hasRemaining())
+                        channel.write(toWrite);
+                    toWrite.clear();
+                    freeBuffers.add(toWrite);
+                }
+            } catch (IOException e) {
+                writeError = e;
+                // Unblock the producer; its buffers are discarded anyway
+                freeBuffers.add(ByteBuffer.allocate(BinaryTrace
+                    .MAX_RECORD_SIZE));
+            } catch (InterruptedException ignored) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
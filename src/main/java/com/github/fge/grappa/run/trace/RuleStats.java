@@ -0,0 +1,120 @@
+package com.github.fge.grappa.run.trace;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Statistics for a single matcher of a trace
+ *
+ * <p>Note that for recursive rules, the inclusive time of nested invocations
+ * is counted once per invocation; the inclusive time of such rules can
+ * therefore exceed the total parsing time.</p>
+ *
+ * @see TraceAnalysis
+ */
+@NotThreadSafe
+public final class RuleStats
+{
+    private final int id;
+    private final String className;
+    private final String type;
+    private final String name;
+
+    private long invocations = 0L;
+    private long failures = 0L;
+    private long reinvocations = 0L;
+    private long selfNanos = 0L;
+    private long inclusiveNanos = 0L;
+
+    RuleStats(final int id, final String className, final String type,
+        final String name)
+    {
+        this.id = id;
+        this.className = className;
+        this.type = type;
+        this.name = name;
+    }
+
+    void addNode(final boolean success, final long selfTime,
+        final long inclusiveTime)
+    {
+        invocations++;
+        if (!success)
+            failures++;
+        selfNanos += selfTime;
+        inclusiveNanos += inclusiveTime;
+    }
+
+    void addReinvocation()
+    {
+        reinvocations++;
+    }
+
+    public int getId()
+    {
+        return id;
+    }
+
+    public String getClassName()
+    {
+        return className;
+    }
+
+    public String getType()
+    {
+        return type;
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    public long getInvocations()
+    {
+        return invocations;
+    }
+
+    public long getFailures()
+    {
+        return failures;
+    }
+
+    /**
+     * Return the number of invocations at an input index where this matcher
+     * had already been invoked
+     *
+     * <p>A high number makes this rule a candidate for memoization.</p>
+     *
+     * @return see description
+     */
+    public long getReinvocations()
+    {
+        return reinvocations;
+    }
+
+    /**
+     * Return the time spent in this matcher, excluding its children
+     *
+     * @return the time, in nanoseconds
+     */
+    public long getSelfNanos()
+    {
+        return selfNanos;
+    }
+
+    /**
+     * Return the time spent in this matcher, including its children
+     *
+     * @return the time, in nanoseconds
+     */
+    public long getInclusiveNanos()
+    {
+        return inclusiveNanos;
+    }
+
+    @Override
+    public String toString()
+    {
+        return name + " (" + className + ')';
+    }
+}
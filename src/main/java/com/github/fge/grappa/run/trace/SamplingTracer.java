@@ -0,0 +1,263 @@
+package com.github.fge.grappa.run.trace;
+
+import com.github.fge.grappa.buffers.CharSequenceInputBuffer;
+import com.github.fge.grappa.buffers.InputBuffer;
+import com.github.fge.grappa.exceptions.GrappaException;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.run.ListeningParseRunner;
+import com.github.fge.grappa.run.ParseRunner;
+import com.github.fge.grappa.run.ParsingResult;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A parse runner tracing only some of its parsing runs
+ *
+ * <p>Most runs of this runner are not traced. A run is traced if:</p>
+ *
+ * <ul>
+ *     <li>it is the Nth run since the previous sampled run, if a {@link
+ *     #setSampleRate(int) sample rate} is set;</li>
+ *     <li>it took longer than the {@link #setLatencyThreshold(long, TimeUnit)
+ *     latency threshold}, if set; the input is then parsed a second time,
+ *     with tracing enabled.</li>
+ * </ul>
+ *
+ * <p>Traces are written using a {@link BinaryTracingListener} (see {@link
+ * BinaryTraceReader} to convert them) into a directory; only the most recent
+ * {@code maxTraces} traces are kept, older traces are deleted. Traces can
+ * also be {@link #setLabels(Set) restricted} to the subtrees of some
+ * rules.</p>
+ *
+ * <p>Trace files are named {@code trace-NNNNNN.bin}. Traces already present
+ * in the directory when an instance is built (left by a previous instance,
+ * for example before a restart) are numbered before new traces, and count
+ * towards the maximum number of traces; a new trace file is always created
+ * under a name which no other file uses, so that two instances writing to the
+ * same directory never overwrite each other's traces.</p>
+ *
+ * <p>Note that a slow run is parsed again <strong>synchronously</strong>, in
+ * the thread which called {@code run()}: this call therefore takes (more than)
+ * twice as long, and the parser actions are run twice. This cannot be done in
+ * another thread, since the rule (like all rules) is not thread safe; if this
+ * is a problem, use a sample rate only.</p>
+ *
+ * @param <V> the type of values produced by the parser
+ */
+@NotThreadSafe
+@ParametersAreNonnullByDefault
+public final class SamplingTracer<V>
+    implements ParseRunner<V>
+{
+    private static final String TRACE_FILE_FORMAT = "trace-%06d.bin";
+    private static final Pattern TRACE_FILE_NAME
+        = Pattern.compile("trace-(\\d+)\\.bin");
+
+    private final Rule rule;
+    private final ListeningParseRunner<V> runner;
+    private final Path directory;
+    private final int maxTraces;
+
+    private final Deque<Path> traces = new ArrayDeque<>();
+    private long nrTraces = 0L;
+
+    private int sampleRate = 0;
+    private long nrRuns = 0L;
+    private long latencyThreshold = -1L;
+    @Nullable
+    private Set<String> labels = null;
+
+    /**
+     * Constructor
+     *
+     * <p>No run is traced until you set a sample rate and/or a latency
+     * threshold.</p>
+     *
+     * @param rule the root rule
+     * @param directory the directory where traces are written
+     * @param maxTraces the maximum number of traces to keep
+     * @throws GrappaException failed to list the existing traces
+     */
+    public SamplingTracer(final Rule rule, final Path directory,
+        final int maxTraces)
+    {
+        this.rule = Objects.requireNonNull(rule, "rule");
+        this.directory = Objects.requireNonNull(directory, "directory");
+        Preconditions.checkArgument(maxTraces > 0,
+            "maximum number of traces must be strictly positive");
+        this.maxTraces = maxTraces;
+        runner = new ListeningParseRunner<>(rule);
+        findExistingTraces();
+    }
+
+    /**
+     * Trace one run out of every {@code sampleRate}
+     *
+     * @param sampleRate the sample rate; 0 disables sampling
+     */
+    public void setSampleRate(final int sampleRate)
+    {
+        Preconditions.checkArgument(sampleRate >= 0,
+            "sample rate cannot be negative");
+        this.sampleRate = sampleRate;
+    }
+
+    /**
+     * Trace runs slower than the given threshold
+     *
+     * @param threshold the threshold; a negative value disables it
+     * @param unit the time unit of the threshold
+     */
+    public void setLatencyThreshold(final long threshold, final TimeUnit unit)
+    {
+        latencyThreshold = threshold < 0L ? -1L : unit.toNanos(threshold);
+    }
+
+    /**
+     * Only record subtrees of rules with these labels
+     *
+     * @param labels the labels; null to record whole runs
+     */
+    public void setLabels(@Nullable final Set<String> labels)
+    {
+        this.labels = labels == null ? null : ImmutableSet.copyOf(labels);
+    }
+
+    /**
+     * Return the traces currently kept, oldest first
+     *
+     * @return an immutable list
+     */
+    public List<Path> getTraces()
+    {
+        return ImmutableList.copyOf(traces);
+    }
+
+    @Override
+    public ParsingResult<V> run(final CharSequence input)
+    {
+        Objects.requireNonNull(input, "input");
+        return run(new CharSequenceInputBuffer(input));
+    }
+
+    @Override
+    public ParsingResult<V> run(final InputBuffer inputBuffer)
+    {
+        Objects.requireNonNull(inputBuffer, "inputBuffer");
+
+        nrRuns++;
+
+        if (sampleRate != 0 && nrRuns % sampleRate == 0L)
+            return runTraced(inputBuffer);
+
+        final long start = System.nanoTime();
+        final ParsingResult<V> result = runner.run(inputBuffer);
+
+        if (latencyThreshold >= 0L
+            && System.nanoTime() - start > latencyThreshold)
+            runTraced(inputBuffer);
+
+        return result;
+    }
+
+    private ParsingResult<V> runTraced(final InputBuffer inputBuffer)
+    {
+        final Path path = createTraceFile();
+        final ListeningParseRunner<V> tracedRunner
+            = new ListeningParseRunner<>(rule);
+        final ParsingResult<V> result;
+
+        traces.addLast(path);
+
+        try (
+            final BinaryTracingListener<V> listener
+                = new BinaryTracingListener<>(path,
+                    BinaryTracingListener.DEFAULT_BUFFER_SIZE, labels);
+        ) {
+            tracedRunner.registerListener(listener);
+            result = tracedRunner.run(inputBuffer);
+        } catch (IOException e) {
+            throw new GrappaException("failed to write trace file", e);
+        }
+
+        deleteOldTraces();
+        return result;
+    }
+
+    private void findExistingTraces()
+    {
+        if (!Files.isDirectory(directory))
+            return;
+
+        final SortedMap<Long, Path> existing = new TreeMap<>();
+        Matcher matcher;
+
+        try (
+            final DirectoryStream<Path> stream
+                = Files.newDirectoryStream(directory, "trace-*.bin");
+        ) {
+            for (final Path path: stream) {
+                matcher = TRACE_FILE_NAME.matcher(path.getFileName()
+                    .toString());
+                if (matcher.matches())
+                    existing.put(Long.parseLong(matcher.group(1)), path);
+            }
+        } catch (IOException e) {
+            throw new GrappaException("failed to list existing traces", e);
+        }
+
+        if (existing.isEmpty())
+            return;
+
+        traces.addAll(existing.values());
+        nrTraces = existing.lastKey() + 1L;
+        deleteOldTraces();
+    }
+
+    private Path createTraceFile()
+    {
+        Path path;
+
+        while (true) {
+            path = directory.resolve(String.format(TRACE_FILE_FORMAT,
+                nrTraces++));
+            try {
+                return Files.createFile(path);
+            } catch (FileAlreadyExistsException ignored) {
+                // Used by another instance; try the next name
+            } catch (IOException e) {
+                throw new GrappaException("failed to create trace file", e);
+            }
+        }
+    }
+
+    private void deleteOldTraces()
+    {
+        try {
+            while (traces.size() > maxTraces)
+                Files.deleteIfExists(traces.removeFirst());
+        } catch (IOException e) {
+            throw new GrappaException("failed to delete old trace", e);
+        }
+    }
+}
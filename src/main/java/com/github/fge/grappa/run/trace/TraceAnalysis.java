@@ -0,0 +1,122 @@
+package com.github.fge.grappa.run.trace;
+
+import com.google.common.collect.ImmutableList;
+
+import javax.annotation.Nullable;
+import java.util.List;
+
+/**
+ * The result of a {@link TraceAnalyzer} run
+ */
+public final class TraceAnalysis
+{
+    private final long nrNodes;
+    private final List<RuleStats> bySelfTime;
+    private final List<RuleStats> byInclusiveTime;
+    private final List<RuleStats> byReinvocations;
+    private final TraceNode deepestNode;
+    private final List<TraceNode> longestFailures;
+
+    TraceAnalysis(final long nrNodes, final List<RuleStats> bySelfTime,
+        final List<RuleStats> byInclusiveTime,
+        final List<RuleStats> byReinvocations,
+        @Nullable final TraceNode deepestNode,
+        final List<TraceNode> longestFailures)
+    {
+        this.nrNodes = nrNodes;
+        this.bySelfTime = ImmutableList.copyOf(bySelfTime);
+        this.byInclusiveTime = ImmutableList.copyOf(byInclusiveTime);
+        this.byReinvocations = ImmutableList.copyOf(byReinvocations);
+        this.deepestNode = deepestNode;
+        this.longestFailures = ImmutableList.copyOf(longestFailures);
+    }
+
+    public long getNrNodes()
+    {
+        return nrNodes;
+    }
+
+    /**
+     * Return the rules with the highest self time, highest first
+     *
+     * @return an immutable list
+     */
+    public List<RuleStats> getTopBySelfTime()
+    {
+        return bySelfTime;
+    }
+
+    /**
+     * Return the rules with the highest inclusive time, highest first
+     *
+     * @return an immutable list
+     */
+    public List<RuleStats> getTopByInclusiveTime()
+    {
+        return byInclusiveTime;
+    }
+
+    /**
+     * Return the rules with the most invocations at an index where they had
+     * already been invoked, most first
+     *
+     * <p>Rules with no such invocations are not listed.</p>
+     *
+     * @return an immutable list
+     */
+    public List<RuleStats> getTopByReinvocations()
+    {
+        return byReinvocations;
+    }
+
+    /**
+     * Return the first node found at the deepest level of the trace
+     *
+     * @return the node, or null if the trace is empty
+     */
+    @Nullable
+    public TraceNode getDeepestNode()
+    {
+        return deepestNode;
+    }
+
+    /**
+     * Return the failed nodes which consumed the most input before failing,
+     * longest first
+     *
+     * @return an immutable list
+     */
+    public List<TraceNode> getLongestFailures()
+    {
+        return longestFailures;
+    }
+
+    @Override
+    public String toString()
+    {
+        final StringBuilder sb = new StringBuilder();
+
+        sb.append(nrNodes).append(" nodes");
+        if (deepestNode != null)
+            sb.append(", max depth ").append(deepestNode.getLevel())
+                .append(" (").append(deepestNode).append(')');
+        sb.append("\n\nTop rules by self time:\n");
+        for (final RuleStats stats: bySelfTime)
+            sb.append(String.format("%14d ns  %s%n", stats.getSelfNanos(),
+                stats));
+        sb.append("\nTop rules by inclusive time:\n");
+        for (final RuleStats stats: byInclusiveTime)
+            sb.append(String.format("%14d ns  %s%n",
+                stats.getInclusiveNanos(), stats));
+        sb.append("\nTop re-invocations at the same index:\n");
+        for (final RuleStats stats: byReinvocations)
+            sb.append(String.format("%14d / %d  %s%n",
+                stats.getReinvocations(), stats.getInvocations(), stats));
+        sb.append("\nLongest failed matches:\n");
+        for (final TraceNode node: longestFailures)
+            sb.append(String.format("%14d chars  %s%n",
+                node.getEnd() - node.getStart(), node));
+
+        return sb.toString();
+    }
+}
@@ -0,0 +1,329 @@
+package com.github.fge.grappa.run.trace;
+
+import com.google.common.base.Preconditions;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Analyzer of trace files produced by {@link TracingListener}
+ *
+ * <p>Nodes of the trace are streamed; memory usage depends on the number of
+ * distinct matchers, and is otherwise bounded: it does not depend on the size
+ * of the trace file. The analysis reports:</p>
+ *
+ * <ul>
+ *     <li>the rules with the highest self time and inclusive time;</li>
+ *     <li>the rules most often re-invoked at the same index (candidates for
+ *     memoization; see below);</li>
+ *     <li>the deepest node;</li>
+ *     <li>the failed nodes which consumed the most input before failing.</li>
+ * </ul>
+ *
+ * <p>Re-invocations are detected using a fixed size cache of recently seen
+ * (matcher, index) pairs, where a new pair evicts the pair it collides with.
+ * Since re-invocations are usually caused by backtracking, they tend to be
+ * close to the first invocation in the trace and are found in the cache;
+ * nevertheless, the reported numbers of re-invocations are lower bounds.</p>
+ *
+ * <p>This class can also be run from the command line, with the path to the
+ * trace file as an argument.</p>
+ */
+@ParametersAreNonnullByDefault
+public final class TraceAnalyzer
+{
+    private static final int DEFAULT_TOP = 20;
+
+    /*
+     * Number of (matcher, index) pairs in the re-invocation cache; must be a
+     * power of two
+     */
+    private static final int INVOCATION_CACHE_SIZE = 1 << 20;
+    private static final long NO_INVOCATION = -1L;
+
+    private static final String NODE_PATH = "/nodes.csv";
+    private static final String MATCHERS_PATH = "/matchers.csv";
+
+    private static final Comparator<RuleStats> BY_SELF_TIME
+        = new Comparator<RuleStats>()
+    {
+        @Override
+        public int compare(final RuleStats o1, final RuleStats o2)
+        {
+            return Long.compare(o2.getSelfNanos(), o1.getSelfNanos());
+        }
+    };
+
+    private static final Comparator<RuleStats> BY_INCLUSIVE_TIME
+        = new Comparator<RuleStats>()
+    {
+        @Override
+        public int compare(final RuleStats o1, final RuleStats o2)
+        {
+            return Long.compare(o2.getInclusiveNanos(),
+                o1.getInclusiveNanos());
+        }
+    };
+
+    private static final Comparator<RuleStats> BY_REINVOCATIONS
+        = new Comparator<RuleStats>()
+    {
+        @Override
+        public int compare(final RuleStats o1, final RuleStats o2)
+        {
+            return Long.compare(o2.getReinvocations(), o1.getReinvocations());
+        }
+    };
+
+    private static final Comparator<TraceNode> BY_FAILURE_LENGTH
+        = new Comparator<TraceNode>()
+    {
+        @Override
+        public int compare(final TraceNode o1, final TraceNode o2)
+        {
+            return Integer.compare(o1.getEnd() - o1.getStart(),
+                o2.getEnd() - o2.getStart());
+        }
+    };
+
+    private final int top;
+
+    /**
+     * Constructor
+     *
+     * @param top the number of entries of each list of the analysis
+     */
+    public TraceAnalyzer(final int top)
+    {
+        Preconditions.checkArgument(top > 0,
+            "number of entries must be strictly positive");
+        this.top = top;
+    }
+
+    public TraceAnalyzer()
+    {
+        this(DEFAULT_TOP);
+    }
+
+    public static void main(final String... args)
+        throws IOException
+    {
+        if (args.length != 1) {
+            System.err.println("Syntax: " + TraceAnalyzer.class.getName()
+                + " tracefile.zip");
+            System.exit(2);
+        }
+
+        System.out.print(new TraceAnalyzer().analyze(Paths.get(args[0])));
+    }
+
+    /**
+     * Analyze a trace file
+     *
+     * @param zipPath the path to the trace file
+     * @return the analysis
+     * @throws IOException failed to read the trace file
+     */
+    public TraceAnalysis analyze(final Path zipPath)
+        throws IOException
+    {
+        final URI uri = URI.create("jar:" + zipPath.toUri());
+
+        try (
+            final FileSystem zipfs = FileSystems.newFileSystem(uri,
+                Collections.<String, Object>emptyMap());
+        ) {
+            final Map<Integer, RuleStats> rules
+                = readMatchers(zipfs.getPath(MATCHERS_PATH));
+            return readNodes(zipfs.getPath(NODE_PATH), rules);
+        }
+    }
+
+    @SuppressWarnings("AutoBoxing")
+    private static Map<Integer, RuleStats> readMatchers(final Path path)
+        throws IOException
+    {
+        final Map<Integer, RuleStats> ret = new HashMap<>();
+
+        String line;
+        String[] fields;
+        int id;
+
+        try (
+            final BufferedReader reader = Files.newBufferedReader(path, UTF_8);
+        ) {
+            while ((line = reader.readLine()) != null) {
+                // id;className;type;name -- the name may contain semicolons
+                fields = line.split(";", 4);
+                if (fields.length != 4)
+                    throw new IOException("malformed matcher line: " + line);
+                id = Integer.parseInt(fields[0]);
+                ret.put(id, new RuleStats(id, fields[1], fields[2],
+                    fields[3]));
+            }
+        }
+
+        return ret;
+    }
+
+    @SuppressWarnings("AutoBoxing")
+    private TraceAnalysis readNodes(final Path path,
+        final Map<Integer, RuleStats> rules)
+        throws IOException
+    {
+        // Nodes are written in post order: all children of a node are read
+        // before the node itself. This array holds, for each level, the sum
+        // of the inclusive times of the nodes read since their parent.
+        long[] childTimes = new long[64];
+
+        final long[] invocations = new long[INVOCATION_CACHE_SIZE];
+        Arrays.fill(invocations, NO_INVOCATION);
+        final PriorityQueue<TraceNode> failures
+            = new PriorityQueue<>(top, BY_FAILURE_LENGTH);
+
+        long nrNodes = 0L;
+        TraceNode deepest = null;
+
+        final long[] fields = new long[8];
+        String line;
+        int level;
+        boolean success;
+        int start;
+        int end;
+        long time;
+        RuleStats stats;
+        TraceNode node;
+        long invocation;
+        int slot;
+
+        try (
+            final BufferedReader reader = Files.newBufferedReader(path, UTF_8);
+        ) {
+            while ((line = reader.readLine()) != null) {
+                // parent;id;level;success;matcherId;start;end;time
+                parseFields(line, fields);
+                level = (int) fields[2];
+                success = fields[3] == 1L;
+                start = (int) fields[5];
+                end = (int) fields[6];
+                time = fields[7];
+
+                stats = rules.get((int) fields[4]);
+                if (stats == null)
+                    throw new IOException("unknown matcher id in line: "
+                        + line);
+
+                if (level + 1 >= childTimes.length)
+                    childTimes = Arrays.copyOf(childTimes,
+                        childTimes.length << 1);
+
+                stats.addNode(success, time - childTimes[level + 1], time);
+                childTimes[level + 1] = 0L;
+                childTimes[level] += time;
+
+                invocation = fields[4] << 32 | start;
+                slot = cacheSlot(invocation);
+                if (invocations[slot] == invocation)
+                    stats.addReinvocation();
+                else
+                    invocations[slot] = invocation;
+
+                nrNodes++;
+                node = null;
+
+                if (deepest == null || level > deepest.getLevel()) {
+                    node = new TraceNode((int) fields[1], level, stats,
+                        success, start, end, time);
+                    deepest = node;
+                }
+
+                if (!success && end > start && (failures.size() < top
+                    || end - start > failures.peek().getEnd()
+                    - failures.peek().getStart())) {
+                    if (node == null)
+                        node = new TraceNode((int) fields[1], level, stats,
+                            false, start, end, time);
+                    failures.add(node);
+                    if (failures.size() > top)
+                        failures.poll();
+                }
+            }
+        }
+
+        final List<TraceNode> longestFailures = new ArrayList<>(failures);
+        Collections.sort(longestFailures,
+            Collections.reverseOrder(BY_FAILURE_LENGTH));
+
+        return new TraceAnalysis(nrNodes,
+            topOf(rules.values(), BY_SELF_TIME, false),
+            topOf(rules.values(), BY_INCLUSIVE_TIME, false),
+            topOf(rules.values(), BY_REINVOCATIONS, true),
+            deepest, longestFailures);
+    }
+
+    private List<RuleStats> topOf(final Iterable<RuleStats> rules,
+        final Comparator<RuleStats> comparator, final boolean reinvoked)
+    {
+        final List<RuleStats> list = new ArrayList<>();
+        for (final RuleStats stats: rules)
+            if (stats.getInvocations() > 0L
+                && (!reinvoked || stats.getReinvocations() > 0L))
+                list.add(stats);
+        Collections.sort(list, comparator);
+        return list.size() > top ? list.subList(0, top) : list;
+    }
+
+    private static int cacheSlot(final long invocation)
+    {
+        final long h = invocation * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32) & (INVOCATION_CACHE_SIZE - 1);
+    }
+
+    private static void parseFields(final String line, final long[] fields)
+        throws IOException
+    {
+        final int length = line.length();
+        int field = 0;
+        long value = 0L;
+        boolean negative = false;
+        char c;
+
+        for (int i = 0; i < length; i++) {
+            c = line.charAt(i);
+            if (c == ';') {
+                if (field == fields.length - 1)
+                    throw new IOException("malformed node line: " + line);
+                fields[field++] = negative ? -value : value;
+                value = 0L;
+                negative = false;
+            } else if (c == '-' && value == 0L) {
+                negative = true;
+            } else if (c >= '0' && c <= '9') {
+                value = value * 10L + (c - '0');
+            } else {
+                throw new IOException("malformed node line: " + line);
+            }
+        }
+
+        if (field != fields.length - 1)
+            throw new IOException("malformed node line: " + line);
+        fields[field] = negative ? -value : value;
+    }
+}
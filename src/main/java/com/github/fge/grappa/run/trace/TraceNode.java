@@ -0,0 +1,83 @@
+package com.github.fge.grappa.run.trace;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * A single node of a trace
+ *
+ * @see TraceAnalysis
+ */
+@Immutable
+public final class TraceNode
+{
+    private final int id;
+    private final int level;
+    private final RuleStats rule;
+    private final boolean success;
+    private final int start;
+    private final int end;
+    private final long nanos;
+
+    TraceNode(final int id, final int level, final RuleStats rule,
+        final boolean success, final int start, final int end,
+        final long nanos)
+    {
+        this.id = id;
+        this.level = level;
+        this.rule = rule;
+        this.success = success;
+        this.start = start;
+        this.end = end;
+        this.nanos = nanos;
+    }
+
+    public int getId()
+    {
+        return id;
+    }
+
+    public int getLevel()
+    {
+        return level;
+    }
+
+    public RuleStats getRule()
+    {
+        return rule;
+    }
+
+    public boolean isSuccess()
+    {
+        return success;
+    }
+
+    public int getStart()
+    {
+        return start;
+    }
+
+    /**
+     * Return the end index of this node
+     *
+     * <p>For a failed node, this is the index reached before the failure.</p>
+     *
+     * @return see description
+     */
+    public int getEnd()
+    {
+        return end;
+    }
+
+    public long getNanos()
+    {
+        return nanos;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "node " + id + ": " + rule + " at level " + level + ", ["
+            + start + ", " + end + ") " + (success ? "matched" : "failed")
+            + " in " + nanos + " ns";
+    }
+}
@@ -18,111 +18,308 @@ package com.github.fge.grappa.stack;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Iterators;
+import com.google.common.collect.UnmodifiableIterator;
 
 import javax.annotation.Nonnull;
 import javax.annotation.ParametersAreNonnullByDefault;
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.Iterator;
-import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Objects;
 
+/**
+ * The default value stack
+ *
+ * <p>Values are stored in an array, the bottom of the stack at index {@code
+ * base} and its top at index {@code top - 1}; there is room on both sides, so
+ * that pushing or popping at either end of the stack is done in constant
+ * time.</p>
+ *
+ * <p>Sequences and actions take a snapshot on each attempt. A snapshot does
+ * not copy the values: it shares the array with the stack, which marks the
+ * slots the snapshot covers as frozen. Only a write to a frozen slot copies
+ * the array; popping, and pushing above all snapshots, do not. A snapshot is
+ * reused until the stack changes.</p>
+ *
+ * @param <V> type of the values in this stack
+ */
 @ParametersAreNonnullByDefault
 public final class DefaultValueStack<V>
     extends ValueStackBase<V>
 {
-    private List<V> stack = new ArrayList<>();
+    private static final int INITIAL_CAPACITY = 8;
+
+    /*
+     * Most sequences run with an empty stack; they all share this snapshot
+     */
+    private static final Object EMPTY_SNAPSHOT = new Object();
+
+    private Object[] values = new Object[INITIAL_CAPACITY];
+    private int base = 0;
+    private int top = 0;
+
+    /*
+     * Slots of the array covered by snapshots; frozenFrom == frozenTo if none
+     */
+    private int frozenFrom = 0;
+    private int frozenTo = 0;
+
+    /*
+     * Last snapshot taken or restored, if the stack has not changed since
+     */
+    private Snapshot lastSnapshot = null;
 
     @Override
     public boolean isEmpty()
     {
-        return stack.isEmpty();
+        return top == base;
     }
 
     @Override
     public int size()
     {
-        return stack.size();
+        return top - base;
     }
 
     @Override
     public void clear()
     {
-        stack.clear();
+        if (frozenFrom == frozenTo)
+            Arrays.fill(values, base, top, null);
+        top = base;
+        lastSnapshot = null;
     }
 
     @Nonnull
     @Override
     public Object takeSnapshot()
     {
-        return new ArrayList<>(stack);
+        if (top == base)
+            return EMPTY_SNAPSHOT;
+
+        if (lastSnapshot == null) {
+            lastSnapshot = new Snapshot(values, base, top);
+            if (frozenFrom == frozenTo) {
+                frozenFrom = base;
+                frozenTo = top;
+            } else {
+                frozenFrom = Math.min(frozenFrom, base);
+                frozenTo = Math.max(frozenTo, top);
+            }
+        }
+
+        return lastSnapshot;
     }
 
     @Override
-    @SuppressWarnings("unchecked")
     public void restoreSnapshot(final Object snapshot)
     {
         Objects.requireNonNull(snapshot);
-        Preconditions.checkState(snapshot.getClass() == ArrayList.class);
-        stack = (List<V>) snapshot;
+        if (snapshot == EMPTY_SNAPSHOT) {
+            clear();
+            return;
+        }
+        Preconditions.checkState(snapshot.getClass() == Snapshot.class);
+
+        final Snapshot restored = (Snapshot) snapshot;
+
+        /*
+         * If the array was copied since the snapshot, we do not know which
+         * of its slots other snapshots cover; freeze all of them
+         */
+        if (restored.values != values) {
+            values = restored.values;
+            frozenFrom = 0;
+            frozenTo = values.length;
+        }
+        base = restored.base;
+        top = restored.top;
+        lastSnapshot = restored;
     }
 
     @Override
     protected void doPush(final int down, final V value)
     {
-        stack.add(down, value);
+        if (down > 0 && down == top - base) {
+            reserve(1, 0);
+            unfreeze(base - 1, base);
+            values[--base] = value;
+            return;
+        }
+
+        reserve(0, 1);
+        final int index = top - down;
+        unfreeze(index, top + 1);
+        System.arraycopy(values, index, values, index + 1, down);
+        values[index] = value;
+        top++;
     }
 
     @Nonnull
     @Override
     protected V doPop(final int down)
     {
-        return stack.remove(down);
+        final int index = top - 1 - down;
+        final V ret = valueAt(index);
+
+        lastSnapshot = null;
+
+        if (down > 0 && down == top - base - 1) {
+            release(base++);
+            return ret;
+        }
+
+        if (down > 0) {
+            unfreeze(index, top);
+            System.arraycopy(values, index + 1, values, index, down);
+        }
+        release(--top);
+        return ret;
     }
 
     @Nonnull
     @Override
     protected V doPeek(final int down)
     {
-        return stack.get(down);
+        return valueAt(top - 1 - down);
     }
 
     @Override
     protected void doPoke(final int down, final V value)
     {
-        stack.set(down, value);
+        final int index = top - 1 - down;
+        unfreeze(index, index + 1);
+        values[index] = value;
     }
 
     @Override
     protected void doDup()
     {
-        final V element = stack.get(0);
-        stack.add(0, element);
+        reserve(0, 1);
+        unfreeze(top, top + 1);
+        values[top] = values[top - 1];
+        top++;
     }
 
     @Override
     protected void doSwap(final int n)
     {
-        Collections.reverse(stack.subList(0, n));
+        unfreeze(top - n, top);
+
+        Object tmp;
+        for (int i = top - n, j = top - 1; i < j; i++, j--) {
+            tmp = values[i];
+            values[i] = values[j];
+            values[j] = tmp;
+        }
     }
 
     @Override
     public Iterator<V> iterator()
     {
-        return Iterators.unmodifiableIterator(stack.iterator());
+        return new UnmodifiableIterator<V>()
+        {
+            private final Object[] array = values;
+            private final int end = base;
+            private int index = top;
+
+            @Override
+            public boolean hasNext()
+            {
+                return index > end;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public V next()
+            {
+                if (index == end)
+                    throw new NoSuchElementException();
+                return (V) array[--index];
+            }
+        };
     }
 
     @Nonnull
     @Override
     public String toString()
     {
-        return stack.toString();
+        return Iterators.toString(iterator());
     }
 
     @Override
     protected void checkIndex(final int index)
     {
-        Preconditions.checkState(index < stack.size(),
+        Preconditions.checkState(index < top - base,
             "not enough elements in stack");
     }
+
+    @SuppressWarnings("unchecked")
+    private V valueAt(final int index)
+    {
+        return (V) values[index];
+    }
+
+    /*
+     * Make room for the given number of values below the bottom and above the
+     * top of the stack; a new array has no frozen slots
+     */
+    private void reserve(final int below, final int above)
+    {
+        if (base >= below && values.length - top >= above)
+            return;
+
+        final int size = top - base;
+        final int length = Math.max(values.length * 2,
+            (size + below + above) * 2);
+        final int newBase = base >= below ? base : (length - size) / 2;
+
+        copyValues(length, newBase);
+    }
+
+    /*
+     * Copy the array before writing to slots covered by a snapshot; the stack
+     * changes, so the last snapshot cannot be reused either
+     */
+    private void unfreeze(final int from, final int to)
+    {
+        lastSnapshot = null;
+        if (from < frozenTo && to > frozenFrom)
+            copyValues(values.length, base);
+    }
+
+    private void copyValues(final int length, final int newBase)
+    {
+        final Object[] array = new Object[length];
+        final int size = top - base;
+
+        System.arraycopy(values, base, array, newBase, size);
+        values = array;
+        base = newBase;
+        top = newBase + size;
+        frozenFrom = frozenTo = 0;
+    }
+
+    /*
+     * Do not retain popped values, unless a snapshot still needs them
+     */
+    private void release(final int index)
+    {
+        if (index < frozenFrom || index >= frozenTo)
+            values[index] = null;
+    }
+
+    private static final class Snapshot
+    {
+        private final Object[] values;
+        private final int base;
+        private final int top;
+
+        private Snapshot(final Object[] values, final int base, final int top)
+        {
+            this.values = values;
+            this.base = base;
+            this.top = top;
+        }
+    }
 }
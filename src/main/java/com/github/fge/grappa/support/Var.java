@@ -21,6 +21,7 @@ import com.google.common.base.Supplier;
 import com.google.common.base.Suppliers;
 import com.google.common.collect.Lists;
 import com.github.fge.grappa.misc.Reference;
+import com.github.fge.grappa.transform.runtime.BaseVarInit;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -80,12 +81,18 @@ public class Var<T>
      * Initializes a new Var. The given supplier will be used to create the
      * initial value for each "execution frame" of the enclosing rule.
      *
+     * <p>If the supplier is a generated one which is known to always produce
+     * the same constant value, it is called only once.</p>
+     *
      * @param supplier the supplier used to create the initial value for a rule execution frame
      *
      */
     public Var(@Nonnull final Supplier<T> supplier)
     {
-        this.supplier = Objects.requireNonNull(supplier);
+        Objects.requireNonNull(supplier);
+        this.supplier = isConstant(supplier)
+            ? Suppliers.ofInstance(supplier.get())
+            : supplier;
     }
 
     /**
@@ -128,9 +135,10 @@ public class Var<T>
      */
     public final boolean enterFrame()
     {
+        final T value = supplier.get();
         if (level++ > 0)
             stack.add(get());
-        return set(supplier.get());
+        return set(value);
     }
 
     /**
@@ -147,6 +155,52 @@ public class Var<T>
         return true;
     }
 
+    /**
+     * Provides a new frame for the variable, handing back the value of the
+     * enclosing frame
+     *
+     * <p>This is the same as {@link #enterFrame()}, except that the caller
+     * keeps the value of the enclosing frame and must hand it back to {@link
+     * #exitFrame(Object)}; this variable then does not need to save it.</p>
+     *
+     * <p>Do not use manually!</p>
+     *
+     * @return the value of this variable before entering the frame
+     */
+    @Nullable
+    public final T enterFrameAndGet()
+    {
+        final T value = supplier.get();
+        level++;
+        return getAndSet(value);
+    }
+
+    /**
+     * Exits a frame previously entered with {@link #enterFrameAndGet()}.
+     *
+     * <p>As with {@link #exitFrame()}, the variable keeps its last value when
+     * the outermost frame is exited.</p>
+     *
+     * <p>Do not use manually!</p>
+     *
+     * @param value the value returned by the matching call to {@link
+     * #enterFrameAndGet()}
+     * @return true
+     */
+    @SuppressWarnings("unchecked")
+    public final boolean exitFrame(@Nullable final Object value)
+    {
+        if (--level > 0)
+            set((T) value);
+        return true;
+    }
+
+    private static boolean isConstant(final Supplier<?> supplier)
+    {
+        return supplier instanceof BaseVarInit
+            && ((BaseVarInit<?>) supplier).isConstant();
+    }
+
     @Override
     public final String toString()
     {
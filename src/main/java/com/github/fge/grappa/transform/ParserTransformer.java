@@ -39,7 +39,10 @@ import com.github.fge.grappa.transform.process.SuperCallRewriter;
 import com.github.fge.grappa.transform.process.UnusedLabelsRemover;
 import com.github.fge.grappa.transform.process.VarFramingGenerator;
 
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 import static com.github.fge.grappa.misc.AsmUtils.findLoadedClass;
@@ -94,22 +97,65 @@ public final class ParserTransformer
     @VisibleForTesting
     public static ParserClassNode extendParserClass(final Class<?> parserClass)
         throws Exception
+    {
+        return extendParserClass(parserClass, createRuleMethodProcessors());
+    }
+
+    /**
+     * Extend a parser class, timing each rule method processor
+     *
+     * <p>This is used by the cold start benchmarks. The time spent in each
+     * processor, summed over all rule methods, is put into the given map, in
+     * the order in which processors run.</p>
+     *
+     * @param parserClass the parser class
+     * @param timings map in which to put the time spent in each processor, in
+     * nanoseconds, by processor class simple name
+     * @return the class node of the extended class
+     * @throws java.io.IOException the bytecode of the parser class, or of one
+     * of its superclasses, cannot be read
+     * @throws org.objectweb.asm.tree.analysis.AnalyzerException the bytecode
+     * of a rule method cannot be analyzed
+     * @throws Exception another error reported by a rule method processor
+     * (errors in the grammar are reported as {@link
+     * com.github.fge.grappa.exceptions.InvalidGrammarException}s)
+     */
+    public static ParserClassNode extendParserClass(final Class<?> parserClass,
+        final Map<String, Long> timings)
+        throws Exception
+    {
+        Objects.requireNonNull(timings, "timings");
+
+        final List<TimedProcessor> timed = new ArrayList<>();
+        for (final RuleMethodProcessor processor: createRuleMethodProcessors())
+            timed.add(new TimedProcessor(processor));
+
+        final ParserClassNode ret = extendParserClass(parserClass,
+            ImmutableList.<RuleMethodProcessor>copyOf(timed));
+
+        for (final TimedProcessor processor: timed)
+            timings.put(processor.getName(), processor.nanos);
+
+        return ret;
+    }
+
+    private static ParserClassNode extendParserClass(final Class<?> parserClass,
+        final List<RuleMethodProcessor> methodProcessors)
+        throws Exception
     {
         final ParserClassNode classNode = new ParserClassNode(parserClass);
         new ClassNodeInitializer().process(classNode);
-        runMethodTransformers(classNode);
+        runMethodTransformers(classNode, methodProcessors);
         new ConstructorGenerator().process(classNode);
         defineExtendedParserClass(classNode);
         return classNode;
     }
 
     // TODO: poor exception handling again
-    private static void runMethodTransformers(final ParserClassNode classNode)
+    private static void runMethodTransformers(final ParserClassNode classNode,
+        final List<RuleMethodProcessor> methodProcessors)
         throws Exception
     {
-        final List<RuleMethodProcessor> methodProcessors
-            = createRuleMethodProcessors();
-
         // TODO: comment above may be right, but it's still dangerous
         // iterate through all rule methods
         // since the ruleMethods map on the classnode is a treemap we get the
@@ -160,4 +206,41 @@ public final class ParserTransformer
             node.getClassCode(), node.getParentClass().getClassLoader());
         node.setExtendedClass(extendedClass);
     }
+
+    private static final class TimedProcessor
+        implements RuleMethodProcessor
+    {
+        private final RuleMethodProcessor delegate;
+        private long nanos;
+
+        private TimedProcessor(final RuleMethodProcessor delegate)
+        {
+            this.delegate = delegate;
+        }
+
+        private String getName()
+        {
+            return delegate.getClass().getSimpleName();
+        }
+
+        @Override
+        public boolean appliesTo(@Nonnull final ParserClassNode classNode,
+            @Nonnull final RuleMethod method)
+        {
+            final long start = System.nanoTime();
+            final boolean ret = delegate.appliesTo(classNode, method);
+            nanos += System.nanoTime() - start;
+            return ret;
+        }
+
+        @Override
+        public void process(@Nonnull final ParserClassNode classNode,
+            @Nonnull final RuleMethod method)
+            throws Exception
+        {
+            final long start = System.nanoTime();
+            delegate.process(classNode, method);
+            nanos += System.nanoTime() - start;
+        }
+    }
 }
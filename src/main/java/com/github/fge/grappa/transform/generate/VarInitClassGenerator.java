@@ -20,23 +20,38 @@ import com.github.fge.grappa.transform.base.InstructionGraphNode;
 import com.github.fge.grappa.transform.base.InstructionGroup;
 import com.github.fge.grappa.transform.base.ParserClassNode;
 import com.github.fge.grappa.transform.base.RuleMethod;
+import com.google.common.collect.ImmutableSet;
 import me.qmx.jitescript.util.CodegenUtils;
 import org.objectweb.asm.ClassWriter;
 import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.MethodInsnNode;
 import com.github.fge.grappa.transform.runtime.BaseVarInit;
 import com.github.fge.grappa.transform.process.GroupClassGenerator;
 
 import javax.annotation.Nonnull;
 import java.util.Objects;
+import java.util.Set;
 
 import static org.objectweb.asm.Opcodes.ACC_PUBLIC;
+import static org.objectweb.asm.Opcodes.ACONST_NULL;
 import static org.objectweb.asm.Opcodes.ARETURN;
+import static org.objectweb.asm.Opcodes.ICONST_1;
+import static org.objectweb.asm.Opcodes.INVOKESTATIC;
+import static org.objectweb.asm.Opcodes.IRETURN;
+import static org.objectweb.asm.Opcodes.LDC;
 
 // TODO: move to transform/ subpackage?
 public final class VarInitClassGenerator
     extends GroupClassGenerator
 {
+    private static final Set<String> BOXED_TYPES = ImmutableSet.of(
+        "java/lang/Boolean", "java/lang/Byte", "java/lang/Character",
+        "java/lang/Short", "java/lang/Integer", "java/lang/Long",
+        "java/lang/Float", "java/lang/Double"
+    );
+
     public VarInitClassGenerator(final boolean forceCodeBuilding)
     {
         super(forceCodeBuilding);
@@ -73,5 +88,59 @@ public final class VarInitClassGenerator
 
         mv.visitInsn(ARETURN);
         mv.visitMaxs(0, 0); // trigger automatic computing
+
+        if (isConstant(group))
+            generateIsConstant(cw);
+    }
+
+    private static void generateIsConstant(final ClassWriter cw)
+    {
+        final MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "isConstant",
+            CodegenUtils.sig(boolean.class), null, null);
+
+        mv.visitInsn(ICONST_1);
+        mv.visitInsn(IRETURN);
+        mv.visitMaxs(0, 0); // trigger automatic computing
+    }
+
+    /*
+     * A group is constant if it only loads a literal, and possibly boxes it
+     */
+    private static boolean isConstant(final InstructionGroup group)
+    {
+        if (!group.getFields().isEmpty())
+            return false;
+
+        AbstractInsnNode insn = group.getInstructions().getFirst();
+
+        if (insn == null)
+            return false;
+
+        while (insn != null) {
+            if (!isConstantInstruction(insn))
+                return false;
+            insn = insn.getNext();
+        }
+
+        return true;
+    }
+
+    private static boolean isConstantInstruction(final AbstractInsnNode insn)
+    {
+        final int opcode = insn.getOpcode();
+
+        // labels, line numbers, frames
+        if (opcode == -1)
+            return true;
+
+        // ACONST_NULL, xCONST_n, BIPUSH, SIPUSH, LDC
+        if (opcode >= ACONST_NULL && opcode <= LDC)
+            return true;
+
+        if (opcode != INVOKESTATIC)
+            return false;
+
+        final MethodInsnNode call = (MethodInsnNode) insn;
+        return "valueOf".equals(call.name) && BOXED_TYPES.contains(call.owner);
     }
 }
@@ -31,4 +31,19 @@ public abstract class BaseVarInit<V>
     {
         super(Objects.requireNonNull(name, "name"));
     }
+
+    /**
+     * Tell whether this supplier always produces the same immutable value
+     *
+     * <p>Generated classes override this method when the initial value of the
+     * var is a literal (possibly boxed); a {@link
+     * com.github.fge.grappa.support.Var} then only needs to call {@link #get()}
+     * once.</p>
+     *
+     * @return false by default
+     */
+    public boolean isConstant()
+    {
+        return false;
+    }
 }
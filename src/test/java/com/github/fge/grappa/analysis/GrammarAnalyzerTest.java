@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.fge.grappa.analysis;
+
+import com.github.fge.grappa.Grappa;
+import com.github.fge.grappa.analysis.GrammarIssue.Kind;
+import com.github.fge.grappa.exceptions.InvalidGrammarException;
+import com.github.fge.grappa.parsers.BaseParser;
+import com.github.fge.grappa.rules.Rule;
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.failBecauseExceptionWasNotThrown;
+
+public final class GrammarAnalyzerTest
+{
+    static class TestParser
+        extends BaseParser<Object>
+    {
+        public Rule nullableLoop()
+        {
+            return sequence(zeroOrMore(optional('a')), EOI);
+        }
+
+        public Rule nullableJoin()
+        {
+            return sequence(join('a').using(optional(',')).min(0), EOI);
+        }
+
+        public Rule leftRecursive()
+        {
+            return sequence(sum(), EOI);
+        }
+
+        public Rule sum()
+        {
+            return firstOf(sequence(sum(), '+', 'x'), 'x');
+        }
+
+        public Rule sharedPrefix()
+        {
+            return firstOf(sequence(word(), '!'), sequence(word(), '?'));
+        }
+
+        public Rule word()
+        {
+            return oneOrMore(charRange('a', 'z'));
+        }
+
+        public Rule overlap()
+        {
+            return firstOf(sequence("select", ' '), charRange('a', 'z'));
+        }
+
+        public Rule clean()
+        {
+            return sequence(expression(), EOI);
+        }
+
+        public Rule expression()
+        {
+            return sequence(atom(), zeroOrMore(anyOf("+-"), atom()));
+        }
+
+        public Rule atom()
+        {
+            return firstOf(sequence('(', expression(), ')'), 'x');
+        }
+    }
+
+    private final TestParser parser = Grappa.createParser(TestParser.class);
+
+    @Test
+    public void nullableLoopsAreFatal()
+    {
+        for (final Rule rule: new Rule[] {
+            parser.nullableLoop(), parser.nullableJoin() }) {
+            final List<GrammarIssue> issues
+                = new GrammarAnalyzer(rule).getFatalIssues();
+            assertThat(issues).hasSize(1);
+            assertThat(issues.get(0).getKind()).isEqualTo(Kind.NULLABLE_LOOP);
+        }
+    }
+
+    @Test
+    public void leftRecursionIsFatal()
+    {
+        try {
+            GrammarAnalyzer.validate(parser.leftRecursive());
+            failBecauseExceptionWasNotThrown(InvalidGrammarException.class);
+        } catch (InvalidGrammarException e) {
+            assertThat(e.getMessage()).contains(Kind.LEFT_RECURSION.name())
+                .contains("sum");
+        }
+    }
+
+    @Test
+    public void sharedPrefixIsReported()
+    {
+        final GrammarAnalyzer analyzer
+            = GrammarAnalyzer.validate(parser.sharedPrefix());
+        final List<GrammarIssue> issues = analyzer.getIssues();
+
+        assertThat(issues).hasSize(1);
+        assertThat(issues.get(0).getKind()).isEqualTo(Kind.SHARED_PREFIX);
+        assertThat(issues.get(0).isFatal()).isFalse();
+        assertThat(issues.get(0).getMessage()).contains("word");
+    }
+
+    @Test
+    public void firstSetOverlapIsReported()
+    {
+        final List<GrammarIssue> issues
+            = new GrammarAnalyzer(parser.overlap()).getIssues();
+
+        assertThat(issues).hasSize(1);
+        assertThat(issues.get(0).getKind())
+            .isEqualTo(Kind.FIRST_SET_OVERLAP);
+        assertThat(issues.get(0).getMessage()).contains("'s'");
+    }
+
+    @Test
+    public void cleanGrammarHasNoIssues()
+    {
+        assertThat(new GrammarAnalyzer(parser.clean()).getIssues()).isEmpty();
+    }
+}
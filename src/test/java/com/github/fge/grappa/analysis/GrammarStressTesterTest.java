@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.analysis;
+
+import com.github.fge.grappa.Grappa;
+import com.github.fge.grappa.parsers.BaseParser;
+import com.github.fge.grappa.rules.Rule;
+import org.testng.annotations.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class GrammarStressTesterTest
+{
+    static class TestParser
+        extends BaseParser<Object>
+    {
+        public Rule exponential()
+        {
+            return sequence(badExpression(), EOI);
+        }
+
+        // Each alternative parses the same atom again
+        public Rule badExpression()
+        {
+            return firstOf(
+                sequence(badAtom(), '+', badExpression()),
+                sequence(badAtom(), '-', badExpression()),
+                badAtom()
+            );
+        }
+
+        public Rule badAtom()
+        {
+            return firstOf(sequence('(', badExpression(), ')'), 'x');
+        }
+
+        public Rule linear()
+        {
+            return sequence(expression(), EOI);
+        }
+
+        public Rule expression()
+        {
+            return sequence(atom(), zeroOrMore(anyOf("+-"), atom()));
+        }
+
+        public Rule atom()
+        {
+            return firstOf(sequence('(', expression(), ')'), 'x');
+        }
+    }
+
+    private final TestParser parser = Grappa.createParser(TestParser.class);
+
+    @Test
+    public void exponentialBacktrackingIsReported()
+    {
+        final GrammarStressTester tester
+            = new GrammarStressTester(parser.exponential());
+        tester.setInvocationBudget(100000L);
+
+        final StressReport report = tester.run();
+
+        assertThat(report.getSamples()).isNotEmpty();
+        assertThat(report.isClean()).isFalse();
+
+        final PathologicalInput worst = report.getPathologicalInputs().get(0);
+        assertThat(worst.isBudgetExceeded()).isTrue();
+        assertThat(worst.getGrowthExponent())
+            .isEqualTo(Double.POSITIVE_INFINITY);
+        assertThat(worst.getInput()).contains("(");
+        assertThat(worst.getRules()).containsKey("badExpression")
+            .containsKey("badAtom");
+    }
+
+    @Test
+    public void linearGrammarIsClean()
+    {
+        final StressReport report
+            = new GrammarStressTester(parser.linear()).run();
+
+        assertThat(report.getSamples()).isNotEmpty();
+        assertThat(report.getNrFamilies()).isGreaterThan(0);
+        assertThat(report.getPathologicalInputs()).isEmpty();
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.buffers;
+
+import com.github.fge.grappa.support.Chars;
+import com.github.fge.grappa.support.Position;
+import com.google.common.collect.ImmutableList;
+import org.testng.annotations.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class SegmentedInputBufferTest
+{
+    private static final List<String> SEGMENTS
+        = ImmutableList.of("ab", "", "c\nd", "", "", "efg\n", "h");
+    private static final String INPUT = "abc\ndefg\nh";
+
+    @Test
+    public void charactersAreReadAcrossSegments()
+    {
+        final InputBuffer buffer = new SegmentedInputBuffer(SEGMENTS);
+
+        assertThat(buffer.length()).isEqualTo(INPUT.length());
+
+        // Read backwards too, so that the segment cache is bypassed
+        for (int i = 0; i < INPUT.length(); i++)
+            assertThat(buffer.charAt(i)).isEqualTo(INPUT.charAt(i));
+        for (int i = INPUT.length() - 1; i >= 0; i--)
+            assertThat(buffer.charAt(i)).isEqualTo(INPUT.charAt(i));
+
+        assertThat(buffer.charAt(INPUT.length())).isEqualTo(Chars.EOI);
+        assertThat(buffer.codePointAt(INPUT.length())).isEqualTo(-1);
+    }
+
+    @Test
+    public void extractionsSpanSegments()
+    {
+        final InputBuffer buffer = new SegmentedInputBuffer(SEGMENTS);
+        final int length = INPUT.length();
+
+        for (int start = 0; start <= length; start++)
+            for (int end = start; end <= length + 2; end++)
+                assertThat(buffer.extract(start, end))
+                    .isEqualTo(INPUT.substring(start, Math.min(end, length)));
+    }
+
+    @Test
+    public void lineInformationIsTheSameAsForAFlatBuffer()
+    {
+        final InputBuffer buffer = new SegmentedInputBuffer(SEGMENTS);
+        final InputBuffer expected = new CharSequenceInputBuffer(INPUT);
+
+        assertThat(buffer.getLineCount()).isEqualTo(expected.getLineCount());
+        assertThat(buffer.extractLine(2)).isEqualTo(expected.extractLine(2));
+
+        Position actualPosition;
+        Position expectedPosition;
+        for (int i = 0; i < INPUT.length(); i++) {
+            actualPosition = buffer.getPosition(i);
+            expectedPosition = expected.getPosition(i);
+            assertThat(actualPosition.getLine())
+                .isEqualTo(expectedPosition.getLine());
+            assertThat(actualPosition.getColumn())
+                .isEqualTo(expectedPosition.getColumn());
+        }
+    }
+
+    @Test
+    public void surrogatePairsAcrossSegmentsAreDecoded()
+    {
+        final String s = new String(Character.toChars(0x1F600));
+        final InputBuffer buffer = new SegmentedInputBuffer(
+            ImmutableList.of("a" + s.charAt(0), s.substring(1)));
+
+        assertThat(buffer.codePointAt(1)).isEqualTo(0x1F600);
+    }
+
+    @Test
+    public void latin1ByteBuffersAreReadWithoutCopy()
+    {
+        final ByteBuffer first = ByteBuffer.wrap(
+            "xxcaf".getBytes(StandardCharsets.ISO_8859_1));
+        first.position(2);
+        final ByteBuffer second = ByteBuffer.wrap(
+            "é!".getBytes(StandardCharsets.ISO_8859_1));
+
+        final InputBuffer buffer
+            = SegmentedInputBuffer.latin1(ImmutableList.of(first, second));
+
+        assertThat(buffer.extract(0, buffer.length()))
+            .isEqualTo("café!");
+        assertThat(first.position()).isEqualTo(2);
+    }
+}
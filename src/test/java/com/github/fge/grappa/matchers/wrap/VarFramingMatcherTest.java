@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.matchers.wrap;
+
+import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.run.context.MatcherContext;
+import com.github.fge.grappa.support.Var;
+import com.google.common.base.Supplier;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.annotations.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+public final class VarFramingMatcherTest
+{
+    @Test
+    public void failingInitializerLeavesNoFrameBehind()
+    {
+        final Var<Integer> first = new Var<>(new Supplier<Integer>()
+        {
+            private int count = 0;
+
+            @Override
+            public Integer get()
+            {
+                return ++count;
+            }
+        });
+        final Var<Integer> second = new Var<>(new Supplier<Integer>()
+        {
+            private boolean thrown = false;
+
+            @Override
+            public Integer get()
+            {
+                if (thrown)
+                    return 0;
+                thrown = true;
+                throw new IllegalStateException();
+            }
+        });
+        final Matcher inner = mock(Matcher.class);
+        final MatcherContext<?> context = mock(MatcherContext.class);
+
+        doAnswer(new Answer<Boolean>()
+        {
+            @Override
+            public Boolean answer(final InvocationOnMock invocation)
+            {
+                assertThat(first.getLevel()).isEqualTo(1);
+                assertThat(second.getLevel()).isEqualTo(1);
+                return true;
+            }
+        }).when(inner).match(any(MatcherContext.class));
+
+        final VarFramingMatcher matcher
+            = new VarFramingMatcher(inner, new Var<?>[] { first, second });
+
+        try {
+            matcher.match(context);
+            fail("No exception thrown!");
+        } catch (IllegalStateException ignored) {
+            assertThat(first.getLevel()).isEqualTo(0);
+            assertThat(second.getLevel()).isEqualTo(0);
+        }
+
+        assertThat(matcher.match(context)).isTrue();
+        assertThat(first.getLevel()).isEqualTo(0);
+        assertThat(second.getLevel()).isEqualTo(0);
+        assertThat(first.get()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.parsers;
+
+import com.github.fge.grappa.Grappa;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.run.ListeningParseRunner;
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class AsyncEventPipelineTest
+{
+    static class TestParser
+        extends ListeningParser<Object>
+    {
+        public Rule rule()
+        {
+            return oneOrMore(sequence(digit(), postRaw(match())));
+        }
+    }
+
+    public static final class Collector
+    {
+        private final List<String> events = new ArrayList<>();
+        private volatile Thread thread;
+
+        @Subscribe
+        public void collect(final String event)
+        {
+            thread = Thread.currentThread();
+            events.add(event);
+        }
+    }
+
+    public static final class Blocker
+    {
+        private final CountDownLatch latch = new CountDownLatch(1);
+
+        @Subscribe
+        public void block(final Integer event)
+            throws InterruptedException
+        {
+            latch.await();
+        }
+    }
+
+    @Test
+    public void eventsAreDeliveredInOrderOnAnotherThread()
+    {
+        final TestParser parser = Grappa.createParser(TestParser.class);
+        final Collector collector = new Collector();
+        parser.register(collector);
+
+        final AsyncEventPipeline pipeline = parser.enableAsyncEvents(4,
+            AsyncEventPipeline.Backpressure.BLOCK);
+
+        new ListeningParseRunner<>(parser.rule()).run("0123456789");
+        parser.disableAsyncEvents();
+
+        assertThat(collector.events).containsExactly("0", "1", "2", "3", "4",
+            "5", "6", "7", "8", "9");
+        assertThat(collector.thread).isNotSameAs(Thread.currentThread());
+        assertThat(pipeline.getDeliveredCount()).isEqualTo(10L);
+        assertThat(pipeline.getDroppedCount()).isEqualTo(0L);
+        assertThat(pipeline.getQueueDepth()).isEqualTo(0L);
+        assertThat(pipeline.getMaxQueueDepth()).isLessThanOrEqualTo(4L);
+    }
+
+    @Test
+    public void closingThePipelineGoesBackToSynchronousDelivery()
+    {
+        final TestParser parser = Grappa.createParser(TestParser.class);
+        final Collector collector = new Collector();
+        parser.register(collector);
+
+        parser.enableAsyncEvents(4, AsyncEventPipeline.Backpressure.BLOCK)
+            .close();
+
+        new ListeningParseRunner<>(parser.rule()).run("01");
+
+        assertThat(collector.events).containsExactly("0", "1");
+        assertThat(collector.thread).isSameAs(Thread.currentThread());
+
+        final AsyncEventPipeline pipeline = parser.enableAsyncEvents(4,
+            AsyncEventPipeline.Backpressure.BLOCK);
+        pipeline.close();
+        pipeline.close();
+
+        assertThat(pipeline.getDeliveredCount()).isEqualTo(0L);
+    }
+
+    @Test
+    public void fullQueueDropsEventsWithDropPolicy()
+    {
+        final EventBus bus = new EventBus();
+        final Blocker blocker = new Blocker();
+        bus.register(blocker);
+
+        final AsyncEventPipeline pipeline = new AsyncEventPipeline(bus, 4,
+            AsyncEventPipeline.Backpressure.DROP);
+
+        int accepted = 0;
+        for (int i = 0; i < 100; i++)
+            if (pipeline.post(i))
+                accepted++;
+
+        blocker.latch.countDown();
+        pipeline.close();
+
+        assertThat(accepted).isEqualTo(4);
+        assertThat(pipeline.getDroppedCount()).isEqualTo(100L - accepted);
+        assertThat(pipeline.getDeliveredCount()).isEqualTo((long) accepted);
+    }
+
+    @Test
+    public void samplePolicyThinsEventsWhenQueueFillsUp()
+    {
+        final EventBus bus = new EventBus();
+        final Blocker blocker = new Blocker();
+        bus.register(blocker);
+
+        final AsyncEventPipeline pipeline = new AsyncEventPipeline(bus, 16, 1,
+            AsyncEventPipeline.Backpressure.SAMPLE, 4);
+
+        for (int i = 0; i < 20; i++)
+            pipeline.post(i);
+
+        blocker.latch.countDown();
+        pipeline.close();
+
+        final long delivered = pipeline.getDeliveredCount();
+        assertThat(delivered).isGreaterThanOrEqualTo(8L).isLessThan(16L);
+        assertThat(delivered + pipeline.getDroppedCount()).isEqualTo(20L);
+    }
+}
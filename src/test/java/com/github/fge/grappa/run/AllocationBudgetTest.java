@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.run;
+
+import com.github.fge.grappa.Grappa;
+import com.github.fge.grappa.buffers.CharSequenceInputBuffer;
+import com.github.fge.grappa.buffers.InputBuffer;
+import com.github.fge.grappa.parsers.BaseParser;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.util.AllocationMeter;
+import com.google.common.collect.Lists;
+import org.testng.SkipException;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.Iterator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Allocation ceilings of warm parses, per input character
+ *
+ * <p>Recognizers should not allocate on the hot path at all; their budget
+ * only accounts for what is allocated once per parse (the root context and
+ * its subcontexts, the value stack, the result). Grammars with actions are
+ * allowed what their actions allocate (matched text, boxed values), plus the
+ * snapshots of the value stack: one small object each time a sequence sees a
+ * changed stack, and a copy of the stack when an action rewrites values a
+ * snapshot covers.</p>
+ */
+public final class AllocationBudgetTest
+{
+    private static final int INPUT_SIZE = 16384;
+    private static final int WARMUPS = 500;
+    private static final int RUNS = 20;
+
+    static class TestParser
+        extends BaseParser<Integer>
+    {
+        public Rule csv()
+        {
+            return sequence(oneOrMore(record()), EOI);
+        }
+
+        public Rule record()
+        {
+            return sequence(field(), zeroOrMore(',', field()), '\n');
+        }
+
+        public Rule field()
+        {
+            return firstOf(
+                sequence('"', zeroOrMore(firstOf("\"\"", noneOf("\""))), '"'),
+                zeroOrMore(noneOf(",\"\n"))
+            );
+        }
+
+        public Rule keywords()
+        {
+            return sequence(oneOrMore(firstOf("select", "from", "where",
+                "order", "by", "group", "having", ' ')), EOI);
+        }
+
+        public Rule arithmetic()
+        {
+            return sequence(expression(), EOI);
+        }
+
+        public Rule expression()
+        {
+            return sequence(term(), zeroOrMore(firstOf(
+                sequence('+', term(), push(pop() + pop())),
+                sequence('-', term(), push(-pop() + pop()))
+            )));
+        }
+
+        public Rule term()
+        {
+            return sequence(factor(), zeroOrMore(
+                sequence('*', factor(), push(pop() * pop()))
+            ));
+        }
+
+        public Rule factor()
+        {
+            return firstOf(number(), sequence('(', expression(), ')'));
+        }
+
+        public Rule number()
+        {
+            return sequence(oneOrMore(digit()),
+                push(Integer.parseInt(match())));
+        }
+    }
+
+    private static InputBuffer repeat(final String chunk, final String end)
+    {
+        final StringBuilder sb = new StringBuilder(INPUT_SIZE + chunk.length());
+        while (sb.length() < INPUT_SIZE)
+            sb.append(chunk);
+        return new CharSequenceInputBuffer(sb.append(end));
+    }
+
+    @BeforeClass
+    public void checkSupport()
+    {
+        if (!AllocationMeter.isSupported())
+            throw new SkipException("allocation cannot be measured here");
+    }
+
+    @DataProvider
+    public Iterator<Object[]> getBudgets()
+    {
+        final List<Object[]> list = Lists.newArrayList();
+        final TestParser parser = Grappa.createParser(TestParser.class);
+
+        list.add(new Object[] {
+            "csv", parser.csv(),
+            repeat("1234,\"quoted, \"\"with\"\" quotes\",plain,\n", ""),
+            0.5
+        });
+
+        list.add(new Object[] {
+            "keywords", parser.keywords(),
+            repeat("select from where group by having order by ", ""),
+            0.5
+        });
+
+        list.add(new Object[] {
+            "arithmetic", parser.arithmetic(),
+            repeat("12*(3+4*(5-6))-7*8+", "0"),
+            64.0
+        });
+
+        return list.iterator();
+    }
+
+    @Test(dataProvider = "getBudgets")
+    public void warmParsesStayWithinAllocationBudget(final String name,
+        final Rule rule, final InputBuffer buffer, final double budget)
+    {
+        final ParseRunner<Integer> runner = new ListeningParseRunner<>(rule);
+
+        final double bytesPerChar
+            = AllocationMeter.bytesPerChar(runner, buffer, WARMUPS, RUNS);
+
+        assertThat(bytesPerChar).overridingErrorMessage(
+            "grammar %s allocates %.3f bytes per char (budget: %.3f)", name,
+            bytesPerChar, budget
+        ).isLessThanOrEqualTo(budget);
+    }
+}
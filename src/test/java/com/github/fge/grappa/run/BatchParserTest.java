@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.run;
+
+import com.github.fge.grappa.parsers.BaseParser;
+import com.github.fge.grappa.rules.Rule;
+import com.google.common.base.Function;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class BatchParserTest
+{
+    static class TestParser
+        extends BaseParser<Object>
+    {
+        public Rule rule()
+        {
+            return sequence(oneOrMore(digit()), push(match()), EOI);
+        }
+    }
+
+    private ExecutorService executor;
+    private BatchParser<Object> batchParser;
+
+    @BeforeClass
+    public void init()
+    {
+        final PerThreadGrammar<TestParser, Object> grammar
+            = new PerThreadGrammar<>(TestParser.class,
+            new Function<TestParser, Rule>()
+            {
+                @Override
+                public Rule apply(final TestParser input)
+                {
+                    return input.rule();
+                }
+            });
+        executor = Executors.newFixedThreadPool(4);
+        batchParser = new BatchParser<>(grammar, executor, 7);
+    }
+
+    @AfterClass
+    public void shutdown()
+    {
+        executor.shutdown();
+    }
+
+    @Test
+    public void resultsAreReturnedInInputOrder()
+        throws InterruptedException
+    {
+        final List<String> inputs = new ArrayList<>();
+        for (int i = 0; i < 1000; i++)
+            inputs.add(i % 10 == 9 ? "x" + i : Integer.toString(i));
+
+        final List<ParsingResult<Object>> results
+            = batchParser.runAll(inputs);
+
+        assertThat(results).hasSize(inputs.size());
+
+        ParsingResult<Object> result;
+        for (int i = 0; i < inputs.size(); i++) {
+            result = results.get(i);
+            if (i % 10 == 9) {
+                assertThat(result.isSuccess()).isFalse();
+                continue;
+            }
+            assertThat(result.isSuccess()).isTrue();
+            assertThat(result.getTopStackValue()).isEqualTo(inputs.get(i));
+        }
+    }
+
+    @Test
+    public void singleInputCanBeSubmitted()
+        throws Exception
+    {
+        final ParsingResult<Object> result = batchParser.submit("42").get();
+
+        assertThat(result.isSuccess()).isTrue();
+        assertThat(result.getTopStackValue()).isEqualTo("42");
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.run;
+
+import com.github.fge.grappa.Grappa;
+import com.github.fge.grappa.parsers.BaseParser;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.stack.ValueStack;
+import com.google.common.collect.ImmutableList;
+import org.testng.annotations.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class DeferredActionsParseRunnerTest
+{
+    static class TestParser
+        extends BaseParser<Object>
+    {
+        int nrActions = 0;
+
+        boolean count()
+        {
+            nrActions++;
+            return true;
+        }
+
+        public Rule number()
+        {
+            return sequence(oneOrMore(digit()), push(match()), count());
+        }
+
+        public Rule rule()
+        {
+            return sequence(
+                firstOf(
+                    sequence(number(), 'x', test('a')),
+                    sequence(number(), 'y'),
+                    sequence(number(), 'x')
+                ),
+                optional(test(number()))
+            );
+        }
+    }
+
+    @Test
+    public void actionsOfFailedAlternativesAreNotRun()
+    {
+        final TestParser parser = Grappa.createParser(TestParser.class);
+        final DeferredActionsParseRunner<Object> runner
+            = new DeferredActionsParseRunner<>(parser.rule());
+
+        final ParsingResult<Object> result = runner.run("12x3");
+
+        assertThat(result.isSuccess()).isTrue();
+        assertThat(result.getValueStack()).containsExactly("12");
+        assertThat(parser.nrActions).isEqualTo(1);
+        assertThat(runner.getNrActionsRun()).isEqualTo(2);
+    }
+
+    @Test
+    public void deferredRunnerProducesTheSameStackAsEagerRunner()
+    {
+        final TestParser parser = Grappa.createParser(TestParser.class);
+        final ParseRunner<Object> eager
+            = new ListeningParseRunner<>(parser.rule());
+        final ParseRunner<Object> deferred
+            = new DeferredActionsParseRunner<>(parser.rule());
+
+        ValueStack<Object> expected;
+        ValueStack<Object> actual;
+
+        for (final String input: ImmutableList.of("12x3", "4y", "567x")) {
+            expected = eager.run(input).getValueStack();
+            actual = deferred.run(input).getValueStack();
+            assertThat(actual).containsExactlyElementsOf(expected);
+        }
+    }
+
+    @Test
+    public void noActionIsRunWhenTheInputDoesNotMatch()
+    {
+        final TestParser parser = Grappa.createParser(TestParser.class);
+        final DeferredActionsParseRunner<Object> runner
+            = new DeferredActionsParseRunner<>(parser.rule());
+
+        final ParsingResult<Object> result = runner.run("12z");
+
+        assertThat(result.isSuccess()).isFalse();
+        assertThat(result.getValueStack()).isEmpty();
+        assertThat(parser.nrActions).isEqualTo(0);
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.run;
+
+import com.github.fge.grappa.Grappa;
+import com.github.fge.grappa.exceptions.GrappaException;
+import com.github.fge.grappa.parsers.BaseParser;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.run.context.MatcherContext;
+import org.testng.annotations.Test;
+
+import java.util.EnumSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public final class DirectParseRunnerListenerTest
+{
+    static class TestParser
+        extends BaseParser<Object>
+    {
+        public Rule rule()
+        {
+            return sequence(firstOf('x', "bar"), "baz");
+        }
+    }
+
+    private static final class CountingListener
+        extends DirectParseRunnerListener<Object>
+    {
+        private int beforeParse = 0;
+        private int beforeMatch = 0;
+        private int matchSuccess = 0;
+        private int matchFailure = 0;
+        private int afterParse = 0;
+        private ParsingResult<Object> result;
+
+        @Override
+        public void beforeParse(final MatcherContext<Object> context)
+        {
+            beforeParse++;
+        }
+
+        @Override
+        public void beforeMatch(final MatcherContext<Object> context)
+        {
+            beforeMatch++;
+        }
+
+        @Override
+        public void matchSuccess(final MatcherContext<Object> context)
+        {
+            matchSuccess++;
+        }
+
+        @Override
+        public void matchFailure(final MatcherContext<Object> context)
+        {
+            matchFailure++;
+        }
+
+        @Override
+        public void afterParse(final ParsingResult<Object> result)
+        {
+            afterParse++;
+            this.result = result;
+        }
+    }
+
+    @Test
+    public void allCallbacksAreInvokedByDefault()
+    {
+        final TestParser parser = Grappa.createParser(TestParser.class);
+        final ListeningParseRunner<Object> runner
+            = new ListeningParseRunner<>(parser.rule());
+        final CountingListener listener = new CountingListener();
+
+        runner.registerListener(listener);
+
+        final ParsingResult<Object> result = runner.run("barbaz");
+
+        assertThat(result.isSuccess()).isTrue();
+        assertThat(listener.beforeParse).isEqualTo(1);
+        assertThat(listener.afterParse).isEqualTo(1);
+        assertThat(listener.result).isSameAs(result);
+        // sequence, firstOf, 'x' (fails), "bar", "baz"
+        assertThat(listener.beforeMatch).isEqualTo(5);
+        assertThat(listener.matchSuccess).isEqualTo(4);
+        assertThat(listener.matchFailure).isEqualTo(1);
+    }
+
+    @Test
+    public void onlySubscribedCallbacksAreInvoked()
+    {
+        final TestParser parser = Grappa.createParser(TestParser.class);
+        final ListeningParseRunner<Object> runner
+            = new ListeningParseRunner<>(parser.rule());
+        final CountingListener listener = new CountingListener();
+
+        runner.registerListener(listener,
+            EnumSet.of(ParseRunnerCallback.MATCH_FAILURE));
+
+        runner.run("xbaz");
+
+        assertThat(listener.matchFailure).isEqualTo(0);
+
+        runner.run("xba");
+
+        assertThat(listener.matchFailure).isEqualTo(2);
+        assertThat(listener.beforeParse).isEqualTo(0);
+        assertThat(listener.beforeMatch).isEqualTo(0);
+        assertThat(listener.matchSuccess).isEqualTo(0);
+        assertThat(listener.afterParse).isEqualTo(0);
+    }
+
+    @Test
+    public void listenerExceptionsAreWrapped()
+    {
+        final TestParser parser = Grappa.createParser(TestParser.class);
+        final ListeningParseRunner<Object> runner
+            = new ListeningParseRunner<>(parser.rule());
+        final IllegalStateException exception = new IllegalStateException();
+
+        runner.registerListener(new DirectParseRunnerListener<Object>()
+        {
+            @Override
+            public void beforeParse(final MatcherContext<Object> context)
+            {
+                throw exception;
+            }
+        });
+
+        try {
+            runner.run("xbaz");
+            fail("No exception thrown!");
+        } catch (GrappaException e) {
+            assertThat(e.getCause()).isSameAs(exception);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.fge.grappa.run;
+
+import com.github.fge.grappa.Grappa;
+import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.parsers.BaseParser;
+import com.github.fge.grappa.rules.Rule;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class FarthestFailureTest
+{
+    static class TestParser
+        extends BaseParser<Object>
+    {
+        public Rule statement()
+        {
+            return sequence(firstOf(sequence("select", ' '), "drop "),
+                identifier(), ';', EOI);
+        }
+
+        public Rule identifier()
+        {
+            return oneOrMore(charRange('a', 'z'));
+        }
+
+        public Rule notACall()
+        {
+            return sequence(testNot(identifier(), '('), identifier(), ';',
+                EOI);
+        }
+
+        public Rule letters()
+        {
+            return firstOf('a', 'b', 'c', 'd', 'e', 'f', 'g', 'h', 'i', 'j');
+        }
+    }
+
+    private final TestParser parser = Grappa.createParser(TestParser.class);
+
+    private static List<String> labels(final ParsingResult<?> result)
+    {
+        final List<String> ret = new ArrayList<>();
+        for (final Matcher matcher: result.getExpected())
+            ret.add(matcher.getLabel());
+        return ret;
+    }
+
+    @Test
+    public void farthestFailureIsReported()
+    {
+        final ParseRunner<Object> runner
+            = new ListeningParseRunner<>(parser.statement());
+        final ParsingResult<Object> result = runner.run("select foo!");
+
+        assertThat(result.isSuccess()).isFalse();
+        assertThat(result.getFarthestFailureIndex()).isEqualTo(10);
+        assertThat(labels(result)).containsExactly("a..z", "';'");
+    }
+
+    @Test
+    public void failuresOfPreviousRunsAreForgotten()
+    {
+        final ParseRunner<Object> runner
+            = new ListeningParseRunner<>(parser.statement());
+
+        assertThat(runner.run("select foo!").isSuccess()).isFalse();
+
+        final ParsingResult<Object> result = runner.run("drop x;");
+
+        assertThat(result.isSuccess()).isTrue();
+        assertThat(result.getFarthestFailureIndex()).isEqualTo(6);
+        assertThat(labels(result)).containsExactly("a..z");
+    }
+
+    @Test
+    public void expectedMatchersAreBounded()
+    {
+        final ParseRunner<Object> runner
+            = new ListeningParseRunner<>(parser.letters());
+        final ParsingResult<Object> result = runner.run("z");
+
+        assertThat(result.getFarthestFailureIndex()).isEqualTo(0);
+        assertThat(labels(result))
+            .hasSize(AbstractParseRunner.MAX_EXPECTED)
+            .startsWith("'a'", "'b'");
+    }
+
+    @Test
+    public void deferredActionsRunnerTracksFailures()
+    {
+        final ParseRunner<Object> runner
+            = new DeferredActionsParseRunner<>(parser.statement());
+        final ParsingResult<Object> result = runner.run("drop foo");
+
+        assertThat(result.isSuccess()).isFalse();
+        assertThat(result.getFarthestFailureIndex()).isEqualTo(8);
+        assertThat(labels(result)).containsExactly("a..z", "';'");
+    }
+
+    @Test
+    public void failuresInsidePredicatesAreNotReported()
+    {
+        final ParseRunner<Object> runner
+            = new ListeningParseRunner<>(parser.notACall());
+        final ParsingResult<Object> result = runner.run("foo!");
+
+        assertThat(result.isSuccess()).isFalse();
+        assertThat(result.getFarthestFailureIndex()).isEqualTo(3);
+        assertThat(labels(result)).containsExactly("a..z", "';'");
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.run;
+
+import com.github.fge.grappa.Grappa;
+import com.github.fge.grappa.buffers.InputBuffer;
+import com.github.fge.grappa.parsers.BaseParser;
+import com.github.fge.grappa.rules.Rule;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public final class IncrementalParseRunnerTest
+{
+    static class TestParser
+        extends BaseParser<Object>
+    {
+        public Rule word()
+        {
+            return oneOrMore(firstOf(alpha(), digit()));
+        }
+
+        public Rule keyword()
+        {
+            return sequence("let", testNot(firstOf(alpha(), digit())));
+        }
+
+        public Rule statement()
+        {
+            return sequence(
+                firstOf(
+                    sequence(keyword(), ' ', word(), push("let " + match())),
+                    sequence(word(), push(match()))
+                ),
+                ';'
+            );
+        }
+
+        public Rule rule()
+        {
+            return sequence(zeroOrMore(statement(), optional('\n')), EOI);
+        }
+    }
+
+    private static final String INPUT = "let a;\nfoo;\nlet b;\nbar;\nlet c;\n";
+
+    @DataProvider
+    public Iterator<Object[]> getEdits()
+    {
+        final List<Object[]> list = new ArrayList<>();
+
+        list.add(new Object[] { 0, 0, "x" });
+        list.add(new Object[] { 4, 1, "abc" });
+        list.add(new Object[] { 7, 3, "let d" });
+        list.add(new Object[] { 12, 0, "baz;\n" });
+        list.add(new Object[] { INPUT.length(), 0, "last;" });
+        list.add(new Object[] { 5, 1, "" });
+        list.add(new Object[] { 0, INPUT.length(), "" });
+
+        return list.iterator();
+    }
+
+    @Test(dataProvider = "getEdits")
+    public void editedRunHasTheSameResultAsFreshRun(final int offset,
+        final int removed, final String inserted)
+    {
+        final TestParser parser = Grappa.createParser(TestParser.class);
+        final IncrementalParseRunner<Object> runner
+            = new IncrementalParseRunner<>(parser.rule());
+
+        runner.run(INPUT);
+
+        final ParsingResult<Object> actual
+            = runner.applyEdit(offset, removed, inserted);
+
+        final String edited = new StringBuilder(INPUT)
+            .replace(offset, offset + removed, inserted).toString();
+        final ParsingResult<Object> expected
+            = new ListeningParseRunner<>(parser.rule()).run(edited);
+
+        assertThat(actual.isSuccess()).isEqualTo(expected.isSuccess());
+        assertThat(actual.getValueStack())
+            .containsExactlyElementsOf(expected.getValueStack());
+    }
+
+    @Test
+    public void resultsAfterTheEditAreReused()
+    {
+        final TestParser parser = Grappa.createParser(TestParser.class);
+        final IncrementalParseRunner<Object> runner
+            = new IncrementalParseRunner<>(parser.rule());
+
+        runner.run(INPUT);
+        assertThat(runner.getMemoSize()).isGreaterThan(0);
+
+        runner.applyEdit(0, 0, "x");
+        assertThat(runner.getMemoHits()).isGreaterThan(0);
+    }
+
+    @Test
+    public void editedInputIsAViewValidUntilTheNextEdit()
+    {
+        final TestParser parser = Grappa.createParser(TestParser.class);
+        final IncrementalParseRunner<Object> runner
+            = new IncrementalParseRunner<>(parser.rule());
+
+        runner.run(INPUT);
+
+        final InputBuffer buffer
+            = runner.applyEdit(7, 3, "let d").getInputBuffer();
+
+        assertThat(buffer.extractLine(2)).isEqualTo("let d;");
+        assertThat(buffer.getPosition(9).getLine()).isEqualTo(2);
+
+        runner.applyEdit(0, 0, "x");
+
+        try {
+            buffer.charAt(0);
+            fail("No exception thrown!");
+        } catch (IllegalStateException e) {
+            assertThat(e.getMessage()).startsWith("document was edited");
+        }
+    }
+}
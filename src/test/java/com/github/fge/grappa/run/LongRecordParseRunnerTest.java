@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.run;
+
+import com.github.fge.grappa.Grappa;
+import com.github.fge.grappa.buffers.LongInputBuffer;
+import com.github.fge.grappa.buffers.MappedLatin1FileBuffer;
+import com.github.fge.grappa.exceptions.GrappaException;
+import com.github.fge.grappa.parsers.BaseParser;
+import com.github.fge.grappa.rules.Rule;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public final class LongRecordParseRunnerTest
+{
+    static class TestParser
+        extends BaseParser<Object>
+    {
+        public Rule record()
+        {
+            return sequence(oneOrMore(digit()), push(match()), '\n');
+        }
+
+        public Rule lineRecord()
+        {
+            return sequence(oneOrMore(digit()), '\n',
+                push(position().getLine()));
+        }
+    }
+
+    private Path file;
+
+    @BeforeMethod
+    public void createFile()
+        throws IOException
+    {
+        file = Files.createTempFile("grappa", ".txt");
+    }
+
+    @AfterMethod
+    public void deleteFile()
+        throws IOException
+    {
+        Files.delete(file);
+    }
+
+    @Test
+    public void recordsAreMatchedAcrossWindows()
+        throws IOException
+    {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 500; i++)
+            sb.append(i).append('\n');
+        Files.write(file, sb.toString().getBytes(StandardCharsets.US_ASCII));
+
+        final TestParser parser = Grappa.createParser(TestParser.class);
+        final LongRecordParseRunner<Object> runner
+            = new LongRecordParseRunner<>(parser.record(), 10);
+        final LongInputBuffer input = new MappedLatin1FileBuffer(file);
+
+        final Iterator<LongRecord<Object>> iterator = runner.iterate(input);
+
+        LongRecord<Object> record;
+        long offset = 0L;
+
+        for (int i = 0; i < 500; i++) {
+            record = iterator.next();
+            assertThat(record.getValue()).isEqualTo(Integer.toString(i));
+            assertThat(record.getStart()).isEqualTo(offset);
+            offset = record.getEnd();
+        }
+
+        assertThat(iterator.hasNext()).isFalse();
+        assertThat(offset).isEqualTo(input.length());
+    }
+
+    @Test
+    public void lineInformationDoesNotCountAsReadingPastTheWindow()
+        throws IOException
+    {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 100; i++)
+            sb.append("123\n");
+        Files.write(file, sb.toString().getBytes(StandardCharsets.US_ASCII));
+
+        final TestParser parser = Grappa.createParser(TestParser.class);
+        final LongRecordParseRunner<Object> runner
+            = new LongRecordParseRunner<>(parser.lineRecord(), 64);
+        final Iterator<LongRecord<Object>> iterator
+            = runner.iterate(new MappedLatin1FileBuffer(file));
+
+        int nrRecords = 0;
+
+        while (iterator.hasNext()) {
+            assertThat(iterator.next().getValue()).isNotNull();
+            nrRecords++;
+        }
+
+        assertThat(nrRecords).isEqualTo(100);
+    }
+
+    @Test
+    public void recordLargerThanWindowIsReported()
+        throws IOException
+    {
+        Files.write(file, "1\n123456789012\n".getBytes(
+            StandardCharsets.US_ASCII));
+
+        final TestParser parser = Grappa.createParser(TestParser.class);
+        final LongRecordParseRunner<Object> runner
+            = new LongRecordParseRunner<>(parser.record(), 8);
+        final Iterator<LongRecord<Object>> iterator
+            = runner.iterate(new MappedLatin1FileBuffer(file));
+
+        assertThat(iterator.next().getValue()).isEqualTo("1");
+        try {
+            iterator.next();
+            fail("No exception thrown!");
+        } catch (GrappaException e) {
+            assertThat(e.getMessage()).contains("offset 2");
+        }
+    }
+}
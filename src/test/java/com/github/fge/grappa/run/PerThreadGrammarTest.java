@@ -0,0 +1,192 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.run;
+
+import com.github.fge.grappa.parsers.BaseParser;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.support.Var;
+import com.google.common.base.Function;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class PerThreadGrammarTest
+{
+    private static final int NR_THREADS = 4;
+    private static final int NR_RUNS = 200;
+
+    static class TestParser
+        extends BaseParser<Object>
+    {
+        public Rule rule()
+        {
+            final Var<Integer> count = new Var<>(0);
+            return sequence(
+                oneOrMore('a', count.set(count.get() + 1)),
+                push(count.get())
+            );
+        }
+    }
+
+    static class StatelessParser
+        extends BaseParser<Object>
+    {
+        public Rule rule()
+        {
+            return sequence(oneOrMore(item()), EOI);
+        }
+
+        public Rule item()
+        {
+            return firstOf('a', sequence('(', zeroOrMore(item()), ')'));
+        }
+    }
+
+    private static final Function<StatelessParser, Rule> STATELESS_ROOT_RULE
+        = new Function<StatelessParser, Rule>()
+    {
+        @Override
+        public Rule apply(final StatelessParser input)
+        {
+            return input.rule();
+        }
+    };
+
+    private static final Function<TestParser, Rule> ROOT_RULE
+        = new Function<TestParser, Rule>()
+    {
+        @Override
+        public Rule apply(final TestParser input)
+        {
+            return input.rule();
+        }
+    };
+
+    @Test
+    public void runStatesArePerThread()
+        throws Exception
+    {
+        final PerThreadGrammar<TestParser, Object> grammar
+            = new PerThreadGrammar<>(TestParser.class, ROOT_RULE);
+
+        final RunState<TestParser, Object> state = grammar.getRunState();
+        assertThat(grammar.getRunState()).isSameAs(state);
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final RunState<TestParser, Object> other = executor.submit(
+                new Callable<RunState<TestParser, Object>>()
+                {
+                    @Override
+                    public RunState<TestParser, Object> call()
+                    {
+                        return grammar.getRunState();
+                    }
+                }).get();
+            assertThat(other).isNotSameAs(state);
+            assertThat(other.getParser()).isNotSameAs(state.getParser());
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(grammar.isShared()).isFalse();
+    }
+
+    @Test
+    public void statelessGrammarIsSharedAcrossThreads()
+        throws Exception
+    {
+        final PerThreadGrammar<StatelessParser, Object> grammar
+            = new PerThreadGrammar<>(StatelessParser.class,
+                STATELESS_ROOT_RULE);
+
+        assertThat(grammar.isShared()).isTrue();
+
+        final RunState<StatelessParser, Object> state = grammar.getRunState();
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final RunState<StatelessParser, Object> other = executor.submit(
+                new Callable<RunState<StatelessParser, Object>>()
+                {
+                    @Override
+                    public RunState<StatelessParser, Object> call()
+                    {
+                        assertThat(grammar.run("a(a(a))a").isSuccess())
+                            .isTrue();
+                        assertThat(grammar.run("a(a").isSuccess())
+                            .isFalse();
+                        return grammar.getRunState();
+                    }
+                }).get();
+            assertThat(other).isNotSameAs(state);
+            assertThat(other.getParser()).isSameAs(state.getParser());
+            assertThat(other.getRule()).isSameAs(state.getRule());
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(grammar.run("(a)(())").isSuccess()).isTrue();
+    }
+
+    @Test
+    public void grammarCanBeUsedConcurrently()
+        throws Exception
+    {
+        final PerThreadGrammar<TestParser, Object> grammar
+            = new PerThreadGrammar<>(TestParser.class, ROOT_RULE);
+        final ExecutorService executor
+            = Executors.newFixedThreadPool(NR_THREADS);
+        final List<Future<Boolean>> futures = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < NR_THREADS; i++)
+                futures.add(executor.submit(new Callable<Boolean>()
+                {
+                    @Override
+                    public Boolean call()
+                    {
+                        ParsingResult<Object> result;
+                        StringBuilder sb;
+                        for (int run = 1; run <= NR_RUNS; run++) {
+                            sb = new StringBuilder(run);
+                            for (int j = 0; j < run; j++)
+                                sb.append('a');
+                            result = grammar.run(sb);
+                            if (!result.isSuccess())
+                                return false;
+                            if (!Integer.valueOf(run)
+                                .equals(result.getTopStackValue()))
+                                return false;
+                        }
+                        return true;
+                    }
+                }));
+
+            for (final Future<Boolean> future: futures)
+                assertThat(future.get()).isTrue();
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
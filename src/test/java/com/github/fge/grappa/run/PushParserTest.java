@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.run;
+
+import com.github.fge.grappa.Grappa;
+import com.github.fge.grappa.parsers.BaseParser;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.run.PushParser.Status;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public final class PushParserTest
+{
+    static class TestParser
+        extends BaseParser<Object>
+    {
+        public Rule message()
+        {
+            return sequence(
+                "MSG ",
+                oneOrMore(noneOf(";")), push(match()),
+                ';'
+            );
+        }
+
+        public Rule numberedMessage()
+        {
+            return sequence("MSG ", oneOrMore(noneOf(";")), ';',
+                push(position().getLine()));
+        }
+    }
+
+    private TestParser parser;
+
+    @BeforeMethod
+    public void init()
+    {
+        parser = Grappa.createParser(TestParser.class);
+    }
+
+    @Test
+    public void messageSplitInChunksCompletes()
+    {
+        final PushParser<Object> pushParser
+            = new PushParser<>(parser.message());
+
+        assertThat(pushParser.feed("MS")).isEqualTo(Status.NEED_MORE_INPUT);
+        assertThat(pushParser.feed("G hel")).isEqualTo(Status.NEED_MORE_INPUT);
+        assertThat(pushParser.feed("lo")).isEqualTo(Status.NEED_MORE_INPUT);
+        assertThat(pushParser.feed(";")).isEqualTo(Status.COMPLETE);
+        assertThat(pushParser.getResult().getTopStackValue())
+            .isEqualTo("hello");
+    }
+
+    @Test
+    public void lineInformationDoesNotCountAsNeedingMoreInput()
+    {
+        final PushParser<Object> pushParser
+            = new PushParser<>(parser.numberedMessage());
+
+        assertThat(pushParser.feed("MSG a")).isEqualTo(Status.NEED_MORE_INPUT);
+        assertThat(pushParser.feed("b;")).isEqualTo(Status.COMPLETE);
+        assertThat(pushParser.getResult().getTopStackValue()).isEqualTo(1);
+    }
+
+    @Test
+    public void invalidMessageFailsEarly()
+    {
+        final PushParser<Object> pushParser
+            = new PushParser<>(parser.message());
+
+        assertThat(pushParser.feed("MSG")).isEqualTo(Status.NEED_MORE_INPUT);
+        assertThat(pushParser.feed(" ;")).isEqualTo(Status.FAILED);
+    }
+
+    @Test
+    public void endOfInputForcesFinalStatus()
+        throws CharacterCodingException
+    {
+        final PushParser<Object> pushParser
+            = new PushParser<>(parser.message());
+
+        assertThat(pushParser.feed("MSG abc")).isEqualTo(Status.NEED_MORE_INPUT);
+        assertThat(pushParser.endOfInput()).isEqualTo(Status.FAILED);
+    }
+
+    @Test
+    public void bytesSplitInTheMiddleOfACharacterAreDecoded()
+        throws CharacterCodingException
+    {
+        final PushParser<Object> pushParser
+            = new PushParser<>(parser.message(), StandardCharsets.UTF_8);
+        final byte[] bytes = "MSG hé;".getBytes(StandardCharsets.UTF_8);
+
+        // 'é' is encoded as two bytes at indices 5 and 6
+        assertThat(pushParser.feed(ByteBuffer.wrap(bytes, 0, 6)))
+            .isEqualTo(Status.NEED_MORE_INPUT);
+        assertThat(pushParser.feed(ByteBuffer.wrap(bytes, 6,
+            bytes.length - 6))).isEqualTo(Status.COMPLETE);
+        assertThat(pushParser.getResult().getTopStackValue())
+            .isEqualTo("hé");
+    }
+
+    @Test
+    public void incompleteCharacterAtEndOfInputIsAnError()
+    {
+        final PushParser<Object> pushParser
+            = new PushParser<>(parser.message(), StandardCharsets.UTF_8);
+        final byte[] bytes = "MSG hé".getBytes(StandardCharsets.UTF_8);
+
+        try {
+            assertThat(pushParser.feed(ByteBuffer.wrap(bytes, 0, 6)))
+                .isEqualTo(Status.NEED_MORE_INPUT);
+            pushParser.endOfInput();
+            fail("No exception thrown!");
+        } catch (CharacterCodingException ignored) {
+        }
+    }
+}
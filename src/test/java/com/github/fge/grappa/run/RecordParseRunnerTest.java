@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.run;
+
+import com.github.fge.grappa.Grappa;
+import com.github.fge.grappa.exceptions.GrappaException;
+import com.github.fge.grappa.parsers.BaseParser;
+import com.github.fge.grappa.rules.Rule;
+import com.google.common.collect.ImmutableList;
+import org.testng.annotations.Test;
+
+import java.util.Iterator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public final class RecordParseRunnerTest
+{
+    static class TestParser
+        extends BaseParser<Object>
+    {
+        public Rule record()
+        {
+            return sequence(
+                firstOf(
+                    sequence(oneOrMore(digit()), push(match())),
+                    '#'
+                ),
+                '\n'
+            );
+        }
+
+        public Rule pair()
+        {
+            return sequence(
+                oneOrMore(digit()), push(match()), '=',
+                oneOrMore(digit()), push(match()), '\n'
+            );
+        }
+    }
+
+    @Test
+    public void iteratorReturnsRecordValuesLazily()
+    {
+        final TestParser parser = Grappa.createParser(TestParser.class);
+        final RecordParseRunner<Object> runner
+            = new RecordParseRunner<>(parser.record());
+
+        final Iterator<Object> iterator = runner.iterate("1\n#\n22\n333\n");
+
+        assertThat(iterator.next()).isEqualTo("1");
+        assertThat(runner.getValueStack()).isEmpty();
+        assertThat(ImmutableList.copyOf(iterator)).containsExactly("22", "333");
+    }
+
+    @Test
+    public void iteratorThrowsOnInvalidRecord()
+    {
+        final TestParser parser = Grappa.createParser(TestParser.class);
+        final RecordParseRunner<Object> runner
+            = new RecordParseRunner<>(parser.record());
+
+        final Iterator<Object> iterator = runner.iterate("1\nx\n");
+
+        assertThat(iterator.next()).isEqualTo("1");
+        try {
+            iterator.next();
+            fail("No exception thrown!");
+        } catch (GrappaException e) {
+            assertThat(e.getMessage()).startsWith("record rule failed");
+        }
+    }
+
+    @Test
+    public void runCollectsAllRecordValues()
+    {
+        final TestParser parser = Grappa.createParser(TestParser.class);
+        final RecordParseRunner<Object> runner
+            = new RecordParseRunner<>(parser.record());
+
+        final ParsingResult<Object> result = runner.run("1\n#\n22\n");
+
+        assertThat(result.isSuccess()).isTrue();
+        assertThat(result.getValueStack()).containsExactly("22", "1");
+        assertThat(runner.run("1\nx\n").isSuccess()).isFalse();
+    }
+
+    @Test
+    public void runKeepsAllValuesOfEachRecord()
+    {
+        final TestParser parser = Grappa.createParser(TestParser.class);
+        final RecordParseRunner<Object> runner
+            = new RecordParseRunner<>(parser.pair());
+
+        final ParsingResult<Object> result = runner.run("1=2\n3=4\n");
+
+        assertThat(result.isSuccess()).isTrue();
+        assertThat(result.getValueStack()).containsExactly("4", "3", "2", "1");
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.run.parallel;
+
+import com.github.fge.grappa.Grappa;
+import com.github.fge.grappa.parsers.BaseParser;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.run.ListeningParseRunner;
+import com.github.fge.grappa.run.ParsingResult;
+import com.github.fge.grappa.run.PerThreadGrammar;
+import com.google.common.base.CharMatcher;
+import com.google.common.base.Function;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class RecordParallelParserTest
+{
+    static class TestParser
+        extends BaseParser<Object>
+    {
+        public Rule record()
+        {
+            return sequence(oneOrMore(digit()), push(match()), '\n');
+        }
+
+        public Rule rule()
+        {
+            return sequence(zeroOrMore(record()), EOI);
+        }
+    }
+
+    private ExecutorService executor;
+    private PerThreadGrammar<TestParser, Object> grammar;
+    private String input;
+
+    @BeforeClass
+    public void init()
+    {
+        grammar = new PerThreadGrammar<>(TestParser.class,
+            new Function<TestParser, Rule>()
+            {
+                @Override
+                public Rule apply(final TestParser input)
+                {
+                    return input.rule();
+                }
+            });
+        executor = Executors.newFixedThreadPool(4);
+
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 2000; i++)
+            sb.append(i).append('\n');
+        input = sb.toString();
+    }
+
+    @AfterClass
+    public void shutdown()
+    {
+        executor.shutdown();
+    }
+
+    @Test
+    public void mergedStackIsTheSameAsSequentialStack()
+        throws InterruptedException
+    {
+        final RecordParallelParser<Object> parser
+            = new RecordParallelParser<>(grammar, CharMatcher.is('\n'),
+            executor, 100);
+
+        final RecordParallelResult<Object> result = parser.run(input);
+
+        final TestParser sequential = Grappa.createParser(TestParser.class);
+        final ParsingResult<Object> expected
+            = new ListeningParseRunner<>(sequential.rule()).run(input);
+
+        assertThat(result.isSuccess()).isTrue();
+        assertThat(result.getNrChunks()).isGreaterThan(1);
+        assertThat(result.getNrChars()).isEqualTo(input.length());
+        assertThat(result.getValueStack())
+            .containsExactlyElementsOf(expected.getValueStack());
+    }
+
+    @Test
+    public void failedChunkIsReported()
+        throws InterruptedException
+    {
+        final RecordParallelParser<Object> parser
+            = new RecordParallelParser<>(grammar, CharMatcher.is('\n'),
+            executor, 100);
+        final String badInput = input + "oops\n" + input;
+
+        final RecordParallelResult<Object> result = parser.run(badInput);
+
+        assertThat(result.isSuccess()).isFalse();
+
+        final int chunk = result.getFirstFailedChunk();
+        assertThat(chunk).isNotEqualTo(-1);
+
+        final int start = result.getChunkStart(chunk);
+        final int end = chunk == result.getNrChunks() - 1 ? badInput.length()
+            : result.getChunkStart(chunk + 1);
+        assertThat(badInput.substring(start, end)).contains("oops");
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.run.parallel;
+
+import com.github.fge.grappa.Grappa;
+import com.github.fge.grappa.annotations.ParallelElement;
+import com.github.fge.grappa.parsers.BaseParser;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.run.ListeningParseRunner;
+import com.github.fge.grappa.run.ParsingResult;
+import com.google.common.base.Function;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class StructuralParallelParserTest
+{
+    static class TestParser
+        extends BaseParser<Object>
+    {
+        public Rule spaces()
+        {
+            return zeroOrMore(' ');
+        }
+
+        @ParallelElement
+        public Rule element()
+        {
+            return firstOf(
+                sequence(oneOrMore(digit()), push(match())),
+                sequence('"', zeroOrMore(noneOf("\"")), push(match()), '"'),
+                array()
+            );
+        }
+
+        public Rule array()
+        {
+            return sequence(
+                '[', spaces(),
+                optional(
+                    element(), spaces(),
+                    zeroOrMore(',', spaces(), element(), spaces())
+                ),
+                ']'
+            );
+        }
+
+        public Rule document()
+        {
+            return sequence(spaces(), array(), spaces(), EOI);
+        }
+    }
+
+    private static final Function<TestParser, Rule> ROOT_RULE
+        = new Function<TestParser, Rule>()
+    {
+        @Override
+        public Rule apply(final TestParser input)
+        {
+            return input.document();
+        }
+    };
+
+    private ForkJoinPool pool;
+    private StructuralParallelParser<TestParser, Object> parser;
+
+    @BeforeClass
+    public void init()
+    {
+        pool = new ForkJoinPool(4);
+        parser = new StructuralParallelParser<>(TestParser.class, ROOT_RULE,
+            StructureTokens.JSON, pool);
+    }
+
+    @AfterClass
+    public void shutdown()
+    {
+        pool.shutdown();
+    }
+
+    @DataProvider
+    public Iterator<Object[]> getInputs()
+    {
+        final List<Object[]> list = new ArrayList<>();
+
+        list.add(new Object[] { "[]" });
+        list.add(new Object[] { "[1, [2, 3], \"a,]\", [[4]], 5]" });
+        list.add(new Object[] { " [ 1 , 2 ] " });
+        list.add(new Object[] { "[1, [2, 3]" });
+        list.add(new Object[] { "[1, x, 3]" });
+
+        final StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < 1000; i++)
+            sb.append(i).append(", [").append(i).append("], ");
+        sb.append("\"end\"]");
+        list.add(new Object[] { sb.toString() });
+
+        return list.iterator();
+    }
+
+    @Test(dataProvider = "getInputs")
+    public void parallelRunHasTheSameResultAsSequentialRun(final String input)
+    {
+        final TestParser sequential = Grappa.createParser(TestParser.class);
+        final ParsingResult<Object> expected
+            = new ListeningParseRunner<>(sequential.document()).run(input);
+
+        final ParsingResult<Object> actual = parser.run(input);
+
+        assertThat(actual.isSuccess()).isEqualTo(expected.isSuccess());
+        assertThat(actual.getValueStack())
+            .containsExactlyElementsOf(expected.getValueStack());
+    }
+
+    @Test
+    public void prescanFindsTopLevelElements()
+    {
+        final String input = "[1, [2, 3], \"a,]\" ]";
+        final StructureIndex index
+            = new StructureScanner(StructureTokens.JSON).scan(input);
+
+        assertThat(index.isBalanced()).isTrue();
+        assertThat(index.getNrRegions()).isEqualTo(2);
+        assertThat(index.getRegionDepth(1)).isEqualTo(1);
+        assertThat(index.getNrElements()).isEqualTo(3);
+        assertThat(input.substring(index.getElementStart(1),
+            index.getElementEnd(1))).isEqualTo("[2, 3]");
+        assertThat(input.substring(index.getElementStart(2),
+            index.getElementEnd(2))).isEqualTo("\"a,]\"");
+    }
+}
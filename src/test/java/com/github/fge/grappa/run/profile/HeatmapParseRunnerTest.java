@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.run.profile;
+
+import com.github.fge.grappa.Grappa;
+import com.github.fge.grappa.parsers.BaseParser;
+import com.github.fge.grappa.rules.Rule;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public final class HeatmapParseRunnerTest
+{
+    static class TestParser
+        extends BaseParser<Object>
+    {
+        public Rule rule()
+        {
+            return sequence(firstOf(bang(), question()), EOI);
+        }
+
+        public Rule bang()
+        {
+            return sequence(word(), '!');
+        }
+
+        public Rule question()
+        {
+            return sequence(word(), '?');
+        }
+
+        public Rule word()
+        {
+            return oneOrMore(charRange('a', 'z'));
+        }
+
+        public Rule keyword()
+        {
+            return firstOf("abcx", word());
+        }
+    }
+
+    @Test
+    public void reScannedIndicesAreCounted()
+        throws IOException
+    {
+        final TestParser parser = Grappa.createParser(TestParser.class);
+        final HeatmapParseRunner<Object> runner
+            = new HeatmapParseRunner<>(parser.rule(), 1);
+
+        assertThat(runner.run("abc?").isSuccess()).isTrue();
+
+        final Heatmap heatmap = runner.getHeatmap();
+
+        assertThat(heatmap.getNrBuckets()).isEqualTo(5);
+        // Indices 0 to 2 are scanned twice by word; index 3 is examined by
+        // word and the literal of both alternatives; then EOI
+        assertThat(heatmap.getCount(0)).isEqualTo(2L);
+        assertThat(heatmap.getCount(2)).isEqualTo(2L);
+        assertThat(heatmap.getCount(3)).isEqualTo(4L);
+        assertThat(heatmap.getCount(4)).isEqualTo(1L);
+        assertThat(heatmap.getTotalCount()).isEqualTo(11L);
+
+        final Hotspot hotspot = heatmap.getHotspots(1).get(0);
+
+        assertThat(hotspot.getStartIndex()).isEqualTo(3);
+        assertThat(hotspot.getCount()).isEqualTo(4L);
+        assertThat(hotspot.getRules()).containsEntry("word", 2L)
+            .containsEntry("bang", 1L).containsEntry("question", 1L);
+
+        final StringBuilder sb = new StringBuilder();
+        heatmap.writeHistogram(sb);
+        assertThat(sb.toString()).isEqualTo("0;2\n1;2\n2;2\n3;4\n4;1\n");
+    }
+
+    @Test
+    public void bucketsGroupIndices()
+    {
+        final TestParser parser = Grappa.createParser(TestParser.class);
+        final HeatmapParseRunner<Object> runner
+            = new HeatmapParseRunner<>(parser.rule(), 4);
+
+        runner.run("abc?");
+
+        final Heatmap heatmap = runner.getHeatmap();
+
+        assertThat(heatmap.getNrBuckets()).isEqualTo(2);
+        assertThat(heatmap.getCount(0)).isEqualTo(10L);
+        assertThat(heatmap.getCount(1)).isEqualTo(1L);
+    }
+
+    @Test
+    public void failedTerminalsCountAllCharactersRead()
+    {
+        final TestParser parser = Grappa.createParser(TestParser.class);
+        final HeatmapParseRunner<Object> runner
+            = new HeatmapParseRunner<>(parser.keyword(), 1);
+
+        assertThat(runner.run("abcd").isSuccess()).isTrue();
+
+        final Heatmap heatmap = runner.getHeatmap();
+
+        // "abcx" reads all four characters before failing
+        for (int index = 0; index < 4; index++)
+            assertThat(heatmap.getCount(index)).isEqualTo(2L);
+        assertThat(heatmap.getHotspots(1).get(0).getRules())
+            .containsEntry("keyword", 1L).containsEntry("word", 1L);
+    }
+
+    @Test
+    public void countsOfAPreviousRunDoNotLeak()
+    {
+        final TestParser parser = Grappa.createParser(TestParser.class);
+        final HeatmapParseRunner<Object> runner
+            = new HeatmapParseRunner<>(parser.rule(), 1);
+
+        runner.run("abcdefgh?");
+        runner.run("abc?");
+
+        final Heatmap heatmap = runner.getHeatmap();
+
+        assertThat(heatmap.getNrBuckets()).isEqualTo(5);
+        assertThat(heatmap.getTotalCount()).isEqualTo(11L);
+        assertThat(heatmap.getHotspots(1).get(0).getRules())
+            .containsEntry("word", 2L).containsEntry("bang", 1L)
+            .containsEntry("question", 1L).hasSize(3);
+    }
+
+    @Test
+    public void inputsNeedingTooManyRuleCountsAreRejected()
+    {
+        final TestParser parser = Grappa.createParser(TestParser.class);
+        final HeatmapParseRunner<Object> runner
+            = new HeatmapParseRunner<>(parser.rule(), 1, 20);
+
+        // 5 buckets of 4 rules fit; 10 buckets do not
+        runner.run("abc?");
+
+        try {
+            runner.run("abcdefgh?");
+            fail("No exception thrown!");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage()).contains("larger bucket size");
+        }
+    }
+}
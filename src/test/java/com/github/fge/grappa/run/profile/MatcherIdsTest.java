@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.run.profile;
+
+import com.github.fge.grappa.Grappa;
+import com.github.fge.grappa.matchers.base.AbstractMatcher;
+import com.github.fge.grappa.matchers.base.Matcher;
+import com.github.fge.grappa.parsers.BaseParser;
+import com.github.fge.grappa.rules.Rule;
+import org.testng.annotations.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class MatcherIdsTest
+{
+    static class TestParser
+        extends BaseParser<Object>
+    {
+        public Rule rule()
+        {
+            return sequence(oneOrMore(item()), EOI);
+        }
+
+        public Rule item()
+        {
+            return firstOf('a', sequence('(', zeroOrMore(item()), ')'));
+        }
+    }
+
+    @Test
+    public void idsAreDenseAndStable()
+    {
+        final TestParser parser = Grappa.createParser(TestParser.class);
+        final MatcherIds ids = new MatcherIds((Matcher) parser.rule());
+        final int size = ids.size();
+        final Set<Matcher> matchers = new HashSet<>();
+
+        Matcher matcher;
+
+        for (int id = 0; id < size; id++) {
+            matcher = ids.get(id);
+            assertThat(ids.idOf(matcher)).isEqualTo(id);
+            assertThat(matchers.add(matcher)).isTrue();
+        }
+
+        assertThat(ids.size()).isEqualTo(size);
+    }
+
+    @Test
+    public void unknownMatchersAreGivenNewIds()
+    {
+        final TestParser parser = Grappa.createParser(TestParser.class);
+        final MatcherIds ids = new MatcherIds((Matcher) parser.rule());
+        final int size = ids.size();
+
+        final AbstractMatcher matcher = (AbstractMatcher) parser.item();
+        final AbstractMatcher relabeled = matcher.label("other");
+
+        assertThat(relabeled).isNotSameAs(matcher);
+        assertThat(ids.idOf(relabeled)).isEqualTo(size);
+        assertThat(ids.idOf(relabeled)).isEqualTo(size);
+        assertThat(ids.get(size)).isSameAs(relabeled);
+    }
+
+    @Test
+    public void matchersOfOtherParsersDoNotAffectIds()
+    {
+        final TestParser parser = Grappa.createParser(TestParser.class);
+        final MatcherIds ids = new MatcherIds((Matcher) parser.rule());
+        final int size = ids.size();
+
+        final TestParser other = Grappa.createParser(TestParser.class);
+        final MatcherIds otherIds = new MatcherIds((Matcher) other.rule());
+
+        assertThat(otherIds.size()).isEqualTo(size);
+        assertThat(otherIds.idOf((Matcher) other.rule())).isEqualTo(0);
+        assertThat(ids.idOf((Matcher) parser.rule())).isEqualTo(0);
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.run.profile;
+
+import com.github.fge.grappa.Grappa;
+import com.github.fge.grappa.parsers.BaseParser;
+import com.github.fge.grappa.rules.Rule;
+import org.testng.annotations.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class ProfilingParseRunnerTest
+{
+    static class TestParser
+        extends BaseParser<Object>
+    {
+        public Rule rule()
+        {
+            return oneOrMore(firstOf(abx(), abc()));
+        }
+
+        public Rule abx()
+        {
+            return sequence("ab", 'x');
+        }
+
+        public Rule abc()
+        {
+            return sequence("ab", 'c');
+        }
+    }
+
+    private static RuleProfile find(final ProfileReport report,
+        final String label)
+    {
+        for (final RuleProfile profile: report.getEntries())
+            if (label.equals(profile.getLabel()))
+                return profile;
+        throw new AssertionError("no profile for rule " + label);
+    }
+
+    @Test
+    public void countersAreCollected()
+    {
+        final TestParser parser = Grappa.createParser(TestParser.class);
+        final ProfilingParseRunner<Object> runner
+            = new ProfilingParseRunner<>(parser.rule());
+
+        assertThat(runner.run("abcabxabc").isSuccess()).isTrue();
+
+        final ProfileReport report = runner.snapshot();
+
+        final RuleProfile root = find(report, "rule");
+        assertThat(root.getInvocations()).isEqualTo(1L);
+        assertThat(root.getConsumedChars()).isEqualTo(9L);
+        assertThat(root.getEstimatedNanos()).isEqualTo(-1L);
+
+        final RuleProfile abx = find(report, "abx");
+        assertThat(abx.getInvocations()).isEqualTo(4L);
+        assertThat(abx.getSuccesses()).isEqualTo(1L);
+        assertThat(abx.getFailures()).isEqualTo(3L);
+        assertThat(abx.getConsumedChars()).isEqualTo(3L);
+        // "ab" was matched, then backtracked, twice; the last failure is at
+        // the end of input
+        assertThat(abx.getBacktrackedChars()).isEqualTo(4L);
+
+        final RuleProfile abc = find(report, "abc");
+        assertThat(abc.getInvocations()).isEqualTo(3L);
+        assertThat(abc.getSuccesses()).isEqualTo(2L);
+        assertThat(abc.getConsumedChars()).isEqualTo(6L);
+        assertThat(abc.getBacktrackedChars()).isEqualTo(0L);
+
+        runner.run("abc");
+        assertThat(find(runner.snapshot(), "rule").getInvocations())
+            .isEqualTo(2L);
+
+        runner.reset();
+        assertThat(runner.snapshot().getEntries()).isEmpty();
+    }
+
+    @Test
+    public void timedReportIsSortedByCost()
+    {
+        final TestParser parser = Grappa.createParser(TestParser.class);
+        final ProfilingParseRunner<Object> runner
+            = new ProfilingParseRunner<>(parser.rule(), 1);
+
+        runner.run("abcabxabc");
+
+        final ProfileReport report = runner.snapshot();
+        final RuleProfile first = report.getEntries().get(0);
+
+        assertThat(first.getEstimatedNanos())
+            .isEqualTo(find(report, "rule").getEstimatedNanos());
+
+        long previous = Long.MAX_VALUE;
+        for (final RuleProfile profile: report.getEntries()) {
+            assertThat(profile.getEstimatedNanos()).isNotNegative()
+                .isLessThanOrEqualTo(previous);
+            previous = profile.getEstimatedNanos();
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.github.fge.grappa.run.trace;
+
+import com.github.fge.grappa.Grappa;
+import com.github.fge.grappa.parsers.BaseParser;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.run.ListeningParseRunner;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public final class BinaryTracingListenerTest
+{
+    static class TestParser
+        extends BaseParser<Object>
+    {
+        public Rule rule()
+        {
+            return sequence(oneOrMore(firstOf(digit(), alpha())), EOI);
+        }
+
+        public Rule failingRule()
+        {
+            return sequence(oneOrMore(digit()), fail());
+        }
+
+        boolean fail()
+        {
+            throw new IllegalStateException("action failed");
+        }
+    }
+
+    private Path dir;
+
+    @BeforeMethod
+    public void createDirectory()
+        throws IOException
+    {
+        dir = Files.createTempDirectory("grappa");
+    }
+
+    @AfterMethod
+    public void deleteDirectory()
+        throws IOException
+    {
+        for (final String name: new String[] { "trace.bin", "binary.zip",
+            "csv.zip" })
+            Files.deleteIfExists(dir.resolve(name));
+        Files.delete(dir);
+    }
+
+    @Test
+    public void convertedTraceMatchesCsvTrace()
+        throws IOException
+    {
+        final Path tracePath = dir.resolve("trace.bin");
+        final Path binaryZip = dir.resolve("binary.zip");
+        final Path csvZip = dir.resolve("csv.zip");
+
+        final TestParser parser = Grappa.createParser(TestParser.class);
+        final ListeningParseRunner<Object> runner
+            = new ListeningParseRunner<>(parser.rule());
+
+        // Small buffers, so that buffers are handed off during the run
+        runner.registerListener(new BinaryTracingListener<>(tracePath, 64));
+        runner.registerListener(new TracingListener<>(csvZip, true));
+
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 200; i++)
+            sb.append(i % 10).append((char) ('a' + i % 26));
+
+        assertThat(runner.run(sb).isSuccess()).isTrue();
+
+        BinaryTraceReader.toZip(tracePath, binaryZip);
+
+        final List<String> binaryNodes = withoutLastColumn(
+            readEntry(binaryZip, "/nodes.csv"));
+        final List<String> csvNodes = withoutLastColumn(
+            readEntry(csvZip, "/nodes.csv"));
+
+        assertThat(binaryNodes).hasSize(csvNodes.size())
+            .isEqualTo(csvNodes);
+
+        final List<String> binaryMatchers
+            = readEntry(binaryZip, "/matchers.csv");
+        final List<String> csvMatchers = readEntry(csvZip, "/matchers.csv");
+
+        assertThat(binaryMatchers).containsOnlyElementsOf(csvMatchers)
+            .hasSize(csvMatchers.size());
+
+        assertThat(readEntry(binaryZip, "/input.txt"))
+            .isEqualTo(readEntry(csvZip, "/input.txt"));
+
+        final String binaryInfo = readEntry(binaryZip, "/info.csv").get(0);
+        final String csvInfo = readEntry(csvZip, "/info.csv").get(0);
+
+        assertThat(binaryInfo.substring(binaryInfo.indexOf(';')))
+            .isEqualTo(csvInfo.substring(csvInfo.indexOf(';')));
+    }
+
+    @Test
+    public void closingReleasesTheWriterThreadOfAnAbortedRun()
+        throws IOException, InterruptedException
+    {
+        final Path tracePath = dir.resolve("trace.bin");
+        final TestParser parser = Grappa.createParser(TestParser.class);
+        final ListeningParseRunner<Object> runner
+            = new ListeningParseRunner<>(parser.failingRule());
+
+        try (
+            final BinaryTracingListener<Object> listener
+                = new BinaryTracingListener<>(tracePath);
+        ) {
+            runner.registerListener(listener);
+            runner.run("123");
+            fail("No exception thrown!");
+        } catch (RuntimeException ignored) {
+        }
+
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5L);
+
+        while (writerThreadIsAlive()) {
+            if (System.nanoTime() > deadline)
+                fail("writer thread is still running");
+            Thread.sleep(10L);
+        }
+    }
+
+    private static boolean writerThreadIsAlive()
+    {
+        for (final Thread thread: Thread.getAllStackTraces().keySet())
+            if (thread.getName().equals("grappa-trace-writer"))
+                return true;
+        return false;
+    }
+
+    private static List<String> readEntry(final Path zipPath,
+        final String entry)
+        throws IOException
+    {
+        final URI uri = URI.create("jar:" + zipPath.toUri());
+
+        try (
+            final FileSystem zipfs = FileSystems.newFileSystem(uri,
+                Collections.<String, Object>emptyMap());
+        ) {
+            return Files.readAllLines(zipfs.getPath(entry), UTF_8);
+        }
+    }
+
+    private static List<String> withoutLastColumn(final List<String> lines)
+    {
+        final List<String> ret = new ArrayList<>(lines.size());
+        for (final String line: lines)
+            ret.add(line.substring(0, line.lastIndexOf(';')));
+        return ret;
+    }
+}
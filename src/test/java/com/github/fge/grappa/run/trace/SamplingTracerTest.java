@@ -0,0 +1,178 @@
+package com.github.fge.grappa.run.trace;
+
+import com.github.fge.grappa.Grappa;
+import com.github.fge.grappa.parsers.BaseParser;
+import com.github.fge.grappa.rules.Rule;
+import com.google.common.collect.ImmutableSet;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class SamplingTracerTest
+{
+    static class TestParser
+        extends BaseParser<Object>
+    {
+        public Rule rule()
+        {
+            return sequence(word(), ' ', number(), EOI);
+        }
+
+        public Rule word()
+        {
+            return oneOrMore(alpha());
+        }
+
+        public Rule number()
+        {
+            return oneOrMore(digit());
+        }
+    }
+
+    private Path dir;
+    private Rule rule;
+
+    @BeforeMethod
+    public void init()
+        throws IOException
+    {
+        dir = Files.createTempDirectory("grappa");
+        rule = Grappa.createParser(TestParser.class).rule();
+    }
+
+    @AfterMethod
+    public void cleanup()
+        throws IOException
+    {
+        try (
+            final DirectoryStream<Path> stream = Files.newDirectoryStream(dir);
+        ) {
+            for (final Path path: stream)
+                Files.delete(path);
+        }
+        Files.delete(dir);
+    }
+
+    @Test
+    public void noRunIsTracedByDefault()
+    {
+        final SamplingTracer<Object> tracer
+            = new SamplingTracer<>(rule, dir, 2);
+
+        for (int i = 0; i < 5; i++)
+            assertThat(tracer.run("abc 123").isSuccess()).isTrue();
+
+        assertThat(tracer.getTraces()).isEmpty();
+    }
+
+    @Test
+    public void sampledRunsAreTracedAndOldTracesDeleted()
+        throws IOException
+    {
+        final SamplingTracer<Object> tracer
+            = new SamplingTracer<>(rule, dir, 2);
+        tracer.setSampleRate(2);
+
+        for (int i = 0; i < 6; i++)
+            assertThat(tracer.run("abc 123").isSuccess()).isTrue();
+
+        final List<Path> traces = tracer.getTraces();
+
+        assertThat(traces).containsExactly(dir.resolve("trace-000001.bin"),
+            dir.resolve("trace-000002.bin"));
+        assertThat(Files.exists(dir.resolve("trace-000000.bin"))).isFalse();
+        for (final Path trace: traces)
+            assertThat(Files.size(trace)).isGreaterThan(0L);
+    }
+
+    @Test
+    public void existingTracesAreNeitherOverwrittenNorForgotten()
+        throws IOException
+    {
+        final Path stale = dir.resolve("trace-000007.bin");
+        Files.createFile(stale);
+
+        final SamplingTracer<Object> tracer
+            = new SamplingTracer<>(rule, dir, 2);
+        final SamplingTracer<Object> other
+            = new SamplingTracer<>(rule, dir, 2);
+        tracer.setSampleRate(1);
+        other.setSampleRate(1);
+
+        tracer.run("abc 123");
+        other.run("abc 123");
+
+        assertThat(tracer.getTraces()).containsExactly(stale,
+            dir.resolve("trace-000008.bin"));
+        assertThat(other.getTraces()).containsExactly(stale,
+            dir.resolve("trace-000009.bin"));
+
+        tracer.run("abc 123");
+
+        assertThat(tracer.getTraces()).containsExactly(
+            dir.resolve("trace-000008.bin"), dir.resolve("trace-000010.bin"));
+        assertThat(Files.exists(stale)).isFalse();
+    }
+
+    @Test
+    public void slowRunsAreTraced()
+    {
+        final SamplingTracer<Object> tracer
+            = new SamplingTracer<>(rule, dir, 10);
+        tracer.setLatencyThreshold(0L, TimeUnit.NANOSECONDS);
+
+        tracer.run("abc 123");
+        tracer.run("abc 123");
+
+        assertThat(tracer.getTraces()).hasSize(2);
+    }
+
+    @Test
+    public void onlySubtreesOfSelectedRulesAreRecorded()
+        throws IOException
+    {
+        final SamplingTracer<Object> tracer
+            = new SamplingTracer<>(rule, dir, 1);
+        tracer.setSampleRate(1);
+        tracer.setLabels(ImmutableSet.of("number"));
+
+        tracer.run("abc 123");
+
+        final Path zipPath = dir.resolve("trace.zip");
+        BinaryTraceReader.toZip(tracer.getTraces().get(0), zipPath);
+
+        final URI uri = URI.create("jar:" + zipPath.toUri());
+        final List<String> matchers;
+        final List<String> nodes;
+
+        try (
+            final FileSystem zipfs = FileSystems.newFileSystem(uri,
+                Collections.<String, Object>emptyMap());
+        ) {
+            matchers = Files.readAllLines(zipfs.getPath("/matchers.csv"),
+                UTF_8);
+            nodes = Files.readAllLines(zipfs.getPath("/nodes.csv"), UTF_8);
+        }
+
+        // number, and the digit matcher
+        assertThat(matchers).hasSize(2);
+        assertThat(matchers.get(0)).endsWith(";number");
+        // three digits, a failed digit, then number itself
+        assertThat(nodes).hasSize(5);
+        assertThat(nodes.get(4)).startsWith("-1;");
+    }
+}
@@ -0,0 +1,111 @@
+package com.github.fge.grappa.run.trace;
+
+import com.github.fge.grappa.Grappa;
+import com.github.fge.grappa.parsers.BaseParser;
+import com.github.fge.grappa.rules.Rule;
+import com.github.fge.grappa.run.ListeningParseRunner;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class TraceAnalyzerTest
+{
+    static class TestParser
+        extends BaseParser<Object>
+    {
+        public Rule rule()
+        {
+            return sequence(firstOf(bang(), question()), EOI);
+        }
+
+        public Rule bang()
+        {
+            return sequence(word(), '!');
+        }
+
+        public Rule question()
+        {
+            return sequence(word(), '?');
+        }
+
+        public Rule word()
+        {
+            return oneOrMore(charRange('a', 'z'));
+        }
+    }
+
+    private Path zipPath;
+    private TraceAnalysis analysis;
+
+    @BeforeClass
+    public void trace()
+        throws IOException
+    {
+        zipPath = Files.createTempFile("trace", ".zip");
+
+        final TestParser parser = Grappa.createParser(TestParser.class);
+        final ListeningParseRunner<Object> runner
+            = new ListeningParseRunner<>(parser.rule());
+        runner.registerListener(new TracingListener<>(zipPath, true));
+
+        assertThat(runner.run("abc?").isSuccess()).isTrue();
+
+        analysis = new TraceAnalyzer(5).analyze(zipPath);
+    }
+
+    @AfterClass
+    public void cleanup()
+        throws IOException
+    {
+        Files.deleteIfExists(zipPath);
+    }
+
+    @Test
+    public void rulesAreReportedByTime()
+    {
+        assertThat(analysis.getNrNodes()).isGreaterThan(0L);
+        assertThat(analysis.getTopBySelfTime()).hasSize(5);
+        assertThat(analysis.getTopByInclusiveTime().get(0).getName())
+            .isEqualTo("rule");
+
+        long previous = Long.MAX_VALUE;
+        for (final RuleStats stats: analysis.getTopBySelfTime()) {
+            assertThat(stats.getSelfNanos()).isLessThanOrEqualTo(previous);
+            previous = stats.getSelfNanos();
+        }
+    }
+
+    @Test
+    public void reinvocationsAreReported()
+    {
+        RuleStats word = null;
+
+        for (final RuleStats stats: analysis.getTopByReinvocations())
+            if ("word".equals(stats.getName()))
+                word = stats;
+
+        assertThat(word).isNotNull();
+        assertThat(word.getInvocations()).isEqualTo(2L);
+        assertThat(word.getReinvocations()).isEqualTo(1L);
+    }
+
+    @Test
+    public void longestFailureAndDepthAreReported()
+    {
+        final TraceNode failure = analysis.getLongestFailures().get(0);
+
+        assertThat(failure.getRule().getName()).isEqualTo("bang");
+        assertThat(failure.isSuccess()).isFalse();
+        assertThat(failure.getStart()).isEqualTo(0);
+        assertThat(failure.getEnd()).isEqualTo(3);
+
+        // rule, firstOf, bang, word, charRange
+        assertThat(analysis.getDeepestNode().getLevel()).isEqualTo(4);
+    }
+}
@@ -27,6 +27,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Random;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.failBecauseExceptionWasNotThrown;
@@ -324,4 +325,60 @@ public final class DefaultValueStackTest
 
         soft.assertAll();
     }
+
+    /*
+     * Apply operations at random depths, taking a snapshot after each of them,
+     * and compare with a list; then restore the snapshots
+     */
+    @Test
+    public void operationsBelowTheTopDoNotAlterSnapshots()
+    {
+        final Random random = new Random(0L);
+        final List<Object> expected = new ArrayList<>();
+        final List<Object> snapshots = new ArrayList<>();
+        final List<List<Object>> contents = new ArrayList<>();
+        final SoftAssertions soft = new SoftAssertions();
+
+        int down;
+
+        for (int i = 0; i < 2000; i++) {
+            down = expected.isEmpty() ? 0 : random.nextInt(expected.size());
+            switch (expected.size() < 2 ? 0 : random.nextInt(5)) {
+                case 0:
+                    down = random.nextInt(expected.size() + 1);
+                    stack.push(down, i);
+                    expected.add(down, i);
+                    break;
+                case 1:
+                    soft.assertThat(stack.pop(down))
+                        .isEqualTo(expected.remove(down));
+                    break;
+                case 2:
+                    stack.poke(down, i);
+                    expected.set(down, i);
+                    break;
+                case 3:
+                    down = 2 + random.nextInt(expected.size() - 1);
+                    stack.swap(down);
+                    Collections.reverse(expected.subList(0, down));
+                    break;
+                default:
+                    stack.dup();
+                    expected.add(0, expected.get(0));
+            }
+            snapshots.add(stack.takeSnapshot());
+            contents.add(new ArrayList<>(expected));
+        }
+
+        for (int i = snapshots.size() - 1; i >= 0; i -= 7) {
+            stack.restoreSnapshot(snapshots.get(i));
+            soft.assertThat(stack).as("snapshot %d", i)
+                .containsExactlyElementsOf(contents.get(i));
+            // writing after a restore must not alter older snapshots either
+            stack.push(stack.size(), -1);
+            stack.poke(stack.size() - 1, -2);
+        }
+
+        soft.assertAll();
+    }
 }
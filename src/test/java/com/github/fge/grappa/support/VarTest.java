@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.fge.grappa.support;
+
+import org.testng.annotations.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public final class VarTest
+{
+    @Test
+    public void framesRestoreEnclosingValuesAndKeepTheLastOne()
+    {
+        final Var<Integer> var = new Var<>(0);
+
+        var.enterFrame();
+        var.set(1);
+        var.enterFrame();
+        assertThat(var.get()).isEqualTo(0);
+        var.set(2);
+        var.exitFrame();
+        assertThat(var.get()).isEqualTo(1);
+        var.exitFrame();
+
+        assertThat(var.getLevel()).isEqualTo(0);
+        assertThat(var.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void framesHandedBackBehaveTheSame()
+    {
+        final Var<Integer> var = new Var<>(0);
+
+        final Object outer = var.enterFrameAndGet();
+        var.set(1);
+        final Object inner = var.enterFrameAndGet();
+        assertThat(inner).isEqualTo(1);
+        assertThat(var.get()).isEqualTo(0);
+        var.set(2);
+        var.exitFrame(inner);
+        assertThat(var.get()).isEqualTo(1);
+        var.exitFrame(outer);
+
+        assertThat(var.getLevel()).isEqualTo(0);
+        assertThat(var.get()).isEqualTo(1);
+    }
+}
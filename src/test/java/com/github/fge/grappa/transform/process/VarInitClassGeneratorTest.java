@@ -120,6 +120,13 @@ public class VarInitClassGeneratorTest extends TransformationTest {
                 "    ARETURN\n" +
                 "    MAXSTACK = 1\n" +
                 "    MAXLOCALS = 1\n" +
+                "\n" +
+                "  // access flags 0x1\n" +
+                "  public isConstant()Z\n" +
+                "    ICONST_1\n" +
+                "    IRETURN\n" +
+                "    MAXSTACK = 1\n" +
+                "    MAXLOCALS = 1\n" +
                 "}\n");
 
         group = method.getGroups().get(2);
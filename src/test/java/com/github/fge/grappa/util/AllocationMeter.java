@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2015 Francis Galiegue <fgaliegue@gmail.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.fge.grappa.util;
+
+import com.github.fge.grappa.buffers.InputBuffer;
+import com.github.fge.grappa.run.ParseRunner;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Measure the number of bytes allocated by warm parses
+ *
+ * <p>This relies on {@code com.sun.management.ThreadMXBean}, which not all
+ * JVMs provide; check {@link #isSupported()} before use.</p>
+ */
+public final class AllocationMeter
+{
+    private static final ThreadMXBean BEAN
+        = ManagementFactory.getThreadMXBean();
+
+    private AllocationMeter()
+    {
+        throw new Error("nice try!");
+    }
+
+    /**
+     * Tell whether allocation can be measured on this JVM
+     *
+     * @return see description
+     */
+    public static boolean isSupported()
+    {
+        if (!(BEAN instanceof com.sun.management.ThreadMXBean))
+            return false;
+        final com.sun.management.ThreadMXBean bean
+            = (com.sun.management.ThreadMXBean) BEAN;
+        if (!bean.isThreadAllocatedMemorySupported())
+            return false;
+        if (!bean.isThreadAllocatedMemoryEnabled())
+            bean.setThreadAllocatedMemoryEnabled(true);
+        return true;
+    }
+
+    /**
+     * Return the number of bytes allocated per input character by a warm
+     * parse
+     *
+     * <p>The parse is first run {@code warmups} times; it is then run {@code
+     * runs} times, and the lowest allocation of these runs is retained, minus
+     * the cost of the measurement itself.</p>
+     *
+     * @param runner the parse runner
+     * @param buffer the input; it must be matched by the runner
+     * @param warmups the number of warmup runs
+     * @param runs the number of measured runs
+     * @return see description
+     */
+    public static double bytesPerChar(final ParseRunner<?> runner,
+        final InputBuffer buffer, final int warmups, final int runs)
+    {
+        if (!runner.run(buffer).isSuccess())
+            throw new AssertionError("input is not matched by this runner");
+
+        for (int i = 0; i < warmups; i++)
+            runner.run(buffer);
+
+        long overhead = Long.MAX_VALUE;
+        long allocated = Long.MAX_VALUE;
+        long before;
+
+        for (int i = 0; i < runs; i++) {
+            before = allocatedBytes();
+            overhead = Math.min(overhead, allocatedBytes() - before);
+            before = allocatedBytes();
+            runner.run(buffer);
+            allocated = Math.min(allocated, allocatedBytes() - before);
+        }
+
+        return (double) Math.max(allocated - overhead, 0L) / buffer.length();
+    }
+
+    private static long allocatedBytes()
+    {
+        return ((com.sun.management.ThreadMXBean) BEAN)
+            .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}